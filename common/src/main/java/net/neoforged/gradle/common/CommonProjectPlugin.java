@@ -21,6 +21,10 @@ import net.neoforged.gradle.common.runtime.definition.CommonRuntimeDefinition;
 import net.neoforged.gradle.common.runtime.extensions.RuntimesExtension;
 import net.neoforged.gradle.common.runtime.naming.OfficialNamingChannelConfigurator;
 import net.neoforged.gradle.common.services.caching.CachedExecutionService;
+import net.neoforged.gradle.common.services.downloads.DownloadCoordinatorService;
+import net.neoforged.gradle.common.services.tools.ToolExecutionService;
+import net.neoforged.gradle.common.services.downloads.DownloadIndexService;
+import net.neoforged.gradle.common.services.metadata.MetadataCacheService;
 import net.neoforged.gradle.common.tasks.CleanCache;
 import net.neoforged.gradle.common.tasks.DisplayMappingsLicenseTask;
 import net.neoforged.gradle.common.util.CommonRuntimeTaskUtils;
@@ -72,6 +76,10 @@ public class CommonProjectPlugin implements Plugin<Project> {
 
         //Register the services
         CachedExecutionService.register(project);
+        MetadataCacheService.register(project);
+        DownloadIndexService.register(project);
+        DownloadCoordinatorService.register(project);
+        ToolExecutionService.register(project);
 
         // Apply both the idea and eclipse IDE plugins
         project.getPluginManager().apply(IdeaPlugin.class);
@@ -1,21 +1,23 @@
 package net.neoforged.gradle.common.extensions;
 
 import com.google.common.collect.ImmutableMap;
-import com.google.gson.JsonElement;
-import com.google.gson.JsonObject;
 import net.minecraftforge.gdi.ConfigurableDSLElement;
+import net.neoforged.gradle.common.services.downloads.DownloadCoordinatorService;
+import net.neoforged.gradle.common.services.downloads.DownloadIndexService;
+import net.neoforged.gradle.common.services.metadata.MetadataCacheService;
 import net.neoforged.gradle.common.tasks.MinecraftVersionManifestFileCacheProvider;
 import net.neoforged.gradle.common.util.FileCacheUtils;
 import net.neoforged.gradle.common.util.FileDownloadingUtils;
+import net.neoforged.gradle.common.util.LauncherManifest;
 import net.neoforged.gradle.common.util.MinecraftArtifactType;
-import net.neoforged.gradle.common.util.SerializationUtils;
+import net.neoforged.gradle.common.util.VersionJson;
+import net.neoforged.gradle.common.util.download.ArtifactStore;
 import net.neoforged.gradle.dsl.common.extensions.MinecraftArtifactCache;
 import net.neoforged.gradle.dsl.common.tasks.WithOutput;
 import net.neoforged.gradle.dsl.common.util.CacheFileSelector;
 import net.neoforged.gradle.dsl.common.util.DistributionType;
 import net.neoforged.gradle.dsl.common.util.GameArtifact;
 import net.neoforged.gradle.dsl.common.util.MinecraftVersionAndUrl;
-import net.neoforged.gradle.util.HashFunction;
 import net.neoforged.gradle.util.UrlConstants;
 import org.gradle.api.Project;
 import org.gradle.api.file.DirectoryProperty;
@@ -36,6 +38,9 @@ public abstract class MinecraftArtifactCacheExtension implements ConfigurableDSL
 
     private final Project project;
     private final Map<CacheFileSelector, File> cacheFiles;
+    private final Provider<MetadataCacheService> metadataCache;
+    private final Provider<DownloadIndexService> downloadIndex;
+    private final Provider<DownloadCoordinatorService> downloadCoordinator;
 
     private static final class TaskKey{
         private final Project project;
@@ -67,6 +72,9 @@ public abstract class MinecraftArtifactCacheExtension implements ConfigurableDSL
     public MinecraftArtifactCacheExtension(Project project) {
         this.project = project;
         this.cacheFiles = new ConcurrentHashMap<>();
+        this.metadataCache = MetadataCacheService.register(project);
+        this.downloadIndex = DownloadIndexService.register(project);
+        this.downloadCoordinator = DownloadCoordinatorService.register(project);
 
         //TODO: Move this to gradle user home.
         this.getCacheDirectory().fileProvider(project.provider(() -> new File(project.getGradle().getGradleUserHomeDir(), "caches/minecraft")));
@@ -156,23 +164,12 @@ public abstract class MinecraftArtifactCacheExtension implements ConfigurableDSL
     private File downloadVersionManifestToCache(Project project, final File cacheDirectory, final String minecraftVersion) {
         final File manifestFile = new File(new File(cacheDirectory, CacheFileSelector.launcherMetadata().getCacheDirectory()), CacheFileSelector.launcherMetadata().getCacheFileName());
 
-        String url = null;
-
-        JsonObject json = SerializationUtils.fromJson(manifestFile, JsonObject.class);
-
-        for (JsonElement e : json.getAsJsonArray("versions")) {
-            String v = e.getAsJsonObject().get("id").getAsString();
-            if (Objects.equals(minecraftVersion, "+") || v.equals(minecraftVersion)) {
-                url = e.getAsJsonObject().get("url").getAsString();
-                break;
-            }
-        }
-
-        if (url == null) {
+        final LauncherManifest.Version version = metadataCache.get().getLauncherManifest(manifestFile).find(minecraftVersion);
+        if (version == null) {
             throw new IllegalStateException("Could not find the correct version json for version: " + minecraftVersion);
         }
 
-        return downloadJsonToCache(project, url, cacheDirectory, CacheFileSelector.forVersionJson(minecraftVersion));
+        return downloadJsonToCache(project, version.getUrl(), cacheDirectory, CacheFileSelector.forVersionJson(minecraftVersion));
     }
 
     private File downloadVersionArtifactToCache(final Project project, final File cacheDirectory, String minecraftVersion, final DistributionType side) {
@@ -203,25 +200,20 @@ public abstract class MinecraftArtifactCacheExtension implements ConfigurableDSL
         final File versionManifestFile = this.cacheVersionManifest(minecraftVersionAndUrl);
 
         try {
-            JsonObject json = SerializationUtils.fromJson(versionManifestFile, JsonObject.class);
+            final VersionJson json = metadataCache.get().getVersionJson(versionManifestFile);
 
-            JsonObject artifactInfo = json.getAsJsonObject("downloads").getAsJsonObject(artifact);
-            String url = artifactInfo.get("url").getAsString();
-            String hash = artifactInfo.get("sha1").getAsString();
-            String version = json.getAsJsonObject().get("id").getAsString();
+            final VersionJson.Download artifactInfo = json.getDownloads().get(artifact);
+            String url = artifactInfo.getUrl().toString();
+            String hash = artifactInfo.getSha1();
+            String version = json.getId();
 
             final FileDownloadingUtils.DownloadInfo info = new FileDownloadingUtils.DownloadInfo(url, hash, "jar", version, artifact);
 
             final File cacheFile = new File(new File(cacheDirectory, cacheFileSelector.getCacheDirectory()), cacheFileSelector.getCacheFileName());
+            final ArtifactStore store = new ArtifactStore(FileCacheUtils.getArtifactStoreDirectory(project).get().getAsFile());
 
-            if (cacheFile.exists()) {
-                final String fileHash = HashFunction.SHA1.hash(cacheFile);
-                if (fileHash.equals(hash)) {
-                    return cacheFile;
-                }
-            }
-
-            FileDownloadingUtils.downloadTo(project.getGradle().getStartParameter().isOffline(), info, cacheFile);
+            downloadCoordinator.get().getCoordinator().download(url, hash, cacheFile,
+                    () -> FileDownloadingUtils.downloadTo(project.getGradle().getStartParameter().isOffline(), info, cacheFile, store, downloadIndex.get().getIndex(), downloadCoordinator.get().getScheduler()));
             return cacheFile;
         } catch (IOException e) {
             throw new RuntimeException(potentialError, e);
@@ -235,22 +227,25 @@ public abstract class MinecraftArtifactCacheExtension implements ConfigurableDSL
     }
 
     private void downloadJsonTo(Project project, String url, File file) {
-        FileDownloadingUtils.downloadThrowing(project.getGradle().getStartParameter().isOffline(), new FileDownloadingUtils.DownloadInfo(url, null, "json", null, null), file);
+        final FileDownloadingUtils.DownloadInfo info = new FileDownloadingUtils.DownloadInfo(url, null, "json", null, null);
+        try {
+            downloadCoordinator.get().getCoordinator().download(url, null, file,
+                    () -> FileDownloadingUtils.downloadThrowing(project.getGradle().getStartParameter().isOffline(), info, file, downloadIndex.get().getIndex(), downloadCoordinator.get().getScheduler()));
+        } catch (IOException e) {
+            throw new RuntimeException(String.format("Failed to download the file from: %s to: %s", url, file), e);
+        }
     }
 
     @Override
     public MinecraftVersionAndUrl resolveVersion(final String gameVersion) {
         final File launcherMetadata = this.cacheLauncherMetadata();
 
-        JsonObject json = SerializationUtils.fromJson(launcherMetadata, JsonObject.class);
-
-        for (JsonElement e : json.getAsJsonArray("versions")) {
-            if (gameVersion.equals("+") || e.getAsJsonObject().get("id").getAsString().equals(gameVersion)) {
-                return new MinecraftVersionAndUrl(e.getAsJsonObject().get("id").getAsString(), e.getAsJsonObject().get("url").getAsString());
-            }
+        final LauncherManifest.Version version = metadataCache.get().getLauncherManifest(launcherMetadata).find(gameVersion);
+        if (version == null) {
+            throw new IllegalStateException("Could not find the correct version json.");
         }
 
-        throw new IllegalStateException("Could not find the correct version json.");
+        return new MinecraftVersionAndUrl(version.getId(), version.getUrl());
     }
 
     public Provider<MinecraftVersionAndUrl> resolveVersion(Provider<String> gameVersion) {
@@ -3,6 +3,7 @@ package net.neoforged.gradle.common.extensions.subsystems;
 import net.minecraftforge.gdi.ConfigurableDSLElement;
 import net.neoforged.gradle.common.extensions.base.WithEnabledProperty;
 import net.neoforged.gradle.common.extensions.base.WithPropertyLookup;
+import net.neoforged.gradle.common.util.download.DownloadScheduler;
 import net.neoforged.gradle.dsl.common.extensions.subsystems.*;
 import net.neoforged.gradle.dsl.common.extensions.subsystems.tools.RenderDocTools;
 import org.gradle.api.GradleException;
@@ -40,6 +41,20 @@ public abstract class SubsystemsExtension extends WithPropertyLookup implements
         configureToolsDefaults();
         configureDevLoginDefaults();
         configureRenderDocDefaults();
+        configureDownloadsDefaults();
+    }
+
+    private void configureDownloadsDefaults() {
+        Downloads downloads = getDownloads();
+        downloads.getMaxConcurrentDownloads().convention(
+                getStringProperty("downloads.maxConcurrentDownloads", String.valueOf(DownloadScheduler.DEFAULT_MAX_CONCURRENT_DOWNLOADS)).map(Integer::parseUnsignedInt)
+        );
+        downloads.getMaxConcurrentDownloadsPerHost().convention(
+                getStringProperty("downloads.maxConcurrentDownloadsPerHost", String.valueOf(DownloadScheduler.DEFAULT_MAX_CONCURRENT_DOWNLOADS_PER_HOST)).map(Integer::parseUnsignedInt)
+        );
+        downloads.getMaxBytesPerSecond().convention(
+                getStringProperty("downloads.maxBytesPerSecond", "0").map(Long::parseUnsignedLong)
+        );
     }
 
     private void configureRenderDocDefaults() {
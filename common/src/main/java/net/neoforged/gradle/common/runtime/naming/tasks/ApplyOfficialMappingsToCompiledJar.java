@@ -3,6 +3,7 @@ package net.neoforged.gradle.common.runtime.naming.tasks;
 import com.google.common.collect.Lists;
 import net.neoforged.gradle.common.runtime.tasks.DefaultExecute;
 import net.neoforged.gradle.common.util.ToolUtilities;
+import net.neoforged.gradle.common.util.tools.ToolExecutionMode;
 import net.neoforged.gradle.dsl.common.extensions.MinecraftArtifactCache;
 import net.neoforged.gradle.dsl.common.extensions.subsystems.Tools;
 import net.neoforged.gradle.dsl.common.tasks.WithOutput;
@@ -43,6 +44,7 @@ public abstract class ApplyOfficialMappingsToCompiledJar extends DefaultExecute
         getOutput().convention(getOutputDirectory().map(d -> d.file("output.jar")));
         
         getShouldReverseMappings().convention(true);
+        getExecutionMode().convention(ToolExecutionMode.DAEMON);
     }
 
     @Input
@@ -2,6 +2,7 @@ package net.neoforged.gradle.common.runtime.tasks;
 
 import com.google.common.collect.Lists;
 import net.neoforged.gradle.common.util.ToolUtilities;
+import net.neoforged.gradle.common.util.tools.ToolExecutionMode;
 import net.neoforged.gradle.dsl.common.extensions.subsystems.Subsystems;
 import net.neoforged.gradle.dsl.common.extensions.subsystems.Tools;
 import net.neoforged.gradle.dsl.common.util.Constants;
@@ -45,6 +46,7 @@ public abstract class BinaryAccessTransformer extends DefaultExecute {
         );
 
         getTransformers().finalizeValueOnRead();
+        getExecutionMode().convention(ToolExecutionMode.DAEMON);
     }
 
     @InputFile
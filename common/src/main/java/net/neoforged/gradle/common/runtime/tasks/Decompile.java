@@ -0,0 +1,162 @@
+package net.neoforged.gradle.common.runtime.tasks;
+
+import net.neoforged.gradle.common.util.decompile.IncrementalDecompilation;
+import net.neoforged.gradle.common.util.hash.Hasher;
+import net.neoforged.gradle.common.util.hash.Hashing;
+import net.neoforged.gradle.dsl.common.util.RegexUtils;
+import org.apache.commons.io.FileUtils;
+import org.gradle.api.provider.Property;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.tasks.CacheableTask;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.TaskAction;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.regex.Matcher;
+
+/**
+ * Runs the decompiler on the game jar.
+ * <p>
+ * By default, only the classes which changed since the previous run of the task, and the classes which depend on them,
+ * are decompiled again. Their sources replace those in the previous output. As that output depends on the previous
+ * output of the task, and not only on its inputs, it is neither stored in the execution cache nor in the build cache.
+ *
+ * @see IncrementalDecompilation
+ */
+@CacheableTask
+public abstract class Decompile extends DefaultExecute {
+
+    /**
+     * Whether decompilation is incremental, which is the default. If disabled, the whole jar is decompiled on every run.
+     */
+    public static final String INCREMENTAL_PROPERTY = "net.neoforged.gradle.decompile.incremental";
+
+    private Map<String, String> substitutions = Map.of();
+
+    public Decompile() {
+        super();
+
+        setDescription("Decompiles the game jar.");
+
+        getIncremental().convention(getProviderFactory().gradleProperty(INCREMENTAL_PROPERTY).map(Boolean::parseBoolean).orElse(true));
+        getOutputs().doNotCacheIf("The previous output is decompiled incrementally", task -> isIncrementalRun());
+    }
+
+    @TaskAction
+    @Override
+    public void execute() throws Throwable {
+        if (isIncrementalRun()) {
+            doExecute();
+            return;
+        }
+
+        super.execute();
+    }
+
+    @Override
+    public void doExecute() throws Exception {
+        final Map<String, Provider<String>> arguments = getRuntimeArguments().get();
+        if (!getIncremental().get() || !arguments.containsKey("input") || !arguments.containsKey("libraries")) {
+            super.doExecute();
+            return;
+        }
+
+        final File input = new File(arguments.get("input").get());
+        final File libraries = new File(arguments.get("libraries").get());
+        final File output = ensureFileWorkspaceReady(getOutput());
+        final File stateDirectory = getStateDirectory();
+        final IncrementalDecompilation decompilation = new IncrementalDecompilation(stateDirectory);
+
+        final String fingerprint = fingerprint(libraries);
+        final Optional<IncrementalDecompilation.Plan> plan = decompilation.plan(fingerprint, input);
+        decompilation.invalidate();
+        if (plan.isEmpty()) {
+            getLogger().info("Decompiling all classes of {}", input);
+            super.doExecute();
+        } else {
+            getLogger().info("Decompiling {} changed and dependent classes of {}", plan.get().classes().size(), input);
+            decompile(decompilation, plan.get(), input, libraries, new File(stateDirectory, "work"), output);
+        }
+        decompilation.save(fingerprint, input, output);
+    }
+
+    private void decompile(IncrementalDecompilation decompilation, IncrementalDecompilation.Plan plan, File input, File libraries, File workDirectory, File output) throws Exception {
+        if (!plan.requiresDecompiler()) {
+            decompilation.splice(plan, null, output);
+            return;
+        }
+
+        FileUtils.deleteDirectory(workDirectory);
+        Files.createDirectories(workDirectory.toPath());
+
+        final File partialInput = new File(workDirectory, "input.jar");
+        final File library = new File(workDirectory, "library.jar");
+        final File partialLibraries = new File(workDirectory, "libraries.cfg");
+        final File partialOutput = new File(workDirectory, "output.jar");
+        decompilation.writeInputs(plan, input, partialInput, library);
+
+        //The unchanged classes are a library of the changed ones, which the decompiler needs to resolve references.
+        final String libraryList = Files.readString(libraries.toPath(), StandardCharsets.UTF_8);
+        Files.writeString(partialLibraries.toPath(), libraryList + (libraryList.isEmpty() || libraryList.endsWith("\n") ? "" : "\n") + "-e=" + library.getAbsolutePath() + "\n", StandardCharsets.UTF_8);
+
+        substitutions = Map.of(
+                "input", partialInput.getAbsolutePath(),
+                "libraries", partialLibraries.getAbsolutePath(),
+                "output", partialOutput.getAbsolutePath()
+        );
+        try {
+            super.doExecute();
+        } finally {
+            substitutions = Map.of();
+        }
+
+        decompilation.splice(plan, partialOutput, ensureFileWorkspaceReady(output));
+        FileUtils.deleteDirectory(workDirectory);
+    }
+
+    @Override
+    public List<String> interpolateVariableSubstitution(String value, String previous) {
+        final Matcher matcher = RegexUtils.REPLACE_PATTERN.matcher(value);
+        if (matcher.find() && substitutions.containsKey(matcher.group(1))) {
+            return List.of(substitutions.get(matcher.group(1)));
+        }
+
+        return super.interpolateVariableSubstitution(value, previous);
+    }
+
+    /**
+     * @return Whether the previous output may be decompiled incrementally, in which case the output is not cached.
+     */
+    private boolean isIncrementalRun() {
+        return getIncremental().get() && new IncrementalDecompilation(getStateDirectory()).hasState();
+    }
+
+    private File getStateDirectory() {
+        return getOutputDirectory().dir("incremental").get().getAsFile();
+    }
+
+    /**
+     * @return The fingerprint of everything but the input which decides the output of the decompiler.
+     */
+    private String fingerprint(File libraries) throws IOException {
+        final Hasher hasher = Hashing.newHasher();
+        hasher.putHash(Hashing.hashFile(getExecutingJar().get().getAsFile()));
+        hasher.putString(getMainClass().get());
+        getJvmArguments().get().forEach(hasher::putString);
+        getRuntimeProgramArguments().get().forEach(hasher::putString);
+        hasher.putHash(Hashing.hashFile(libraries));
+        return hasher.hash().toString();
+    }
+
+    /**
+     * @return Whether only the changed classes are decompiled, the output is the same either way.
+     */
+    @Internal
+    public abstract Property<Boolean> getIncremental();
+}
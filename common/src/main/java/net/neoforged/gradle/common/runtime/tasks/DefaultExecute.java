@@ -2,19 +2,36 @@ package net.neoforged.gradle.common.runtime.tasks;
 
 import net.neoforged.gradle.common.services.caching.CachedExecutionService;
 import net.neoforged.gradle.common.services.caching.jobs.ICacheableJob;
+import net.neoforged.gradle.common.services.tools.ToolExecutionService;
+import net.neoforged.gradle.common.util.tools.InProcessTools;
+import net.neoforged.gradle.common.util.tools.ToolDaemon;
+import net.neoforged.gradle.common.util.tools.ToolDaemons;
+import net.neoforged.gradle.common.util.tools.ToolExecutionMode;
 import net.neoforged.gradle.dsl.common.tasks.Execute;
 import net.neoforged.gradle.util.TransformerUtils;
+import org.gradle.api.GradleException;
 import org.gradle.api.provider.ListProperty;
 import org.gradle.api.provider.Property;
 import org.gradle.api.provider.Provider;
 import org.gradle.api.services.ServiceReference;
 import org.gradle.api.tasks.CacheableTask;
 import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.Internal;
 import org.gradle.api.tasks.TaskAction;
 
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.util.List;
 import java.util.Map;
+import java.util.OptionalInt;
+import java.util.function.Function;
 import java.util.jar.Attributes;
 import java.util.jar.JarFile;
+import java.util.stream.Collectors;
 
 @CacheableTask
 public abstract class DefaultExecute extends DefaultRuntime implements Execute {
@@ -37,11 +54,15 @@ public abstract class DefaultExecute extends DefaultRuntime implements Execute {
         getMultiRuntimeArguments().convention(getMultiArguments().AsMap());
 
         getLogLevel().convention(LogLevel.ERROR);
+        getExecutionMode().convention(ToolExecutionMode.FORK);
     }
 
     @ServiceReference(CachedExecutionService.NAME)
     public abstract Property<CachedExecutionService> getCacheService();
 
+    @ServiceReference(ToolExecutionService.NAME)
+    public abstract Property<ToolExecutionService> getToolExecution();
+
     @TaskAction
     public void execute() throws Throwable {
         getCacheService().get()
@@ -51,6 +72,83 @@ public abstract class DefaultExecute extends DefaultRuntime implements Execute {
                         ).execute();
     }
 
+    @Override
+    public void doExecute() throws Exception {
+        final ToolExecutionMode mode = getExecutionMode().get();
+        final ToolExecutionService toolExecution = getToolExecution().get();
+        //Running in process is opt-in, for tools which can also run in a daemon.
+        if (mode != ToolExecutionMode.FORK && toolExecution.useInProcess() && executeWithoutFork(true)) {
+            return;
+        }
+
+        if (mode != ToolExecutionMode.FORK && toolExecution.useDaemons() && executeWithoutFork(false)) {
+            return;
+        }
+
+        Execute.super.doExecute();
+    }
+
+    /**
+     * Runs the tool in a daemon, or in process, with the same logs as a forked run.
+     *
+     * @param inProcess True to run the tool in process, false to run it in a daemon.
+     * @return True if the tool ran, false if it can not run in the mode and has to run in another mode instead.
+     * @throws GradleException If the tool failed with a non-zero exit code.
+     */
+    private boolean executeWithoutFork(boolean inProcess) throws IOException {
+        final int javaVersion = getJavaLauncher().get().getMetadata().getLanguageVersion().asInt();
+        final List<String> jvmArgs = applyVariableSubstitutions(getJvmArguments()).get();
+        if (inProcess && (javaVersion > Runtime.version().feature() || !jvmArgs.isEmpty())) {
+            //The tool might need a newer JVM than that of the build, or JVM arguments which can not apply in process.
+            return false;
+        }
+
+        final List<String> programArgs = applyVariableSubstitutions(getRuntimeProgramArguments()).get();
+
+        final File outputFile = ensureFileWorkspaceReady(getOutput());
+        final File logFile = ensureFileWorkspaceReady(getLogFile());
+        final File consoleLogFile = ensureFileWorkspaceReady(getConsoleLogFile().get());
+
+        final String mainClass = getMainClass().get();
+        final String executable = inProcess ? System.getProperty("java.home") : getExecutablePath().get();
+        final List<File> classpath = List.of(getExecutingJar().get().getAsFile());
+        final ToolDaemon.Key key = new ToolDaemon.Key(executable, javaVersion, jvmArgs, classpath);
+        final ToolDaemons daemons = getToolExecution().get().getDaemons();
+        final InProcessTools inProcessTools = getToolExecution().get().getInProcessTools();
+
+        final OptionalInt exitCode;
+        try (OutputStream errorOut = new Execute.LoggerOutputStream(getLogger(), getLogLevel().get());
+             BufferedOutputStream logOut = new BufferedOutputStream(new FileOutputStream(consoleLogFile));
+             OutputStream standardOut = new Execute.LogLevelAwareOutputStream(logOut, LogLevel.WARN, getLogLevel().get())) {
+            final PrintWriter writer = new PrintWriter(logOut);
+            final Function<String, String> quote = s -> '"' + s + '"';
+            writer.println("JVM Args:          " + jvmArgs.stream().map(quote).collect(Collectors.joining(", ")));
+            writer.println("Run Args:          " + programArgs.stream().map(quote).collect(Collectors.joining(", ")));
+            writer.println("JVM:               " + executable + (inProcess ? " (in process)" : " (tool daemon)"));
+            writer.println("Classpath:         " + classpath.get(0).getAbsolutePath());
+            writer.println("Working Dir:       " + (inProcess ? "(shared by the build)" : "(shared by the tool daemon)"));
+            writer.println("Main Class:        " + mainClass);
+            writer.println("Program log file:  " + logFile.getAbsolutePath());
+            writer.println("Output file:       " + outputFile.getAbsolutePath());
+            writer.flush();
+
+            exitCode = inProcess
+                    ? inProcessTools.run(classpath, mainClass, programArgs, standardOut, errorOut)
+                    : daemons.run(key, mainClass, programArgs, standardOut, errorOut);
+        }
+
+        if (exitCode.isEmpty()) {
+            return false;
+        }
+
+        if (exitCode.getAsInt() != 0) {
+            //Only failures to run the tool fall back to another mode, failures of the tool itself are reported as they are.
+            throw new GradleException("%s finished with non-zero exit value %d %s, see: %s".formatted(mainClass, exitCode.getAsInt(), inProcess ? "in process" : "in a tool daemon", consoleLogFile.getAbsolutePath()));
+        }
+
+        return true;
+    }
+
     @Input
     public abstract Property<String> getConsoleLogFileName();
 
@@ -60,6 +158,12 @@ public abstract class DefaultExecute extends DefaultRuntime implements Execute {
     @Input
     public abstract ListProperty<String> getProgramArguments();
 
+    /**
+     * @return How the tool is run, it produces the same output in every mode.
+     */
+    @Internal
+    public abstract Property<ToolExecutionMode> getExecutionMode();
+
     @Override
     public void buildRuntimeArguments(Map<String, Provider<String>> arguments) {
         super.buildRuntimeArguments(arguments);
@@ -3,11 +3,18 @@ package net.neoforged.gradle.common.runtime.tasks;
 import com.google.common.collect.Maps;
 import net.neoforged.gradle.common.runtime.tasks.action.DownloadFileAction;
 import net.neoforged.gradle.common.services.caching.CachedExecutionService;
+import net.neoforged.gradle.common.services.downloads.DownloadCoordinatorService;
 import net.neoforged.gradle.common.services.caching.jobs.ICacheableJob;
+import net.neoforged.gradle.common.services.metadata.MetadataCacheService;
 import net.neoforged.gradle.common.util.FileCacheUtils;
 import net.neoforged.gradle.common.util.SerializationUtils;
 import net.neoforged.gradle.common.util.VersionJson;
+import net.neoforged.gradle.common.util.download.AssetDownloader;
+import net.neoforged.gradle.common.util.download.DownloadScheduler;
+import net.neoforged.gradle.common.util.download.RetryPolicy;
 import net.neoforged.gradle.dsl.common.tasks.WithWorkspace;
+import net.neoforged.gradle.util.GradleInternalUtils;
+import net.neoforged.gradle.util.HashFunction;
 import net.neoforged.gradle.util.TransformerUtils;
 import org.gradle.api.DefaultTask;
 import org.gradle.api.Project;
@@ -25,6 +32,9 @@ import org.jetbrains.annotations.NotNull;
 import javax.inject.Inject;
 import java.io.File;
 import java.io.IOException;
+import java.net.URI;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 @SuppressWarnings({"UnstableApiUsage"})
@@ -42,9 +52,10 @@ public abstract class DownloadAssets extends DefaultTask implements WithWorkspac
         getAssetIndexFileName().convention(getAssetIndex().map(index -> index + ".json"));
         getAssetIndexTargetFile().convention(getRegularFileInAssetsDirectory(getAssetIndexFileName().map(name -> "indexes/" + name)));
         getAssetIndexFile().convention(getAssetIndexTargetFile());
-        getVersionJson().convention(getVersionJsonFile().map(TransformerUtils.guard(file -> VersionJson.get(file.getAsFile()))));
+        getVersionJson().convention(getVersionJsonFile().map(file -> getMetadataCache().get().getVersionJson(file.getAsFile())));
         getAssetRepository().convention("https://resources.download.minecraft.net/");
         getIsOffline().convention(getProject().getGradle().getStartParameter().isOffline());
+        getMaxConcurrentDownloads().convention(AssetDownloader.DEFAULT_CONCURRENCY);
     }
 
     public static @NotNull Provider<Directory> getAssetsDirectory(final Project project) {
@@ -67,6 +78,12 @@ public abstract class DownloadAssets extends DefaultTask implements WithWorkspac
     @ServiceReference(CachedExecutionService.NAME)
     public abstract Property<CachedExecutionService> getCache();
 
+    @ServiceReference(MetadataCacheService.NAME)
+    public abstract Property<MetadataCacheService> getMetadataCache();
+
+    @ServiceReference(DownloadCoordinatorService.NAME)
+    public abstract Property<DownloadCoordinatorService> getDownloadCoordinator();
+
     @TaskAction
     public void run() throws IOException {
         getCache().get()
@@ -75,7 +92,7 @@ public abstract class DownloadAssets extends DefaultTask implements WithWorkspac
                         ICacheableJob.Initial.file("assetIndex", getAssetIndexFile(), this::downloadAssetIndex)
                 )
                 .withStage(
-                        ICacheableJob.Initial.directory("assets", assetsObjects, this::downloadAssets)
+                        ICacheableJob.Store.directory("assets", assetsObjects, this::assetContents, this::downloadAssets)
                 )
                 .execute();
     }
@@ -91,6 +108,8 @@ public abstract class DownloadAssets extends DefaultTask implements WithWorkspac
             params.getSha1().set(assetIndexData.getSha1());
             params.getOutputFile().set(getAssetIndexFile());
             params.getIsOffline().set(getIsOffline());
+            params.getDownloadCoordinator().set(getDownloadCoordinator());
+            params.getLane().set(DownloadScheduler.Lane.ASSETS);
         });
 
         executor.await();
@@ -98,27 +117,62 @@ public abstract class DownloadAssets extends DefaultTask implements WithWorkspac
         return null;
     }
 
-    private Void downloadAssets() {
-        final AssetIndex assetIndex = SerializationUtils.fromJson(getAssetIndexFile().getAsFile().get(), AssetIndex.class);
+    /**
+     * The objects are content addressed, so the cache only needs to know which objects the asset index lists.
+     * They are verified by name and size, instead of being copied into the cache.
+     */
+    private ICacheableJob.Store.Contents assetContents() throws IOException {
+        final File indexFile = getAssetIndexFile().getAsFile().get();
+        final AssetIndex assetIndex = SerializationUtils.fromJson(indexFile, AssetIndex.class);
+
+        final Map<String, Long> objects = new HashMap<>();
+        assetIndex.getObjects().values().forEach(asset -> objects.put(asset.getPath(), asset.getSize()));
+        return new ICacheableJob.Store.Contents(HashFunction.SHA1.hash(indexFile), objects);
+    }
 
-        final WorkQueue executor = getWorkerExecutor().noIsolation();
+    private Void downloadAssets() throws IOException {
+        final AssetIndex assetIndex = SerializationUtils.fromJson(getAssetIndexFile().getAsFile().get(), AssetIndex.class);
+        final String repository = getAssetRepository().map(repo -> repo.endsWith("/") ? repo : repo + "/").get();
+
+        //All objects are downloaded as a single unit of work, through one pool of reused connections.
+        final List<AssetDownloader.Request> requests = assetIndex.getObjects().values().stream()
+                .distinct()
+                .map(asset -> new AssetDownloader.Request(
+                        URI.create(repository + asset.getPath()),
+                        getFileInAssetsDirectory(asset.getPath()).get(),
+                        asset.getHash(),
+                        asset.getSize()
+                ))
+                .toList();
+
+        final DownloadCoordinatorService downloads = getDownloadCoordinator().get();
+        final AssetDownloader downloader = new AssetDownloader(
+                downloads.getClient(),
+                downloads.getExecutor(),
+                getMaxConcurrentDownloads().get(),
+                AssetDownloader.DEFAULT_TIMEOUT,
+                RetryPolicy.DEFAULT,
+                downloads.getScheduler()
+        );
+        if (getIsOffline().get()) {
+            downloader.verify(requests);
+            return null;
+        }
 
-        assetIndex.getObjects().values().stream().distinct().forEach((asset) -> {
-            final Provider<File> assetFile = getFileInAssetsDirectory(asset.getPath());
-            final Provider<String> assetUrl = getAssetRepository()
-                    .map(repo -> repo.endsWith("/") ? repo : repo + "/")
-                    .map(TransformerUtils.guard(repository -> repository + asset.getPath()));
-
-            executor.submit(DownloadFileAction.class, params -> {
-                params.getIsOffline().set(getIsOffline());
-                params.getShouldValidateHash().set(true);
-                params.getOutputFile().fileProvider(assetFile);
-                params.getUrl().set(assetUrl);
-                params.getSha1().set(asset.getHash());
+        final GradleInternalUtils.ProgressLoggerWrapper progress = GradleInternalUtils.getProgressLogger(getLogger(), this, "Downloading assets");
+        progress.setDestFileName("assets");
+        progress.setSize(requests.stream().mapToLong(request -> Math.max(0, request.size())).sum());
+        progress.started();
+        try {
+            final AssetDownloader.Result result = downloader.download(requests, bytes -> {
+                synchronized (progress) {
+                    progress.incrementDownloadProgress(bytes);
+                }
             });
-        });
-
-        executor.await();
+            getLogger().info("Downloaded {} of {} assets ({} bytes, {} retries)", result.downloaded(), result.objects(), result.downloadedBytes(), result.retries());
+        } finally {
+            progress.completed();
+        }
 
         return null;
     }
@@ -152,6 +206,9 @@ public abstract class DownloadAssets extends DefaultTask implements WithWorkspac
     @Input
     public abstract Property<Boolean> getIsOffline();
 
+    @Internal
+    public abstract Property<Integer> getMaxConcurrentDownloads();
+
     private static class AssetIndex {
         private Map<String, Asset> objects = Maps.newHashMap();
 
@@ -166,6 +223,7 @@ public abstract class DownloadAssets extends DefaultTask implements WithWorkspac
 
     private static class Asset {
         private String hash;
+        private long size = -1;
 
         public String getHash() {
             return hash;
@@ -175,6 +233,14 @@ public abstract class DownloadAssets extends DefaultTask implements WithWorkspac
             this.hash = hash;
         }
 
+        public long getSize() {
+            return size;
+        }
+
+        public void setSize(long size) {
+            this.size = size;
+        }
+
         public String getPath() {
             return hash.substring(0, 2) + '/' + hash;
         }
@@ -1,12 +1,15 @@
 package net.neoforged.gradle.common.runtime.tasks;
 
-import net.neoforged.gradle.util.TransformerUtils;
+import net.neoforged.gradle.common.services.metadata.MetadataCacheService;
 import net.neoforged.gradle.common.runtime.tasks.action.DownloadFileAction;
+import net.neoforged.gradle.common.services.downloads.DownloadCoordinatorService;
 import net.neoforged.gradle.common.runtime.tasks.action.ExtractFileAction;
+import net.neoforged.gradle.common.util.FileCacheUtils;
 import net.neoforged.gradle.common.util.VersionJson;
 import org.gradle.api.file.DirectoryProperty;
 import org.gradle.api.file.RegularFileProperty;
 import org.gradle.api.provider.Property;
+import org.gradle.api.services.ServiceReference;
 import org.gradle.api.tasks.*;
 import org.gradle.workers.WorkQueue;
 import org.gradle.workers.WorkerExecutor;
@@ -18,8 +21,9 @@ import java.io.File;
 public abstract class ExtractNatives extends DefaultRuntime {
 
     public ExtractNatives() {
-        getVersionJson().convention(getVersionJsonFile().map(TransformerUtils.guard(file -> VersionJson.get(file.getAsFile()))));
+        getVersionJson().convention(getVersionJsonFile().map(file -> getMetadataCache().get().getVersionJson(file.getAsFile())));
         getLibrariesDirectory().convention(getOutputDirectory().map(dir -> dir.dir("libraries")));
+        getArtifactStore().convention(FileCacheUtils.getArtifactStoreDirectory(getProject()));
     }
 
     @TaskAction
@@ -42,6 +46,8 @@ public abstract class ExtractNatives extends DefaultRuntime {
                 params.getOutputFile().set(outputFile);
                 params.getUrl().set(library.getUrl().toString());
                 params.getSha1().set(library.getSha1());
+                params.getArtifactStore().set(getArtifactStore());
+                params.getDownloadCoordinator().set(getDownloadCoordinator());
             });
         });
 
@@ -62,7 +68,7 @@ public abstract class ExtractNatives extends DefaultRuntime {
                 params.getOutputDirectory().set(getOutputDirectory());
                 params.getShouldOverride().set(true);
                 params.getShouldCleanTarget().set(false);
-                params.getFilter().set(patternFilterable -> patternFilterable.exclude(fileTreeElement -> fileTreeElement.getPath().startsWith("META-INF")));
+                params.getExcludes().add("META-INF/**");
                 params.getRenamer().set(path -> {
                     int lastPathSeparatorIndex = path.lastIndexOf('/');
                     return lastPathSeparatorIndex == -1 ? path : path.substring(lastPathSeparatorIndex);
@@ -76,6 +82,12 @@ public abstract class ExtractNatives extends DefaultRuntime {
     @Inject
     protected abstract WorkerExecutor getWorkerExecutor();
 
+    @ServiceReference(MetadataCacheService.NAME)
+    public abstract Property<MetadataCacheService> getMetadataCache();
+
+    @ServiceReference(DownloadCoordinatorService.NAME)
+    public abstract Property<DownloadCoordinatorService> getDownloadCoordinator();
+
     @InputFile
     @Optional
     @PathSensitive(PathSensitivity.NONE)
@@ -86,4 +98,7 @@ public abstract class ExtractNatives extends DefaultRuntime {
 
     @OutputDirectory
     public abstract DirectoryProperty getLibrariesDirectory();
+
+    @Internal
+    public abstract DirectoryProperty getArtifactStore();
 }
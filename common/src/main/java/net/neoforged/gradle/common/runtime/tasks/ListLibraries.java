@@ -1,13 +1,14 @@
 package net.neoforged.gradle.common.runtime.tasks;
 
-import com.google.gson.JsonElement;
-import com.google.gson.JsonObject;
 import net.neoforged.gradle.common.services.caching.CachedExecutionService;
 import net.neoforged.gradle.common.services.caching.jobs.ICacheableJob;
+import net.neoforged.gradle.common.services.metadata.MetadataCacheService;
 import net.neoforged.gradle.common.runtime.tasks.action.DownloadFileAction;
+import net.neoforged.gradle.common.services.downloads.DownloadCoordinatorService;
+import net.neoforged.gradle.common.util.BundledServer;
 import net.neoforged.gradle.common.util.FileCacheUtils;
-import net.neoforged.gradle.common.util.SerializationUtils;
-import net.neoforged.gradle.util.HashFunction;
+import net.neoforged.gradle.common.util.VersionJson;
+import net.neoforged.gradle.common.util.download.ArtifactStore;
 import net.neoforged.gradle.util.TransformerUtils;
 import org.gradle.api.file.DirectoryProperty;
 import org.gradle.api.file.RegularFileProperty;
@@ -21,25 +22,17 @@ import org.gradle.workers.WorkerExecutor;
 import javax.inject.Inject;
 import java.io.*;
 import java.nio.charset.StandardCharsets;
-import java.nio.file.FileSystem;
-import java.nio.file.FileSystems;
-import java.nio.file.Files;
-import java.nio.file.Path;
 import java.util.*;
-import java.util.jar.Attributes;
-import java.util.jar.Manifest;
-import java.util.stream.Collectors;
 
 @SuppressWarnings("UnstableApiUsage")
 @CacheableTask
 public abstract class ListLibraries extends DefaultRuntime {
-    private static final Attributes.Name FORMAT = new Attributes.Name("Bundler-Format");
-    
     @SuppressWarnings("ConstantConditions")
     public ListLibraries() {
         super();
         
         getLibrariesDirectory().convention(FileCacheUtils.getLibrariesCacheDirectory(getProject()).map(TransformerUtils.ensureExists()));
+        getArtifactStore().convention(FileCacheUtils.getArtifactStoreDirectory(getProject()));
         getServerBundleFile().fileProvider(getRuntimeArguments().map(arguments -> {
             if (!arguments.containsKey("bundle"))
                 return null;
@@ -56,6 +49,12 @@ public abstract class ListLibraries extends DefaultRuntime {
     @ServiceReference(CachedExecutionService.NAME)
     public abstract Property<CachedExecutionService> getCacheService();
 
+    @ServiceReference(MetadataCacheService.NAME)
+    public abstract Property<MetadataCacheService> getMetadataCache();
+
+    @ServiceReference(DownloadCoordinatorService.NAME)
+    public abstract Property<DownloadCoordinatorService> getDownloadCoordinator();
+
     
     @TaskAction
     public void run() throws IOException {
@@ -71,14 +70,12 @@ public abstract class ListLibraries extends DefaultRuntime {
     }
 
     private Set<File> extractAndCollect() throws IOException {
-        try (FileSystem bundleFs = !getServerBundleFile().isPresent() ? null : FileSystems.newFileSystem(getServerBundleFile().get().getAsFile().toPath(), this.getClass().getClassLoader())) {
-            final Set<File> libraries;
-            if (bundleFs == null) {
-                libraries = downloadAndListJsonLibraries();
-            } else {
-                libraries = unpackAndListBundleLibraries(bundleFs);
-            }
-            return libraries;
+        if (!getServerBundleFile().isPresent()) {
+            return downloadAndListJsonLibraries();
+        }
+
+        try (BundledServer bundle = BundledServer.open(getServerBundleFile().get().getAsFile())) {
+            return unpackAndListBundleLibraries(bundle);
         }
     }
 
@@ -96,44 +93,30 @@ public abstract class ListLibraries extends DefaultRuntime {
         return null;
     }
     
-    private List<FileList.Entry> listBundleLibraries(FileSystem bundleFs) throws IOException {
-        Path mfp = bundleFs.getPath("META-INF", "MANIFEST.MF");
-        if (!Files.exists(mfp)) {
-            throw new RuntimeException("Input archive does not contain META-INF/MANIFEST.MF");
-        }
-        
-        Manifest mf;
-        try (InputStream is = Files.newInputStream(mfp)) {
-            mf = new Manifest(is);
-        }
-        String format = mf.getMainAttributes().getValue(FORMAT);
+    private void validateBundle(BundledServer bundle) {
+        String format = bundle.getFormat();
         if (format == null) {
             throw new RuntimeException("Invalid bundler archive; missing format entry from manifest");
         }
         if (!"1.0".equals(format)) {
             throw new RuntimeException("Unsupported bundler format " + format + "; only 1.0 is supported");
         }
-        
-        return FileList.read(bundleFs.getPath("META-INF", "libraries.list")).entries;
     }
     
     private Set<PathAndUrl> listDownloadJsonLibraries() {
-        JsonObject json = SerializationUtils.fromJson(getDownloadedVersionJsonFile().getAsFile().get(), JsonObject.class);
+        final VersionJson json = getMetadataCache().get().getVersionJson(getDownloadedVersionJsonFile().getAsFile().get());
 
         // Gather all the libraries
         Set<PathAndUrl> artifacts = new HashSet<>();
-        for (JsonElement libElement : json.getAsJsonArray("libraries")) {
-            JsonObject library = libElement.getAsJsonObject();
-            
-            if (library.has("downloads")) {
-                JsonObject downloads = library.get("downloads").getAsJsonObject();
-                if (downloads.has("artifact")) {
-                    final JsonObject artifact = downloads.getAsJsonObject("artifact");
+        for (VersionJson.Library library : json.getAllLibraries()) {
+            if (library.getDownloads() != null) {
+                final VersionJson.LibraryDownload artifact = library.getDownloads().getArtifact();
+                if (artifact != null) {
                     artifacts.add(
                             new PathAndUrl(
-                                    artifact.get("path").getAsString(),
-                                    artifact.get("url").getAsString(),
-                                    artifact.get("sha1").getAsString()
+                                    artifact.getPath(),
+                                    artifact.getUrl().toString(),
+                                    artifact.getSha1()
                             )
                     );
                 }
@@ -143,24 +126,13 @@ public abstract class ListLibraries extends DefaultRuntime {
         return artifacts;
     }
     
-    private Set<File> unpackAndListBundleLibraries(FileSystem bundleFs) throws IOException {
-        final File outputDir = getLibrariesDirectory().get().getAsFile();
+    private Set<File> unpackAndListBundleLibraries(BundledServer bundle) throws IOException {
+        validateBundle(bundle);
         
-        final List<FileList.Entry> libraryPaths = listBundleLibraries(bundleFs);
+        final File outputDir = new File(getLibrariesDirectory().get().getAsFile(), "META-INF/libraries");
+        final ArtifactStore store = new ArtifactStore(getArtifactStore().get().getAsFile());
         
-        return libraryPaths.stream()
-                       .map(entry -> {
-                           final String path = String.format("META-INF/libraries/%s", entry.path);
-                           final File output = new File(outputDir, path);
-                           try {
-                               if (!output.exists() || !HashFunction.SHA1.hash(output).equalsIgnoreCase(entry.hash)) {
-                                   Files.copy(bundleFs.getPath(path), output.toPath());
-                               }
-                           } catch (IOException e) {
-                               throw new UncheckedIOException(e);
-                           }
-                           return output;
-                       }).collect(Collectors.toSet());
+        return new HashSet<>(bundle.extractLibraries(outputDir, store));
     }
     
     private Set<File> downloadAndListJsonLibraries() throws IOException {
@@ -178,6 +150,8 @@ public abstract class ListLibraries extends DefaultRuntime {
                 params.getSha1().set(libraryCoordinate.hash);
                 params.getOutputFile().set(outputFile);
                 params.getIsOffline().set(getIsOffline());
+                params.getArtifactStore().set(getArtifactStore());
+                params.getDownloadCoordinator().set(getDownloadCoordinator());
             });
             result.add(outputFile);
         }
@@ -202,76 +176,8 @@ public abstract class ListLibraries extends DefaultRuntime {
     @OutputDirectory
     public abstract DirectoryProperty getLibrariesDirectory();
     
-    private static class FileList {
-        
-        private final List<FileList.Entry> entries;
-        
-        private FileList(List<FileList.Entry> entries) {
-            this.entries = entries;
-        }
-        
-        static FileList read(Path path) throws IOException {
-            List<FileList.Entry> ret = new ArrayList<>();
-            
-            for (String line : Files.readAllLines(path)) {
-                String[] pts = line.split("\t");
-                if (pts.length != 3) {
-                    throw new IllegalStateException("Invalid file list line: " + line);
-                }
-                ret.add(new FileList.Entry(pts[0], pts[1], pts[2]));
-            }
-            
-            return new FileList(ret);
-        }
-        
-        private static final class Entry {
-            private final String hash;
-            private final String id;
-            private final String path;
-            
-            private Entry(String hash, String id, String path) {
-                this.hash = hash;
-                this.id = id;
-                this.path = path;
-            }
-            
-            public String hash() {
-                return hash;
-            }
-            
-            public String id() {
-                return id;
-            }
-            
-            public String path() {
-                return path;
-            }
-            
-            @Override
-            public boolean equals(Object obj) {
-                if (obj == this) return true;
-                if (obj == null || obj.getClass() != this.getClass()) return false;
-                final Entry that = (Entry) obj;
-                return Objects.equals(this.hash, that.hash) &&
-                               Objects.equals(this.id, that.id) &&
-                               Objects.equals(this.path, that.path);
-            }
-            
-            @Override
-            public int hashCode() {
-                return Objects.hash(hash, id, path);
-            }
-            
-            @Override
-            public String toString() {
-                return "Entry[" +
-                               "hash=" + hash + ", " +
-                               "id=" + id + ", " +
-                               "path=" + path + ']';
-            }
-            
-        }
-    }
+    @Internal
+    public abstract DirectoryProperty getArtifactStore();
     
     private static final class PathAndUrl {
         private final String path;
@@ -0,0 +1,128 @@
+package net.neoforged.gradle.common.runtime.tasks;
+
+import net.neoforged.gradle.common.util.ToolUtilities;
+import net.neoforged.gradle.common.util.tools.ToolExecutionMode;
+import net.neoforged.gradle.dsl.common.extensions.subsystems.Subsystems;
+import org.apache.commons.io.FileUtils;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.plugins.JavaPluginExtension;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.*;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Runs JST on the decompiled sources, with every transformation that is configured on this task.
+ *
+ * @see net.neoforged.gradle.common.util.CommonRuntimeTaskUtils
+ */
+@CacheableTask
+public abstract class SourceTransformation extends DefaultExecute {
+
+    public SourceTransformation() {
+        super();
+
+        setDescription("Runs JST on the decompiled sources.");
+
+        getStubs().convention(getOutputDirectory().map(dir -> dir.file("stubs.jar")));
+
+        getExecutingJar().set(ToolUtilities.resolveTool(getProject(), getProject().getExtensions().getByType(Subsystems.class).getTools().getJST().get()));
+        getRuntimeProgramArguments().convention(
+                getInputFile().map(inputFile -> {
+                            final List<String> args = new ArrayList<>();
+
+                            if (getParchmentMappings().isPresent()) {
+                                args.add("--enable-parchment");
+                                args.add("--parchment-mappings");
+                                args.add(getParchmentMappings().get().getAsFile().getAbsolutePath());
+                                if (getParchmentConflictPrefix().isPresent()) {
+                                    args.add("--parchment-conflict-prefix=" + getParchmentConflictPrefix().get());
+                                }
+                            }
+
+                            if (!getAccessTransformers().isEmpty()) {
+                                args.add("--enable-accesstransformers");
+                                getAccessTransformers().forEach(file -> {
+                                    args.add("--access-transformer");
+                                    args.add(file.getAbsolutePath());
+                                });
+                            }
+
+                            if (!getInterfaceInjectionData().isEmpty()) {
+                                args.add("--enable-interface-injection");
+                                getInterfaceInjectionData().forEach(file -> {
+                                    args.add("--interface-injection-data");
+                                    args.add(file.getAbsolutePath());
+                                });
+                                args.add("--interface-injection-stubs");
+                                args.add(ensureFileWorkspaceReady(getStubs()).getAbsolutePath());
+                            }
+
+                            args.add("--libraries-list=" + getLibraries().get().getAsFile().getAbsolutePath());
+                            args.add("--classpath=" + getClasspath().getFiles().stream().map(File::getAbsolutePath).collect(Collectors.joining(File.pathSeparator)));
+                            args.add("--in-format=archive");
+                            args.add("--out-format=archive");
+                            args.add(inputFile.getAsFile().getAbsolutePath());
+                            args.add(ensureFileWorkspaceReady(getOutput()).getAbsolutePath());
+                            return args;
+                        }
+                )
+        );
+
+        getJavaVersion().convention(getProject().getExtensions().getByType(JavaPluginExtension.class).getToolchain().getLanguageVersion());
+        getAccessTransformers().finalizeValueOnRead();
+        getInterfaceInjectionData().finalizeValueOnRead();
+        getLogLevel().set(LogLevel.DISABLED);
+        getExecutionMode().convention(ToolExecutionMode.DAEMON);
+    }
+
+    @Override
+    public void doExecute() throws Exception {
+        //We need a separate check here that skips the execute call if there are no transformations.
+        if (getAccessTransformers().isEmpty() && getInterfaceInjectionData().isEmpty() && !getParchmentMappings().isPresent()) {
+            final File output = ensureFileWorkspaceReady(getOutput());
+            FileUtils.copyFile(getInputFile().get().getAsFile(), output);
+            return;
+        }
+
+        super.doExecute();
+    }
+
+    @InputFile
+    @PathSensitive(PathSensitivity.NONE)
+    public abstract RegularFileProperty getInputFile();
+
+    @InputFile
+    @PathSensitive(PathSensitivity.NONE)
+    public abstract RegularFileProperty getLibraries();
+
+    @InputFiles
+    @Optional
+    @PathSensitive(PathSensitivity.NONE)
+    public abstract ConfigurableFileCollection getClasspath();
+
+    @InputFiles
+    @PathSensitive(PathSensitivity.NONE)
+    public abstract ConfigurableFileCollection getAccessTransformers();
+
+    @InputFiles
+    @PathSensitive(PathSensitivity.NONE)
+    public abstract ConfigurableFileCollection getInterfaceInjectionData();
+
+    @InputFile
+    @Optional
+    @PathSensitive(PathSensitivity.NONE)
+    public abstract RegularFileProperty getParchmentMappings();
+
+    @Input
+    @Optional
+    public abstract Property<String> getParchmentConflictPrefix();
+
+    @OutputFile
+    @Optional
+    public abstract RegularFileProperty getStubs();
+}
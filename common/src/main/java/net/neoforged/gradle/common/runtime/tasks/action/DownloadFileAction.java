@@ -1,13 +1,15 @@
 package net.neoforged.gradle.common.runtime.tasks.action;
 
+import net.neoforged.gradle.common.services.downloads.DownloadCoordinatorService;
+import net.neoforged.gradle.common.util.download.ArtifactStore;
+import net.neoforged.gradle.common.util.download.AssetDownloader;
+import net.neoforged.gradle.common.util.download.DownloadScheduler;
+import net.neoforged.gradle.common.util.download.ResumableDownloader;
+import net.neoforged.gradle.common.util.download.RetryPolicy;
 import net.neoforged.gradle.util.FileUtils;
 import net.neoforged.gradle.util.GradleInternalUtils;
 import net.neoforged.gradle.util.HashFunction;
-import net.neoforged.gradle.util.UrlUtils;
-import org.apache.ivy.core.settings.TimeoutConstraint;
-import org.apache.ivy.util.CopyProgressEvent;
-import org.apache.ivy.util.CopyProgressListener;
-import org.apache.ivy.util.FileUtil;
+import org.gradle.api.file.DirectoryProperty;
 import org.gradle.api.file.RegularFileProperty;
 import org.gradle.api.logging.Logger;
 import org.gradle.api.logging.Logging;
@@ -18,11 +20,20 @@ import org.gradle.workers.WorkParameters;
 
 import javax.inject.Inject;
 import java.io.File;
+import java.io.IOException;
 import java.net.URL;
+import java.time.Duration;
 
 public abstract class DownloadFileAction implements WorkAction<DownloadFileAction.Params> {
     private static final int MAX_ATTEMPTS = 10;
-    private static final int ATTEMPT_DELAY = 100;
+    private static final Duration ATTEMPT_DELAY = Duration.ofMillis(100);
+    private static final Duration MAX_ATTEMPT_DELAY = Duration.ofSeconds(5);
+    private static final ResumableDownloader DOWNLOADER = new ResumableDownloader(
+            new RetryPolicy(MAX_ATTEMPTS, ATTEMPT_DELAY, MAX_ATTEMPT_DELAY),
+            AssetDownloader.DEFAULT_TIMEOUT,
+            ResumableDownloader.DEFAULT_SEGMENTS,
+            ResumableDownloader.DEFAULT_SEGMENT_THRESHOLD
+    );
     private static final Logger LOGGER = Logging.getLogger(DownloadFileAction.class);
 
     @Inject
@@ -34,66 +45,40 @@ public abstract class DownloadFileAction implements WorkAction<DownloadFileActio
             final Params params = getParameters();
             final File output = params.getOutputFile().get().getAsFile();
 
-            if (output.exists()) {
-                if (params.getShouldValidateHash().get()) {
-                    final String hash = HashFunction.SHA1.hash(output);
-                    if (hash.equals(params.getSha1().get())) {
-                        return;
-                    }
-                }
+            if (params.getArtifactStore().isPresent() && params.getShouldValidateHash().get()) {
+                // Artifacts with a known hash are downloaded once into the machine-wide store, and linked to the output
+                final ArtifactStore store = new ArtifactStore(params.getArtifactStore().get().getAsFile());
+                store.materialize(params.getSha1().get(), output, staging -> download(params, staging.toFile()));
+                return;
             }
 
-            final GradleInternalUtils.ProgressLoggerWrapper progress = GradleInternalUtils.getProgressLogger(LOGGER, getBuildServiceRegistry(), "Downloading file: " + params.getUrl().get());
-            progress.setDestFileName(params.getOutputFile().getAsFile().get().getName());
+            download(params, output);
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
 
-            if (params.getIsOffline().get()) {
-                if (!output.exists()) {
-                    throw new IllegalStateException("Cannot download asset " + params.getUrl().get() + " as Gradle is running in offline mode and the file does not exist");
+    private void download(Params params, File output) throws IOException {
+        if (output.exists()) {
+            if (params.getShouldValidateHash().get()) {
+                final String hash = HashFunction.SHA1.hash(output);
+                if (hash.equals(params.getSha1().get())) {
+                    return;
                 }
+            }
+        }
 
-                final int size = FileUtils.getFileSize(output);
-                progress.setSize(size);
-                progress.started();
-
-                if (params.getShouldValidateHash().get()) {
-                    final String hash = HashFunction.SHA1.hash(output);
-                    if (!hash.equals(params.getSha1().get())) {
-                        throw new IllegalStateException(String.format("Cannot validate asset %s as Gradle is running in offline mode and the file does not match the expected hash. Expected: %s Actual: %s", params.getUrl().get(), params.getSha1().get(), hash));
-                    }
-                }
+        final GradleInternalUtils.ProgressLoggerWrapper progress = GradleInternalUtils.getProgressLogger(LOGGER, getBuildServiceRegistry(), "Downloading file: " + params.getUrl().get());
+        progress.setDestFileName(params.getOutputFile().getAsFile().get().getName());
 
-                progress.incrementDownloadProgress(size);
-                progress.completed();
-                return;
+        if (params.getIsOffline().get()) {
+            if (!output.exists()) {
+                throw new IllegalStateException("Cannot download asset " + params.getUrl().get() + " as Gradle is running in offline mode and the file does not exist");
             }
 
-            final URL url = new URL(params.getUrl().get());
-
-            // Try downloading multiple times with a small delay in case of blocked connections
-            for (int attempt = 0; attempt < MAX_ATTEMPTS; ++attempt) {
-                try {
-                    progress.setSize(UrlUtils.getFileSize(url));
-
-                    FileUtil.copy(
-                            url,
-                            output,
-                            new Monitor(progress),
-                            Timeout.NONE
-                    );
-
-                    break; // Success
-                } catch (Exception e) {
-                    if (attempt == MAX_ATTEMPTS - 1) {
-                        throw e;
-                    }
-
-                    try {
-                        Thread.sleep(ATTEMPT_DELAY);
-                    } catch (InterruptedException interruptedException) {
-                        throw new RuntimeException(interruptedException);
-                    }
-                }
-            }
+            final long size = FileUtils.getFileSize(output);
+            progress.setSize(size);
+            progress.started();
 
             if (params.getShouldValidateHash().get()) {
                 final String hash = HashFunction.SHA1.hash(output);
@@ -101,43 +86,43 @@ public abstract class DownloadFileAction implements WorkAction<DownloadFileActio
                     throw new IllegalStateException(String.format("Cannot validate asset %s as Gradle is running in offline mode and the file does not match the expected hash. Expected: %s Actual: %s", params.getUrl().get(), params.getSha1().get(), hash));
                 }
             }
-        } catch (Exception e) {
-            throw new RuntimeException(e);
+
+            progress.incrementDownloadProgress(size);
+            progress.completed();
+            return;
         }
-    }
 
-    private record Monitor(GradleInternalUtils.ProgressLoggerWrapper progress) implements CopyProgressListener {
+        final URL url = new URL(params.getUrl().get());
 
-        @Override
-        public void start(CopyProgressEvent evt) {
+        // Retry with a growing delay in case of blocked connections, every attempt resumes where the previous one stopped
+        final DownloadScheduler scheduler = params.getDownloadCoordinator().isPresent() ? params.getDownloadCoordinator().get().getScheduler() : DownloadScheduler.UNLIMITED;
+        try (DownloadScheduler.Permit permit = scheduler.acquire(url, params.getLane().getOrElse(DownloadScheduler.Lane.LIBRARIES))) {
             progress.started();
-            progress.incrementDownloadProgress(evt.getReadBytes());
-        }
-
-        @Override
-        public void progress(CopyProgressEvent evt) {
-            progress.incrementDownloadProgress(evt.getReadBytes());
+            DOWNLOADER.download(url, output.toPath(), 0, permit.throttling(new Monitor(progress)));
+            progress.completed();
         }
 
-        @Override
-        public void end(CopyProgressEvent evt) {
-            progress.incrementDownloadProgress(evt.getReadBytes());
-            progress.completed();
+        if (params.getShouldValidateHash().get()) {
+            final String hash = HashFunction.SHA1.hash(output);
+            if (!hash.equals(params.getSha1().get())) {
+                throw new IllegalStateException(String.format("Cannot validate asset %s as Gradle is running in offline mode and the file does not match the expected hash. Expected: %s Actual: %s", params.getUrl().get(), params.getSha1().get(), hash));
+            }
         }
     }
 
-    private static final class Timeout implements TimeoutConstraint {
-
-        private static final Timeout NONE = new Timeout();
+    private record Monitor(GradleInternalUtils.ProgressLoggerWrapper progress) implements ResumableDownloader.Listener {
 
         @Override
-        public int getConnectionTimeout() {
-            return -1;
+        public void started(long size, long offset) {
+            if (size >= 0) {
+                progress.setSize(size);
+            }
+            progress.incrementDownloadProgress(offset);
         }
 
         @Override
-        public int getReadTimeout() {
-            return -1;
+        public void transferred(long bytes) {
+            progress.incrementDownloadProgress(bytes);
         }
     }
 
@@ -151,5 +136,20 @@ public abstract class DownloadFileAction implements WorkAction<DownloadFileActio
         RegularFileProperty getOutputFile();
 
         Property<Boolean> getIsOffline();
+
+        /**
+         * The directory of the machine-wide artifact store, artifacts are only shared through it if their hash is validated.
+         */
+        DirectoryProperty getArtifactStore();
+
+        /**
+         * The service which schedules the download, downloads are not limited without it.
+         */
+        Property<DownloadCoordinatorService> getDownloadCoordinator();
+
+        /**
+         * The lane to schedule the download in, libraries by default.
+         */
+        Property<DownloadScheduler.Lane> getLane();
     }
 }
@@ -1,21 +1,20 @@
 package net.neoforged.gradle.common.runtime.tasks.action;
 
-import net.neoforged.gradle.util.FileUtils;
 import net.neoforged.gradle.util.GradleInternalUtils;
-import org.gradle.api.Action;
-import org.gradle.api.file.ArchiveOperations;
+import net.neoforged.gradle.util.ZipExtractor;
 import org.gradle.api.file.DirectoryProperty;
 import org.gradle.api.file.RegularFileProperty;
 import org.gradle.api.logging.Logger;
 import org.gradle.api.logging.Logging;
+import org.gradle.api.provider.ListProperty;
 import org.gradle.api.provider.Property;
 import org.gradle.api.services.BuildServiceRegistry;
-import org.gradle.api.tasks.util.PatternFilterable;
 import org.gradle.workers.WorkAction;
 import org.gradle.workers.WorkParameters;
 
 import javax.inject.Inject;
 import java.io.File;
+import java.util.List;
 import java.util.function.Function;
 
 public abstract class ExtractFileAction implements WorkAction<ExtractFileAction.Params> {
@@ -24,9 +23,6 @@ public abstract class ExtractFileAction implements WorkAction<ExtractFileAction.
     @Inject
     public abstract BuildServiceRegistry getBuildServiceRegistry();
 
-    @Inject
-    public abstract ArchiveOperations getArchiveOperations();
-
     @Override
     public void execute() {
         try {
@@ -36,17 +32,27 @@ public abstract class ExtractFileAction implements WorkAction<ExtractFileAction.
             progress.setActionType("analyzed");
             progress.setDestFileName(output.getName());
 
-            FileUtils.extractZip(
-                    getArchiveOperations(),
-                    params.getInputFile().get().getAsFile(),
-                    params.getOutputDirectory().get().getAsFile(),
-                    params.getShouldOverride().get(),
-                    params.getShouldCleanTarget().get(),
-                    params.getFilter().get(),
-                    params.getRenamer().get(),
-                    progress
-            );
+            // Reads the entries directly from the zip file, instead of expanding it into a temporary directory first
+            new ZipExtractor()
+                    .include(params.getIncludes().getOrElse(List.of()))
+                    .exclude(params.getExcludes().getOrElse(List.of()))
+                    .rename(params.getRenamer().getOrElse(Function.identity()))
+                    .overrideExisting(params.getShouldOverride().get())
+                    .clean(params.getShouldCleanTarget().get())
+                    .extract(params.getInputFile().get().getAsFile(), output, new ZipExtractor.Listener() {
+                        @Override
+                        public void started(int files) {
+                            progress.setSize(files);
+                            progress.started();
+                        }
+
+                        @Override
+                        public void extracted(String path) {
+                            progress.incrementProcessedFileCount();
+                        }
+                    });
 
+            progress.completed();
         } catch (Exception e) {
             throw new RuntimeException(e);
         }
@@ -57,7 +63,16 @@ public abstract class ExtractFileAction implements WorkAction<ExtractFileAction.
         Property<Boolean> getShouldOverride();
         Property<Boolean> getShouldCleanTarget();
         Property<Function<String, String>> getRenamer();
-        Property<Action<? super PatternFilterable>> getFilter();
+
+        /**
+         * The Ant-style patterns of the entries to extract, all entries are extracted if none are given.
+         */
+        ListProperty<String> getIncludes();
+
+        /**
+         * The Ant-style patterns of the entries to skip.
+         */
+        ListProperty<String> getExcludes();
         DirectoryProperty getOutputDirectory();
     }
 }
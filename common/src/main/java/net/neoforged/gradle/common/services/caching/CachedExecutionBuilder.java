@@ -1,13 +1,27 @@
 package net.neoforged.gradle.common.services.caching;
 
+import net.neoforged.gradle.common.services.caching.cache.CacheRestorer;
+import net.neoforged.gradle.common.services.caching.cache.ChunkedCache;
 import net.neoforged.gradle.common.services.caching.cache.DirectoryCache;
 import net.neoforged.gradle.common.services.caching.cache.FileCache;
 import net.neoforged.gradle.common.services.caching.cache.ICache;
+import net.neoforged.gradle.common.services.caching.cache.RestoreStrategy;
+import net.neoforged.gradle.common.services.caching.cache.StoreCache;
+import net.neoforged.gradle.common.services.caching.hasher.FileHashIndex;
+import net.neoforged.gradle.common.services.caching.hasher.PropertyFingerprinter;
 import net.neoforged.gradle.common.services.caching.hasher.TaskHasher;
 import net.neoforged.gradle.common.services.caching.jobs.ICacheableJob;
 import net.neoforged.gradle.common.services.caching.locking.FileBasedLock;
 import net.neoforged.gradle.common.services.caching.logging.CacheLogger;
+import net.neoforged.gradle.common.services.caching.remote.RemoteCache;
+import net.neoforged.gradle.common.services.caching.remote.RemoteCachePayload;
+import net.neoforged.gradle.common.services.caching.statistics.CacheStatistics;
+import net.neoforged.gradle.common.services.caching.statistics.ExecutionTimes;
+import net.neoforged.gradle.common.services.caching.statistics.OutputSizes;
+import net.neoforged.gradle.common.services.caching.storage.ChunkStore;
+import net.neoforged.gradle.common.util.hash.DirectoryHasher;
 import net.neoforged.gradle.common.util.hash.HashCode;
+import net.neoforged.gradle.common.util.hash.HashFunction;
 import net.neoforged.gradle.common.util.hash.Hasher;
 import net.neoforged.gradle.common.util.hash.Hashing;
 import net.neoforged.gradle.util.GradleInternalUtils;
@@ -28,33 +42,49 @@ public class CachedExecutionBuilder<T> {
 
     public record LoggingOptions(boolean cacheHits, boolean debug) {}
 
-    public record Options(boolean enabled, File cache, LoggingOptions logging) {}
+    /**
+     * @param fingerprinter The fingerprints of the input property values of tasks.
+     * @param chunkStore The store for chunked outputs, or null if outputs are stored as plain copies.
+     * @param statistics The statistics to record the usage of the cache in.
+     * @param remote The remote cache tier, or null if only the local cache is used.
+     */
+    public record Options(boolean enabled, File cache, RestoreStrategy restoreStrategy, FileHashIndex fileHashes, PropertyFingerprinter fingerprinter, @Nullable ChunkStore chunkStore, CacheStatistics statistics, @Nullable RemoteOptions remote, LoggingOptions logging) {}
+
+    /**
+     * @param cache The remote cache.
+     * @param push Whether outputs of executed stages are uploaded to the remote cache.
+     */
+    public record RemoteOptions(RemoteCache cache, boolean push) {}
 
-    private record JobHasher(HashCode taskHash, ICacheableJob<?,?> job, Hasher hasher) {
+    private record JobHasher(HashCode taskHash, ICacheableJob<?,?> job, boolean chunked, Hasher hasher) {
 
-        public JobHasher(HashCode taskHash, ICacheableJob<?, ?> job) {
-            this(taskHash, job, Hashing.sha256().newHasher());
+        public JobHasher(HashCode taskHash, ICacheableJob<?, ?> job, boolean chunked) {
+            this(taskHash, job, chunked, Hashing.sha256().newHasher());
         }
 
         public HashCode hash() {
             hasher.putHash(taskHash);
             hasher.putString(job.name());
+            //Chunked entries have a different layout, so they are kept apart from plain entries of the same job.
+            if (chunked) {
+                hasher.putString("chunked");
+            }
             return hasher.hash();
         }
     }
 
-    private record CacheStatus(@Nullable FileBasedLock lock, boolean shouldExecute, @Nullable ICache cache) implements AutoCloseable {
+    private record CacheStatus(@Nullable FileBasedLock lock, boolean shouldExecute, @Nullable ICache cache, @Nullable File cacheDir) implements AutoCloseable {
 
         private static CacheStatus alwaysUnlocked() {
-            return new CacheStatus(null, true, null);
+            return new CacheStatus(null, true, null, null);
         }
 
-        public static CacheStatus runWithLock(FileBasedLock lock, ICache cache) {
-            return new CacheStatus(lock, true, cache);
+        public static CacheStatus runWithLock(FileBasedLock lock, ICache cache, File cacheDir) {
+            return new CacheStatus(lock, true, cache, cacheDir);
         }
 
         public static CacheStatus cachedWithLock(FileBasedLock lock) {
-            return new CacheStatus(lock, false, null);
+            return new CacheStatus(lock, false, null, null);
         }
 
         @NotNull
@@ -66,6 +96,15 @@ public class CachedExecutionBuilder<T> {
             return cache;
         }
 
+        @NotNull
+        public File cacheDir() {
+            if (cacheDir == null) {
+                throw new IllegalStateException("No cache is available.");
+            }
+
+            return cacheDir;
+        }
+
         @Override
         public void close() throws Exception {
             if (lock != null) {
@@ -115,20 +154,26 @@ public class CachedExecutionBuilder<T> {
             logger.debug("Caching is disabled, executing all stages.");
             executeAll(
                     (stage) -> CacheStatus.alwaysUnlocked(),
-                    (stage, status) -> logger.onCacheMiss(stage)
+                    (stage, status, executionNanos) -> logger.onCacheMiss(stage)
             );
             return;
         }
 
         //Create the hash of the task
-        final TaskHasher hasher = new TaskHasher(targetTask, logger);
-        final HashCode taskHash = hasher.create();
-
-        logger.debug("Task hash: %s".formatted(taskHash));
-        executeAll(
-                shouldExecuteCachedFor(targetTask, taskHash),
-                afterExecution()
-        );
+        final long hashingStart = System.nanoTime();
+        try {
+            final TaskHasher hasher = new TaskHasher(targetTask, logger, options.fileHashes(), options.fingerprinter());
+            final HashCode taskHash = hasher.create();
+            options.statistics().recordHashing(System.nanoTime() - hashingStart);
+
+            logger.debug("Task hash: %s".formatted(taskHash));
+            executeAll(
+                    shouldExecuteCachedFor(targetTask, taskHash),
+                    afterExecution(taskHash)
+            );
+        } finally {
+            options.fingerprinter().forget(targetTask);
+        }
     }
 
     /**
@@ -141,23 +186,53 @@ public class CachedExecutionBuilder<T> {
     private Function<ICacheableJob<?,?>, CacheStatus> shouldExecuteCachedFor(Task targetTask, HashCode taskHash) {
         return (stage) -> {
             //Create the cache
-            final ICache cache = createCache(taskHash, stage);
+            final File cacheDir;
+            final ICache cache;
+            if (stage instanceof ICacheableJob.Store<?> store) {
+                //Stores are keyed by their contents, and do not hold a copy of them.
+                final ICacheableJob.Store.Contents contents = contentsOf(store);
+                cacheDir = storeDirectoryOf(store, contents);
+                cache = new StoreCache(cacheDir, contents.files());
+            } else {
+                cacheDir = cacheDirectoryOf(taskHash, stage);
+                cache = createCache(cacheDir, stage);
+            }
 
             //Create and acquire the lock on the cache
+            final long lockStart = System.nanoTime();
             final FileBasedLock lock = cache.createLock(logger);
+            options.statistics().recordLockWait(stage.name(), System.nanoTime() - lockStart);
 
             try {
                 //A cached execution is only healthy if the healthy file exists
                 if (lock.hasPreviousFailure()) {
                     logger.debug("Previous failure detected for stage: %s".formatted(stage));
-                    return CacheStatus.runWithLock(lock, cache);
+
+                    //The local cache does not hold the output, another machine might have produced it already.
+                    if (!(stage instanceof ICacheableJob.Store<?>) && restoreFromRemote(taskHash, stage, cache, cacheDir)) {
+                        targetTask.setDidWork(false);
+                        return CacheStatus.cachedWithLock(lock);
+                    }
+
+                    return CacheStatus.runWithLock(lock, cache, cacheDir);
+                }
+
+                if (!cache.canRestoreTo(stage.output())) {
+                    logger.debug("The output of stage %s can no longer be restored".formatted(stage));
+                    return CacheStatus.runWithLock(lock, cache, cacheDir);
                 }
 
                 //We have a healthy lock, and the previous execution was successful
                 //We can now attempt to restore the cache
-                if (!cache.restoreTo(stage.output())) {
+                final long restoreStart = System.nanoTime();
+                final boolean restored = cache.restoreTo(stage.output());
+                final long restoreNanos = System.nanoTime() - restoreStart;
+                if (!restored) {
                     //No cache restore was needed, we can skip the stage
                     logger.onCacheEquals(stage);
+                    options.statistics().recordUpToDate(stage.name(), restoreNanos, ExecutionTimes.read(cacheDir));
+                } else {
+                    options.statistics().recordHit(stage.name(), restoreNanos, OutputSizes.read(cacheDir), ExecutionTimes.read(cacheDir));
                 }
 
                 targetTask.setDidWork(false);
@@ -170,12 +245,19 @@ public class CachedExecutionBuilder<T> {
         };
     }
 
-    private AfterExecute afterExecution() {
+    private AfterExecute afterExecution(HashCode taskHash) {
         //Return a consumer that logs the cache hit or miss
-        return (stage, status) -> {
+        return (stage, status, executionNanos) -> {
             if (status.shouldExecute()) {
                 logger.onCacheMiss(stage);
+                final long storeStart = System.nanoTime();
                 status.cache().loadFrom(stage.output());
+                ExecutionTimes.write(status.cacheDir(), executionNanos);
+                OutputSizes.write(status.cacheDir(), sizeOf(stage.output()));
+                options.statistics().recordMiss(stage.name(), executionNanos, System.nanoTime() - storeStart);
+                if (!(stage instanceof ICacheableJob.Store<?>)) {
+                    pushToRemote(taskHash, stage);
+                }
             } else {
                 logger.onCacheHit(stage);
             }
@@ -183,17 +265,148 @@ public class CachedExecutionBuilder<T> {
     }
 
     /**
-     * Creates a cache for the given task hash and job.
+     * Attempts to restore the output of the given stage from the remote cache, and stores it in the local cache.
+     * Failures of the remote cache are logged, and result in the stage being executed.
      *
      * @param taskHash The hash of the task.
+     * @param stage The stage to restore.
+     * @param cache The local cache of the stage.
+     * @param cacheDir The directory of the local cache entry.
+     * @return True if the output was restored.
+     */
+    private boolean restoreFromRemote(final HashCode taskHash, final ICacheableJob<?,?> stage, final ICache cache, final File cacheDir) {
+        if (options.remote() == null) {
+            return false;
+        }
+
+        final String key = remoteKeyOf(taskHash, stage);
+        final long start = System.nanoTime();
+        File payload = null;
+        try {
+            payload = createPayloadFile(key);
+            if (!options.remote().cache().load(key, payload)) {
+                logger.debug("Remote cache miss for stage: %s (%s)".formatted(stage.name(), key));
+                return false;
+            }
+
+            RemoteCachePayload.unpack(payload, stage.output(), stage.createsDirectory());
+            cache.loadFrom(stage.output());
+            OutputSizes.write(cacheDir, sizeOf(stage.output()));
+            options.statistics().recordRemoteHit(stage.name(), System.nanoTime() - start, payload.length());
+            logger.debug("Remote cache hit for stage: %s (%s)".formatted(stage.name(), key));
+            return true;
+        } catch (IOException e) {
+            logger.warn("Failed to restore stage %s from the remote cache, it will be executed instead".formatted(stage.name()), e);
+            return false;
+        } finally {
+            if (payload != null) {
+                payload.delete();
+            }
+        }
+    }
+
+    /**
+     * Uploads the output of the given stage to the remote cache, if pushing is enabled.
+     * Failures of the remote cache are logged, and do not fail the build.
+     *
+     * @param taskHash The hash of the task.
+     * @param stage The executed stage.
+     */
+    private void pushToRemote(final HashCode taskHash, final ICacheableJob<?,?> stage) {
+        if (options.remote() == null || !options.remote().push() || !stage.output().exists()) {
+            return;
+        }
+
+        final String key = remoteKeyOf(taskHash, stage);
+        final long start = System.nanoTime();
+        File payload = null;
+        try {
+            payload = createPayloadFile(key);
+            RemoteCachePayload.pack(stage.output(), stage.createsDirectory(), payload);
+            options.remote().cache().store(key, payload);
+            options.statistics().recordUpload(stage.name(), System.nanoTime() - start);
+            logger.debug("Uploaded stage %s to the remote cache (%s)".formatted(stage.name(), key));
+        } catch (IOException e) {
+            logger.warn("Failed to upload stage %s to the remote cache".formatted(stage.name()), e);
+        } finally {
+            if (payload != null) {
+                payload.delete();
+            }
+        }
+    }
+
+    private static File createPayloadFile(final String key) throws IOException {
+        return File.createTempFile(key, ".payload");
+    }
+
+    /**
+     * Determines the key of the given job in the remote cache, which does not depend on the local storage format.
+     *
+     * @param taskHash The hash of the task.
+     * @param job The job to determine the key for.
+     * @return The key in the remote cache.
+     */
+    private static String remoteKeyOf(final HashCode taskHash, final ICacheableJob<?,?> job) {
+        return new JobHasher(taskHash, job, false).hash().toString();
+    }
+
+    /**
+     * Determines the directory of the cache entry for the given task hash and job.
+     *
+     * @param taskHash The hash of the task.
+     * @param job The job to determine the directory for.
+     * @return The directory of the cache entry.
+     */
+    private File cacheDirectoryOf(final HashCode taskHash, final ICacheableJob<?,?> job) {
+        final JobHasher jobHasher = new JobHasher(taskHash, job, options.chunkStore() != null);
+        return new File(options.cache(), jobHasher.hash().toString());
+    }
+
+    /**
+     * Determines the directory of the cache entry for the given store job, which only depends on the key of its contents.
+     * Tasks which produce the same contents therefore share the entry.
+     *
+     * @param store The store job.
+     * @param contents The contents of the store.
+     * @return The directory of the cache entry.
+     */
+    private File storeDirectoryOf(final ICacheableJob.Store<?> store, final ICacheableJob.Store.Contents contents) {
+        final Hasher hasher = Hashing.sha256().newHasher();
+        hasher.putString("store");
+        hasher.putString(store.name());
+        hasher.putString(contents.key());
+        return new File(options.cache(), hasher.hash().toString());
+    }
+
+    private static ICacheableJob.Store.Contents contentsOf(final ICacheableJob.Store<?> store) {
+        try {
+            return store.contents().get();
+        } catch (Exception e) {
+            throw new GradleException("Failed to determine the contents of the store for stage: %s".formatted(store), e);
+        }
+    }
+
+    /**
+     * Creates a cache for the given cache entry and job.
+     *
+     * @param cacheDir The directory of the cache entry.
      * @param job The job to create the cache for.
-     * @return The cache for the given task hash and job.
+     * @return The cache for the given cache entry and job.
      */
-    private ICache createCache(final HashCode taskHash, final ICacheableJob<?,?> job) {
-        final JobHasher jobHasher = new JobHasher(taskHash, job);
-        final File cacheDir = new File(options.cache(), jobHasher.hash().toString());
+    private ICache createCache(final File cacheDir, final ICacheableJob<?,?> job) {
+        //Directory contents are compared through the memoized file hashes, so unchanged files are not read again.
+        final HashFunction function = Hashing.sha256();
+        final DirectoryHasher.FileHasher fileHasher = file -> options.fileHashes().hash(function, file);
+        if (options.chunkStore() != null) {
+            return new ChunkedCache(cacheDir, options.chunkStore(), job.createsDirectory(), fileHasher, logger);
+        }
 
-        return job.createsDirectory() ? new DirectoryCache(cacheDir) : new FileCache(cacheDir);
+        final CacheRestorer restorer = new CacheRestorer(options.restoreStrategy());
+        if (!job.createsDirectory()) {
+            return new FileCache(cacheDir, restorer);
+        }
+
+        return new DirectoryCache(cacheDir, restorer, new DirectoryHasher(function, fileHasher));
     }
 
     /**
@@ -208,7 +421,8 @@ public class CachedExecutionBuilder<T> {
     private Object executeStage(ICacheableJob job, Object input) throws Throwable {
         final File intendedOutput = job.output();
 
-        prepareWorkspace(intendedOutput, job.createsDirectory());
+        //Stores are shared with other jobs, so their existing contents are kept.
+        prepareWorkspace(intendedOutput, job.createsDirectory(), !(job instanceof ICacheableJob.Store<?>));
 
         return job.execute(input);
     }
@@ -218,15 +432,16 @@ public class CachedExecutionBuilder<T> {
      *
      * @param output The output to prepare the workspace for.
      * @param isDirectory Whether the output is a directory.
+     * @param clean Whether the existing output is removed.
      * @throws IOException If an error occurs while preparing the workspace.
      */
-    private void prepareWorkspace(final File output, final boolean isDirectory) throws IOException {
+    private void prepareWorkspace(final File output, final boolean isDirectory, final boolean clean) throws IOException {
         if (isDirectory) {
             if (!output.exists() && !output.mkdirs()) {
                 throw new RuntimeException("Failed to create directory: %s".formatted(output.getAbsolutePath()));
             }
 
-            if (output.exists()) {
+            if (output.exists() && clean) {
                 FileUtils.cleanDirectory(output);
             }
         } else {
@@ -256,12 +471,15 @@ public class CachedExecutionBuilder<T> {
             try(CacheStatus status = beforeExecute.apply(stage)) {
 
                 //If we should execute the stage, execute it.
+                long executionNanos = 0;
                 if (status.shouldExecute()) {
+                    final long executionStart = System.nanoTime();
                     state = executeStage(stage, state);
+                    executionNanos = System.nanoTime() - executionStart;
                 }
 
                 //Run the after execute consumer
-                afterExecute.accept(stage, status);
+                afterExecute.accept(stage, status, executionNanos);
 
                 //Mark the status as successful
                 status.onSuccess();
@@ -274,7 +492,17 @@ public class CachedExecutionBuilder<T> {
         }
     }
 
+    /**
+     * Determines the size of the given file or directory.
+     *
+     * @param output The file or directory.
+     * @return The size in bytes, or zero if it does not exist.
+     */
+    private static long sizeOf(final File output) {
+        return output.exists() ? FileUtils.sizeOf(output) : 0;
+    }
+
     private interface AfterExecute {
-        void accept(ICacheableJob<?,?> stage, CacheStatus status) throws Exception;
+        void accept(ICacheableJob<?,?> stage, CacheStatus status, long executionNanos) throws Exception;
     }
 }
@@ -1,19 +1,44 @@
 package net.neoforged.gradle.common.services.caching;
 
 
+import net.neoforged.gradle.common.services.caching.cache.RestoreStrategy;
+import net.neoforged.gradle.common.services.caching.eviction.CacheEntry;
+import net.neoforged.gradle.common.services.caching.eviction.CacheEvictor;
+import net.neoforged.gradle.common.services.caching.hasher.FileHashIndex;
+import net.neoforged.gradle.common.services.caching.hasher.PropertyFingerprinter;
 import net.neoforged.gradle.common.services.caching.jobs.ICacheableJob;
+import net.neoforged.gradle.common.services.caching.logging.CacheLogger;
+import net.neoforged.gradle.common.services.caching.remote.HttpRemoteCache;
+import net.neoforged.gradle.common.services.caching.statistics.CacheReport;
+import net.neoforged.gradle.common.services.caching.statistics.CacheStatistics;
+import net.neoforged.gradle.common.services.caching.storage.ChunkCompression;
+import net.neoforged.gradle.common.services.caching.storage.ChunkManifest;
+import net.neoforged.gradle.common.services.caching.storage.ChunkStore;
+import net.neoforged.gradle.common.services.caching.storage.StorageFormat;
 import org.apache.commons.io.FileUtils;
 import org.gradle.api.Project;
 import org.gradle.api.Task;
 import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
 import org.gradle.api.provider.Property;
 import org.gradle.api.services.BuildService;
 import org.gradle.api.services.BuildServiceParameters;
+import org.jetbrains.annotations.Nullable;
 
 import java.io.File;
 import java.io.IOException;
+import java.net.URI;
+import java.nio.file.NoSuchFileException;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
 
-public abstract class CachedExecutionService implements BuildService<CachedExecutionService.Parameters> {
+public abstract class CachedExecutionService implements BuildService<CachedExecutionService.Parameters>, AutoCloseable {
+
+    private static final Logger LOGGER = Logging.getLogger(CachedExecutionService.class);
 
     public static final String NAME = "CachedExecutionService";
 
@@ -23,8 +48,20 @@ public abstract class CachedExecutionService implements BuildService<CachedExecu
     public static final String CACHE_DIRECTORY_PROPERTY = CACHING_PROPERTY_PREFIX + "cacheDirectory";
     public static final String LOG_CACHE_HITS_PROPERTY = CACHING_PROPERTY_PREFIX + "logCacheHits";
     public static final String MAX_CACHE_SIZE_PROPERTY = CACHING_PROPERTY_PREFIX + "maxCacheSize";
+    public static final String MAX_CACHE_BYTES_PROPERTY = CACHING_PROPERTY_PREFIX + "maxCacheBytes";
     public static final String DEBUG_CACHE_PROPERTY = CACHING_PROPERTY_PREFIX + "debug";
     public static final String IS_ENABLED_PROPERTY = CACHING_PROPERTY_PREFIX + "enabled";
+    public static final String RESTORE_STRATEGY_PROPERTY = CACHING_PROPERTY_PREFIX + "restoreStrategy";
+    public static final String STORAGE_FORMAT_PROPERTY = CACHING_PROPERTY_PREFIX + "storageFormat";
+    public static final String COMPRESSION_PROPERTY = CACHING_PROPERTY_PREFIX + "compression";
+    public static final String REPORT_PROPERTY = CACHING_PROPERTY_PREFIX + "report";
+    public static final String REMOTE_URL_PROPERTY = CACHING_PROPERTY_PREFIX + "remote.url";
+    public static final String REMOTE_PUSH_PROPERTY = CACHING_PROPERTY_PREFIX + "remote.push";
+    public static final String REMOTE_USERNAME_PROPERTY = CACHING_PROPERTY_PREFIX + "remote.username";
+    public static final String REMOTE_PASSWORD_PROPERTY = CACHING_PROPERTY_PREFIX + "remote.password";
+    public static final String REMOTE_TIMEOUT_PROPERTY = CACHING_PROPERTY_PREFIX + "remote.timeout";
+
+    public static final String REPORT_PATH = "reports/neogradle/execution-cache.json";
 
 
     public interface Parameters extends BuildServiceParameters {
@@ -35,11 +72,39 @@ public abstract class CachedExecutionService implements BuildService<CachedExecu
 
         Property<Integer> getMaxCacheSize();
 
+        Property<Long> getMaxCacheBytes();
+
         Property<Boolean> getDebugCache();
 
         Property<Boolean> getIsEnabled();
+
+        Property<RestoreStrategy> getRestoreStrategy();
+
+        Property<StorageFormat> getStorageFormat();
+
+        Property<ChunkCompression> getCompression();
+
+        Property<Boolean> getWriteReport();
+
+        RegularFileProperty getReportFile();
+
+        Property<String> getRemoteUrl();
+
+        Property<Boolean> getRemotePush();
+
+        Property<String> getRemoteUsername();
+
+        Property<String> getRemotePassword();
+
+        Property<Integer> getRemoteTimeout();
     }
 
+    private final CacheStatistics statistics = new CacheStatistics();
+    private FileHashIndex fileHashes;
+    private PropertyFingerprinter fingerprinter;
+    private ChunkStore chunkStore;
+    private HttpRemoteCache remoteCache;
+
     public static void register(Project project) {
         project.getGradle().getSharedServices().registerIfAbsent(
                 NAME,
@@ -51,16 +116,195 @@ public abstract class CachedExecutionService implements BuildService<CachedExecu
                                     .orElse(new File(new File(project.getGradle().getGradleUserHomeDir(), "caches"), DIRECTORY_NAME)));
                     spec.getParameters().getLogCacheHits().set(project.getProviders().gradleProperty(LOG_CACHE_HITS_PROPERTY).map(Boolean::parseBoolean).orElse(false));
                     spec.getParameters().getMaxCacheSize().set(project.getProviders().gradleProperty(MAX_CACHE_SIZE_PROPERTY).map(Integer::parseInt).orElse(100));
+                    spec.getParameters().getMaxCacheBytes().set(project.getProviders().gradleProperty(MAX_CACHE_BYTES_PROPERTY).map(Long::parseLong).orElse(0L));
                     spec.getParameters().getDebugCache().set(project.getProviders().gradleProperty(DEBUG_CACHE_PROPERTY).map(Boolean::parseBoolean).orElse(false));
                     spec.getParameters().getIsEnabled().set(project.getProviders().gradleProperty(IS_ENABLED_PROPERTY).map(Boolean::parseBoolean).orElse(true));
+                    spec.getParameters().getRestoreStrategy().set(project.getProviders().gradleProperty(RESTORE_STRATEGY_PROPERTY).map(value -> RestoreStrategy.valueOf(value.toUpperCase(Locale.ROOT))).orElse(RestoreStrategy.AUTO));
+                    spec.getParameters().getStorageFormat().set(project.getProviders().gradleProperty(STORAGE_FORMAT_PROPERTY).map(value -> StorageFormat.valueOf(value.toUpperCase(Locale.ROOT))).orElse(StorageFormat.RAW));
+                    spec.getParameters().getCompression().set(project.getProviders().gradleProperty(COMPRESSION_PROPERTY).map(value -> ChunkCompression.valueOf(value.toUpperCase(Locale.ROOT))).orElse(ChunkCompression.DEFLATE));
+                    spec.getParameters().getWriteReport().set(project.getProviders().gradleProperty(REPORT_PROPERTY).map(Boolean::parseBoolean).orElse(true));
+                    spec.getParameters().getReportFile().set(project.getRootProject().getLayout().getBuildDirectory().file(REPORT_PATH));
+                    spec.getParameters().getRemoteUrl().set(project.getProviders().gradleProperty(REMOTE_URL_PROPERTY));
+                    spec.getParameters().getRemotePush().set(project.getProviders().gradleProperty(REMOTE_PUSH_PROPERTY).map(Boolean::parseBoolean).orElse(false));
+                    spec.getParameters().getRemoteUsername().set(project.getProviders().gradleProperty(REMOTE_USERNAME_PROPERTY));
+                    spec.getParameters().getRemotePassword().set(project.getProviders().gradleProperty(REMOTE_PASSWORD_PROPERTY));
+                    spec.getParameters().getRemoteTimeout().set(project.getProviders().gradleProperty(REMOTE_TIMEOUT_PROPERTY).map(Integer::parseInt).orElse(30));
                 }
         );
     }
 
+    /**
+     * @return The persistent index of input file hashes, stored next to the cache entries.
+     */
+    public synchronized FileHashIndex getFileHashes() {
+        if (fileHashes == null) {
+            fileHashes = FileHashIndex.load(getParameters().getCacheDirectory().get().getAsFile());
+        }
+
+        return fileHashes;
+    }
+
+    /**
+     * @return The fingerprints of the input property values of tasks, which are shared by all tasks of the build.
+     */
+    public synchronized PropertyFingerprinter getFingerprinter() {
+        if (fingerprinter == null) {
+            fingerprinter = new PropertyFingerprinter(getFileHashes());
+        }
+
+        return fingerprinter;
+    }
+
+    /**
+     * @return The store of blobs shared by all chunked entries of the cache.
+     */
+    public synchronized ChunkStore getChunkStore() {
+        if (chunkStore == null) {
+            chunkStore = new ChunkStore(getParameters().getCacheDirectory().get().getAsFile(), getParameters().getCompression().get());
+        }
+
+        return chunkStore;
+    }
+
+    /**
+     * @return The remote cache tier, or null if no remote cache is configured.
+     */
+    @Nullable
+    public synchronized HttpRemoteCache getRemoteCache() {
+        if (remoteCache == null && getParameters().getRemoteUrl().isPresent()) {
+            remoteCache = new HttpRemoteCache(
+                    URI.create(getParameters().getRemoteUrl().get()),
+                    getParameters().getRemoteUsername().getOrNull(),
+                    getParameters().getRemotePassword().getOrNull(),
+                    Duration.ofSeconds(getParameters().getRemoteTimeout().get())
+            );
+        }
+
+        return remoteCache;
+    }
+
+    /**
+     * @return The statistics of the cache during the current build.
+     */
+    public CacheStatistics getStatistics() {
+        return statistics;
+    }
+
     public void clean() throws IOException {
         FileUtils.cleanDirectory(getParameters().getCacheDirectory().get().getAsFile());
     }
 
+    /**
+     * Evicts the least recently used entries from the cache, until it fits within the configured maximum entry count and size.
+     *
+     * @return The result of the eviction.
+     * @throws IOException If the cache could not be read or an entry could not be deleted.
+     */
+    public CacheEvictor.Result evict() throws IOException {
+        final CacheEvictor evictor = new CacheEvictor(
+                getParameters().getCacheDirectory().get().getAsFile(),
+                getParameters().getMaxCacheSize().get(),
+                getParameters().getMaxCacheBytes().get(),
+                new CacheLogger(LOGGER, NAME, getParameters().getDebugCache().get(), getParameters().getLogCacheHits().get())
+        );
+
+        final CacheEvictor.Result result = evictor.evict();
+        if (!result.evicted().isEmpty()) {
+            LOGGER.info("Evicted {} entries ({} bytes) from the execution cache", result.evicted().size(), result.evictedBytes());
+        }
+
+        collectGarbage(evictor);
+        return result;
+    }
+
+    /**
+     * Deletes the blobs of the chunk store which are no longer referenced by any entry of the cache.
+     */
+    private void collectGarbage(CacheEvictor evictor) throws IOException {
+        final File blobs = new File(getParameters().getCacheDirectory().get().getAsFile(), ChunkStore.DIRECTORY_NAME);
+        if (!blobs.isDirectory()) {
+            return;
+        }
+
+        final Set<String> referenced = new HashSet<>();
+        for (CacheEntry entry : evictor.entries()) {
+            final File manifest = new File(entry.directory(), ChunkManifest.FILE_NAME);
+            try {
+                referenced.addAll(ChunkManifest.read(manifest).blobs());
+            } catch (NoSuchFileException e) {
+                //Plain entry, or an entry that was evicted concurrently.
+            }
+        }
+
+        final long freed = getChunkStore().collectGarbage(referenced);
+        if (freed > 0) {
+            LOGGER.info("Deleted {} bytes of unreferenced blobs from the execution cache", freed);
+        }
+    }
+
+    @Override
+    public void close() throws Exception {
+        report();
+
+        if (remoteCache != null && remoteCache.isUnreachable()) {
+            LOGGER.warn("The remote execution cache at {} could not be reached, and was disabled for the rest of the build", getParameters().getRemoteUrl().get());
+        }
+
+        synchronized (this) {
+            if (fileHashes != null) {
+                try {
+                    fileHashes.save();
+                } catch (IOException e) {
+                    //The index is only an optimization, the next build will simply hash the files again.
+                    LOGGER.warn("Failed to save the file hash index of the execution cache", e);
+                }
+            }
+
+            if (chunkStore != null) {
+                final ChunkStore.Statistics statistics = chunkStore.statistics();
+                if (statistics.logicalBytes() > 0) {
+                    LOGGER.info("Stored {} bytes of outputs in the execution cache by writing {} bytes, {} bytes were saved by deduplication and compression",
+                            statistics.logicalBytes(), statistics.writtenBytes(), statistics.savedBytes());
+                }
+            }
+        }
+
+        //Trim the cache once the build is done, so that entries used by this build are the most recent ones.
+        if (getParameters().getIsEnabled().get()) {
+            try {
+                evict();
+            } catch (IOException e) {
+                //The work of the build is done, the next build will try to trim the cache again.
+                LOGGER.warn("Failed to evict entries from the execution cache", e);
+            }
+        }
+    }
+
+    /**
+     * Writes the statistics of the current build to the report file, and summarizes them on the console.
+     */
+    private void report() {
+        final CacheReport report = statistics.report();
+        if (report.isEmpty()) {
+            return;
+        }
+
+        if (getParameters().getLogCacheHits().get()) {
+            LOGGER.lifecycle(report.summary());
+        } else {
+            LOGGER.info(report.summary());
+        }
+
+        if (getParameters().getWriteReport().get()) {
+            final File reportFile = getParameters().getReportFile().get().getAsFile();
+            try {
+                report.writeJson(reportFile);
+            } catch (IOException e) {
+                LOGGER.warn("Failed to write the execution cache report to: {}", reportFile.getAbsolutePath(), e);
+            }
+        }
+    }
+
     public <T> CachedExecutionBuilder<T> cached(
             Task task,
             ICacheableJob<Void, T> initial
@@ -69,6 +313,12 @@ public abstract class CachedExecutionService implements BuildService<CachedExecu
                 new CachedExecutionBuilder.Options(
                         getParameters().getIsEnabled().get(),
                         getParameters().getCacheDirectory().get().getAsFile(),
+                        getParameters().getRestoreStrategy().get(),
+                        getFileHashes(),
+                        getFingerprinter(),
+                        getParameters().getStorageFormat().get() == StorageFormat.CHUNKED ? getChunkStore() : null,
+                        statistics,
+                        getRemoteCache() == null ? null : new CachedExecutionBuilder.RemoteOptions(getRemoteCache(), getParameters().getRemotePush().get()),
                         new CachedExecutionBuilder.LoggingOptions(
                                 getParameters().getLogCacheHits().get(),
                                 getParameters().getDebugCache().get()
@@ -0,0 +1,202 @@
+package net.neoforged.gradle.common.services.caching.cache;
+
+import org.apache.commons.io.FileUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Restores files and directories out of the cache using a {@link RestoreStrategy}.
+ * <p>
+ * Strategies which are not supported by the file systems involved fall back to copying.
+ * Unsupported combinations are remembered, so that each pair of file systems is only probed once.
+ * <p>
+ * The permissions of cached files are never changed, as a hardlink shares them with every restored output.
+ */
+public final class CacheRestorer {
+
+    /**
+     * Files below this size are copied instead of cloned, as starting the clone process takes longer than copying them.
+     */
+    private static final long MINIMUM_REFLINK_SIZE = 1024 * 1024;
+
+    private static final Set<String> UNSUPPORTED = ConcurrentHashMap.newKeySet();
+    private static final Map<RestoreStrategy, List<RestoreStrategy>> CANDIDATES = Map.of(
+            //Outputs may be modified in place by later tasks, so they are only linked if explicitly requested.
+            RestoreStrategy.AUTO, List.of(RestoreStrategy.REFLINK, RestoreStrategy.COPY),
+            RestoreStrategy.REFLINK, List.of(RestoreStrategy.REFLINK, RestoreStrategy.COPY),
+            RestoreStrategy.HARDLINK, List.of(RestoreStrategy.HARDLINK, RestoreStrategy.COPY),
+            RestoreStrategy.COPY, List.of(RestoreStrategy.COPY)
+    );
+
+    private final RestoreStrategy strategy;
+
+    public CacheRestorer(RestoreStrategy strategy) {
+        this.strategy = strategy;
+    }
+
+    public RestoreStrategy strategy() {
+        return strategy;
+    }
+
+    /**
+     * Restores the given cached file to the target.
+     *
+     * @param source The cached file.
+     * @param target The target file, which must not exist.
+     * @return The strategy that was used to restore the file.
+     * @throws IOException If the file could not be restored.
+     */
+    public RestoreStrategy restoreFile(File source, File target) throws IOException {
+        final File parent = target.getAbsoluteFile().getParentFile();
+        if (!parent.exists() && !parent.mkdirs()) {
+            throw new IOException("Failed to create directory: %s".formatted(parent.getAbsolutePath()));
+        }
+
+        return restore(source, target, false);
+    }
+
+    /**
+     * Restores the contents of the given cached directory into the target directory.
+     *
+     * @param source The cached directory.
+     * @param target The target directory, which must exist and be empty.
+     * @return The strategy that was used to restore the directory.
+     * @throws IOException If the directory could not be restored.
+     */
+    public RestoreStrategy restoreDirectory(File source, File target) throws IOException {
+        return restore(source, target, true);
+    }
+
+    private RestoreStrategy restore(File source, File target, boolean directory) throws IOException {
+        final String fileSystems = fileSystemsOf(source, directory ? target : target.getAbsoluteFile().getParentFile());
+        for (RestoreStrategy candidate : CANDIDATES.get(strategy)) {
+            if (candidate == RestoreStrategy.COPY) {
+                copy(source, target, directory);
+                return candidate;
+            }
+
+            final String key = candidate + ":" + fileSystems;
+            if (UNSUPPORTED.contains(key)) {
+                continue;
+            }
+
+            if (candidate == RestoreStrategy.REFLINK && !directory && source.length() < MINIMUM_REFLINK_SIZE) {
+                continue;
+            }
+
+            try {
+                if (candidate == RestoreStrategy.REFLINK) {
+                    reflink(source, target, directory);
+                } else {
+                    hardlink(source, target, directory);
+                }
+                return candidate;
+            } catch (IOException | UnsupportedOperationException e) {
+                UNSUPPORTED.add(key);
+                cleanup(target, directory);
+            }
+        }
+
+        throw new IllegalStateException("No restore strategy available for: %s".formatted(strategy));
+    }
+
+    private static String fileSystemsOf(File source, File target) throws IOException {
+        return Files.getFileStore(source.toPath()) + "->" + Files.getFileStore(target.toPath());
+    }
+
+    private static void copy(File source, File target, boolean directory) throws IOException {
+        if (directory) {
+            FileUtils.copyDirectory(source, target);
+        } else {
+            FileUtils.copyFile(source, target);
+        }
+    }
+
+    private static void reflink(File source, File target, boolean directory) throws IOException {
+        final List<String> command = new ArrayList<>();
+        command.add("cp");
+        command.add(reflinkOption());
+
+        if (directory) {
+            //Clone the contents of the directory in a single process, not the directory itself.
+            command.add("-R");
+            command.add(new File(source, ".").getAbsolutePath());
+        } else {
+            command.add(source.getAbsolutePath());
+        }
+        command.add(target.getAbsolutePath());
+
+        final Process process = new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .start();
+        try {
+            if (!process.waitFor(10, TimeUnit.MINUTES) || process.exitValue() != 0) {
+                process.destroyForcibly();
+                throw new IOException("Failed to create reflink of: %s".formatted(source.getAbsolutePath()));
+            }
+        } catch (InterruptedException e) {
+            process.destroyForcibly();
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while creating reflink of: %s".formatted(source.getAbsolutePath()), e);
+        }
+    }
+
+    /**
+     * @return The option of cp which clones files on the current operating system.
+     */
+    private static String reflinkOption() {
+        final String os = System.getProperty("os.name").toLowerCase(Locale.ROOT);
+        if (os.contains("linux")) {
+            return "--reflink=always";
+        }
+        if (os.contains("mac")) {
+            return "-c";
+        }
+        throw new UnsupportedOperationException("Reflinks are not supported on this operating system.");
+    }
+
+    private static void hardlink(File source, File target, boolean directory) throws IOException {
+        if (!directory) {
+            Files.createLink(target.toPath(), source.toPath());
+            return;
+        }
+
+        final Path sourceRoot = source.toPath();
+        final Path targetRoot = target.toPath();
+        Files.walkFileTree(sourceRoot, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                Files.createDirectories(targetRoot.resolve(sourceRoot.relativize(dir)));
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                Files.createLink(targetRoot.resolve(sourceRoot.relativize(file)), file);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private static void cleanup(File target, boolean directory) throws IOException {
+        if (directory) {
+            FileUtils.cleanDirectory(target);
+        } else {
+            Files.deleteIfExists(target.toPath());
+        }
+    }
+}
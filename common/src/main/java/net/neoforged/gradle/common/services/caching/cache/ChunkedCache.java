@@ -0,0 +1,207 @@
+package net.neoforged.gradle.common.services.caching.cache;
+
+import net.neoforged.gradle.common.services.caching.locking.FileBasedLock;
+import net.neoforged.gradle.common.services.caching.locking.LockManager;
+import net.neoforged.gradle.common.services.caching.logging.CacheLogger;
+import net.neoforged.gradle.common.services.caching.storage.ChunkManifest;
+import net.neoforged.gradle.common.services.caching.storage.ChunkStore;
+import net.neoforged.gradle.common.util.hash.DirectoryHasher;
+import org.apache.commons.io.FileUtils;
+import org.gradle.api.GradleException;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * A cache which stores its output in a shared {@link ChunkStore}, instead of as a plain copy.
+ * The entry only holds a {@link ChunkManifest}, which describes how the output is reconstructed from the blobs of the store.
+ */
+public class ChunkedCache implements ICache {
+
+    private final File cacheDir;
+    private final ChunkStore store;
+    private final boolean directory;
+    private final DirectoryHasher.FileHasher fileHasher;
+    private final CacheLogger logger;
+
+    /**
+     * Creates a new chunked cache.
+     *
+     * @param cacheDir The directory of the cache entry.
+     * @param store The store that holds the blobs of the output.
+     * @param directory Whether the output is a directory.
+     * @param fileHasher The hasher used to compare existing outputs, must compute SHA-256 digests.
+     * @param logger The logger to use.
+     */
+    public ChunkedCache(File cacheDir, ChunkStore store, boolean directory, DirectoryHasher.FileHasher fileHasher, CacheLogger logger) {
+        this.cacheDir = cacheDir;
+        this.store = store;
+        this.directory = directory;
+        this.fileHasher = fileHasher;
+        this.logger = logger;
+    }
+
+    @Override
+    public void loadFrom(File file) throws IOException {
+        final File manifestFile = new File(cacheDir, ChunkManifest.FILE_NAME);
+        Files.deleteIfExists(manifestFile.toPath());
+
+        // If the output does not exist, there is nothing to load
+        if (!file.exists()) {
+            return;
+        }
+
+        final List<ChunkManifest.Entry> entries = new ArrayList<>();
+        long size = 0;
+        long written = 0;
+        for (Map.Entry<String, Path> candidate : list(file).entrySet()) {
+            final Path path = candidate.getValue();
+            if (Files.isDirectory(path)) {
+                entries.add(ChunkManifest.Entry.directory(candidate.getKey()));
+                continue;
+            }
+
+            final ChunkStore.StoredFile stored = store.store(path);
+            entries.add(new ChunkManifest.Entry(candidate.getKey(), false, Files.getLastModifiedTime(path).toMillis(), stored.size(), stored.hash(), stored.segments()));
+            size += stored.size();
+            written += stored.writtenBytes();
+        }
+
+        new ChunkManifest(List.copyOf(entries)).write(manifestFile);
+        logger.debug("Stored %d bytes of output in the chunk store, %d bytes were newly written".formatted(size, written));
+    }
+
+    @Override
+    public boolean restoreTo(File file) throws IOException {
+        final File manifestFile = new File(cacheDir, ChunkManifest.FILE_NAME);
+        final ChunkManifest manifest = manifestFile.exists() ? ChunkManifest.read(manifestFile) : null;
+
+        if (file.exists()) {
+            if (manifest != null && file.isDirectory() == directory && matches(file, manifest)) {
+                return false;
+            }
+
+            if (file.isDirectory()) {
+                FileUtils.cleanDirectory(file);
+            }
+            file.delete();
+        }
+
+        if (directory) {
+            file.mkdirs();
+        }
+
+        //If previous executions did not create an output, then there is nothing to restore.
+        if (manifest != null) {
+            try {
+                restore(file, manifest);
+            } catch (IOException e) {
+                throw new GradleException("Failed to restore cache. Reconstructing the output from the chunk store failed.", e);
+            }
+        }
+
+        return true;
+    }
+
+    @Override
+    public FileBasedLock createLock(CacheLogger logger) {
+        return LockManager.createLock(cacheDir, logger);
+    }
+
+    private Map<String, Path> list(File file) throws IOException {
+        final Map<String, Path> paths = new LinkedHashMap<>();
+        if (!directory) {
+            paths.put("", file.toPath());
+            return paths;
+        }
+
+        final Path root = file.toPath();
+        try (Stream<Path> stream = Files.walk(root)) {
+            stream.filter(path -> !path.equals(root))
+                    .sorted()
+                    .forEach(path -> paths.put(relativePath(root, path), path));
+        }
+
+        return paths;
+    }
+
+    private boolean matches(File file, ChunkManifest manifest) throws IOException {
+        final Map<String, Path> existing = list(file);
+        if (existing.size() != manifest.entries().size()) {
+            return false;
+        }
+
+        final Map<String, ChunkManifest.Entry> expected = new HashMap<>();
+        for (ChunkManifest.Entry entry : manifest.entries()) {
+            expected.put(entry.path(), entry);
+        }
+
+        for (Map.Entry<String, Path> candidate : existing.entrySet()) {
+            final ChunkManifest.Entry entry = expected.get(candidate.getKey());
+            final Path path = candidate.getValue();
+            if (entry == null || entry.directory() != Files.isDirectory(path)) {
+                return false;
+            }
+
+            if (!entry.directory() && (Files.size(path) != entry.size() || !Arrays.equals(fileHasher.hash(path.toFile()).toByteArray(), entry.hash()))) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private void restore(File file, ChunkManifest manifest) throws IOException {
+        for (ChunkManifest.Entry entry : manifest.entries()) {
+            final File target = entry.path().isEmpty() ? file : new File(file, entry.path());
+            if (entry.directory()) {
+                if (!target.isDirectory() && !target.mkdirs()) {
+                    throw new IOException("Failed to create directory: %s".formatted(target.getAbsolutePath()));
+                }
+                continue;
+            }
+
+            final File parent = target.getAbsoluteFile().getParentFile();
+            if (!parent.exists() && !parent.mkdirs()) {
+                throw new IOException("Failed to create directory: %s".formatted(parent.getAbsolutePath()));
+            }
+
+            final MessageDigest digest = sha256();
+            try (OutputStream output = new DigestOutputStream(new BufferedOutputStream(Files.newOutputStream(target.toPath())), digest)) {
+                store.restore(entry.segments(), output);
+            }
+
+            if (!MessageDigest.isEqual(digest.digest(), entry.hash())) {
+                throw new IOException("Restored file does not match the cached output: %s".formatted(target.getAbsolutePath()));
+            }
+
+            target.setLastModified(entry.lastModified());
+        }
+    }
+
+    private static String relativePath(Path root, Path path) {
+        return root.relativize(path).toString().replace(File.separatorChar, '/');
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported", e);
+        }
+    }
+}
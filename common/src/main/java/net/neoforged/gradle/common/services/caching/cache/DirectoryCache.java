@@ -3,6 +3,7 @@ package net.neoforged.gradle.common.services.caching.cache;
 import net.neoforged.gradle.common.services.caching.locking.FileBasedLock;
 import net.neoforged.gradle.common.services.caching.locking.LockManager;
 import net.neoforged.gradle.common.services.caching.logging.CacheLogger;
+import net.neoforged.gradle.common.util.hash.DirectoryHasher;
 import net.neoforged.gradle.common.util.hash.Hashing;
 import org.apache.commons.io.FileUtils;
 import org.gradle.api.GradleException;
@@ -13,9 +14,17 @@ import java.io.IOException;
 public class DirectoryCache implements ICache {
 
     private final File cacheDir;
+    private final CacheRestorer restorer;
+    private final DirectoryHasher hasher;
 
     public DirectoryCache(File cacheDir) {
+        this(cacheDir, new CacheRestorer(RestoreStrategy.COPY), new DirectoryHasher(Hashing.defaultFunction()));
+    }
+
+    public DirectoryCache(File cacheDir, CacheRestorer restorer, DirectoryHasher hasher) {
         this.cacheDir = cacheDir;
+        this.restorer = restorer;
+        this.hasher = hasher;
     }
 
     @Override
@@ -37,7 +46,7 @@ public class DirectoryCache implements ICache {
 
         if (file.exists()) {
             if (file.isDirectory() && output.exists()) {
-                if (Hashing.hashDirectory(file).equals(Hashing.hashDirectory(output))) {
+                if (hasher.hash(file).hash().equals(hasher.hash(output).hash())) {
                     return false;
                 }
             }
@@ -52,7 +61,7 @@ public class DirectoryCache implements ICache {
 
         if (output.exists()) {
             try {
-                FileUtils.copyDirectory(output, file);
+                restorer.restoreDirectory(output, file);
             } catch (IOException e) {
                 throw new GradleException("Failed to restore cache.", e);
             }
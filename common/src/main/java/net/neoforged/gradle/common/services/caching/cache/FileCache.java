@@ -9,13 +9,20 @@ import org.gradle.api.GradleException;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
 
 public class FileCache implements ICache {
 
     private final File cacheDir;
+    private final CacheRestorer restorer;
 
     public FileCache(File cacheDir) {
+        this(cacheDir, new CacheRestorer(RestoreStrategy.COPY));
+    }
+
+    public FileCache(File cacheDir, CacheRestorer restorer) {
         this.cacheDir = cacheDir;
+        this.restorer = restorer;
     }
 
     @Override
@@ -39,6 +46,11 @@ public class FileCache implements ICache {
 
         if (file.exists()) {
             if (file.isFile() && cacheFile.exists()) {
+                //A previous restore linked the file to the cache, so it can not have changed.
+                if (Files.isSameFile(file.toPath(), cacheFile.toPath())) {
+                    return false;
+                }
+
                 if (Hashing.hashFile(file).equals(Hashing.hashFile(cacheFile))) {
                     return false;
                 }
@@ -55,9 +67,9 @@ public class FileCache implements ICache {
         //Then we should not restore it as our cache file would not exist.
         if (cacheFile.exists()) {
             try {
-                FileUtils.copyFile(cacheFile, file);
+                restorer.restoreFile(cacheFile, file);
             } catch (IOException e) {
-                throw new GradleException("Failed to restore cache. Copying of the cache file failed.", e);
+                throw new GradleException("Failed to restore cache. Restoring of the cache file failed.", e);
             }
         }
 
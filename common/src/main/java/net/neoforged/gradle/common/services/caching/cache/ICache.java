@@ -18,6 +18,17 @@ public interface ICache {
      */
     void loadFrom(File file) throws IOException;
 
+    /**
+     * Determines whether the cache can still provide the output for the given file or directory.
+     * Caches which only reference their output, instead of holding a copy of it, can lose it.
+     *
+     * @param file The file to restore the cache to.
+     * @return True if the cache can be restored, false if the job needs to be executed again.
+     */
+    default boolean canRestoreTo(File file) throws IOException {
+        return true;
+    }
+
     /**
      * Restores the cache to the given file or directory.
      *
@@ -0,0 +1,27 @@
+package net.neoforged.gradle.common.services.caching.cache;
+
+/**
+ * Defines how the contents of a cache entry are restored to the output of a task.
+ */
+public enum RestoreStrategy {
+    /**
+     * Picks the cheapest strategy that the file systems of the cache and the output support, while keeping the output
+     * independent of the cache. Tries {@link #REFLINK} first, and falls back to {@link #COPY}.
+     */
+    AUTO,
+    /**
+     * Creates copy-on-write clones of the cached files, this requires a file system like Btrfs, XFS or APFS.
+     * Small files are copied, as cloning them is not faster.
+     */
+    REFLINK,
+    /**
+     * Creates hardlinks to the cached files, so the outputs share their contents with the cache.
+     * Only suitable if restored outputs are never modified in place, as that would modify the cache as well.
+     * Requires the cache and the output to be on the same file system.
+     */
+    HARDLINK,
+    /**
+     * Copies the cached files.
+     */
+    COPY
+}
@@ -0,0 +1,86 @@
+package net.neoforged.gradle.common.services.caching.cache;
+
+import net.neoforged.gradle.common.services.caching.locking.FileBasedLock;
+import net.neoforged.gradle.common.services.caching.locking.LockManager;
+import net.neoforged.gradle.common.services.caching.logging.CacheLogger;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A cache for jobs which write content addressed files into a shared store directory, like the asset objects.
+ * <p>
+ * The files are never copied into the cache, as they are already identified by their name.
+ * The entry of the cache only records that the job completed, and the files are verified by their name and size.
+ */
+public class StoreCache implements ICache {
+
+    private final File cacheDir;
+    private final Map<String, Long> files;
+
+    /**
+     * @param cacheDir The directory of the cache entry.
+     * @param files The expected files, by their path relative to the store directory, and their size, or a negative size if it is unknown.
+     */
+    public StoreCache(File cacheDir, Map<String, Long> files) {
+        this.cacheDir = cacheDir;
+        this.files = files;
+    }
+
+    @Override
+    public void loadFrom(File file) throws IOException {
+        final List<String> missing = missingIn(file);
+        if (!missing.isEmpty()) {
+            throw new IOException("The store %s is missing %d of the expected %d files, for example: %s".formatted(file, missing.size(), files.size(), missing.get(0)));
+        }
+    }
+
+    @Override
+    public boolean canRestoreTo(File file) throws IOException {
+        return missingIn(file).isEmpty();
+    }
+
+    @Override
+    public boolean restoreTo(File file) throws IOException {
+        if (!canRestoreTo(file)) {
+            throw new IOException("The store %s is missing files, which can not be restored from the cache".formatted(file));
+        }
+
+        return false;
+    }
+
+    /**
+     * Determines the expected files, which are missing or have a different size in the given store directory.
+     *
+     * @param directory The store directory.
+     * @return The relative paths of the missing files.
+     */
+    public List<String> missingIn(File directory) throws IOException {
+        final List<String> missing = new ArrayList<>();
+        final Path root = directory.toPath();
+        for (Map.Entry<String, Long> entry : files.entrySet()) {
+            try {
+                final BasicFileAttributes attributes = Files.readAttributes(root.resolve(entry.getKey()), BasicFileAttributes.class);
+                if (!attributes.isRegularFile() || (entry.getValue() >= 0 && attributes.size() != entry.getValue())) {
+                    missing.add(entry.getKey());
+                }
+            } catch (NoSuchFileException e) {
+                missing.add(entry.getKey());
+            }
+        }
+
+        return missing;
+    }
+
+    @Override
+    public FileBasedLock createLock(CacheLogger logger) {
+        return LockManager.createLock(cacheDir, logger);
+    }
+}
@@ -0,0 +1,74 @@
+package net.neoforged.gradle.common.services.caching.eviction;
+
+import net.neoforged.gradle.common.services.caching.locking.LockManager;
+import net.neoforged.gradle.common.services.caching.storage.ChunkManifest;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+
+/**
+ * Represents a single entry in the execution cache.
+ *
+ * @param directory The directory of the entry, named after the hash of the job that created it.
+ * @param lastAccess The last time the entry was locked and used, in milliseconds since the epoch.
+ * @param size The total size of all files in the entry, and of the blobs the entry references in the chunk store, in bytes.
+ */
+public record CacheEntry(File directory, long lastAccess, long size) {
+
+    /**
+     * Reads the entry in the given directory.
+     * The access time is tracked by the lock file, which is touched every time the entry is used.
+     *
+     * @param directory The directory of the entry.
+     * @return The entry, or null if the directory is not a cache entry.
+     * @throws IOException If the size of the entry could not be determined.
+     */
+    @Nullable
+    public static CacheEntry of(File directory) throws IOException {
+        final File lockFile = new File(directory, LockManager.LOCK_FILE_NAME);
+        if (!directory.isDirectory() || !lockFile.isFile()) {
+            return null;
+        }
+
+        return new CacheEntry(directory, lockFile.lastModified(), sizeOf(directory.toPath()) + referencedSizeOf(directory));
+    }
+
+    private static long referencedSizeOf(File directory) {
+        final File manifest = new File(directory, ChunkManifest.FILE_NAME);
+        if (!manifest.isFile()) {
+            return 0;
+        }
+
+        try {
+            //Blobs shared with other entries are attributed to each of them, which overestimates the size of the cache.
+            return ChunkManifest.read(manifest).storedBytes();
+        } catch (IOException e) {
+            //The entry is being modified concurrently, it is accounted for by its files only.
+            return 0;
+        }
+    }
+
+    private static long sizeOf(Path directory) throws IOException {
+        final long[] size = new long[1];
+        Files.walkFileTree(directory, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                size[0] += attrs.size();
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                //The entry is being modified concurrently, we skip the file as it is likely being deleted.
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        return size[0];
+    }
+}
@@ -0,0 +1,146 @@
+package net.neoforged.gradle.common.services.caching.eviction;
+
+import net.neoforged.gradle.common.services.caching.locking.FileBasedLock;
+import net.neoforged.gradle.common.services.caching.locking.LockManager;
+import net.neoforged.gradle.common.services.caching.logging.CacheLogger;
+import org.apache.commons.io.FileUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Evicts the least recently used entries from the execution cache, until it fits within the configured limits.
+ * Entries which are currently locked by this or another process are never evicted.
+ */
+public final class CacheEvictor {
+
+    private final File cacheDirectory;
+    private final int maxEntries;
+    private final long maxBytes;
+    private final CacheLogger logger;
+
+    /**
+     * Creates a new evictor.
+     *
+     * @param cacheDirectory The root directory of the cache.
+     * @param maxEntries The maximum amount of entries to keep, zero or less to not limit the amount of entries.
+     * @param maxBytes The maximum total size of all entries in bytes, zero or less to not limit the size.
+     * @param logger The logger to use.
+     */
+    public CacheEvictor(File cacheDirectory, int maxEntries, long maxBytes, CacheLogger logger) {
+        this.cacheDirectory = cacheDirectory;
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+        this.logger = logger;
+    }
+
+    /**
+     * @return All entries in the cache, ordered from least to most recently used.
+     * @throws IOException If an entry could not be read.
+     */
+    public List<CacheEntry> entries() throws IOException {
+        final List<CacheEntry> entries = new ArrayList<>();
+        if (!cacheDirectory.isDirectory()) {
+            return entries;
+        }
+
+        for (File directory : Objects.requireNonNull(cacheDirectory.listFiles(File::isDirectory))) {
+            final CacheEntry entry = CacheEntry.of(directory);
+            if (entry != null) {
+                entries.add(entry);
+            }
+        }
+
+        entries.sort(Comparator.comparingLong(CacheEntry::lastAccess).thenComparing(entry -> entry.directory().getName()));
+        return entries;
+    }
+
+    /**
+     * Evicts the least recently used entries, until the cache fits within the limits.
+     *
+     * @return The result of the eviction.
+     * @throws IOException If the cache could not be read or an entry could not be deleted.
+     */
+    public Result evict() throws IOException {
+        final List<CacheEntry> entries = entries();
+
+        int remainingEntries = entries.size();
+        long remainingBytes = entries.stream().mapToLong(CacheEntry::size).sum();
+
+        final List<CacheEntry> evicted = new ArrayList<>();
+        for (CacheEntry entry : entries) {
+            if (!exceedsLimits(remainingEntries, remainingBytes)) {
+                break;
+            }
+
+            if (evict(entry)) {
+                evicted.add(entry);
+                remainingEntries--;
+                remainingBytes -= entry.size();
+            }
+        }
+
+        if (exceedsLimits(remainingEntries, remainingBytes)) {
+            logger.debug("Cache still exceeds its limits after eviction, remaining entries are in use. Entries: %d, Bytes: %d".formatted(remainingEntries, remainingBytes));
+        }
+
+        return new Result(evicted, remainingEntries, remainingBytes);
+    }
+
+    private boolean exceedsLimits(int entries, long bytes) {
+        return (maxEntries > 0 && entries > maxEntries) || (maxBytes > 0 && bytes > maxBytes);
+    }
+
+    private boolean evict(CacheEntry entry) throws IOException {
+        final File directory = entry.directory();
+        final FileBasedLock lock = LockManager.tryCreateLock(directory, logger);
+        if (lock == null) {
+            logger.debug("Skipping eviction of locked cache entry: %s".formatted(directory.getAbsolutePath()));
+            return false;
+        }
+
+        try (lock) {
+            //Delete the contents first and the lock file last, so that a partially deleted entry is never considered healthy.
+            //The healthy marker is not marked as successful, so it is removed as well when the lock closes.
+            for (File file : Objects.requireNonNull(directory.listFiles())) {
+                if (!file.getName().equals(LockManager.LOCK_FILE_NAME)) {
+                    FileUtils.forceDelete(file);
+                }
+            }
+
+            //Processes waiting for the lock notice that the lock file was deleted, and lock the new one they create instead.
+            new File(directory, LockManager.LOCK_FILE_NAME).delete();
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException("Failed to release lock of evicted cache entry: %s".formatted(directory.getAbsolutePath()), e);
+        }
+
+        //Only succeeds if nobody recreated the entry in the meantime.
+        directory.delete();
+
+        logger.debug("Evicted cache entry: %s (%d bytes)".formatted(directory.getAbsolutePath(), entry.size()));
+        return true;
+    }
+
+    /**
+     * The result of an eviction.
+     *
+     * @param evicted The entries that were evicted.
+     * @param remainingEntries The amount of entries that remain in the cache.
+     * @param remainingBytes The total size of the entries that remain in the cache.
+     */
+    public record Result(List<CacheEntry> evicted, int remainingEntries, long remainingBytes) {
+
+        /**
+         * @return The total size of the evicted entries.
+         */
+        public long evictedBytes() {
+            return evicted.stream().mapToLong(CacheEntry::size).sum();
+        }
+    }
+}
@@ -0,0 +1,232 @@
+package net.neoforged.gradle.common.services.caching.hasher;
+
+import net.neoforged.gradle.common.services.caching.locking.ChannelFileLock;
+import net.neoforged.gradle.common.services.caching.logging.CacheLogger;
+import net.neoforged.gradle.common.util.hash.HashCode;
+import net.neoforged.gradle.common.util.hash.HashFunction;
+import org.gradle.api.logging.Logging;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A persistent index of file hashes, which allows unchanged files to be fingerprinted without reading them.
+ * <p>
+ * A stored hash is reused when the absolute path, size, modification time and, where the file system provides one,
+ * the file key (inode) of the file are unchanged.
+ * Files that were modified shortly before they were hashed are not memoized, as a later modification within the
+ * granularity of the file system clock would not be visible in their modification time.
+ * <p>
+ * The index is shared by all builds which use the same cache. Saving merges the changes of this build into the stored
+ * index under a file lock, so concurrent builds do not lose each other's entries, and drops entries of deleted files.
+ */
+public final class FileHashIndex {
+
+    public static final String FILE_NAME = "file-hashes.bin";
+
+    private static final String LOCK_FILE_NAME = FILE_NAME + ".lock";
+    private static final CacheLogger LOGGER = new CacheLogger(Logging.getLogger(FileHashIndex.class), "file hash index", false, false);
+    private static final int FORMAT_VERSION = 1;
+    private static final long MODIFICATION_GRANULARITY = TimeUnit.SECONDS.toMillis(2);
+
+    private final File indexFile;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    /**
+     * The paths whose entries were added, replaced or removed since the index was loaded or last saved.
+     */
+    private final Set<String> changed = ConcurrentHashMap.newKeySet();
+    private volatile boolean dirty = false;
+
+    private FileHashIndex(File indexFile) {
+        this.indexFile = indexFile;
+    }
+
+    /**
+     * Loads the index from the given cache directory, an unreadable or missing index results in an empty index.
+     *
+     * @param cacheDirectory The directory of the cache.
+     * @return The index.
+     */
+    public static FileHashIndex load(File cacheDirectory) {
+        final FileHashIndex index = new FileHashIndex(new File(cacheDirectory, FILE_NAME));
+        index.read();
+        return index;
+    }
+
+    /**
+     * Hashes the given file with the given function, reusing a previously stored hash if the file is unchanged.
+     *
+     * @param function The hash function to use.
+     * @param file The file to hash.
+     * @return The hash of the file.
+     * @throws IOException If the file could not be read.
+     */
+    public HashCode hash(HashFunction function, File file) throws IOException {
+        final String path = file.getAbsolutePath();
+        final BasicFileAttributes attributes = Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+        final long size = attributes.size();
+        final long modified = attributes.lastModifiedTime().toMillis();
+        final String fileKey = attributes.fileKey() == null ? "" : attributes.fileKey().toString();
+
+        final Entry existing = entries.get(path);
+        if (existing != null && existing.matches(function.getAlgorithm(), size, modified, fileKey)) {
+            return HashCode.fromBytes(existing.hash());
+        }
+
+        final long hashedAt = System.currentTimeMillis();
+        final HashCode hash = function.hashFile(file);
+        if (modified + MODIFICATION_GRANULARITY < hashedAt) {
+            entries.put(path, new Entry(function.getAlgorithm(), size, modified, fileKey, hash.toByteArray()));
+            changed.add(path);
+            dirty = true;
+        } else if (existing != null) {
+            entries.remove(path);
+            changed.add(path);
+            dirty = true;
+        }
+
+        return hash;
+    }
+
+    /**
+     * Writes the index back to disk, if it was modified since it was loaded.
+     * The changes of this build are merged into the currently stored index, and entries of files which no longer exist
+     * are dropped. The index is replaced atomically, so that concurrent builds never observe a partially written index.
+     *
+     * @throws IOException If the index could not be written.
+     */
+    public synchronized void save() throws IOException {
+        if (!dirty) {
+            return;
+        }
+
+        final File parent = indexFile.getParentFile();
+        if (!parent.exists() && !parent.mkdirs()) {
+            throw new IOException("Failed to create directory: %s".formatted(parent.getAbsolutePath()));
+        }
+
+        final ChannelFileLock lock = ChannelFileLock.lock(new File(parent, LOCK_FILE_NAME), LOGGER);
+        try {
+            //Another build may have saved the index since it was loaded, its entries are kept unless this build changed them.
+            final Map<String, Entry> merged = new HashMap<>();
+            read(merged);
+            final Set<String> saved = Set.copyOf(changed);
+            for (String path : saved) {
+                final Entry entry = entries.get(path);
+                if (entry != null) {
+                    merged.put(path, entry);
+                } else {
+                    merged.remove(path);
+                }
+            }
+            merged.keySet().removeIf(path -> !new File(path).exists());
+
+            write(merged);
+            changed.removeAll(saved);
+            dirty = !changed.isEmpty();
+        } finally {
+            try {
+                lock.close();
+            } catch (Exception e) {
+                throw new IOException("Failed to release the lock of the file hash index", e);
+            }
+        }
+    }
+
+    /**
+     * @return The amount of memoized file hashes.
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    private void read() {
+        read(entries);
+    }
+
+    private void read(Map<String, Entry> target) {
+        if (!indexFile.isFile()) {
+            return;
+        }
+
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(indexFile.toPath())))) {
+            if (input.readInt() != FORMAT_VERSION) {
+                return;
+            }
+
+            final int count = input.readInt();
+            for (int i = 0; i < count; i++) {
+                final String path = input.readUTF();
+                target.put(path, Entry.read(input));
+            }
+        } catch (EOFException e) {
+            //The index was truncated, everything read so far is still valid, as every entry is complete.
+        } catch (IOException e) {
+            //The index is only an optimization, a corrupt index is treated as an empty one.
+            target.clear();
+        }
+    }
+
+    private void write(Map<String, Entry> index) throws IOException {
+        final File temp = File.createTempFile(FILE_NAME, ".tmp", indexFile.getParentFile());
+        try {
+            try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp.toPath())))) {
+                output.writeInt(FORMAT_VERSION);
+                output.writeInt(index.size());
+                for (Map.Entry<String, Entry> entry : index.entrySet()) {
+                    output.writeUTF(entry.getKey());
+                    entry.getValue().write(output);
+                }
+            }
+
+            try {
+                Files.move(temp.toPath(), indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp.toPath(), indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp.toPath());
+        }
+    }
+
+    private record Entry(String algorithm, long size, long modified, String fileKey, byte[] hash) {
+
+        private static Entry read(DataInputStream input) throws IOException {
+            final String algorithm = input.readUTF();
+            final long size = input.readLong();
+            final long modified = input.readLong();
+            final String fileKey = input.readUTF();
+            final byte[] hash = new byte[input.readUnsignedShort()];
+            input.readFully(hash);
+            return new Entry(algorithm, size, modified, fileKey, hash);
+        }
+
+        private boolean matches(String algorithm, long size, long modified, String fileKey) {
+            return this.algorithm.equals(algorithm) && this.size == size && this.modified == modified && Objects.equals(this.fileKey, fileKey);
+        }
+
+        private void write(DataOutputStream output) throws IOException {
+            output.writeUTF(algorithm);
+            output.writeLong(size);
+            output.writeLong(modified);
+            output.writeUTF(fileKey);
+            output.writeShort(hash.length);
+            output.write(hash);
+        }
+    }
+}
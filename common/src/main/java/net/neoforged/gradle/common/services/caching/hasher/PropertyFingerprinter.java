@@ -0,0 +1,400 @@
+package net.neoforged.gradle.common.services.caching.hasher;
+
+import net.neoforged.gradle.common.services.caching.logging.CacheLogger;
+import net.neoforged.gradle.common.util.hash.HashCode;
+import net.neoforged.gradle.common.util.hash.HashFunction;
+import net.neoforged.gradle.common.util.hash.Hashable;
+import net.neoforged.gradle.common.util.hash.Hasher;
+import net.neoforged.gradle.common.util.hash.Hashing;
+import org.gradle.api.Task;
+import org.gradle.api.file.FileCollection;
+import org.gradle.api.file.FileSystemLocation;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.tasks.Classpath;
+import org.gradle.api.tasks.CompileClasspath;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.InputDirectory;
+import org.gradle.api.tasks.InputFile;
+import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.Nested;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.RecordComponent;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Stream;
+
+/**
+ * A registry of typed fingerprints for the input property values of a task.
+ * <p>
+ * Every value is reduced to a hash which only depends on its content: providers and properties (including map, list
+ * and set properties) are fingerprinted by their current value, file collections by the names and contents of their files,
+ * records by their components and DSL objects, like the decompiler and recompiler settings, by their input annotated getters.
+ * Values of unsupported types only contribute their type to the hash, and produce a warning, as changes to them can not
+ * invalidate the cache.
+ * <p>
+ * The fingerprint of a property is computed once per task execution, and reused when the task is hashed again until
+ * the execution finishes and the fingerprints of the task are {@linkplain #forget(Task) forgotten}.
+ */
+public final class PropertyFingerprinter {
+
+    private static final List<Class<? extends Annotation>> INPUT_ANNOTATIONS = List.of(
+            Input.class, Nested.class, InputFile.class, InputFiles.class, InputDirectory.class, Classpath.class, CompileClasspath.class
+    );
+
+    private static final Fingerprint<Object> UNSUPPORTED = (value, hasher, context) -> {
+        context.unsupported(value.getClass());
+        hasher.putString(value.getClass().getName());
+    };
+
+    private final HashFunction hashFunction = Hashing.sha256();
+    private final FileHashIndex fileHashes;
+    private final List<Registration<?>> registrations = new CopyOnWriteArrayList<>();
+    private final Map<Class<?>, Fingerprint<Object>> resolved = new ConcurrentHashMap<>();
+    private final Map<PropertyKey, HashCode> fingerprints = new ConcurrentHashMap<>();
+    private final Set<Class<?>> warned = ConcurrentHashMap.newKeySet();
+
+    public PropertyFingerprinter(FileHashIndex fileHashes) {
+        this.fileHashes = fileHashes;
+
+        register(Hashable.class, (value, hasher, context) -> hasher.put(value));
+        register(CharSequence.class, (value, hasher, context) -> hasher.putString(value));
+        register(Boolean.class, (value, hasher, context) -> hasher.putBoolean(value));
+        register(Byte.class, (value, hasher, context) -> hasher.putByte(value));
+        register(Integer.class, (value, hasher, context) -> hasher.putInt(value));
+        register(Long.class, (value, hasher, context) -> hasher.putLong(value));
+        register(Double.class, (value, hasher, context) -> hasher.putDouble(value));
+        register(Number.class, (value, hasher, context) -> hasher.putString(value.toString()));
+        register(Character.class, (value, hasher, context) -> hasher.putString(value.toString()));
+        register(byte[].class, (value, hasher, context) -> hasher.putBytes(value));
+        register(Enum.class, (value, hasher, context) -> hasher.putString(value.name()));
+        register(Provider.class, (value, hasher, context) -> hasher.putHash(context.fingerprint(value.getOrNull())));
+        register(FileSystemLocation.class, (value, hasher, context) -> hasher.putHash(context.fingerprint(value.getAsFile())));
+        register(File.class, (value, hasher, context) -> fingerprintFiles(List.of(value), hasher));
+        register(FileCollection.class, (value, hasher, context) -> fingerprintFiles(value.getFiles(), hasher));
+        register(Map.class, (value, hasher, context) -> {
+            //The order of a map is not part of its content, so the entries are sorted by the fingerprint of their keys.
+            final Map<String, HashCode> entries = new TreeMap<>();
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                final HashCode key = context.fingerprint(entry.getKey());
+                entries.put(key.toString(), context.fingerprint(entry.getValue()));
+            }
+
+            hasher.putInt(entries.size());
+            entries.forEach((key, entry) -> {
+                hasher.putString(key);
+                hasher.putHash(entry);
+            });
+        });
+        register(Set.class, (value, hasher, context) -> {
+            final List<String> elements = new ArrayList<>();
+            for (Object element : (Set<?>) value) {
+                elements.add(context.fingerprint(element).toString());
+            }
+
+            elements.sort(Comparator.naturalOrder());
+            hasher.putInt(elements.size());
+            elements.forEach(hasher::putString);
+        });
+        register(Iterable.class, (value, hasher, context) -> {
+            int count = 0;
+            for (Object element : (Iterable<?>) value) {
+                hasher.putHash(context.fingerprint(element));
+                count++;
+            }
+            hasher.putInt(count);
+        });
+        register(Object[].class, (value, hasher, context) -> {
+            hasher.putInt(value.length);
+            for (Object element : value) {
+                hasher.putHash(context.fingerprint(element));
+            }
+        });
+    }
+
+    /**
+     * Registers the fingerprint for values of the given type.
+     * Registrations are consulted in order, so more specific types need to be registered before their super types.
+     *
+     * @param type The type of the values.
+     * @param fingerprint The fingerprint of the values.
+     */
+    public synchronized <T> void register(Class<T> type, Fingerprint<? super T> fingerprint) {
+        registrations.add(new Registration<>(type, fingerprint));
+        resolved.clear();
+    }
+
+    /**
+     * Fingerprints the value of an input property of the given task.
+     * The fingerprint is computed once per task and property, and reused until the task is forgotten.
+     *
+     * @param task The task which owns the property.
+     * @param property The name of the property.
+     * @param value The value of the property.
+     * @param logger The logger to report unsupported types to.
+     * @return The fingerprint of the value.
+     * @throws IOException If a file referenced by the value could not be read.
+     */
+    public HashCode fingerprint(Task task, String property, @Nullable Object value, CacheLogger logger) throws IOException {
+        final PropertyKey key = new PropertyKey(task, property);
+        final HashCode existing = fingerprints.get(key);
+        if (existing != null) {
+            return existing;
+        }
+
+        final HashCode fingerprint = fingerprint(value, logger);
+        fingerprints.put(key, fingerprint);
+        return fingerprint;
+    }
+
+    /**
+     * Forgets the fingerprints of the given task, once it finished executing, so that they do not keep the task alive
+     * for the rest of the build.
+     *
+     * @param task The task whose fingerprints are no longer needed.
+     */
+    public void forget(Task task) {
+        fingerprints.keySet().removeIf(key -> key.task() == task);
+    }
+
+    /**
+     * Fingerprints the given value, without caching the result.
+     *
+     * @param value The value to fingerprint.
+     * @param logger The logger to report unsupported types to.
+     * @return The fingerprint of the value.
+     * @throws IOException If a file referenced by the value could not be read.
+     */
+    public HashCode fingerprint(@Nullable Object value, CacheLogger logger) throws IOException {
+        return new Context(logger).fingerprint(value);
+    }
+
+    private Fingerprint<Object> fingerprintFor(Class<?> type) {
+        final Fingerprint<Object> existing = resolved.get(type);
+        if (existing != null) {
+            return existing;
+        }
+
+        final Fingerprint<Object> fingerprint = resolve(type);
+        resolved.put(type, fingerprint);
+        return fingerprint;
+    }
+
+    @SuppressWarnings("unchecked")
+    private synchronized Fingerprint<Object> resolve(Class<?> type) {
+        for (Registration<?> registration : registrations) {
+            if (registration.type().isAssignableFrom(type)) {
+                return (Fingerprint<Object>) registration.fingerprint();
+            }
+        }
+
+        if (type.isRecord()) {
+            return PropertyFingerprinter::fingerprintRecord;
+        }
+
+        final List<Method> getters = inputGetters(type);
+        if (!getters.isEmpty()) {
+            return (value, hasher, context) -> fingerprintGetters(value, getters, hasher, context);
+        }
+
+        return UNSUPPORTED;
+    }
+
+    private void fingerprintFiles(Collection<File> roots, Hasher hasher) throws IOException {
+        //Absolute paths are not part of the fingerprint, so that entries can be shared between checkouts and machines.
+        final List<File> files = new ArrayList<>();
+        int missing = 0;
+        for (File root : roots) {
+            if (!root.exists()) {
+                hasher.putString(root.getName());
+                missing++;
+                continue;
+            }
+
+            try (Stream<Path> pathStream = Files.walk(root.toPath())) {
+                for (Path path : pathStream.filter(Files::isRegularFile).toList()) {
+                    files.add(path.toFile());
+                }
+            }
+        }
+
+        files.sort(Comparator.comparing(File::getAbsolutePath));
+        hasher.putInt(missing);
+        hasher.putInt(files.size());
+        for (File file : files) {
+            hasher.putString(file.getName());
+            hasher.putHash(fileHashes.hash(hashFunction, file));
+        }
+    }
+
+    private static void fingerprintRecord(Object value, Hasher hasher, Context context) throws IOException {
+        for (RecordComponent component : value.getClass().getRecordComponents()) {
+            hasher.putString(component.getName());
+            hasher.putHash(context.fingerprint(invoke(component.getAccessor(), value)));
+        }
+    }
+
+    private static void fingerprintGetters(Object value, List<Method> getters, Hasher hasher, Context context) throws IOException {
+        for (Method getter : getters) {
+            hasher.putString(getter.getName());
+            hasher.putHash(context.fingerprint(invoke(getter, value)));
+        }
+    }
+
+    /**
+     * Collects the input annotated getters of the given type, including those declared by its super types and interfaces.
+     * Generated subclasses of DSL objects do not carry the annotations, so the whole hierarchy is searched.
+     */
+    private static List<Method> inputGetters(Class<?> type) {
+        final Map<String, Method> getters = new TreeMap<>();
+        final Deque<Class<?>> queue = new ArrayDeque<>();
+        final Set<Class<?>> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+        queue.add(type);
+        while (!queue.isEmpty()) {
+            final Class<?> current = queue.poll();
+            if (current == Object.class || !visited.add(current)) {
+                continue;
+            }
+
+            for (Method method : current.getDeclaredMethods()) {
+                if (method.getParameterCount() == 0 && !Modifier.isStatic(method.getModifiers()) && isInput(method)) {
+                    getters.putIfAbsent(method.getName(), method);
+                }
+            }
+
+            if (current.getSuperclass() != null) {
+                queue.add(current.getSuperclass());
+            }
+            queue.addAll(List.of(current.getInterfaces()));
+        }
+
+        return List.copyOf(getters.values());
+    }
+
+    private static boolean isInput(Method method) {
+        for (Class<? extends Annotation> annotation : INPUT_ANNOTATIONS) {
+            if (method.isAnnotationPresent(annotation)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private static Object invoke(Method method, Object instance) throws IOException {
+        try {
+            method.trySetAccessible();
+            return method.invoke(instance);
+        } catch (IllegalAccessException e) {
+            throw new IOException("Failed to read input property: " + method.getName() + " of: " + instance.getClass().getName(), e);
+        } catch (InvocationTargetException e) {
+            throw new IOException("Failed to read input property: " + method.getName() + " of: " + instance.getClass().getName(), e.getCause());
+        }
+    }
+
+    /**
+     * Fingerprints values of a specific type.
+     *
+     * @param <T> The type of the values.
+     */
+    @FunctionalInterface
+    public interface Fingerprint<T> {
+
+        /**
+         * Appends the content of the given value to the hasher.
+         *
+         * @param value The value, never null.
+         * @param hasher The hasher to append to.
+         * @param context The context to fingerprint nested values with.
+         * @throws IOException If a file referenced by the value could not be read.
+         */
+        void fingerprint(T value, Hasher hasher, Context context) throws IOException;
+    }
+
+    /**
+     * The state of a single fingerprinting operation.
+     */
+    public final class Context {
+        private final CacheLogger logger;
+        private final Map<Object, Boolean> active = new IdentityHashMap<>();
+
+        private Context(CacheLogger logger) {
+            this.logger = logger;
+        }
+
+        /**
+         * Fingerprints a nested value.
+         *
+         * @param value The value.
+         * @return The fingerprint of the value.
+         * @throws IOException If a file referenced by the value could not be read.
+         */
+        public HashCode fingerprint(@Nullable Object value) throws IOException {
+            final Hasher hasher = hashFunction.newHasher();
+            if (value == null) {
+                hasher.putNull();
+                return hasher.hash();
+            }
+
+            //The type is part of the fingerprint, so that for example an empty list and an empty map differ.
+            hasher.putString(value.getClass().isEnum() || value.getClass().isRecord() ? value.getClass().getName() : kindOf(value));
+            if (active.put(value, Boolean.TRUE) != null) {
+                //A value which (indirectly) references itself, its content is already part of the fingerprint.
+                hasher.putString("cycle");
+                return hasher.hash();
+            }
+
+            try {
+                fingerprintFor(value.getClass()).fingerprint(value, hasher, this);
+            } finally {
+                active.remove(value);
+            }
+            return hasher.hash();
+        }
+
+        private void unsupported(Class<?> type) {
+            if (warned.add(type)) {
+                logger.warn("Can not fingerprint input property values of type: %s, changes to them will not invalidate the execution cache".formatted(type.getName()));
+            }
+        }
+    }
+
+    /**
+     * Determines the kind of value, which is stable for the generated and anonymous classes used by Gradle.
+     */
+    private String kindOf(Object value) {
+        for (Registration<?> registration : registrations) {
+            if (registration.type().isInstance(value)) {
+                return registration.type().getName();
+            }
+        }
+
+        return value.getClass().getName();
+    }
+
+    private record Registration<T>(Class<T> type, Fingerprint<? super T> fingerprint) {}
+
+    /**
+     * Tasks are compared by identity, so that a fingerprint is only reused for the task instance it was computed for.
+     */
+    private record PropertyKey(Task task, String property) {}
+}
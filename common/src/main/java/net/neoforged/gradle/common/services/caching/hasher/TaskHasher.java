@@ -21,10 +21,14 @@ public final class TaskHasher {
 
     private final Task task;
     private final CacheLogger logger;
+    private final FileHashIndex fileHashes;
+    private final PropertyFingerprinter fingerprinter;
 
-    public TaskHasher(Task task, CacheLogger logger) {
+    public TaskHasher(Task task, CacheLogger logger, FileHashIndex fileHashes, PropertyFingerprinter fingerprinter) {
         this.task = task;
         this.logger = logger;
+        this.fileHashes = fileHashes;
+        this.fingerprinter = fingerprinter;
     }
 
     public void hash() throws IOException {
@@ -37,12 +41,15 @@ public final class TaskHasher {
 
     private void hash(TaskInputs inputs) throws IOException {
         logger.debug("Hashing task inputs: " + task.getPath());
-        inputs.getProperties().forEach((key, value) -> {
-            logger.debug("Hashing task input property: " + key);
-            hasher.putString(key);
-            logger.debug("Hashing task input property value: " + value);
-            hasher.put(value, false); //We skin unknown types (mostly file collections)
-        });
+        //Sorted, so that the order in which the properties were registered does not change the hash.
+        final Map<String, Object> properties = new TreeMap<>(inputs.getProperties());
+        for (Map.Entry<String, Object> property : properties.entrySet()) {
+            logger.debug("Hashing task input property: " + property.getKey());
+            hasher.putString(property.getKey());
+            final HashCode fingerprint = fingerprinter.fingerprint(task, property.getKey(), property.getValue(), logger);
+            logger.debug("Hashing task input property fingerprint: " + fingerprint);
+            hasher.putHash(fingerprint);
+        }
 
         final Set<File> inputFiles = new HashSet<>();
 
@@ -60,7 +67,7 @@ public final class TaskHasher {
         for (File file : files) {
             logger.debug("Hashing task input file: " + file.getAbsolutePath());
             hasher.putString(file.getName());
-            final HashCode code = hashFunction.hashFile(file);
+            final HashCode code = fileHashes.hash(hashFunction, file);
             logger.debug("Hashing task input file hash: " + code);
             hasher.putHash(code);
         }
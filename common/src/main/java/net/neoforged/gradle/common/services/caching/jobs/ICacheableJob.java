@@ -8,6 +8,7 @@ import org.gradle.api.file.RegularFileProperty;
 import org.gradle.api.provider.Provider;
 
 import java.io.File;
+import java.util.Map;
 
 /**
  * Defines a job that can be cached.
@@ -166,4 +167,52 @@ public interface ICacheableJob<I, O> {
             return job.apply(input);
         }
     }
+
+    /**
+     * Creates a new cacheable job, which writes content addressed files into a shared store directory.
+     * <p>
+     * The files are not copied into the cache. Instead, the cache records that the job completed for the key of the
+     * contents, and later only verifies that the expected files are still present by their name and size.
+     * The store directory is never cleaned before the job executes, as it is shared with other jobs.
+     *
+     * @param name The name of the job.
+     * @param output The store directory.
+     * @param contents Determines the key and the expected files of the contents, evaluated before the job executes.
+     * @param execute The code to execute.
+     * @param <V> The type of the output of the job.
+     */
+    record Store<V>(String name, File output, ThrowingSupplier<Contents> contents, ThrowingSupplier<V> execute) implements ICacheableJob<Void, V> {
+
+        /**
+         * Creates a new store job for the directory provided by the property.
+         * Realising the property when this method is called.
+         *
+         * @param name The name of the job.
+         * @param output The store directory.
+         * @param contents Determines the key and the expected files of the contents.
+         * @param execute The code to execute.
+         * @return The created job.
+         */
+        public static <V> Store<V> directory(String name, Provider<Directory> output, ThrowingSupplier<Contents> contents, ThrowingSupplier<V> execute) {
+            return new Store<>(name, output.get().getAsFile(), contents, execute);
+        }
+
+        @Override
+        public boolean createsDirectory() {
+            return true;
+        }
+
+        @Override
+        public V execute(Void input) throws Throwable {
+            return execute().get();
+        }
+
+        /**
+         * The contents of a store, which a job is expected to produce.
+         *
+         * @param key Identifies the contents, independent of the task which produces them, for example the hash of an index.
+         * @param files The expected files, by their path relative to the store directory, and their size, or a negative size if it is unknown.
+         */
+        public record Contents(String key, Map<String, Long> files) {}
+    }
 }
@@ -0,0 +1,201 @@
+package net.neoforged.gradle.common.services.caching.locking;
+
+import net.neoforged.gradle.common.services.caching.logging.CacheLogger;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A lock on a file, which excludes other threads of this process through a reentrant lock, and other processes through
+ * an exclusive {@link FileLock} on the file.
+ * <p>
+ * Waiting for the lock blocks in the kernel, and the operating system releases it when the owning process dies.
+ * The lock file may be deleted by its holder, in which case waiters detect that they locked a stale file and retry on
+ * the new one.
+ */
+public final class ChannelFileLock implements AutoCloseable {
+
+    private static final Map<String, Holder> HOLDERS = new ConcurrentHashMap<>();
+
+    private final File lockFile;
+    private final CacheLogger logger;
+    private final Holder holder;
+
+    private ChannelFileLock(File lockFile, CacheLogger logger, Holder holder) {
+        this.lockFile = lockFile;
+        this.logger = logger;
+        this.holder = holder;
+    }
+
+    /**
+     * Acquires the lock on the given file, waiting until it becomes available.
+     * The lock is reentrant for the thread that holds it.
+     *
+     * @param lockFile The lock file to acquire.
+     * @param logger The logger to use.
+     * @return The acquired lock.
+     */
+    public static ChannelFileLock lock(File lockFile, CacheLogger logger) {
+        logger.debug("Attempting to acquire lock on file: " + lockFile.getAbsolutePath());
+        final Holder holder = reference(lockFile);
+        holder.lock.lock();
+        try {
+            if (holder.lock.getHoldCount() == 1) {
+                holder.acquire(lockFile.toPath(), true);
+            }
+        } catch (IOException | RuntimeException e) {
+            holder.lock.unlock();
+            release(lockFile);
+            throw new RuntimeException("Failed to acquire lock on file: " + lockFile.getAbsolutePath(), e);
+        }
+
+        logger.debug("Lock acquired on file: " + lockFile.getAbsolutePath());
+        return new ChannelFileLock(lockFile, logger, holder);
+    }
+
+    /**
+     * Attempts to acquire the lock on the given file, without waiting for it to become available.
+     * Unlike {@link #lock(File, CacheLogger)}, this does not re-enter a lock that is already held by a thread of this process.
+     *
+     * @param lockFile The lock file to acquire.
+     * @param logger The logger to use.
+     * @return The acquired lock, or null if the lock is currently held by this or another process.
+     */
+    @Nullable
+    public static ChannelFileLock tryLock(File lockFile, CacheLogger logger) {
+        final Holder holder = reference(lockFile);
+        if (holder.lock.isLocked() || !holder.lock.tryLock()) {
+            release(lockFile);
+            logger.debug("Lock on file is currently held by this process: " + lockFile.getAbsolutePath());
+            return null;
+        }
+
+        try {
+            if (holder.acquire(lockFile.toPath(), false)) {
+                return new ChannelFileLock(lockFile, logger, holder);
+            }
+
+            logger.debug("Lock on file is currently held by another process: " + lockFile.getAbsolutePath());
+        } catch (IOException | RuntimeException e) {
+            logger.debug("Failed to acquire lock on file: " + lockFile.getAbsolutePath() + " -  Failure message: " + e.getLocalizedMessage(), e);
+        }
+
+        holder.lock.unlock();
+        release(lockFile);
+        return null;
+    }
+
+    private static Holder reference(File lockFile) {
+        return HOLDERS.compute(lockFile.getAbsolutePath(), (path, holder) -> {
+            final Holder result = holder == null ? new Holder() : holder;
+            result.references++;
+            return result;
+        });
+    }
+
+    private static void release(File lockFile) {
+        HOLDERS.computeIfPresent(lockFile.getAbsolutePath(), (path, holder) -> --holder.references == 0 ? null : holder);
+    }
+
+    @Override
+    public void close() throws Exception {
+        logger.debug("Releasing lock on file: " + lockFile.getAbsolutePath());
+        try {
+            if (holder.lock.getHoldCount() == 1) {
+                holder.releaseFileLock();
+            }
+        } finally {
+            holder.lock.unlock();
+            release(lockFile);
+        }
+    }
+
+    private static final class Holder {
+        private final OwnerAwareReentrantLock lock = new OwnerAwareReentrantLock();
+        private int references = 0;
+        @Nullable
+        private FileChannel channel;
+        @Nullable
+        private FileLock fileLock;
+
+        /**
+         * Acquires the file lock, must be called while holding the in-process lock.
+         *
+         * @return True if the lock was acquired, false if it is held by another process and waiting was not requested.
+         */
+        private boolean acquire(Path path, boolean wait) throws IOException {
+            while (true) {
+                final FileChannel channel;
+                try {
+                    Files.createDirectories(path.toAbsolutePath().getParent());
+                    channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+                } catch (NoSuchFileException e) {
+                    //The directory was removed concurrently, by the eviction of the entry, try again.
+                    continue;
+                }
+
+                try {
+                    final Object fileKey = fileKey(path);
+                    final FileLock fileLock = wait ? channel.lock() : channel.tryLock();
+                    if (fileLock == null) {
+                        channel.close();
+                        return false;
+                    }
+
+                    //The previous holder might have deleted the lock file while we were waiting, in that case we locked a stale file.
+                    final Object lockedFileKey = fileKey(path);
+                    if (lockedFileKey != null && Objects.equals(fileKey, lockedFileKey)) {
+                        this.channel = channel;
+                        this.fileLock = fileLock;
+                        return true;
+                    }
+
+                    fileLock.release();
+                    channel.close();
+                    if (!wait) {
+                        return false;
+                    }
+                } catch (IOException | RuntimeException e) {
+                    channel.close();
+                    throw e;
+                }
+            }
+        }
+
+        private void releaseFileLock() throws IOException {
+            try {
+                if (fileLock != null && fileLock.isValid()) {
+                    fileLock.release();
+                }
+            } finally {
+                if (channel != null) {
+                    channel.close();
+                }
+                fileLock = null;
+                channel = null;
+            }
+        }
+
+        @Nullable
+        private static Object fileKey(Path path) throws IOException {
+            try {
+                final BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+                //Not every file system provides a file key, in that case only the existence of the file can be verified.
+                return attributes.fileKey() == null ? Boolean.TRUE : attributes.fileKey();
+            } catch (NoSuchFileException e) {
+                return null;
+            }
+        }
+    }
+}
@@ -11,14 +11,18 @@ public final class IOControlledFileBasedLock extends HealthFileUsingFileBasedLoc
     private final File lockFile;
     private final CacheLogger logger;
 
-    private final PIDBasedFileLock pidBasedFileLock;
+    private final ChannelFileLock channelFileLock;
 
     public IOControlledFileBasedLock(File lockFile, CacheLogger logger) {
+        this(lockFile, logger, ChannelFileLock.lock(lockFile, logger));
+    }
+
+    IOControlledFileBasedLock(File lockFile, CacheLogger logger, ChannelFileLock channelFileLock) {
         super(new File(lockFile.getParentFile(), HEALTHY_FILE_NAME));
         this.lockFile = lockFile;
         this.logger = logger;
-        
-        this.pidBasedFileLock = new PIDBasedFileLock(lockFile, logger);
+
+        this.channelFileLock = channelFileLock;
     }
 
     @Override
@@ -34,7 +38,7 @@ public final class IOControlledFileBasedLock extends HealthFileUsingFileBasedLoc
     public void close() throws Exception {
         //Close the super first, this ensures that the healthy file is created only if the lock was successful
         super.close();
-        this.pidBasedFileLock.close();
+        this.channelFileLock.close();
         logger.debug("Lock file closed: %s".formatted(lockFile.getAbsolutePath()));
     }
 }
@@ -1,6 +1,7 @@
 package net.neoforged.gradle.common.services.caching.locking;
 
 import net.neoforged.gradle.common.services.caching.logging.CacheLogger;
+import org.jetbrains.annotations.Nullable;
 
 import java.io.File;
 
@@ -13,4 +14,22 @@ public final class LockManager {
 
         return new IOControlledFileBasedLock(lockFile, logger);
     }
+
+    /**
+     * Attempts to lock the given target, without waiting for other holders to release it.
+     *
+     * @param target The target directory to lock.
+     * @param logger The logger to use.
+     * @return The lock, or null if the target is currently locked.
+     */
+    @Nullable
+    public static FileBasedLock tryCreateLock(File target, CacheLogger logger) {
+        final File lockFile = new File(target, LOCK_FILE_NAME);
+        final ChannelFileLock channelFileLock = ChannelFileLock.tryLock(lockFile, logger);
+        if (channelFileLock == null) {
+            return null;
+        }
+
+        return new IOControlledFileBasedLock(lockFile, logger, channelFileLock);
+    }
 }
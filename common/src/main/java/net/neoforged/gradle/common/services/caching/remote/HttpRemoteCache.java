@@ -0,0 +1,180 @@
+package net.neoforged.gradle.common.services.caching.remote;
+
+import net.neoforged.gradle.common.util.NeoGradleUtils;
+import net.neoforged.gradle.common.util.hash.Hashing;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ConnectException;
+import java.net.HttpURLConnection;
+import java.net.SocketTimeoutException;
+import java.net.URI;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A {@link RemoteCache} backed by a plain HTTP server, like {@link RemoteCacheServer} or any server that supports GET and PUT.
+ * <p>
+ * Entries are uploaded with the SHA-256 digest of their contents in the {@value #CHECKSUM_HEADER} header.
+ * Downloads are verified against the digest the server returns, so that corrupted entries are never used.
+ * Once the server can not be reached, the remote cache is disabled for the rest of the build, to avoid waiting for every entry.
+ */
+public final class HttpRemoteCache implements RemoteCache {
+
+    public static final String CHECKSUM_HEADER = "X-Checksum-Sha256";
+
+    private final URI baseUri;
+    @Nullable
+    private final String authorization;
+    private final Duration timeout;
+    private final AtomicBoolean unreachable = new AtomicBoolean();
+
+    /**
+     * Creates a new HTTP remote cache.
+     *
+     * @param baseUri The URI below which entries are stored, entries are stored at the key resolved against it.
+     * @param username The username for basic authentication, or null to not authenticate.
+     * @param password The password for basic authentication.
+     * @param timeout The connect and read timeout.
+     */
+    public HttpRemoteCache(URI baseUri, @Nullable String username, @Nullable String password, Duration timeout) {
+        this.baseUri = baseUri.toString().endsWith("/") ? baseUri : URI.create(baseUri + "/");
+        this.authorization = username == null ? null : "Basic " + Base64.getEncoder().encodeToString((username + ":" + (password == null ? "" : password)).getBytes(StandardCharsets.UTF_8));
+        this.timeout = timeout;
+    }
+
+    /**
+     * @return True if the server could not be reached, and the cache is disabled.
+     */
+    public boolean isUnreachable() {
+        return unreachable.get();
+    }
+
+    @Override
+    public boolean load(String key, File target) throws IOException {
+        if (unreachable.get()) {
+            return false;
+        }
+
+        final HttpURLConnection connection = open(key, "GET");
+        try {
+            final int status = respond(connection);
+            if (status == HttpURLConnection.HTTP_NOT_FOUND) {
+                return false;
+            }
+
+            if (status != HttpURLConnection.HTTP_OK) {
+                throw new IOException("Failed to download %s from the remote cache, HTTP-Status: %d".formatted(key, status));
+            }
+
+            final String expected = connection.getHeaderField(CHECKSUM_HEADER);
+            if (expected == null) {
+                throw new IOException("The remote cache did not provide a checksum for: %s".formatted(key));
+            }
+
+            final Path parent = target.toPath().toAbsolutePath().getParent();
+            Files.createDirectories(parent);
+            final Path temp = Files.createTempFile(parent, target.getName(), ".download");
+            try {
+                try (InputStream input = connection.getInputStream()) {
+                    Files.copy(input, temp, StandardCopyOption.REPLACE_EXISTING);
+                }
+
+                final String actual = Hashing.sha256().hashFile(temp.toFile()).toString();
+                if (!actual.equalsIgnoreCase(expected)) {
+                    throw new IOException("Entry %s of the remote cache is corrupt, expected checksum %s but got %s".formatted(key, expected, actual));
+                }
+
+                try {
+                    Files.move(temp, target.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(temp, target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                }
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+
+            return true;
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    @Override
+    public void store(String key, File source) throws IOException {
+        if (unreachable.get()) {
+            return;
+        }
+
+        final HttpURLConnection connection = open(key, "PUT");
+        try {
+            connection.setDoOutput(true);
+            connection.setFixedLengthStreamingMode(source.length());
+            connection.setRequestProperty("Content-Type", "application/octet-stream");
+            connection.setRequestProperty(CHECKSUM_HEADER, Hashing.sha256().hashFile(source).toString());
+            try (OutputStream output = connection.getOutputStream()) {
+                Files.copy(source.toPath(), output);
+            } catch (IOException e) {
+                throw unreachable(e);
+            }
+
+            final int status = respond(connection);
+            if (status / 100 != 2) {
+                throw new IOException("Failed to upload %s to the remote cache, HTTP-Status: %d".formatted(key, status));
+            }
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    private HttpURLConnection open(String key, String method) throws IOException {
+        final HttpURLConnection connection = (HttpURLConnection) baseUri.resolve(key).toURL().openConnection();
+        connection.setRequestMethod(method);
+        connection.setConnectTimeout((int) timeout.toMillis());
+        connection.setReadTimeout((int) timeout.toMillis());
+        connection.setUseCaches(false);
+        connection.setRequestProperty("User-Agent", "NeoGradle: %s".formatted(NeoGradleUtils.getNeogradleVersion()));
+        if (authorization != null) {
+            connection.setRequestProperty("Authorization", authorization);
+        }
+
+        return connection;
+    }
+
+    private int respond(HttpURLConnection connection) throws IOException {
+        final int status;
+        try {
+            status = connection.getResponseCode();
+        } catch (IOException e) {
+            throw unreachable(e);
+        }
+
+        //Drain the body of error responses, so that the connection can be reused.
+        final InputStream error = connection.getErrorStream();
+        if (error != null) {
+            try (error) {
+                error.transferTo(OutputStream.nullOutputStream());
+            }
+        }
+
+        return status;
+    }
+
+    private IOException unreachable(IOException e) {
+        if (e instanceof ConnectException || e instanceof SocketTimeoutException || e instanceof UnknownHostException) {
+            unreachable.set(true);
+        }
+
+        return e;
+    }
+}
@@ -0,0 +1,30 @@
+package net.neoforged.gradle.common.services.caching.remote;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * A cache tier which is shared between machines, and consulted when the local execution cache does not hold an entry.
+ * Entries are opaque archives, created by {@link RemoteCachePayload}, and addressed by the hash of the job that created them.
+ */
+public interface RemoteCache {
+
+    /**
+     * Downloads the entry with the given key.
+     *
+     * @param key The key of the entry.
+     * @param target The file to download the entry to, which is replaced if it exists.
+     * @return True if the entry was downloaded, false if the remote cache does not hold it.
+     * @throws IOException If the entry could not be downloaded, or failed its integrity check.
+     */
+    boolean load(String key, File target) throws IOException;
+
+    /**
+     * Uploads the entry with the given key.
+     *
+     * @param key The key of the entry.
+     * @param source The archive to upload.
+     * @throws IOException If the entry could not be uploaded.
+     */
+    void store(String key, File source) throws IOException;
+}
@@ -0,0 +1,133 @@
+package net.neoforged.gradle.common.services.caching.remote;
+
+import org.apache.commons.io.FileUtils;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Packs the output of a cached stage into a single archive for the {@link RemoteCache}, and unpacks it again.
+ * A file output is stored as the single entry {@value #OUTPUT}, a directory output as the entries below {@value #OUTPUT}/.
+ */
+public final class RemoteCachePayload {
+
+    private static final String OUTPUT = "output";
+
+    private RemoteCachePayload() {
+        throw new IllegalStateException("Can not instantiate an instance of: RemoteCachePayload. This is a utility class");
+    }
+
+    /**
+     * Packs the given output into the given archive.
+     *
+     * @param output The output of the stage.
+     * @param directory Whether the output is a directory.
+     * @param archive The archive to create.
+     * @throws IOException If the output could not be read, or the archive could not be written.
+     */
+    public static void pack(File output, boolean directory, File archive) throws IOException {
+        try (ZipOutputStream zip = new ZipOutputStream(new BufferedOutputStream(Files.newOutputStream(archive.toPath())))) {
+            //Outputs are mostly jars, which are already compressed, the speed of the upload matters more.
+            zip.setLevel(Deflater.BEST_SPEED);
+            if (!directory) {
+                putFile(zip, OUTPUT, output.toPath());
+                return;
+            }
+
+            final Path root = output.toPath();
+            final List<Path> paths;
+            try (Stream<Path> stream = Files.walk(root)) {
+                paths = stream.filter(path -> !path.equals(root)).sorted().toList();
+            }
+
+            for (Path path : paths) {
+                final String name = OUTPUT + "/" + root.relativize(path).toString().replace(File.separatorChar, '/');
+                if (Files.isDirectory(path)) {
+                    final ZipEntry entry = new ZipEntry(name + "/");
+                    entry.setTime(Files.getLastModifiedTime(path).toMillis());
+                    zip.putNextEntry(entry);
+                    zip.closeEntry();
+                } else {
+                    putFile(zip, name, path);
+                }
+            }
+        }
+    }
+
+    /**
+     * Unpacks the given archive to the output of a stage, replacing the current output.
+     *
+     * @param archive The archive to unpack.
+     * @param output The output of the stage.
+     * @param directory Whether the output is a directory.
+     * @throws IOException If the archive is invalid, or the output could not be written.
+     */
+    public static void unpack(File archive, File output, boolean directory) throws IOException {
+        if (output.isDirectory()) {
+            FileUtils.deleteDirectory(output);
+        } else {
+            Files.deleteIfExists(output.toPath());
+        }
+
+        if (directory) {
+            Files.createDirectories(output.toPath());
+        }
+
+        final Path root = output.toPath().toAbsolutePath().normalize();
+        try (ZipInputStream zip = new ZipInputStream(new BufferedInputStream(Files.newInputStream(archive.toPath())))) {
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                final Path target = resolve(root, entry.getName(), directory);
+                if (entry.isDirectory()) {
+                    Files.createDirectories(target);
+                    continue;
+                }
+
+                Files.createDirectories(target.getParent());
+                Files.copy(zip, target);
+                Files.setLastModifiedTime(target, entry.getLastModifiedTime());
+            }
+        }
+    }
+
+    private static Path resolve(Path root, String name, boolean directory) throws IOException {
+        if (!directory) {
+            if (!name.equals(OUTPUT)) {
+                throw new IOException("Unexpected entry in file payload: %s".formatted(name));
+            }
+            return root;
+        }
+
+        if (!name.startsWith(OUTPUT + "/")) {
+            throw new IOException("Unexpected entry in directory payload: %s".formatted(name));
+        }
+
+        final Path target = root.resolve(name.substring(OUTPUT.length() + 1)).normalize();
+        if (!target.startsWith(root)) {
+            throw new IOException("Entry of payload points outside of the output: %s".formatted(name));
+        }
+
+        return target;
+    }
+
+    private static void putFile(ZipOutputStream zip, String name, Path path) throws IOException {
+        final ZipEntry entry = new ZipEntry(name);
+        entry.setTime(Files.getLastModifiedTime(path).toMillis());
+        zip.putNextEntry(entry);
+        try (InputStream input = Files.newInputStream(path)) {
+            input.transferTo(zip);
+        }
+        zip.closeEntry();
+    }
+}
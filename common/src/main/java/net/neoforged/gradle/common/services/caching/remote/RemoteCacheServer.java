@@ -0,0 +1,215 @@
+package net.neoforged.gradle.common.services.caching.remote;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.regex.Pattern;
+
+/**
+ * A minimal HTTP server for the {@link HttpRemoteCache}, which stores entries in a directory.
+ * It is meant for tests and small on-premise setups, and can be started standalone with:
+ * {@code java -cp <classpath> net.neoforged.gradle.common.services.caching.remote.RemoteCacheServer <directory> <port>}
+ * <p>
+ * Every entry is stored as a single file, which starts with the SHA-256 digest of the entry followed by its contents.
+ * Uploads are written to a temporary file and moved into place, so concurrent uploads of the same entry never mix,
+ * and uploads whose contents do not match their {@value HttpRemoteCache#CHECKSUM_HEADER} header are rejected.
+ */
+public final class RemoteCacheServer implements AutoCloseable {
+
+    private static final Pattern KEY = Pattern.compile("[0-9a-fA-F]{8,128}");
+    private static final int DIGEST_LENGTH = 32;
+
+    private final File directory;
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    private RemoteCacheServer(File directory, HttpServer server, ExecutorService executor) {
+        this.directory = directory;
+        this.server = server;
+        this.executor = executor;
+    }
+
+    /**
+     * Starts a new server on the loopback interface.
+     *
+     * @param directory The directory to store the entries in.
+     * @param port The port to listen on, or zero to pick a free port.
+     * @return The started server.
+     * @throws IOException If the server could not be started.
+     */
+    public static RemoteCacheServer start(File directory, int port) throws IOException {
+        return start(directory, new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+    }
+
+    /**
+     * Starts a new server.
+     *
+     * @param directory The directory to store the entries in.
+     * @param address The address to listen on.
+     * @return The started server.
+     * @throws IOException If the server could not be started.
+     */
+    public static RemoteCacheServer start(File directory, InetSocketAddress address) throws IOException {
+        Files.createDirectories(directory.toPath());
+
+        final HttpServer server = HttpServer.create(address, 0);
+        final ExecutorService executor = Executors.newCachedThreadPool(runnable -> {
+            final Thread thread = new Thread(runnable, "remote-cache-server");
+            thread.setDaemon(true);
+            return thread;
+        });
+        final RemoteCacheServer cacheServer = new RemoteCacheServer(directory, server, executor);
+        server.createContext("/", cacheServer::handle);
+        server.setExecutor(executor);
+        server.start();
+        return cacheServer;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: RemoteCacheServer <directory> <port>");
+            System.exit(1);
+        }
+
+        final RemoteCacheServer server = start(new File(args[0]), new InetSocketAddress(Integer.parseInt(args[1])));
+        System.out.println("Serving the execution cache from " + server.directory.getAbsolutePath() + " at " + server.uri());
+    }
+
+    /**
+     * @return The base URI of the server, to be used with the {@link HttpRemoteCache}.
+     */
+    public URI uri() {
+        final InetSocketAddress address = server.getAddress();
+        return URI.create("http://%s:%d/".formatted(address.getAddress().getHostAddress(), address.getPort()));
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            final String key = exchange.getRequestURI().getPath().substring(1);
+            if (!KEY.matcher(key).matches()) {
+                respond(exchange, 400, "Invalid key");
+                return;
+            }
+
+            switch (exchange.getRequestMethod()) {
+                case "GET" -> get(exchange, key, true);
+                case "HEAD" -> get(exchange, key, false);
+                case "PUT" -> put(exchange, key);
+                default -> respond(exchange, 405, "Method not allowed");
+            }
+        }
+    }
+
+    private void get(HttpExchange exchange, String key, boolean sendBody) throws IOException {
+        final Path entry = new File(directory, key).toPath();
+        final InputStream input;
+        try {
+            input = Files.newInputStream(entry);
+        } catch (NoSuchFileException e) {
+            respond(exchange, 404, "Not found");
+            return;
+        }
+
+        try (DataInputStream data = new DataInputStream(input)) {
+            final byte[] digest = new byte[DIGEST_LENGTH];
+            data.readFully(digest);
+            final long length = Files.size(entry) - DIGEST_LENGTH;
+
+            exchange.getResponseHeaders().set(HttpRemoteCache.CHECKSUM_HEADER, HexFormat.of().formatHex(digest));
+            exchange.getResponseHeaders().set("Content-Type", "application/octet-stream");
+            if (!sendBody) {
+                exchange.getResponseHeaders().set("Content-Length", Long.toString(length));
+                exchange.sendResponseHeaders(200, -1);
+                return;
+            }
+
+            exchange.sendResponseHeaders(200, length == 0 ? -1 : length);
+            try (OutputStream output = exchange.getResponseBody()) {
+                data.transferTo(output);
+            }
+        }
+    }
+
+    private void put(HttpExchange exchange, String key) throws IOException {
+        final String expected = exchange.getRequestHeaders().getFirst(HttpRemoteCache.CHECKSUM_HEADER);
+        final Path temp = Files.createTempFile(directory.toPath(), key, ".upload");
+        try {
+            final MessageDigest digest = sha256();
+            try (OutputStream file = Files.newOutputStream(temp)) {
+                //Reserve the space of the digest, it is only known once the body was read.
+                file.write(new byte[DIGEST_LENGTH]);
+                try (OutputStream output = new DigestOutputStream(file, digest); InputStream body = exchange.getRequestBody()) {
+                    body.transferTo(output);
+                }
+            }
+
+            final byte[] actual = digest.digest();
+            if (expected != null && !HexFormat.of().formatHex(actual).equalsIgnoreCase(expected)) {
+                respond(exchange, 400, "Checksum mismatch");
+                return;
+            }
+
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                channel.write(ByteBuffer.wrap(actual), 0);
+            }
+
+            final Path entry = new File(directory, key).toPath();
+            try {
+                Files.move(temp, entry, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, entry, StandardCopyOption.REPLACE_EXISTING);
+            }
+
+            respond(exchange, 201, "Created");
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int status, String message) throws IOException {
+        //Responses always carry a body of known length, so that clients can keep the connection alive.
+        final byte[] body = message.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream output = exchange.getResponseBody()) {
+            output.write(body);
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported", e);
+        }
+    }
+}
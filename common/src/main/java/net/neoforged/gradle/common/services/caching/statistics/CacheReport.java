@@ -0,0 +1,95 @@
+package net.neoforged.gradle.common.services.caching.statistics;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonObject;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A snapshot of the statistics of the execution cache during a build.
+ *
+ * @param hashedTasks The amount of tasks whose inputs were hashed.
+ * @param hashingNanos The time spent hashing the inputs of tasks.
+ * @param stages The statistics of every stage, by the name of the stage.
+ */
+public record CacheReport(long hashedTasks, long hashingNanos, Map<String, StageReport> stages) {
+
+    private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
+
+    /**
+     * @return The statistics of all stages combined.
+     */
+    public StageReport total() {
+        return stages.values().stream().reduce(StageReport.EMPTY, StageReport::plus);
+    }
+
+    /**
+     * @return True if the cache was not used during the build.
+     */
+    public boolean isEmpty() {
+        return hashedTasks == 0 && stages.isEmpty();
+    }
+
+    /**
+     * Writes the report as JSON to the given file.
+     *
+     * @param file The file to write.
+     * @throws IOException If the file could not be written.
+     */
+    public void writeJson(File file) throws IOException {
+        final File parent = file.getAbsoluteFile().getParentFile();
+        if (!parent.exists() && !parent.mkdirs()) {
+            throw new IOException("Failed to create directory: %s".formatted(parent.getAbsolutePath()));
+        }
+
+        try (Writer writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+            GSON.toJson(toJson(), writer);
+        }
+    }
+
+    /**
+     * @return A single line summary of the report, for the console.
+     */
+    public String summary() {
+        final StageReport total = total();
+        return "Execution cache: %d hits, %d remote hits, %d up-to-date, %d misses (%.0f%% hit rate), hashing took %s, restoring took %s, saved an estimated %s".formatted(
+                total.hits(),
+                total.remoteHits(),
+                total.upToDate(),
+                total.misses(),
+                total.hitRate() * 100,
+                format(hashingNanos),
+                format(total.restoreNanos() + total.lockWaitNanos() + total.remoteNanos()),
+                format(Math.max(0, total.netSavedNanos()))
+        );
+    }
+
+    JsonObject toJson() {
+        final JsonObject json = new JsonObject();
+        json.addProperty("hashedTasks", hashedTasks);
+        json.addProperty("hashingMillis", TimeUnit.NANOSECONDS.toMillis(hashingNanos));
+        json.add("total", total().toJson());
+
+        final JsonObject stagesJson = new JsonObject();
+        stages.forEach((name, stage) -> stagesJson.add(name, stage.toJson()));
+        json.add("stages", stagesJson);
+        return json;
+    }
+
+    private static String format(long nanos) {
+        final Duration duration = Duration.ofNanos(nanos);
+        if (duration.toMinutes() > 0) {
+            return "%dm %ds".formatted(duration.toMinutes(), duration.toSecondsPart());
+        }
+
+        return "%.1fs".formatted(nanos / 1e9);
+    }
+}
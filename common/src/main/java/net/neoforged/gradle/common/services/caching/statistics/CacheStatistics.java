@@ -0,0 +1,154 @@
+package net.neoforged.gradle.common.services.caching.statistics;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Collects the statistics of the execution cache during a build.
+ * Stages are identified by their name, stages with the same name in different tasks are combined.
+ * <p>
+ * All methods are thread safe, as tasks using the cache run in parallel.
+ */
+public final class CacheStatistics {
+
+    private final LongAdder hashedTasks = new LongAdder();
+    private final LongAdder hashingNanos = new LongAdder();
+    private final Map<String, Stage> stages = new ConcurrentHashMap<>();
+
+    /**
+     * Records the hashing of the inputs of a task.
+     *
+     * @param nanos The time it took to hash the inputs.
+     */
+    public void recordHashing(long nanos) {
+        hashedTasks.increment();
+        hashingNanos.add(nanos);
+    }
+
+    /**
+     * Records waiting for the lock of a cache entry.
+     *
+     * @param stage The name of the stage.
+     * @param nanos The time spent waiting.
+     */
+    public void recordLockWait(String stage, long nanos) {
+        stage(stage).lockWaitNanos.add(nanos);
+    }
+
+    /**
+     * Records the restoring of the output of a stage from the cache.
+     *
+     * @param stage The name of the stage.
+     * @param nanos The time it took to restore the output.
+     * @param bytes The size of the restored output.
+     * @param savedNanos The time the stage took to execute when the entry was created, or zero if unknown.
+     */
+    public void recordHit(String stage, long nanos, long bytes, long savedNanos) {
+        final Stage statistics = stage(stage);
+        statistics.hits.increment();
+        statistics.restoreNanos.add(nanos);
+        statistics.restoredBytes.add(bytes);
+        statistics.savedNanos.add(savedNanos);
+    }
+
+    /**
+     * Records a stage whose existing output already matched the cache.
+     *
+     * @param stage The name of the stage.
+     * @param nanos The time it took to compare the output.
+     * @param savedNanos The time the stage took to execute when the entry was created, or zero if unknown.
+     */
+    public void recordUpToDate(String stage, long nanos, long savedNanos) {
+        final Stage statistics = stage(stage);
+        statistics.upToDate.increment();
+        statistics.restoreNanos.add(nanos);
+        statistics.savedNanos.add(savedNanos);
+    }
+
+    /**
+     * Records the execution of a stage, because its output was not cached.
+     *
+     * @param stage The name of the stage.
+     * @param executionNanos The time it took to execute the stage.
+     * @param storeNanos The time it took to store the output in the cache.
+     */
+    public void recordMiss(String stage, long executionNanos, long storeNanos) {
+        final Stage statistics = stage(stage);
+        statistics.misses.increment();
+        statistics.executionNanos.add(executionNanos);
+        statistics.storeNanos.add(storeNanos);
+    }
+
+    /**
+     * Records the download of the output of a stage from the remote cache.
+     *
+     * @param stage The name of the stage.
+     * @param nanos The time it took to download and unpack the output.
+     * @param bytes The size of the downloaded payload.
+     */
+    public void recordRemoteHit(String stage, long nanos, long bytes) {
+        final Stage statistics = stage(stage);
+        statistics.remoteHits.increment();
+        statistics.remoteNanos.add(nanos);
+        statistics.restoredBytes.add(bytes);
+    }
+
+    /**
+     * Records the upload of the output of a stage to the remote cache.
+     *
+     * @param stage The name of the stage.
+     * @param nanos The time it took to pack and upload the output.
+     */
+    public void recordUpload(String stage, long nanos) {
+        final Stage statistics = stage(stage);
+        statistics.uploads.increment();
+        statistics.remoteNanos.add(nanos);
+    }
+
+    /**
+     * @return A snapshot of the statistics recorded so far.
+     */
+    public CacheReport report() {
+        final Map<String, StageReport> reports = new TreeMap<>();
+        stages.forEach((name, stage) -> reports.put(name, stage.report()));
+        return new CacheReport(hashedTasks.sum(), hashingNanos.sum(), reports);
+    }
+
+    private Stage stage(String name) {
+        return stages.computeIfAbsent(name, key -> new Stage());
+    }
+
+    private static final class Stage {
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder upToDate = new LongAdder();
+        private final LongAdder misses = new LongAdder();
+        private final LongAdder lockWaitNanos = new LongAdder();
+        private final LongAdder restoreNanos = new LongAdder();
+        private final LongAdder restoredBytes = new LongAdder();
+        private final LongAdder executionNanos = new LongAdder();
+        private final LongAdder storeNanos = new LongAdder();
+        private final LongAdder savedNanos = new LongAdder();
+        private final LongAdder remoteHits = new LongAdder();
+        private final LongAdder uploads = new LongAdder();
+        private final LongAdder remoteNanos = new LongAdder();
+
+        private StageReport report() {
+            return new StageReport(
+                    hits.sum(),
+                    upToDate.sum(),
+                    misses.sum(),
+                    lockWaitNanos.sum(),
+                    restoreNanos.sum(),
+                    restoredBytes.sum(),
+                    executionNanos.sum(),
+                    storeNanos.sum(),
+                    savedNanos.sum(),
+                    remoteHits.sum(),
+                    uploads.sum(),
+                    remoteNanos.sum()
+            );
+        }
+    }
+}
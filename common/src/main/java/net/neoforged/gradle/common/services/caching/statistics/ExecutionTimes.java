@@ -0,0 +1,49 @@
+package net.neoforged.gradle.common.services.caching.statistics;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+/**
+ * Stores the time a stage took to execute next to its cache entry, so that later hits know how much time they saved.
+ */
+public final class ExecutionTimes {
+
+    public static final String FILE_NAME = "execution-time";
+
+    private ExecutionTimes() {
+        throw new IllegalStateException("Can not instantiate an instance of: ExecutionTimes. This is a utility class");
+    }
+
+    /**
+     * Records the execution time of the stage of the given cache entry.
+     *
+     * @param cacheDirectory The directory of the cache entry.
+     * @param nanos The time the stage took to execute.
+     * @throws IOException If the time could not be written.
+     */
+    public static void write(File cacheDirectory, long nanos) throws IOException {
+        Files.writeString(new File(cacheDirectory, FILE_NAME).toPath(), Long.toString(nanos), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Reads the recorded execution time of the stage of the given cache entry.
+     *
+     * @param cacheDirectory The directory of the cache entry.
+     * @return The recorded time, or zero if no time was recorded.
+     */
+    public static long read(File cacheDirectory) {
+        final File file = new File(cacheDirectory, FILE_NAME);
+        if (!file.isFile()) {
+            return 0;
+        }
+
+        try {
+            return Long.parseLong(Files.readString(file.toPath(), StandardCharsets.UTF_8).trim());
+        } catch (IOException | NumberFormatException e) {
+            //The time is only used for reporting.
+            return 0;
+        }
+    }
+}
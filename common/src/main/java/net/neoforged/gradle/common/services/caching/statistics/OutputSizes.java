@@ -0,0 +1,50 @@
+package net.neoforged.gradle.common.services.caching.statistics;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+/**
+ * Stores the size of the output of a stage next to its cache entry, so that later hits can report the restored bytes
+ * without walking the restored output.
+ */
+public final class OutputSizes {
+
+    public static final String FILE_NAME = "output-size";
+
+    private OutputSizes() {
+        throw new IllegalStateException("Can not instantiate an instance of: OutputSizes. This is a utility class");
+    }
+
+    /**
+     * Records the size of the output of the stage of the given cache entry.
+     *
+     * @param cacheDirectory The directory of the cache entry.
+     * @param bytes The size of the output.
+     * @throws IOException If the size could not be written.
+     */
+    public static void write(File cacheDirectory, long bytes) throws IOException {
+        Files.writeString(new File(cacheDirectory, FILE_NAME).toPath(), Long.toString(bytes), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Reads the recorded output size of the stage of the given cache entry.
+     *
+     * @param cacheDirectory The directory of the cache entry.
+     * @return The recorded size, or zero if no size was recorded.
+     */
+    public static long read(File cacheDirectory) {
+        final File file = new File(cacheDirectory, FILE_NAME);
+        if (!file.isFile()) {
+            return 0;
+        }
+
+        try {
+            return Long.parseLong(Files.readString(file.toPath(), StandardCharsets.UTF_8).trim());
+        } catch (IOException | NumberFormatException e) {
+            //The size is only used for reporting.
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package net.neoforged.gradle.common.services.caching.statistics;
+
+import com.google.gson.JsonObject;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The statistics of a single stage, or of all stages combined.
+ *
+ * @param hits The amount of times the output was restored from the cache.
+ * @param upToDate The amount of times the existing output already matched the cache, and did not need to be restored.
+ * @param misses The amount of times the stage had to be executed.
+ * @param lockWaitNanos The time spent waiting for the locks of cache entries.
+ * @param restoreNanos The time spent comparing and restoring outputs on hits and up-to-date checks.
+ * @param restoredBytes The size of all restored outputs.
+ * @param executionNanos The time spent executing the stage on misses.
+ * @param storeNanos The time spent storing outputs in the cache on misses.
+ * @param savedNanos The recorded execution time of all stages that were not executed, because of the cache.
+ * @param remoteHits The amount of times the output was downloaded from the remote cache.
+ * @param uploads The amount of times the output was uploaded to the remote cache.
+ * @param remoteNanos The time spent downloading from and uploading to the remote cache.
+ */
+public record StageReport(
+        long hits,
+        long upToDate,
+        long misses,
+        long lockWaitNanos,
+        long restoreNanos,
+        long restoredBytes,
+        long executionNanos,
+        long storeNanos,
+        long savedNanos,
+        long remoteHits,
+        long uploads,
+        long remoteNanos
+) {
+
+    public static final StageReport EMPTY = new StageReport(0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0);
+
+    /**
+     * @return The amount of times the cache was consulted.
+     */
+    public long requests() {
+        return hits + upToDate + misses + remoteHits;
+    }
+
+    /**
+     * @return The fraction of requests that did not require an execution, or zero if there were no requests.
+     */
+    public double hitRate() {
+        final long requests = requests();
+        return requests == 0 ? 0 : (double) (hits + upToDate + remoteHits) / requests;
+    }
+
+    /**
+     * @return The time saved by the cache, after subtracting the time spent on restoring outputs, waiting for locks and the remote cache.
+     */
+    public long netSavedNanos() {
+        return savedNanos - restoreNanos - lockWaitNanos - remoteNanos;
+    }
+
+    /**
+     * Combines this report with another one.
+     *
+     * @param other The other report.
+     * @return The combined report.
+     */
+    public StageReport plus(StageReport other) {
+        return new StageReport(
+                hits + other.hits,
+                upToDate + other.upToDate,
+                misses + other.misses,
+                lockWaitNanos + other.lockWaitNanos,
+                restoreNanos + other.restoreNanos,
+                restoredBytes + other.restoredBytes,
+                executionNanos + other.executionNanos,
+                storeNanos + other.storeNanos,
+                savedNanos + other.savedNanos,
+                remoteHits + other.remoteHits,
+                uploads + other.uploads,
+                remoteNanos + other.remoteNanos
+        );
+    }
+
+    JsonObject toJson() {
+        final JsonObject json = new JsonObject();
+        json.addProperty("hits", hits);
+        json.addProperty("upToDate", upToDate);
+        json.addProperty("misses", misses);
+        json.addProperty("hitRate", hitRate());
+        json.addProperty("lockWaitMillis", TimeUnit.NANOSECONDS.toMillis(lockWaitNanos));
+        json.addProperty("restoreMillis", TimeUnit.NANOSECONDS.toMillis(restoreNanos));
+        json.addProperty("restoredBytes", restoredBytes);
+        json.addProperty("executionMillis", TimeUnit.NANOSECONDS.toMillis(executionNanos));
+        json.addProperty("storeMillis", TimeUnit.NANOSECONDS.toMillis(storeNanos));
+        json.addProperty("savedMillis", TimeUnit.NANOSECONDS.toMillis(savedNanos));
+        json.addProperty("remoteHits", remoteHits);
+        json.addProperty("uploads", uploads);
+        json.addProperty("remoteMillis", TimeUnit.NANOSECONDS.toMillis(remoteNanos));
+        json.addProperty("netSavedMillis", TimeUnit.NANOSECONDS.toMillis(netSavedNanos()));
+        return json;
+    }
+}
@@ -0,0 +1,15 @@
+package net.neoforged.gradle.common.services.caching.storage;
+
+/**
+ * Defines how blobs are compressed when they are written to the {@link ChunkStore}.
+ */
+public enum ChunkCompression {
+    /**
+     * Blobs are stored as is.
+     */
+    NONE,
+    /**
+     * Blobs are compressed with deflate, unless their contents are already compressed or do not shrink.
+     */
+    DEFLATE
+}
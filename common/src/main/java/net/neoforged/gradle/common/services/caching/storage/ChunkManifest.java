@@ -0,0 +1,243 @@
+package net.neoforged.gradle.common.services.caching.storage;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Describes how the output of a cached stage is reconstructed from the {@link ChunkStore}.
+ *
+ * @param entries The files and directories of the output, parents always precede their children.
+ */
+public record ChunkManifest(List<Entry> entries) {
+
+    public static final String FILE_NAME = "output.chunks";
+
+    private static final int MAGIC = 0x4E474348;
+    private static final int FORMAT_VERSION = 1;
+
+    /**
+     * Reads the manifest from the given file.
+     *
+     * @param file The file to read.
+     * @return The manifest.
+     * @throws IOException If the file could not be read, or is not a manifest.
+     */
+    public static ChunkManifest read(File file) throws IOException {
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(file.toPath())))) {
+            if (input.readInt() != MAGIC || input.readInt() != FORMAT_VERSION) {
+                throw new IOException("Unsupported chunk manifest: %s".formatted(file.getAbsolutePath()));
+            }
+
+            final int count = input.readInt();
+            final List<Entry> entries = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                entries.add(Entry.read(input));
+            }
+
+            return new ChunkManifest(List.copyOf(entries));
+        }
+    }
+
+    /**
+     * Writes the manifest to the given file, the file is replaced atomically.
+     *
+     * @param file The file to write.
+     * @throws IOException If the file could not be written.
+     */
+    public void write(File file) throws IOException {
+        final File parent = file.getAbsoluteFile().getParentFile();
+        if (!parent.exists() && !parent.mkdirs()) {
+            throw new IOException("Failed to create directory: %s".formatted(parent.getAbsolutePath()));
+        }
+
+        final File temp = File.createTempFile(FILE_NAME, ".tmp", parent);
+        try {
+            try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp.toPath())))) {
+                output.writeInt(MAGIC);
+                output.writeInt(FORMAT_VERSION);
+                output.writeInt(entries.size());
+                for (Entry entry : entries) {
+                    entry.write(output);
+                }
+            }
+
+            try {
+                Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp.toPath());
+        }
+    }
+
+    /**
+     * @return The hashes of all blobs the manifest references.
+     */
+    public Set<String> blobs() {
+        final Set<String> blobs = new LinkedHashSet<>();
+        for (Entry entry : entries) {
+            for (Segment segment : entry.segments()) {
+                if (segment instanceof BlobReference reference) {
+                    blobs.add(reference.hash());
+                }
+            }
+        }
+
+        return blobs;
+    }
+
+    /**
+     * @return The amount of bytes the output takes up in the store, blobs referenced multiple times are counted once.
+     */
+    public long storedBytes() {
+        final Map<String, Long> blobs = new HashMap<>();
+        long literals = 0;
+        for (Entry entry : entries) {
+            for (Segment segment : entry.segments()) {
+                if (segment instanceof BlobReference reference) {
+                    blobs.put(reference.hash(), reference.storedLength());
+                } else if (segment instanceof Literal literal) {
+                    literals += literal.data().length;
+                }
+            }
+        }
+
+        return literals + blobs.values().stream().mapToLong(Long::longValue).sum();
+    }
+
+    /**
+     * A file or directory of the output.
+     *
+     * @param path The path relative to the output, using forward slashes, the output itself has an empty path.
+     * @param directory Whether the entry is a directory.
+     * @param lastModified The modification time of the file, in milliseconds since the epoch.
+     * @param size The size of the file.
+     * @param hash The SHA-256 digest of the file.
+     * @param segments The segments which make up the contents of the file, in order.
+     */
+    public record Entry(String path, boolean directory, long lastModified, long size, byte[] hash, List<Segment> segments) {
+
+        public static Entry directory(String path) {
+            return new Entry(path, true, 0, 0, new byte[0], List.of());
+        }
+
+        private static Entry read(DataInputStream input) throws IOException {
+            final String path = input.readUTF();
+            if (input.readBoolean()) {
+                return directory(path);
+            }
+
+            final long lastModified = input.readLong();
+            final long size = input.readLong();
+            final byte[] hash = new byte[input.readUnsignedShort()];
+            input.readFully(hash);
+
+            final int count = input.readInt();
+            final List<Segment> segments = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                segments.add(Segment.read(input));
+            }
+
+            return new Entry(path, false, lastModified, size, hash, List.copyOf(segments));
+        }
+
+        private void write(DataOutputStream output) throws IOException {
+            output.writeUTF(path);
+            output.writeBoolean(directory);
+            if (directory) {
+                return;
+            }
+
+            output.writeLong(lastModified);
+            output.writeLong(size);
+            output.writeShort(hash.length);
+            output.write(hash);
+            output.writeInt(segments.size());
+            for (Segment segment : segments) {
+                segment.write(output);
+            }
+        }
+    }
+
+    /**
+     * A part of the contents of a file.
+     */
+    public sealed interface Segment permits Literal, BlobReference {
+
+        /**
+         * @return The amount of bytes the segment contributes to the file.
+         */
+        long length();
+
+        private static Segment read(DataInputStream input) throws IOException {
+            final byte kind = input.readByte();
+            return switch (kind) {
+                case Literal.KIND -> {
+                    final byte[] data = new byte[input.readInt()];
+                    input.readFully(data);
+                    yield new Literal(data);
+                }
+                case BlobReference.KIND -> new BlobReference(input.readUTF(), input.readLong(), input.readLong());
+                default -> throw new IOException("Unknown segment kind: %d".formatted(kind));
+            };
+        }
+
+        void write(DataOutputStream output) throws IOException;
+    }
+
+    /**
+     * A segment which is small enough to be stored in the manifest itself.
+     *
+     * @param data The contents of the segment.
+     */
+    public record Literal(byte[] data) implements Segment {
+
+        private static final byte KIND = 0;
+
+        @Override
+        public long length() {
+            return data.length;
+        }
+
+        @Override
+        public void write(DataOutputStream output) throws IOException {
+            output.writeByte(KIND);
+            output.writeInt(data.length);
+            output.write(data);
+        }
+    }
+
+    /**
+     * A segment which is stored as a blob in the {@link ChunkStore}.
+     *
+     * @param hash The SHA-256 digest of the contents of the blob, which is also its name in the store.
+     * @param length The length of the contents of the blob.
+     * @param storedLength The size of the blob in the store, after compression.
+     */
+    public record BlobReference(String hash, long length, long storedLength) implements Segment {
+
+        private static final byte KIND = 1;
+
+        @Override
+        public void write(DataOutputStream output) throws IOException {
+            output.writeByte(KIND);
+            output.writeUTF(hash);
+            output.writeLong(length);
+            output.writeLong(storedLength);
+        }
+    }
+}
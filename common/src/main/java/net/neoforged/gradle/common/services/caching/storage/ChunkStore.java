@@ -0,0 +1,337 @@
+package net.neoforged.gradle.common.services.caching.storage;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * A content addressed store of blobs, which is shared by all entries of the execution cache.
+ * <p>
+ * Files are split into regions by {@link ZipLayout}, each large enough region is stored once as a blob named after
+ * the SHA-256 digest of its contents, and optionally compressed.
+ * Small regions, like the headers of zip entries, are kept in the {@link ChunkManifest} of the entry instead.
+ * <p>
+ * Blobs are written atomically and never modified, so they can be shared between concurrent builds without locking.
+ */
+public final class ChunkStore {
+
+    public static final String DIRECTORY_NAME = "blobs";
+
+    /**
+     * Regions holding file contents which are smaller than this are kept in the manifest, as a blob would not be worth its overhead.
+     */
+    static final int MIN_BLOB_SIZE = 512;
+
+    /**
+     * Regions holding zip headers which are larger than this, like the central directory of large jars, are stored as a blob.
+     */
+    static final int MAX_LITERAL_SIZE = 64 * 1024;
+
+    /**
+     * Unreferenced blobs are only collected once they have not been used for this long, as an entry that is being
+     * written by a concurrent build might reference them without its manifest being visible yet.
+     */
+    private static final long GARBAGE_GRACE_PERIOD = TimeUnit.DAYS.toMillis(1);
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final byte CODEC_NONE = 0;
+    private static final byte CODEC_DEFLATE = 1;
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private final File directory;
+    private final ChunkCompression compression;
+
+    private final AtomicLong logicalBytes = new AtomicLong();
+    private final AtomicLong writtenBytes = new AtomicLong();
+    private final AtomicLong deduplicatedBytes = new AtomicLong();
+
+    /**
+     * Creates a new store in the given cache directory.
+     *
+     * @param cacheDirectory The root directory of the execution cache.
+     * @param compression The compression to apply to newly written blobs.
+     */
+    public ChunkStore(File cacheDirectory, ChunkCompression compression) {
+        this.directory = new File(cacheDirectory, DIRECTORY_NAME);
+        this.compression = compression;
+    }
+
+    /**
+     * Stores the contents of the given file.
+     *
+     * @param file The file to store.
+     * @return The stored file, describing how to reconstruct it.
+     * @throws IOException If the file could not be read, or a blob could not be written.
+     */
+    public StoredFile store(Path file) throws IOException {
+        final MessageDigest fileDigest = sha256();
+        final List<ChunkManifest.Segment> segments = new ArrayList<>();
+        final ByteArrayOutputStream literal = new ByteArrayOutputStream();
+        long written = 0;
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            for (ZipLayout.Region region : ZipLayout.regions(channel)) {
+                final boolean inline = region.data() ? region.length() < MIN_BLOB_SIZE : region.length() <= MAX_LITERAL_SIZE;
+                if (inline) {
+                    final byte[] data = new byte[(int) region.length()];
+                    readFully(channel, ByteBuffer.wrap(data), region.offset());
+                    fileDigest.update(data);
+                    literal.write(data);
+                    continue;
+                }
+
+                if (literal.size() > 0) {
+                    segments.add(new ChunkManifest.Literal(literal.toByteArray()));
+                    written += literal.size();
+                    literal.reset();
+                }
+
+                final PutResult result = put(channel, region, fileDigest);
+                segments.add(result.reference());
+                written += result.written();
+            }
+        }
+
+        if (literal.size() > 0) {
+            segments.add(new ChunkManifest.Literal(literal.toByteArray()));
+            written += literal.size();
+        }
+
+        final long size = segments.stream().mapToLong(ChunkManifest.Segment::length).sum();
+        logicalBytes.addAndGet(size);
+        writtenBytes.addAndGet(written);
+        return new StoredFile(size, fileDigest.digest(), List.copyOf(segments), written);
+    }
+
+    /**
+     * Reconstructs the contents of a file from its segments.
+     *
+     * @param segments The segments of the file.
+     * @param output The stream to write the contents to.
+     * @throws IOException If a blob is missing, corrupt or could not be read.
+     */
+    public void restore(List<ChunkManifest.Segment> segments, OutputStream output) throws IOException {
+        for (ChunkManifest.Segment segment : segments) {
+            if (segment instanceof ChunkManifest.Literal literal) {
+                output.write(literal.data());
+            } else if (segment instanceof ChunkManifest.BlobReference reference) {
+                final File blob = blobFile(reference.hash());
+                final long copied;
+                try (InputStream input = open(blob)) {
+                    copied = input.transferTo(output);
+                }
+
+                if (copied != reference.length()) {
+                    throw new IOException("Corrupt blob in the execution cache: %s".formatted(blob.getAbsolutePath()));
+                }
+            }
+        }
+    }
+
+    /**
+     * Deletes all blobs which are not referenced and have not been used within the grace period.
+     *
+     * @param referenced The hashes of all blobs that are referenced by the entries of the cache.
+     * @return The amount of bytes that were freed.
+     * @throws IOException If a blob could not be deleted.
+     */
+    public long collectGarbage(Set<String> referenced) throws IOException {
+        if (!directory.isDirectory()) {
+            return 0;
+        }
+
+        final long threshold = System.currentTimeMillis() - GARBAGE_GRACE_PERIOD;
+        long freed = 0;
+        for (File shard : Objects.requireNonNull(directory.listFiles())) {
+            final File[] blobs = shard.listFiles();
+            if (blobs == null) {
+                continue;
+            }
+
+            //Left over temporary files of interrupted writes are never referenced, and are collected as well.
+            for (File blob : blobs) {
+                if (referenced.contains(blob.getName()) || blob.lastModified() >= threshold) {
+                    continue;
+                }
+
+                final long size = blob.length();
+                if (Files.deleteIfExists(blob.toPath())) {
+                    freed += size;
+                }
+            }
+        }
+
+        return freed;
+    }
+
+    /**
+     * @return The statistics of all files stored through this instance.
+     */
+    public Statistics statistics() {
+        return new Statistics(logicalBytes.get(), writtenBytes.get(), deduplicatedBytes.get());
+    }
+
+    private PutResult put(FileChannel channel, ZipLayout.Region region, MessageDigest fileDigest) throws IOException {
+        final MessageDigest blobDigest = sha256();
+        final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        for (long position = region.offset(), end = region.offset() + region.length(); position < end; ) {
+            buffer.clear().limit((int) Math.min(BUFFER_SIZE, end - position));
+            readFully(channel, buffer, position);
+            buffer.flip();
+            fileDigest.update(buffer.duplicate());
+            blobDigest.update(buffer);
+            position += buffer.limit();
+        }
+
+        final String hash = HexFormat.of().formatHex(blobDigest.digest());
+        final File blob = blobFile(hash);
+        if (blob.isFile()) {
+            //Touch the blob, so that it is not collected while the entry that references it is being written.
+            blob.setLastModified(System.currentTimeMillis());
+            deduplicatedBytes.addAndGet(region.length());
+            return new PutResult(new ChunkManifest.BlobReference(hash, region.length(), blob.length()), 0);
+        }
+
+        final long stored = write(channel, region, blob);
+        return new PutResult(new ChunkManifest.BlobReference(hash, region.length(), stored), stored);
+    }
+
+    private long write(FileChannel channel, ZipLayout.Region region, File blob) throws IOException {
+        final File shard = blob.getParentFile();
+        if (!shard.exists() && !shard.mkdirs() && !shard.isDirectory()) {
+            throw new IOException("Failed to create directory: %s".formatted(shard.getAbsolutePath()));
+        }
+
+        final File temp = File.createTempFile(blob.getName(), TEMP_SUFFIX, shard);
+        try {
+            final boolean compress = compression == ChunkCompression.DEFLATE && region.compressible();
+            writeBlob(channel, region, temp, compress);
+            if (compress && temp.length() - 1 >= region.length()) {
+                //The contents did not shrink, store them as is to avoid inflating them on every restore.
+                writeBlob(channel, region, temp, false);
+            }
+
+            try {
+                Files.move(temp.toPath(), blob.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp.toPath(), blob.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+
+            return blob.length();
+        } finally {
+            Files.deleteIfExists(temp.toPath());
+        }
+    }
+
+    private static void writeBlob(FileChannel channel, ZipLayout.Region region, File target, boolean compress) throws IOException {
+        try (OutputStream file = Files.newOutputStream(target.toPath())) {
+            file.write(compress ? CODEC_DEFLATE : CODEC_NONE);
+
+            final Deflater deflater = compress ? new Deflater(Deflater.BEST_SPEED) : null;
+            try {
+                final OutputStream output = deflater != null ? new DeflaterOutputStream(file, deflater, BUFFER_SIZE) : file;
+                final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+                for (long position = region.offset(), end = region.offset() + region.length(); position < end; ) {
+                    buffer.clear().limit((int) Math.min(BUFFER_SIZE, end - position));
+                    readFully(channel, buffer, position);
+                    output.write(buffer.array(), 0, buffer.position());
+                    position += buffer.position();
+                }
+
+                if (output instanceof DeflaterOutputStream deflating) {
+                    deflating.finish();
+                }
+            } finally {
+                if (deflater != null) {
+                    deflater.end();
+                }
+            }
+        }
+    }
+
+    private static InputStream open(File blob) throws IOException {
+        final InputStream input = new BufferedInputStream(Files.newInputStream(blob.toPath()), BUFFER_SIZE);
+        try {
+            final int codec = input.read();
+            return switch (codec) {
+                case CODEC_NONE -> input;
+                case CODEC_DEFLATE -> new InflaterInputStream(input);
+                default -> throw new IOException("Unknown codec %d of blob: %s".formatted(codec, blob.getAbsolutePath()));
+            };
+        } catch (IOException e) {
+            input.close();
+            throw e;
+        }
+    }
+
+    private File blobFile(String hash) {
+        return new File(new File(directory, hash.substring(0, 2)), hash);
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long offset) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, offset + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of file, the file was modified while it was stored.");
+            }
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported", e);
+        }
+    }
+
+    private record PutResult(ChunkManifest.BlobReference reference, long written) {}
+
+    /**
+     * A file that was stored in the store.
+     *
+     * @param size The size of the file.
+     * @param hash The SHA-256 digest of the file.
+     * @param segments The segments which make up the contents of the file.
+     * @param writtenBytes The amount of bytes that were newly written, either as blobs or as literals in the manifest.
+     */
+    public record StoredFile(long size, byte[] hash, List<ChunkManifest.Segment> segments, long writtenBytes) {}
+
+    /**
+     * The statistics of a store.
+     *
+     * @param logicalBytes The total size of all stored files.
+     * @param writtenBytes The amount of bytes that were actually written, after deduplication and compression.
+     * @param deduplicatedBytes The amount of bytes that were not written, as an identical blob already existed.
+     */
+    public record Statistics(long logicalBytes, long writtenBytes, long deduplicatedBytes) {
+
+        /**
+         * @return The amount of bytes that were saved by deduplication and compression.
+         */
+        public long savedBytes() {
+            return logicalBytes - writtenBytes;
+        }
+    }
+}
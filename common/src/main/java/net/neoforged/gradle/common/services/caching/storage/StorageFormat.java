@@ -0,0 +1,16 @@
+package net.neoforged.gradle.common.services.caching.storage;
+
+/**
+ * Defines how the outputs of cached stages are stored in the execution cache.
+ */
+public enum StorageFormat {
+    /**
+     * Outputs are stored as plain copies inside each cache entry, which allows them to be restored through links.
+     */
+    RAW,
+    /**
+     * Outputs are split into content addressed blobs, which are shared by all entries of the cache.
+     * Jars are split along their entries, so that jars which share most of their files only store those files once.
+     */
+    CHUNKED
+}
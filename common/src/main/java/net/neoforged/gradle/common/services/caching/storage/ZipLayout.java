@@ -0,0 +1,168 @@
+package net.neoforged.gradle.common.services.caching.storage;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Splits a file into the regions that are stored by the {@link ChunkStore}.
+ * <p>
+ * Zip files are split into the raw, still compressed, data of each of their entries and the headers around them.
+ * Identical entries of different zip files therefore end up in identical regions, regardless of where they are located in the file.
+ * Any other file, as well as zip files that can not be read, for example because they use the zip64 format, are a single region.
+ */
+final class ZipLayout {
+
+    private static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+    private static final int LOCAL_HEADER_SIZE = 30;
+    private static final int CENTRAL_HEADER_SIGNATURE = 0x02014b50;
+    private static final int CENTRAL_HEADER_SIZE = 46;
+    private static final int END_OF_CENTRAL_DIRECTORY_SIGNATURE = 0x06054b50;
+    private static final int END_OF_CENTRAL_DIRECTORY_SIZE = 22;
+    private static final int MAX_COMMENT_SIZE = 0xFFFF;
+    private static final int DEFLATED = 8;
+
+    /**
+     * A contiguous region of a file.
+     *
+     * @param offset The offset of the region in the file.
+     * @param length The length of the region.
+     * @param data Whether the region holds the contents of a file or zip entry, instead of zip headers.
+     * @param compressible Whether the region is worth compressing, which is not the case for already deflated zip entries.
+     */
+    record Region(long offset, long length, boolean data, boolean compressible) {}
+
+    private ZipLayout() {
+        throw new IllegalStateException("Can not instantiate an instance of: ZipLayout. This is a utility class");
+    }
+
+    /**
+     * Splits the file behind the given channel into regions, which cover the entire file in order.
+     *
+     * @param channel The channel to read.
+     * @return The regions of the file.
+     * @throws IOException If the file could not be read.
+     */
+    static List<Region> regions(FileChannel channel) throws IOException {
+        final long size = channel.size();
+        if (size == 0) {
+            return List.of();
+        }
+
+        try {
+            final List<Region> regions = zipRegions(channel, size);
+            if (regions != null) {
+                return regions;
+            }
+        } catch (EOFException e) {
+            //A truncated zip file is stored as a plain file.
+        }
+
+        return List.of(new Region(0, size, true, true));
+    }
+
+    @Nullable
+    private static List<Region> zipRegions(FileChannel channel, long size) throws IOException {
+        if (size < LOCAL_HEADER_SIZE + END_OF_CENTRAL_DIRECTORY_SIZE || read(channel, 0, 4).getInt(0) != LOCAL_HEADER_SIGNATURE) {
+            return null;
+        }
+
+        final long end = findEndOfCentralDirectory(channel, size);
+        if (end < 0) {
+            return null;
+        }
+
+        final ByteBuffer endRecord = read(channel, end, END_OF_CENTRAL_DIRECTORY_SIZE);
+        final int entryCount = endRecord.getShort(10) & 0xFFFF;
+        final long directorySize = endRecord.getInt(12) & 0xFFFFFFFFL;
+        final long directoryOffset = endRecord.getInt(16) & 0xFFFFFFFFL;
+        if (entryCount == 0xFFFF || directorySize > Integer.MAX_VALUE || directoryOffset + directorySize > end) {
+            //Zip64 archives, or archives with prefixed data, are not split.
+            return null;
+        }
+
+        final ByteBuffer directory = read(channel, directoryOffset, (int) directorySize);
+        final List<long[]> entries = new ArrayList<>(entryCount);
+        int position = 0;
+        for (int i = 0; i < entryCount; i++) {
+            if (position + CENTRAL_HEADER_SIZE > directorySize || directory.getInt(position) != CENTRAL_HEADER_SIGNATURE) {
+                return null;
+            }
+
+            final int method = directory.getShort(position + 10) & 0xFFFF;
+            final long compressedSize = directory.getInt(position + 20) & 0xFFFFFFFFL;
+            final int nameLength = directory.getShort(position + 28) & 0xFFFF;
+            final int extraLength = directory.getShort(position + 30) & 0xFFFF;
+            final int commentLength = directory.getShort(position + 32) & 0xFFFF;
+            final long localHeaderOffset = directory.getInt(position + 42) & 0xFFFFFFFFL;
+            if (compressedSize == 0xFFFFFFFFL || localHeaderOffset == 0xFFFFFFFFL) {
+                return null;
+            }
+
+            entries.add(new long[]{localHeaderOffset, compressedSize, method});
+            position += CENTRAL_HEADER_SIZE + nameLength + extraLength + commentLength;
+        }
+        entries.sort(Comparator.comparingLong(entry -> entry[0]));
+
+        final List<Region> regions = new ArrayList<>();
+        long cursor = 0;
+        for (long[] entry : entries) {
+            final long localHeaderOffset = entry[0];
+            if (localHeaderOffset < cursor) {
+                return null;
+            }
+
+            final ByteBuffer localHeader = read(channel, localHeaderOffset, LOCAL_HEADER_SIZE);
+            if (localHeader.getInt(0) != LOCAL_HEADER_SIGNATURE) {
+                return null;
+            }
+
+            final long dataOffset = localHeaderOffset + LOCAL_HEADER_SIZE + (localHeader.getShort(26) & 0xFFFF) + (localHeader.getShort(28) & 0xFFFF);
+            final long dataEnd = dataOffset + entry[1];
+            if (dataEnd > directoryOffset) {
+                return null;
+            }
+
+            regions.add(new Region(cursor, dataOffset - cursor, false, true));
+            if (entry[1] > 0) {
+                regions.add(new Region(dataOffset, entry[1], true, entry[2] != DEFLATED));
+            }
+            cursor = dataEnd;
+        }
+
+        regions.add(new Region(cursor, size - cursor, false, true));
+        return regions;
+    }
+
+    private static long findEndOfCentralDirectory(FileChannel channel, long size) throws IOException {
+        final int tailLength = (int) Math.min(size, END_OF_CENTRAL_DIRECTORY_SIZE + MAX_COMMENT_SIZE);
+        final long tailOffset = size - tailLength;
+        final ByteBuffer tail = read(channel, tailOffset, tailLength);
+        for (int position = tailLength - END_OF_CENTRAL_DIRECTORY_SIZE; position >= 0; position--) {
+            if (tail.getInt(position) == END_OF_CENTRAL_DIRECTORY_SIGNATURE
+                    && position + END_OF_CENTRAL_DIRECTORY_SIZE + (tail.getShort(position + 20) & 0xFFFF) == tailLength) {
+                return tailOffset + position;
+            }
+        }
+
+        return -1;
+    }
+
+    private static ByteBuffer read(FileChannel channel, long offset, int length) throws IOException {
+        final ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, offset + buffer.position()) < 0) {
+                throw new EOFException("Unexpected end of file at offset: %d".formatted(offset + buffer.position()));
+            }
+        }
+
+        return buffer;
+    }
+}
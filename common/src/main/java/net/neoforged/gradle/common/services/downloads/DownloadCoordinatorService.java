@@ -0,0 +1,112 @@
+package net.neoforged.gradle.common.services.downloads;
+
+import net.neoforged.gradle.common.util.download.AssetDownloader;
+import net.neoforged.gradle.common.util.download.DownloadCoordinator;
+import net.neoforged.gradle.common.util.download.DownloadScheduler;
+import net.neoforged.gradle.dsl.common.extensions.subsystems.Downloads;
+import net.neoforged.gradle.dsl.common.extensions.subsystems.Subsystems;
+import org.gradle.api.Project;
+import org.gradle.api.provider.Property;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.services.BuildService;
+import org.gradle.api.services.BuildServiceParameters;
+
+import java.net.http.HttpClient;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Provides the download coordinator and scheduler of the build, which let all projects and tasks that download the
+ * same file share one download, and keep all downloads within the configured limits.
+ * <p>
+ * It also owns the HTTP client and the download threads, so connections are reused by all tasks and projects of the
+ * build. The threads are stopped when the build finishes.
+ *
+ * @see DownloadCoordinator
+ * @see DownloadScheduler
+ */
+public abstract class DownloadCoordinatorService implements BuildService<DownloadCoordinatorService.Parameters>, AutoCloseable {
+
+    public static final String NAME = "DownloadCoordinatorService";
+
+    private final DownloadCoordinator coordinator = new DownloadCoordinator();
+    private DownloadScheduler scheduler;
+    private HttpClient client;
+    private ExecutorService executor;
+
+    public static Provider<DownloadCoordinatorService> register(Project project) {
+        final Provider<Downloads> downloads = project.provider(() -> {
+            final Subsystems subsystems = project.getExtensions().findByType(Subsystems.class);
+            return subsystems == null ? null : subsystems.getDownloads();
+        });
+        return project.getGradle().getSharedServices().registerIfAbsent(
+                NAME,
+                DownloadCoordinatorService.class,
+                spec -> {
+                    spec.getParameters().getMaxConcurrentDownloads().set(downloads.flatMap(Downloads::getMaxConcurrentDownloads).orElse(DownloadScheduler.DEFAULT_MAX_CONCURRENT_DOWNLOADS));
+                    spec.getParameters().getMaxConcurrentDownloadsPerHost().set(downloads.flatMap(Downloads::getMaxConcurrentDownloadsPerHost).orElse(DownloadScheduler.DEFAULT_MAX_CONCURRENT_DOWNLOADS_PER_HOST));
+                    spec.getParameters().getMaxBytesPerSecond().set(downloads.flatMap(Downloads::getMaxBytesPerSecond).orElse(0L));
+                }
+        );
+    }
+
+    /**
+     * @return The download coordinator, which is shared by all users of this service.
+     */
+    public DownloadCoordinator getCoordinator() {
+        return coordinator;
+    }
+
+    /**
+     * @return The download scheduler, which is shared by all users of this service.
+     */
+    public synchronized DownloadScheduler getScheduler() {
+        if (scheduler == null) {
+            scheduler = new DownloadScheduler(
+                    getParameters().getMaxConcurrentDownloads().get(),
+                    getParameters().getMaxConcurrentDownloadsPerHost().get(),
+                    getParameters().getMaxBytesPerSecond().get()
+            );
+        }
+        return scheduler;
+    }
+
+    /**
+     * @return The HTTP client, which is shared by all users of this service.
+     */
+    public synchronized HttpClient getClient() {
+        if (client == null) {
+            client = AssetDownloader.createClient(AssetDownloader.DEFAULT_TIMEOUT);
+        }
+        return client;
+    }
+
+    /**
+     * @return The threads downloads run on, which are shared by all users of this service.
+     */
+    public synchronized ExecutorService getExecutor() {
+        if (executor == null) {
+            executor = AssetDownloader.createExecutor();
+        }
+        return executor;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+
+        //The client has no close method before Java 21, its connections are closed once it is no longer referenced.
+        client = null;
+    }
+
+    public interface Parameters extends BuildServiceParameters {
+
+        Property<Integer> getMaxConcurrentDownloads();
+
+        Property<Integer> getMaxConcurrentDownloadsPerHost();
+
+        Property<Long> getMaxBytesPerSecond();
+    }
+}
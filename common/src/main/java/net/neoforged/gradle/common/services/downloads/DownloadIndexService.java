@@ -0,0 +1,58 @@
+package net.neoforged.gradle.common.services.downloads;
+
+import net.neoforged.gradle.common.util.download.DownloadIndex;
+import org.gradle.api.Project;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.services.BuildService;
+import org.gradle.api.services.BuildServiceParameters;
+
+import java.io.File;
+import java.time.Duration;
+
+/**
+ * Provides the machine-wide index of downloaded files, which lets downloads skip the network for files that are known
+ * to be up-to-date.
+ *
+ * @see DownloadIndex
+ */
+public abstract class DownloadIndexService implements BuildService<DownloadIndexService.Parameters> {
+
+    public static final String NAME = "DownloadIndexService";
+
+    public static final String DIRECTORY_NAME = "downloads";
+
+    public static final String REVALIDATE_AFTER_MINUTES_PROPERTY = "net.neoforged.gradle.downloads.revalidateAfterMinutes";
+
+    public interface Parameters extends BuildServiceParameters {
+
+        DirectoryProperty getIndexDirectory();
+
+        Property<Integer> getRevalidateAfterMinutes();
+    }
+
+    private DownloadIndex index;
+
+    public static Provider<DownloadIndexService> register(Project project) {
+        return project.getGradle().getSharedServices().registerIfAbsent(
+                NAME,
+                DownloadIndexService.class,
+                spec -> {
+                    spec.getParameters().getIndexDirectory().fileValue(new File(project.getGradle().getGradleUserHomeDir(), "caches/minecraft/" + DIRECTORY_NAME));
+                    spec.getParameters().getRevalidateAfterMinutes().set(project.getProviders().gradleProperty(REVALIDATE_AFTER_MINUTES_PROPERTY).map(Integer::parseInt).orElse(60));
+                }
+        );
+    }
+
+    /**
+     * @return The index of downloaded files, which is shared by all users of this service.
+     */
+    public synchronized DownloadIndex getIndex() {
+        if (index == null) {
+            index = new DownloadIndex(getParameters().getIndexDirectory().get().getAsFile(), Duration.ofMinutes(Math.max(0, getParameters().getRevalidateAfterMinutes().get())));
+        }
+
+        return index;
+    }
+}
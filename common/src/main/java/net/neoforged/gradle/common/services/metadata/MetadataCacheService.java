@@ -0,0 +1,64 @@
+package net.neoforged.gradle.common.services.metadata;
+
+import net.neoforged.gradle.common.util.LauncherManifest;
+import net.neoforged.gradle.common.util.VersionJson;
+import org.gradle.api.Project;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.services.BuildService;
+import org.gradle.api.services.BuildServiceParameters;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Provides the parsed launcher manifest and version jsons, which are parsed at most once per build.
+ * The parsed objects are shared by all projects of the build, and can not be modified through their accessors.
+ *
+ * @see ParsedFileCache
+ */
+public abstract class MetadataCacheService implements BuildService<BuildServiceParameters.None> {
+
+    public static final String NAME = "MetadataCacheService";
+
+    private final ParsedFileCache cache = new ParsedFileCache();
+
+    public static Provider<MetadataCacheService> register(Project project) {
+        return project.getGradle().getSharedServices().registerIfAbsent(
+                NAME,
+                MetadataCacheService.class,
+                spec -> {}
+        );
+    }
+
+    /**
+     * @return The cache of parsed files, which is shared by all users of this service.
+     */
+    public ParsedFileCache getCache() {
+        return cache;
+    }
+
+    /**
+     * @param file The launcher manifest file.
+     * @return The parsed launcher manifest.
+     */
+    public LauncherManifest getLauncherManifest(File file) {
+        try {
+            return getCache().get(file, LauncherManifest.class, LauncherManifest::get);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read the launcher manifest: " + file, e);
+        }
+    }
+
+    /**
+     * @param file The version json file.
+     * @return The parsed version json.
+     */
+    public VersionJson getVersionJson(File file) {
+        try {
+            return getCache().get(file, VersionJson.class, VersionJson::get);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read the version json: " + file, e);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package net.neoforged.gradle.common.services.metadata;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Caches objects parsed from files, like the launcher manifest and version jsons, so that every file is parsed at most
+ * once per build, instead of once per project or task.
+ * <p>
+ * Parsed objects are kept in memory for as long as the cache is, which is owned by the {@link MetadataCacheService} of
+ * the build. They are validated against the modification time and size of the file.
+ * Cached objects are shared by all projects of the build, so only types which can not be modified through their
+ * accessors should be cached.
+ */
+public final class ParsedFileCache {
+
+    private final Map<Key, Entry> entries = new ConcurrentHashMap<>();
+
+    private final AtomicInteger hits = new AtomicInteger();
+    private final AtomicInteger parses = new AtomicInteger();
+
+    /**
+     * Gets the object parsed from the given file, parsing it only if it is not cached, or the file changed.
+     *
+     * @param file The file to parse.
+     * @param type The type of the object.
+     * @param parser The parser to use if the object is not cached.
+     * @return The parsed object, which is shared with all other users of the cache.
+     * @throws IOException If the file could not be read or parsed.
+     */
+    public <T> T get(File file, Class<T> type, Parser<T> parser) throws IOException {
+        final BasicFileAttributes attributes = Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+        final Key key = new Key(type.getName(), file.getAbsolutePath());
+        final long lastModified = attributes.lastModifiedTime().toMillis();
+        final long size = attributes.size();
+
+        final Entry cached = entries.get(key);
+        if (cached != null && cached.matches(lastModified, size)) {
+            hits.incrementAndGet();
+            return type.cast(cached.value());
+        }
+
+        try {
+            //Computing under the key makes projects which are configured in parallel wait for a single parse.
+            final Entry entry = entries.compute(key, (k, current) -> {
+                if (current != null && current.matches(lastModified, size)) {
+                    hits.incrementAndGet();
+                    return current;
+                }
+
+                try {
+                    final T value = parser.parse(file);
+                    parses.incrementAndGet();
+                    return new Entry(lastModified, size, value);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            return type.cast(entry.value());
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * @return The number of requests which were served from the cache.
+     */
+    public int hits() {
+        return hits.get();
+    }
+
+    /**
+     * @return The number of files which were parsed.
+     */
+    public int parses() {
+        return parses.get();
+    }
+
+    @FunctionalInterface
+    public interface Parser<T> {
+        T parse(File file) throws IOException;
+    }
+
+    private record Key(String type, String path) {}
+
+    private record Entry(long lastModified, long size, Object value) {
+        private boolean matches(long lastModified, long size) {
+            return this.lastModified == lastModified && this.size == size;
+        }
+    }
+}
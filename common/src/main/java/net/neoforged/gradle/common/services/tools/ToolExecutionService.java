@@ -0,0 +1,96 @@
+package net.neoforged.gradle.common.services.tools;
+
+import net.neoforged.gradle.common.util.tools.InProcessTools;
+import net.neoforged.gradle.common.util.tools.ToolDaemons;
+import org.gradle.api.Project;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.services.BuildService;
+import org.gradle.api.services.BuildServiceParameters;
+
+/**
+ * Provides the tool daemons and the in process tools of the build, which run tools without starting a new JVM for
+ * every run. The daemons are stopped, and the class loaders of the in process tools closed, at the end of the build.
+ * <p>
+ * The error output of the daemons is written to {@value #LOG_PATH} in the build directory of the root project.
+ * Daemons can be disabled with {@value #DAEMONS_PROPERTY}. Running tools in process is opt-in through
+ * {@value #IN_PROCESS_PROPERTY}, as it temporarily replaces the security manager and the standard streams of the
+ * Gradle daemon. Tools which can not use either run in a forked JVM.
+ *
+ * @see ToolDaemons
+ * @see InProcessTools
+ */
+public abstract class ToolExecutionService implements BuildService<ToolExecutionService.Parameters>, AutoCloseable {
+
+    public static final String NAME = "ToolExecutionService";
+
+    public static final String DAEMONS_PROPERTY = "net.neoforged.gradle.tools.daemons";
+    public static final String IN_PROCESS_PROPERTY = "net.neoforged.gradle.tools.inProcess";
+
+    public static final String LOG_PATH = "tmp/neogradle/tool-daemons";
+
+    public interface Parameters extends BuildServiceParameters {
+
+        DirectoryProperty getLogDirectory();
+
+        Property<Boolean> getUseDaemons();
+
+        Property<Boolean> getUseInProcess();
+    }
+
+    private final InProcessTools inProcessTools = new InProcessTools();
+    private ToolDaemons daemons;
+
+    public static Provider<ToolExecutionService> register(Project project) {
+        return project.getGradle().getSharedServices().registerIfAbsent(
+                NAME,
+                ToolExecutionService.class,
+                spec -> {
+                    spec.getParameters().getLogDirectory().set(project.getRootProject().getLayout().getBuildDirectory().dir(LOG_PATH));
+                    spec.getParameters().getUseDaemons().set(project.getProviders().gradleProperty(DAEMONS_PROPERTY).map(Boolean::parseBoolean).orElse(true));
+                    spec.getParameters().getUseInProcess().set(project.getProviders().gradleProperty(IN_PROCESS_PROPERTY).map(Boolean::parseBoolean).orElse(false));
+                }
+        );
+    }
+
+    /**
+     * @return True if tools which support it may run in a daemon.
+     */
+    public boolean useDaemons() {
+        return getParameters().getUseDaemons().get();
+    }
+
+    /**
+     * @return The tool daemons, which are shared by all users of this service.
+     */
+    public synchronized ToolDaemons getDaemons() {
+        if (daemons == null) {
+            daemons = new ToolDaemons(getParameters().getLogDirectory().get().getAsFile());
+        }
+
+        return daemons;
+    }
+
+    /**
+     * @return True if the build opted into running tools which support a daemon in the JVM of the build.
+     */
+    public boolean useInProcess() {
+        return getParameters().getUseInProcess().get();
+    }
+
+    /**
+     * @return The in process tools, whose class loaders are shared by all users of this service.
+     */
+    public InProcessTools getInProcessTools() {
+        return inProcessTools;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (daemons != null) {
+            daemons.close();
+        }
+        inProcessTools.close();
+    }
+}
@@ -1,15 +1,19 @@
 package net.neoforged.gradle.common.tasks;
 
-import com.google.gson.JsonObject;
+import net.neoforged.gradle.common.services.downloads.DownloadCoordinatorService;
+import net.neoforged.gradle.common.services.downloads.DownloadIndexService;
+import net.neoforged.gradle.common.services.metadata.MetadataCacheService;
+import net.neoforged.gradle.common.util.FileCacheUtils;
 import net.neoforged.gradle.common.util.FileDownloadingUtils;
-import net.neoforged.gradle.common.util.SerializationUtils;
+import net.neoforged.gradle.common.util.VersionJson;
+import net.neoforged.gradle.common.util.download.ArtifactStore;
 import net.neoforged.gradle.dsl.common.tasks.NeoGradleBase;
 import net.neoforged.gradle.dsl.common.tasks.WithOutput;
 import net.neoforged.gradle.dsl.common.tasks.WithWorkspace;
 import net.neoforged.gradle.dsl.common.util.CacheFileSelector;
-import net.neoforged.gradle.util.HashFunction;
 import org.gradle.api.file.DirectoryProperty;
 import org.gradle.api.provider.Property;
+import org.gradle.api.services.ServiceReference;
 import org.gradle.api.tasks.Input;
 import org.gradle.api.tasks.Internal;
 import org.gradle.api.tasks.Nested;
@@ -27,6 +31,7 @@ public abstract class FileCacheProviding extends NeoGradleBase implements WithOu
         this.getFileCache().finalizeValueOnRead();
         
         this.getIsOffline().set(getProject().getGradle().getStartParameter().isOffline());
+        this.getArtifactStore().convention(FileCacheUtils.getArtifactStoreDirectory(getProject()));
         
         this.getOutputFileName().set(getSelector().map(CacheFileSelector::getCacheFileName));
         this.getOutput().set(getFileCache().flatMap(cacheDir -> getOutputFileName().map(cacheDir::file)));
@@ -41,34 +46,46 @@ public abstract class FileCacheProviding extends NeoGradleBase implements WithOu
     @Optional
     @Input
     public abstract Property<Boolean> getIsOffline();
+
+    @Internal
+    public abstract DirectoryProperty getArtifactStore();
+
+    @ServiceReference(MetadataCacheService.NAME)
+    public abstract Property<MetadataCacheService> getMetadataCache();
+
+    @ServiceReference(DownloadIndexService.NAME)
+    public abstract Property<DownloadIndexService> getDownloadIndex();
+
+    @ServiceReference(DownloadCoordinatorService.NAME)
+    public abstract Property<DownloadCoordinatorService> getDownloadCoordinator();
     
     protected void downloadJsonTo(String url) {
         final File output = getOutput().get().getAsFile();
         FileDownloadingUtils.DownloadInfo info = new FileDownloadingUtils.DownloadInfo(url, null, "json", null, null);
-        boolean didWork = FileDownloadingUtils.downloadThrowing(getIsOffline().get(), info, output);
-        setDidWork(didWork);
+        try {
+            boolean didWork = getDownloadCoordinator().get().getCoordinator().download(url, null, output,
+                    () -> FileDownloadingUtils.downloadThrowing(getIsOffline().get(), info, output, getDownloadIndex().get().getIndex(), getDownloadCoordinator().get().getScheduler()));
+            setDidWork(didWork);
+        } catch (IOException e) {
+            throw new RuntimeException(String.format("Failed to download the file from: %s to: %s", url, output), e);
+        }
     }
     
     protected File doDownloadVersionDownloadToCache(final String artifact, final String potentialError, File versionManifest) {
-        JsonObject json = SerializationUtils.fromJson(versionManifest, JsonObject.class);
+        final VersionJson json = getMetadataCache().get().getVersionJson(versionManifest);
 
-        final JsonObject artifactInfo = json.getAsJsonObject("downloads").getAsJsonObject(artifact);
-        final String url = artifactInfo.get("url").getAsString();
-        final String hash = artifactInfo.get("sha1").getAsString();
-        final String version = json.getAsJsonObject().get("id").getAsString();
+        final VersionJson.Download artifactInfo = json.getDownloads().get(artifact);
+        final String url = artifactInfo.getUrl().toString();
+        final String hash = artifactInfo.getSha1();
+        final String version = json.getId();
 
         final FileDownloadingUtils.DownloadInfo info = new FileDownloadingUtils.DownloadInfo(url, hash, "jar", version, artifact);
 
         final File output = getOutput().get().getAsFile();
         try {
-            if (output.exists()) {
-                final String fileHash = HashFunction.SHA1.hash(output);
-                if (fileHash.equals(hash)) {
-                    return output;
-                }
-            }
-
-            FileDownloadingUtils.downloadTo(getIsOffline().get(), info, output);
+            final ArtifactStore store = new ArtifactStore(getArtifactStore().get().getAsFile());
+            getDownloadCoordinator().get().getCoordinator().download(url, hash, output,
+                    () -> FileDownloadingUtils.downloadTo(getIsOffline().get(), info, output, store, getDownloadIndex().get().getIndex(), getDownloadCoordinator().get().getScheduler()));
             return output;
         } catch (IOException e) {
             throw new RuntimeException(potentialError, e);
@@ -22,8 +22,15 @@ package net.neoforged.gradle.common.tasks;
 
 import com.google.common.collect.ImmutableMultimap;
 import com.google.common.collect.Multimap;
+import net.neoforged.gradle.common.services.tools.ToolExecutionService;
+import net.neoforged.gradle.common.util.tools.ToolDaemon;
+import net.neoforged.gradle.common.util.tools.ToolDaemons;
+import net.neoforged.gradle.common.util.tools.ToolExecutionMode;
+import net.neoforged.gradle.dsl.common.tasks.Execute;
+import net.neoforged.gradle.dsl.common.tasks.specifications.ExecuteSpecification;
 import org.codehaus.groovy.control.io.NullWriter;
 import org.gradle.api.Action;
+import org.gradle.api.GradleException;
 import org.gradle.api.file.ConfigurableFileCollection;
 import org.gradle.api.file.Directory;
 import org.gradle.api.file.RegularFile;
@@ -33,6 +40,7 @@ import org.gradle.api.plugins.JavaPluginExtension;
 import org.gradle.api.provider.ListProperty;
 import org.gradle.api.provider.Property;
 import org.gradle.api.provider.Provider;
+import org.gradle.api.services.ServiceReference;
 import org.gradle.api.tasks.Optional;
 import org.gradle.api.tasks.*;
 import org.gradle.internal.jvm.Jvm;
@@ -64,6 +72,7 @@ public abstract class JarExec extends DownloadingTask {
 
     public JarExec() {
         getDebug().convention(false);
+        getExecutionMode().convention(ToolExecutionMode.FORK);
 
         final JavaPluginExtension extension = getProject().getExtensions().findByType(JavaPluginExtension.class);
         if (extension != null) {
@@ -98,31 +107,10 @@ public abstract class JarExec extends DownloadingTask {
         final File workingDirectory = workDir.get().getAsFile();
 
         try (PrintWriter log = new PrintWriter(hasLog ? new FileWriter(logFile) : NullWriter.DEFAULT, true)) {
-            getProject().javaexec(spec -> {
-                spec.setExecutable(getEffectiveExecutable());
-                spec.setDebug(debug);
-                spec.setArgs(args);
-                spec.setClasspath(classpath);
-                spec.setWorkingDir(workingDirectory);
-                spec.getMainClass().set(mainClass);
-
-                log.println("Java Launcher: " + spec.getExecutable());
-                log.println("Arguments: " + args.stream().collect(Collectors.joining(", ", "'", "'")));
-                log.println("Classpath:");
-                classpath.forEach(f -> log.println(" - " + f.getAbsolutePath()));
-                log.println("Working directory: " + workingDirectory.getAbsolutePath());
-                log.println("Main class: " + mainClass);
-                log.println("====================================");
-
-                spec.setStandardOutput(new OutputStream() {
-                    @Override
-                    public void flush() { log.flush(); }
-                    @Override
-                    public void close() {}
-                    @Override
-                    public void write(int b) { log.write(b); }
-                });
-            }).rethrowFailure().assertNormalExitValue();
+            final boolean useDaemon = !debug && getExecutionMode().get() == ToolExecutionMode.DAEMON && getToolExecution().get().useDaemons();
+            if (!useDaemon || !applyInDaemon(mainClass, args, classpath, workingDirectory, log)) {
+                applyForked(mainClass, args, classpath, workingDirectory, debug, log);
+            }
         }
 
         if (hasLog) {
@@ -136,6 +124,77 @@ public abstract class JarExec extends DownloadingTask {
         }
     }
 
+    private boolean applyInDaemon(String mainClass, List<String> args, ConfigurableFileCollection classpath, File workingDirectory, PrintWriter log) throws IOException {
+        final String executable = getEffectiveExecutable();
+        //The daemon is started in the working directory of the task, so relative paths resolve like in a forked run.
+        if (!workingDirectory.isDirectory() && !workingDirectory.mkdirs()) {
+            throw new IOException("Could not create working directory '" + workingDirectory.getAbsolutePath() + "'");
+        }
+        final ToolDaemon.Key key = new ToolDaemon.Key(executable, getEffectiveJavaVersion(), Collections.emptyList(), new ArrayList<>(classpath.getFiles()), workingDirectory);
+        final ToolDaemons daemons = getToolExecution().get().getDaemons();
+
+        log.println("Java Launcher: " + executable + " (tool daemon)");
+        log.println("Arguments: " + args.stream().collect(Collectors.joining(", ", "'", "'")));
+        log.println("Classpath:");
+        classpath.forEach(f -> log.println(" - " + f.getAbsolutePath()));
+        log.println("Working directory: " + workingDirectory.getAbsolutePath());
+        log.println("Main class: " + mainClass);
+        log.println("====================================");
+        log.flush();
+
+        final OutputStream output = new OutputStream() {
+            @Override
+            public void flush() { log.flush(); }
+            @Override
+            public void close() {}
+            @Override
+            public void write(int b) { log.write(b); }
+        };
+        final OptionalInt exitCode;
+        try (OutputStream error = new Execute.LoggerOutputStream(getLogger(), ExecuteSpecification.LogLevel.ERROR)) {
+            exitCode = daemons.run(key, mainClass, args, output, error);
+        }
+
+        if (exitCode.isEmpty()) {
+            return false;
+        }
+
+        if (exitCode.getAsInt() != 0) {
+            //Only failures to run the tool fall back to a forked JVM, failures of the tool itself are reported as they are.
+            throw new GradleException("%s finished with non-zero exit value %d in a tool daemon".formatted(mainClass, exitCode.getAsInt()));
+        }
+
+        return true;
+    }
+
+    private void applyForked(String mainClass, List<String> args, ConfigurableFileCollection classpath, File workingDirectory, boolean debug, PrintWriter log) {
+        getProject().javaexec(spec -> {
+            spec.setExecutable(getEffectiveExecutable());
+            spec.setDebug(debug);
+            spec.setArgs(args);
+            spec.setClasspath(classpath);
+            spec.setWorkingDir(workingDirectory);
+            spec.getMainClass().set(mainClass);
+
+            log.println("Java Launcher: " + spec.getExecutable());
+            log.println("Arguments: " + args.stream().collect(Collectors.joining(", ", "'", "'")));
+            log.println("Classpath:");
+            classpath.forEach(f -> log.println(" - " + f.getAbsolutePath()));
+            log.println("Working directory: " + workingDirectory.getAbsolutePath());
+            log.println("Main class: " + mainClass);
+            log.println("====================================");
+
+            spec.setStandardOutput(new OutputStream() {
+                @Override
+                public void flush() { log.flush(); }
+                @Override
+                public void close() {}
+                @Override
+                public void write(int b) { log.write(b); }
+            });
+        }).rethrowFailure().assertNormalExitValue();
+    }
+
     protected List<String> filterArgs(List<String> args) {
         return args;
     }
@@ -221,6 +280,15 @@ public abstract class JarExec extends DownloadingTask {
     @Optional
     public abstract Property<JavaLauncher> getJavaLauncher();
 
+    /**
+     * @return How the tool is run, it produces the same output in every mode. Debugging always forks.
+     */
+    @Internal
+    public abstract Property<ToolExecutionMode> getExecutionMode();
+
+    @ServiceReference(ToolExecutionService.NAME)
+    public abstract Property<ToolExecutionService> getToolExecution();
+
     public void setMinimumRuntimeJavaVersion(int version) {
         if (!getJavaLauncher().isPresent() || !getJavaLauncher().get().getMetadata().getLanguageVersion().canCompileOrRun(version)) {
             setRuntimeJavaVersion(version);
@@ -239,6 +307,14 @@ public abstract class JarExec extends DownloadingTask {
         getJavaLauncher().set(getJavaToolchainService().launcherFor(action));
     }
 
+    private int getEffectiveJavaVersion() {
+        if (getJavaLauncher().isPresent()) {
+            return getJavaLauncher().get().getMetadata().getLanguageVersion().asInt();
+        } else {
+            return Integer.parseInt(Objects.requireNonNull(Jvm.current().getJavaVersion()).getMajorVersion());
+        }
+    }
+
     private String getEffectiveExecutable() {
         if (getJavaLauncher().isPresent()) {
             return getJavaLauncher().get().getExecutablePath().toString();
@@ -4,6 +4,7 @@ import net.neoforged.gradle.common.util.FileDownloadingUtils;
 import net.neoforged.gradle.common.util.VersionJson;
 import net.neoforged.gradle.dsl.common.tasks.NeoGradleBase;
 import net.neoforged.gradle.util.CopyingFileTreeVisitor;
+import net.neoforged.gradle.util.ZipExtractor;
 import org.apache.commons.io.FileUtils;
 import org.gradle.api.file.DirectoryProperty;
 import org.gradle.api.file.RegularFileProperty;
@@ -124,7 +125,7 @@ public abstract class RenderDocDownloaderTask extends NeoGradleBase {
         throw new IllegalStateException("Unsupported OS: " + VersionJson.OS.getCurrent().name());
     }
 
-    private void extractOSSpecific(final File input) {
+    private void extractOSSpecific(final File input) throws IOException {
         if (VersionJson.OS.getCurrent() == VersionJson.OS.WINDOWS) {
             extractWindows(input);
         } else if (VersionJson.OS.getCurrent() == VersionJson.OS.LINUX) {
@@ -134,11 +135,10 @@ public abstract class RenderDocDownloaderTask extends NeoGradleBase {
         }
     }
 
-    private void extractWindows(final File input) {
+    private void extractWindows(final File input) throws IOException {
         final File output = getRenderDocInstallationDirectory().get().getAsFile();
 
-        final CopyingFileTreeVisitor visitor = new CopyingFileTreeVisitor(output.toPath());
-        getArchiveOperations().zipTree(input).visit(visitor);
+        new ZipExtractor().extract(input, output);
     }
 
     private void extractLinux(final File input) {
@@ -0,0 +1,341 @@
+package net.neoforged.gradle.common.util;
+
+import net.neoforged.gradle.common.util.download.ArtifactStore;
+import net.neoforged.gradle.util.HashFunction;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.jar.Attributes;
+import java.util.jar.Manifest;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * A server jar, which might be a bundle of the actual server jar and its libraries, as shipped since 1.18.
+ * <p>
+ * The archive is opened once, and the lists of bundled versions and libraries are read when it is opened, so all
+ * further queries are answered from memory. Nested jars are extracted with their hash verified while they are written,
+ * and in parallel, as a bundle contains dozens of libraries.
+ */
+public final class BundledServer implements Closeable {
+
+    private static final Attributes.Name FORMAT = new Attributes.Name("Bundler-Format");
+    private static final String VERSIONS = "META-INF/versions/";
+    private static final String LIBRARIES = "META-INF/libraries/";
+    private static final String STAGING_EXTENSION = ".tmp";
+    private static final int DEFAULT_PARALLELISM = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors()));
+
+    private final ZipFile zip;
+    private final boolean bundled;
+    @Nullable
+    private final String format;
+    @Nullable
+    private final String mainClass;
+    private final List<Entry> versions;
+    private final List<Entry> libraries;
+
+    private BundledServer(ZipFile zip) throws IOException {
+        this.zip = zip;
+        this.bundled = zip.getEntry("META-INF/classpath-joined") != null &&
+                zip.getEntry("META-INF/libraries.list") != null &&
+                zip.getEntry("META-INF/versions.list") != null &&
+                zip.getEntry("META-INF/main-class") != null &&
+                zip.getEntry("versions.json") != null;
+        this.format = readFormat(zip);
+        this.mainClass = zip.getEntry("META-INF/main-class") != null ? readLines(zip, "META-INF/main-class").stream().findFirst().orElse(null) : null;
+        this.versions = zip.getEntry("META-INF/versions.list") != null ? readList(zip, "META-INF/versions.list") : List.of();
+        this.libraries = zip.getEntry("META-INF/libraries.list") != null ? readList(zip, "META-INF/libraries.list") : List.of();
+    }
+
+    /**
+     * Opens the given server jar, and reads its index.
+     *
+     * @param serverJar The server jar.
+     * @return The opened server jar, which needs to be closed.
+     * @throws IOException If the jar could not be read, or contains an invalid list.
+     */
+    public static BundledServer open(File serverJar) throws IOException {
+        final ZipFile zip = new ZipFile(serverJar);
+        try {
+            return new BundledServer(zip);
+        } catch (IOException | RuntimeException e) {
+            zip.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @return True if the jar is a complete bundle, false if it is the server jar itself.
+     */
+    public boolean isBundled() {
+        return bundled;
+    }
+
+    /**
+     * @return The bundler format of the manifest, or null if the manifest does not declare one.
+     */
+    @Nullable
+    public String getFormat() {
+        return format;
+    }
+
+    /**
+     * @return The main class of the bundled server, or null if the jar does not declare one.
+     */
+    @Nullable
+    public String getMainClass() {
+        return mainClass;
+    }
+
+    /**
+     * @return The bundled versions, of which the first one is the server itself.
+     */
+    public List<Entry> getVersions() {
+        return versions;
+    }
+
+    /**
+     * @return The bundled libraries.
+     */
+    public List<Entry> getLibraries() {
+        return libraries;
+    }
+
+    /**
+     * @return The bundled server version.
+     * @throws IllegalStateException If the bundle does not contain a version.
+     */
+    public Entry getVersion() {
+        if (versions.isEmpty()) {
+            throw new IllegalStateException("Failed to find version in versions.list");
+        }
+
+        return versions.get(0);
+    }
+
+    /**
+     * Extracts the bundled server jar, unless the output already is the bundled jar.
+     *
+     * @param output The file to extract the server jar to.
+     * @return True if the output was written.
+     * @throws IOException If the jar could not be extracted, or does not match its hash.
+     */
+    public boolean extractVersion(File output) throws IOException {
+        return extract(VERSIONS, getVersion(), output);
+    }
+
+    /**
+     * Extracts all bundled libraries in parallel, skipping those whose target already is the bundled library.
+     *
+     * @param directory The directory to extract the libraries to, using their path in the bundle.
+     * @param store The store to materialize the libraries from, or null to extract them directly.
+     * @return The extracted libraries, in the order of the bundle.
+     * @throws IOException If a library could not be extracted, or does not match its hash.
+     */
+    public List<File> extractLibraries(File directory, @Nullable ArtifactStore store) throws IOException {
+        return extractLibraries(directory, store, DEFAULT_PARALLELISM);
+    }
+
+    List<File> extractLibraries(File directory, @Nullable ArtifactStore store, int parallelism) throws IOException {
+        final List<File> targets = new ArrayList<>(libraries.size());
+        for (Entry library : libraries) {
+            targets.add(new File(directory, library.path()));
+        }
+
+        final int threads = Math.min(parallelism, libraries.size());
+        if (threads <= 1) {
+            for (int i = 0; i < libraries.size(); i++) {
+                extractLibrary(libraries.get(i), targets.get(i), store);
+            }
+            return targets;
+        }
+
+        final ExecutorService executor = Executors.newFixedThreadPool(threads, runnable -> {
+            final Thread thread = new Thread(runnable, "bundled-server-extractor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            final List<Future<Boolean>> futures = new ArrayList<>(libraries.size());
+            for (int i = 0; i < libraries.size(); i++) {
+                final Entry library = libraries.get(i);
+                final File target = targets.get(i);
+                futures.add(executor.submit(() -> extractLibrary(library, target, store)));
+            }
+
+            for (Future<Boolean> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof IOException io) {
+                        throw io;
+                    }
+                    throw new IOException("Failed to extract a bundled library", e.getCause());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while extracting the bundled libraries", e);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        return targets;
+    }
+
+    private boolean extractLibrary(Entry library, File target, @Nullable ArtifactStore store) throws IOException {
+        if (store == null) {
+            return extract(LIBRARIES, library, target);
+        }
+
+        final ZipEntry entry = entryOf(LIBRARIES, library);
+        return store.materialize(library.hash(), target, (ArtifactStore.VerifyingSource) staging -> write(entry, library, staging));
+    }
+
+    private boolean extract(String prefix, Entry bundled, File target) throws IOException {
+        final ZipEntry entry = entryOf(prefix, bundled);
+        final Path path = target.toPath();
+        if (matches(entry, bundled, path)) {
+            return false;
+        }
+
+        final Path parent = target.getAbsoluteFile().getParentFile().toPath();
+        Files.createDirectories(parent);
+        final Path staging = Files.createTempFile(parent, target.getName(), STAGING_EXTENSION);
+        try {
+            write(entry, bundled, staging);
+            setLastModifiedTime(staging, entry);
+            try {
+                Files.move(staging, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(staging, path, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(staging);
+        }
+        return true;
+    }
+
+    /**
+     * Checks whether the target already is the bundled file. Extracted files carry the time of their entry, so they
+     * are recognized without reading them, other files of the same size are identified by their hash.
+     */
+    private static boolean matches(ZipEntry entry, Entry bundled, Path target) throws IOException {
+        if (!Files.isRegularFile(target) || Files.size(target) != entry.getSize()) {
+            return false;
+        }
+
+        if (entry.getTime() != -1 && Files.getLastModifiedTime(target).toMillis() == entry.getTime()) {
+            return true;
+        }
+
+        if (!HashFunction.SHA1.hash(target).equalsIgnoreCase(bundled.hash())) {
+            return false;
+        }
+
+        setLastModifiedTime(target, entry);
+        return true;
+    }
+
+    /**
+     * Writes the entry to the file, hashing it while it is written, so it never needs to be read again.
+     */
+    private void write(ZipEntry entry, Entry bundled, Path file) throws IOException {
+        final MessageDigest digest = HashFunction.SHA1.get();
+        try (InputStream input = new DigestInputStream(zip.getInputStream(entry), digest);
+             OutputStream output = Files.newOutputStream(file)) {
+            input.transferTo(output);
+        }
+
+        final String hash = HashFunction.SHA1.pad(new BigInteger(1, digest.digest()).toString(16));
+        if (!hash.equalsIgnoreCase(bundled.hash())) {
+            Files.deleteIfExists(file);
+            throw new IOException("The bundled file %s does not match its expected hash. Expected: %s Actual: %s".formatted(entry.getName(), bundled.hash(), hash));
+        }
+    }
+
+    private ZipEntry entryOf(String prefix, Entry bundled) throws IOException {
+        final ZipEntry entry = zip.getEntry(prefix + bundled.path());
+        if (entry == null) {
+            throw new IOException("The bundle does not contain the listed file: " + prefix + bundled.path());
+        }
+        return entry;
+    }
+
+    private static void setLastModifiedTime(Path file, ZipEntry entry) throws IOException {
+        if (entry.getTime() != -1) {
+            Files.setLastModifiedTime(file, FileTime.fromMillis(entry.getTime()));
+        }
+    }
+
+    @Nullable
+    private static String readFormat(ZipFile zip) throws IOException {
+        final ZipEntry entry = zip.getEntry("META-INF/MANIFEST.MF");
+        if (entry == null) {
+            return null;
+        }
+
+        try (InputStream input = zip.getInputStream(entry)) {
+            return new Manifest(input).getMainAttributes().getValue(FORMAT);
+        }
+    }
+
+    private static List<Entry> readList(ZipFile zip, String name) throws IOException {
+        final List<Entry> entries = new ArrayList<>();
+        for (String line : readLines(zip, name)) {
+            if (line.isBlank()) {
+                continue;
+            }
+
+            final String[] parts = line.split("\t");
+            if (parts.length != 3) {
+                throw new IllegalStateException("Invalid file list line: " + line);
+            }
+            entries.add(new Entry(parts[0], parts[1], parts[2]));
+        }
+        return Collections.unmodifiableList(entries);
+    }
+
+    private static List<String> readLines(ZipFile zip, String name) throws IOException {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(zip.getInputStream(zip.getEntry(name)), StandardCharsets.UTF_8))) {
+            return reader.lines().toList();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        zip.close();
+    }
+
+    /**
+     * A line of a file list of the bundle.
+     *
+     * @param hash The SHA1 hash of the file.
+     * @param id The id of the file, the version or the maven coordinate of a library.
+     * @param path The path of the file, relative to the directory of its list.
+     */
+    public record Entry(String hash, String id, String path) {
+    }
+}
@@ -5,9 +5,15 @@ import net.neoforged.gradle.dsl.common.runtime.definition.Definition;
 import net.neoforged.gradle.dsl.common.tasks.WithOutput;
 import net.neoforged.gradle.dsl.common.util.CommonRuntimeUtils;
 import net.neoforged.gradle.util.StringCapitalizationUtils;
+import org.gradle.api.Action;
 import org.gradle.api.file.FileCollection;
 import org.gradle.api.file.FileTree;
+import org.gradle.api.file.RegularFile;
+import org.gradle.api.provider.Provider;
 import org.gradle.api.tasks.TaskProvider;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
 
 public final class CommonRuntimeTaskUtils {
 
@@ -15,21 +21,41 @@ public final class CommonRuntimeTaskUtils {
         throw new IllegalStateException("Can not instantiate an instance of: CommonRuntimeTaskUtils. This is a utility class");
     }
 
-    public static TaskProvider<? extends SourceAccessTransformer> createSourceAccessTransformer(Definition<?> definition, String namePreFix, FileTree files, TaskProvider<? extends WithOutput> listLibs, FileCollection additionalClasspathElements) {
-        return definition.getSpecification().getProject().getTasks().register(CommonRuntimeUtils.buildTaskName(definition.getSpecification(), String.format("apply%sAccessTransformer", StringCapitalizationUtils.capitalize(namePreFix))), SourceAccessTransformer.class, task -> {
-            task.getTransformers().from(files);
-            task.dependsOn(listLibs);
-            task.getLibraries().set(listLibs.flatMap(WithOutput::getOutput));
-            task.getClasspath().from(additionalClasspathElements);
+    public static TaskProvider<? extends SourceTransformation> createSourceAccessTransformer(Definition<?> definition, String namePreFix, Provider<? extends WithOutput> input, FileTree files, TaskProvider<? extends WithOutput> listLibs, FileCollection additionalClasspathElements) {
+        final String name = CommonRuntimeUtils.buildTaskName(definition.getSpecification(), String.format("apply%sAccessTransformer", StringCapitalizationUtils.capitalize(namePreFix)));
+        return register(definition, name, SourceAccessTransformer.class, input, listLibs.flatMap(WithOutput::getOutput), additionalClasspathElements, task -> {
+            task.getAccessTransformers().from(files);
         });
     }
 
-    public static TaskProvider<? extends SourceInterfaceInjection> createSourceInterfaceInjection(Definition<?> definition, String namePreFix, FileTree files, TaskProvider<? extends WithOutput> listLibs, FileCollection additionalClasspathElements) {
-        return definition.getSpecification().getProject().getTasks().register(CommonRuntimeUtils.buildTaskName(definition.getSpecification(), String.format("apply%sInterfaceInjection", StringCapitalizationUtils.capitalize(namePreFix))), SourceInterfaceInjection.class, task -> {
-            task.getTransformers().from(files);
-            task.dependsOn(listLibs);
-            task.getLibraries().set(listLibs.flatMap(WithOutput::getOutput));
+    public static TaskProvider<? extends SourceTransformation> createSourceInterfaceInjection(Definition<?> definition, String namePreFix, Provider<? extends WithOutput> input, FileTree files, TaskProvider<? extends WithOutput> listLibs, FileCollection additionalClasspathElements) {
+        final String name = CommonRuntimeUtils.buildTaskName(definition.getSpecification(), String.format("apply%sInterfaceInjection", StringCapitalizationUtils.capitalize(namePreFix)));
+        return register(definition, name, SourceInterfaceInjection.class, input, listLibs.flatMap(WithOutput::getOutput), additionalClasspathElements, task -> {
+            task.getInterfaceInjectionData().from(files);
+        });
+    }
+
+    public static TaskProvider<? extends SourceTransformation> createSourceParchment(Definition<?> definition, Provider<? extends WithOutput> input, Provider<RegularFile> libraries, FileCollection additionalClasspathElements, Provider<File> mappings, @Nullable Provider<String> conflictPrefix) {
+        final String name = CommonRuntimeUtils.buildTaskName(definition.getSpecification(), "applyParchment");
+        return register(definition, name, SourceTransformation.class, input, libraries, additionalClasspathElements, task -> {
+            task.getParchmentMappings().fileProvider(mappings);
+            if (conflictPrefix != null) {
+                task.getParchmentConflictPrefix().set(conflictPrefix);
+            }
+        });
+    }
+
+    /**
+     * Registers the task of a single transformation, which runs JST on its own and is cached under its own inputs.
+     */
+    private static TaskProvider<? extends SourceTransformation> register(Definition<?> definition, String name, Class<? extends SourceTransformation> type, Provider<? extends WithOutput> input, Provider<RegularFile> libraries, FileCollection additionalClasspathElements, Action<SourceTransformation> transformation) {
+        return definition.getSpecification().getProject().getTasks().register(name, type, task -> {
+            task.getInputFile().set(input.flatMap(WithOutput::getOutput));
+            task.dependsOn(input);
+            task.getLibraries().set(libraries);
+            task.dependsOn(libraries);
             task.getClasspath().from(additionalClasspathElements);
+            transformation.execute(task);
         });
     }
 
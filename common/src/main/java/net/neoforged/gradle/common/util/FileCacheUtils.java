@@ -88,4 +88,9 @@ public final class FileCacheUtils {
     public static DirectoryProperty getLibrariesCacheDirectory(Project project) {
         return project.getObjects().directoryProperty().fileValue(new File(project.getGradle().getGradleUserHomeDir(), "caches/minecraft/libraries"));
     }
+    
+    @NotNull
+    public static DirectoryProperty getArtifactStoreDirectory(Project project) {
+        return project.getObjects().directoryProperty().fileValue(new File(project.getGradle().getGradleUserHomeDir(), "caches/minecraft/artifacts"));
+    }
 }
@@ -1,5 +1,9 @@
 package net.neoforged.gradle.common.util;
 
+import net.neoforged.gradle.common.util.download.ArtifactStore;
+import net.neoforged.gradle.common.util.download.DownloadIndex;
+import net.neoforged.gradle.common.util.download.DownloadScheduler;
+import net.neoforged.gradle.common.util.download.ResumableDownloader;
 import net.neoforged.gradle.util.HashFunction;
 import org.gradle.api.tasks.Input;
 import org.gradle.api.tasks.Optional;
@@ -7,26 +11,32 @@ import org.gradle.api.tasks.Optional;
 import javax.annotation.Nullable;
 import java.io.File;
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.Serializable;
-import java.net.HttpURLConnection;
 import java.net.URL;
-import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.StandardCopyOption;
 import java.nio.file.attribute.FileTime;
 
 public final class FileDownloadingUtils {
 
+    private static final ResumableDownloader DOWNLOADER = new ResumableDownloader();
+
     private FileDownloadingUtils() {
         throw new IllegalStateException("Can not instantiate an instance of: FileDownloadingUtils. This is a utility class");
     }
 
 
     public static boolean downloadThrowing(boolean isOffline, FileDownloadingUtils.DownloadInfo info, File file) {
+        return downloadThrowing(isOffline, info, file, null);
+    }
+
+    public static boolean downloadThrowing(boolean isOffline, FileDownloadingUtils.DownloadInfo info, File file, @Nullable DownloadIndex index) {
+        return downloadThrowing(isOffline, info, file, index, null);
+    }
+
+    public static boolean downloadThrowing(boolean isOffline, FileDownloadingUtils.DownloadInfo info, File file, @Nullable DownloadIndex index, @Nullable DownloadScheduler scheduler) {
         try {
-            return downloadTo(isOffline, info, file);
+            return downloadTo(isOffline, info, file, null, index, scheduler);
         } catch (IOException e) {
             throw new RuntimeException(String.format("Failed to download the file from: %s to: %s", info.url, file), e);
         }
@@ -36,6 +46,29 @@ public final class FileDownloadingUtils {
      * @return True if a file was downloaded, false if the file was already up-to-date.
      */
     public static boolean downloadTo(boolean isOffline, DownloadInfo info, File file) throws IOException {
+        return downloadTo(isOffline, info, file, (DownloadIndex) null);
+    }
+
+    /**
+     * Downloads a file, but skips the request if the given index knows the file to be up-to-date.
+     *
+     * @return True if a file was downloaded, false if the file was already up-to-date.
+     */
+    public static boolean downloadTo(boolean isOffline, DownloadInfo info, File file, @Nullable DownloadIndex index) throws IOException {
+        return downloadTo(isOffline, info, file, index, (DownloadScheduler) null);
+    }
+
+    /**
+     * Downloads a file, but skips the request if the given index knows the file to be up-to-date, and schedules the
+     * request through the given scheduler.
+     *
+     * @return True if a file was downloaded, false if the file was already up-to-date.
+     */
+    public static boolean downloadTo(boolean isOffline, DownloadInfo info, File file, @Nullable DownloadIndex index, @Nullable DownloadScheduler scheduler) throws IOException {
+        if (!isOffline && index != null && isUpToDate(info, file, index)) {
+            return false;
+        }
+
         // Check if file exists in local installer cache
         if (info.type != null && info.type.equals("jar") && info.side.equals("client")) {
             File localPath = new File(getMCDir() + File.separator + "versions" + File.separator + info.version + File.separator + info.version + ".jar");
@@ -46,7 +79,7 @@ public final class FileDownloadingUtils {
         }
 
         if (!isOffline) {
-            return copyURLToFileIfNewer(new URL(info.url), file.toPath());
+            return copyURLToFileIfNewer(new URL(info.url), file.toPath(), index, scheduler);
         } else if (!file.exists()) {
             throw new RuntimeException("Could not find the file: " + file + " and we are offline.");
         } else {
@@ -55,95 +88,106 @@ public final class FileDownloadingUtils {
     }
 
     /**
-     * Downloads a file, but attempts to make a conditional request to only re-download if the file has been
-     * changed on the remote-server.
+     * Downloads a file with a known hash through the given artifact store, so it is only downloaded once for all
+     * projects and versions, and linked to the file.
+     *
+     * @return True if the file was written, false if the file was already up-to-date.
      */
-    private static boolean copyURLToFileIfNewer(URL url, Path target) throws IOException {
-        HttpURLConnection urlConnection = (HttpURLConnection) url.openConnection();
-
-        urlConnection.setUseCaches(true);
-        urlConnection.setInstanceFollowRedirects(true);
-        urlConnection.setRequestProperty("User-Agent", "NeoGradle: %s".formatted(NeoGradleUtils.getNeogradleVersion()));
+    public static boolean downloadTo(boolean isOffline, DownloadInfo info, File file, @Nullable ArtifactStore store) throws IOException {
+        return downloadTo(isOffline, info, file, store, null);
+    }
 
-        try {
-            // Do a Conditional If-Modified-Since request
-            if (Files.isRegularFile(target)) {
-                FileTime lastModified = Files.getLastModifiedTime(target);
-                urlConnection.setIfModifiedSince(lastModified.toMillis());
-
-                // Accessing the response code will cause the request to be sent
-                if (urlConnection.getResponseCode() == HttpURLConnection.HTTP_NOT_MODIFIED) {
-                    // Double-Check here -> If the server also returns a last-modified date,
-                    // and that is different from our local date, re-download!
-                    // This could occur if the local file was modified and is now newer than the original.
-                    if (urlConnection.getLastModified() != 0 && urlConnection.getLastModified() != urlConnection.getIfModifiedSince()) {
-                        urlConnection.disconnect();
-                        urlConnection = (HttpURLConnection) url.openConnection();
-                    } else {
-                        return false;
-                    }
-                }
-            }
+    /**
+     * Downloads a file with a known hash through the given artifact store, and skips requests for files which the given
+     * index knows to be up-to-date.
+     *
+     * @return True if the file was written, false if the file was already up-to-date.
+     */
+    public static boolean downloadTo(boolean isOffline, DownloadInfo info, File file, @Nullable ArtifactStore store, @Nullable DownloadIndex index) throws IOException {
+        return downloadTo(isOffline, info, file, store, index, null);
+    }
 
-            if (urlConnection.getResponseCode() != 200) {
-                throw new IOException("Failed to download " + url + ", HTTP-Status: "
-                        + urlConnection.getResponseCode());
-            }
+    /**
+     * Downloads a file with a known hash through the given artifact store, skips requests for files which the given
+     * index knows to be up-to-date, and schedules the remaining requests through the given scheduler.
+     *
+     * @return True if the file was written, false if the file was already up-to-date.
+     */
+    public static boolean downloadTo(boolean isOffline, DownloadInfo info, File file, @Nullable ArtifactStore store, @Nullable DownloadIndex index, @Nullable DownloadScheduler scheduler) throws IOException {
+        if (store == null || info.hash == null) {
+            return downloadTo(isOffline, info, file, index, scheduler);
+        }
 
-            // Resolve a relative path to get a proper parent directory
-            if (target.getParent() == null) {
-                target = target.toAbsolutePath();
-            }
+        return store.materialize(info.hash, file, staging -> downloadTo(isOffline, info, staging.toFile(), index, scheduler));
+    }
 
-            // Always download to a temp-file to avoid partially downloaded files persisting a VM crash/shutdown
-            Files.createDirectories(target.getParent());
-            Path tempFile = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".download");
+    /**
+     * Files with a known hash are up-to-date once they are present, other files only until their entry has to be revalidated.
+     */
+    private static boolean isUpToDate(DownloadInfo info, File file, DownloadIndex index) throws IOException {
+        final DownloadIndex.Entry entry = index.find(info.url);
+        if (info.hash == null) {
+            return entry != null && entry.describes(file) && index.isFresh(entry);
+        }
 
-            try {
-                try (InputStream stream = urlConnection.getInputStream()) {
-                    Files.copy(stream, tempFile, StandardCopyOption.REPLACE_EXISTING);
-                }
+        if (entry != null && entry.describes(file) && entry.sha1().equalsIgnoreCase(info.hash)) {
+            return true;
+        }
 
-                move(target, tempFile);
+        // Present, but not indexed yet, like files downloaded before the index was used
+        if (file.isFile() && HashFunction.SHA1.hash(file).equalsIgnoreCase(info.hash)) {
+            index.record(info.url, file, info.hash, entry != null ? entry.etag() : null);
+            return true;
+        }
 
-                if (urlConnection.getLastModified() != 0) {
-                    Files.setLastModifiedTime(target, FileTime.fromMillis(urlConnection.getLastModified()));
-                }
+        return false;
+    }
 
-                return true;
-            } finally {
-                Files.deleteIfExists(tempFile);
-            }
-        } finally {
-            urlConnection.disconnect();
+    /**
+     * Downloads a file, but attempts to make a conditional request to only re-download if the file has been
+     * changed on the remote-server.
+     * Interrupted downloads are resumed from their partial file, instead of starting over.
+     * If an index is given, the ETag it knows for the file is used as well, and the result is recorded in it.
+     * The requests are made in the lane of the game files, as these are needed by most tasks of a build.
+     */
+    private static boolean copyURLToFileIfNewer(URL url, Path target, @Nullable DownloadIndex index, @Nullable DownloadScheduler scheduler) throws IOException {
+        try (DownloadScheduler.Permit permit = (scheduler == null ? DownloadScheduler.UNLIMITED : scheduler).acquire(url, DownloadScheduler.Lane.GAME)) {
+            return copyURLToFileIfNewer(url, target, index, permit.throttling(ResumableDownloader.Listener.NONE));
         }
     }
 
-    private static void move(Path target, Path tempFile) throws IOException {
-        int tries = 0;
-        while (true) {
-            tries++;
-            try {
-                try {
-                    Files.move(tempFile, target, StandardCopyOption.ATOMIC_MOVE);
-                } catch (AtomicMoveNotSupportedException e) {
-                    // Atomic moves within the same directory should have worked.
-                    // We fall back to the inferior normal move. We should log this issue, but there is no logger here.
-                    Files.move(tempFile, target, StandardCopyOption.REPLACE_EXISTING);
-                }
-                break;
-            } catch (IOException e) {
-                if (tries >= 5) {
-                    throw e;
-                }
-                // Wait a bit to give whatever concurrent process has it locked to unlock...
-                try {
-                    Thread.sleep(5000);
-                } catch (InterruptedException ex) {
-                    Thread.currentThread().interrupt();
+    private static boolean copyURLToFileIfNewer(URL url, Path target, @Nullable DownloadIndex index, ResumableDownloader.Listener listener) throws IOException {
+        final DownloadIndex.Entry entry = index == null ? null : index.find(url.toString());
+        final boolean indexed = entry != null && entry.describes(target.toFile());
+
+        // Do a Conditional If-Modified-Since request, and If-None-Match if the ETag of the local file is known
+        final long ifModifiedSince = Files.isRegularFile(target) ? Files.getLastModifiedTime(target).toMillis() : 0;
+        final String ifNoneMatch = indexed ? entry.etag() : null;
+        ResumableDownloader.Download download = DOWNLOADER.download(url, target, ifModifiedSince, ifNoneMatch, listener);
+        if (!download.modified()) {
+            // Double-Check here -> If the server also returns a last-modified date,
+            // and that is different from our local date, re-download!
+            // This could occur if the local file was modified and is now newer than the original.
+            // A matching ETag of an indexed file already proves that the local file is the one on the server.
+            if (ifNoneMatch == null && download.lastModified() != 0 && download.lastModified() != ifModifiedSince) {
+                download = DOWNLOADER.download(url, target, 0, listener);
+            } else {
+                if (index != null) {
+                    index.record(url.toString(), target.toFile(), indexed ? entry.sha1() : HashFunction.SHA1.hash(target), download.etag());
                 }
+                return false;
             }
         }
+
+        if (download.lastModified() != 0) {
+            Files.setLastModifiedTime(target, FileTime.fromMillis(download.lastModified()));
+        }
+
+        if (index != null) {
+            index.record(url.toString(), target.toFile(), HashFunction.SHA1.hash(target), download.etag());
+        }
+
+        return true;
     }
 
     public static File getMCDir() {
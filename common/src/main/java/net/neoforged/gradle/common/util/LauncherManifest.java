@@ -0,0 +1,69 @@
+package net.neoforged.gradle.common.util;
+
+import com.google.gson.Gson;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * The parts of the launcher manifest, which lists all game versions, that are needed to resolve a version.
+ * It can not be modified once parsed, as it is shared by all projects of a build.
+ */
+public final class LauncherManifest implements Serializable {
+
+    private static final Gson GSON = new Gson();
+
+    private List<Version> versions = new ArrayList<>();
+
+    public static LauncherManifest get(File file) throws IOException {
+        try (InputStream in = Files.newInputStream(file.toPath())) {
+            return get(in);
+        }
+    }
+
+    public static LauncherManifest get(InputStream stream) {
+        return GSON.fromJson(new InputStreamReader(stream, StandardCharsets.UTF_8), LauncherManifest.class);
+    }
+
+    public List<Version> getVersions() {
+        return versions == null ? List.of() : Collections.unmodifiableList(versions);
+    }
+
+    /**
+     * @param version The id of the version, or {@code +} for the latest version.
+     * @return The version, or null if the manifest does not list it.
+     */
+    @Nullable
+    public Version find(String version) {
+        for (Version candidate : getVersions()) {
+            if (version.equals("+") || Objects.equals(candidate.getId(), version)) {
+                return candidate;
+            }
+        }
+
+        return null;
+    }
+
+    public static final class Version implements Serializable {
+        private String id;
+        private String url;
+
+        public String getId() {
+            return id;
+        }
+
+        public String getUrl() {
+            return url;
+        }
+    }
+}
@@ -98,7 +98,7 @@ public class VersionJson implements Serializable {
                 }
             }
 
-            _natives = natives.values().stream().map(Entry::download).collect(Collectors.toList());
+            _natives = List.copyOf(natives.values().stream().map(Entry::download).collect(Collectors.toList()));
         }
         return _natives;
     }
@@ -135,7 +135,7 @@ public class VersionJson implements Serializable {
 
     @Nullable
     public Map<String, Download> getDownloads() {
-        return downloads;
+        return downloads == null ? null : Collections.unmodifiableMap(downloads);
     }
 
     public JavaVersion getJavaVersion() {
@@ -155,6 +155,13 @@ public class VersionJson implements Serializable {
         return _libraries;
     }
 
+    /**
+     * @return All libraries, including the ones which are not allowed on the current platform.
+     */
+    public List<Library> getAllLibraries() {
+        return libraries == null ? Collections.emptyList() : Collections.unmodifiableList(Arrays.asList(libraries));
+    }
+
     public String getType() {
         return type;
     }
@@ -186,20 +193,20 @@ public class VersionJson implements Serializable {
         private Argument[] jvm;
 
         public Argument[] getGame() {
-            return game;
+            return game == null ? null : game.clone();
         }
 
         public Argument[] getJvm() {
-            return jvm == null ? new Argument[0] : jvm;
+            return jvm == null ? new Argument[0] : jvm.clone();
         }
     }
 
     public static class Argument extends RuledObject implements Serializable {
-        public List<String> value;
+        public final List<String> value;
 
         public Argument(@Nullable Rule[] rules, List<String> value) {
             this.rules = rules;
-            this.value = value;
+            this.value = Collections.unmodifiableList(value);
         }
 
         public static class Deserializer implements JsonDeserializer<VersionJson.Argument> {
@@ -228,8 +235,8 @@ public class VersionJson implements Serializable {
         protected Rule[] rules;
 
         public boolean isAllowed() {
-            if (getRules() != null) {
-                for (Rule rule : getRules()) {
+            if (rules != null) {
+                for (Rule rule : rules) {
                     if (!rule.allowsAction()) {
                         return false;
                     }
@@ -240,7 +247,7 @@ public class VersionJson implements Serializable {
 
         @Nullable
         public Rule[] getRules() {
-            return rules;
+            return rules == null ? null : rules.clone();
         }
     }
 
@@ -350,7 +357,7 @@ public class VersionJson implements Serializable {
 
         @Nullable
         public Map<String, LibraryDownload> getClassifiers() {
-            return classifiers;
+            return classifiers == null ? null : Collections.unmodifiableMap(classifiers);
         }
 
         @Nullable
@@ -378,7 +385,7 @@ public class VersionJson implements Serializable {
         }
 
         public Map<String, String> getNatives() {
-            return natives;
+            return natives == null ? null : Collections.unmodifiableMap(natives);
         }
 
         public Downloads getDownloads() {
@@ -0,0 +1,198 @@
+package net.neoforged.gradle.common.util.decompile;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The parts of a class file which decide which other classes its decompiled source depends on.
+ * <p>
+ * Only the constant pool, the constant values of fields and the nesting attributes are read, which is enough to find
+ * the classes a class refers to, the source file it is decompiled into, and the literals it may have inlined from
+ * constants of other classes.
+ *
+ * @param name The internal name of the class.
+ * @param outerClass The internal name of the class this class is nested in, if any.
+ * @param references The internal names of the classes this class refers to, in its constant pool or its descriptors.
+ * @param literals The int, long, float, double and string literals in the constant pool of the class.
+ * @param constants The constant values of the fields of the class, by name and descriptor.
+ */
+public record ClassFileSummary(String name, @Nullable String outerClass, Set<String> references, Set<Object> literals, Map<String, Object> constants) {
+
+    private static final int MAGIC = 0xCAFEBABE;
+    private static final Pattern DESCRIPTOR_REFERENCE = Pattern.compile("L([^;<>\\[.]+)[;<]");
+
+    /**
+     * Reads the summary of the given class file.
+     *
+     * @param bytes The contents of the class file.
+     * @return The summary.
+     * @throws IOException If the bytes are not a valid class file.
+     */
+    public static ClassFileSummary read(byte[] bytes) throws IOException {
+        final DataInputStream input = new DataInputStream(new ByteArrayInputStream(bytes));
+        if (input.readInt() != MAGIC) {
+            throw new IOException("Not a class file");
+        }
+        input.readUnsignedShort(); //Minor version
+        input.readUnsignedShort(); //Major version
+
+        final int poolSize = input.readUnsignedShort();
+        final Object[] pool = new Object[poolSize];
+        final int[] classes = new int[poolSize];
+        final int[] strings = new int[poolSize];
+        for (int i = 1; i < poolSize; i++) {
+            final int tag = input.readUnsignedByte();
+            switch (tag) {
+                case 1 -> pool[i] = input.readUTF();
+                case 3 -> pool[i] = input.readInt();
+                case 4 -> pool[i] = input.readFloat();
+                case 5 -> pool[i++] = input.readLong();
+                case 6 -> pool[i++] = input.readDouble();
+                case 7 -> classes[i] = input.readUnsignedShort();
+                case 8 -> strings[i] = input.readUnsignedShort();
+                case 16, 19, 20 -> input.readUnsignedShort();
+                case 9, 10, 11, 12, 17, 18 -> input.readInt();
+                case 15 -> {
+                    input.readUnsignedByte();
+                    input.readUnsignedShort();
+                }
+                default -> throw new IOException("Unknown constant pool tag: " + tag);
+            }
+        }
+
+        final Set<String> references = new HashSet<>();
+        final Set<Object> literals = new HashSet<>();
+        for (int i = 1; i < poolSize; i++) {
+            if (classes[i] != 0) {
+                addClassReference(references, (String) pool[classes[i]]);
+            } else if (strings[i] != 0) {
+                literals.add(pool[strings[i]]);
+            } else if (pool[i] instanceof String utf8) {
+                final Matcher matcher = DESCRIPTOR_REFERENCE.matcher(utf8);
+                while (matcher.find()) {
+                    references.add(matcher.group(1));
+                }
+            } else if (pool[i] != null) {
+                literals.add(pool[i]);
+            }
+        }
+
+        input.readUnsignedShort(); //Access flags
+        final String name = className(pool, classes, input.readUnsignedShort());
+        references.remove(name);
+        input.readUnsignedShort(); //Super class
+        input.skipBytes(input.readUnsignedShort() * 2); //Interfaces
+
+        final Map<String, Object> constants = new HashMap<>();
+        final int fieldCount = input.readUnsignedShort();
+        for (int i = 0; i < fieldCount; i++) {
+            input.readUnsignedShort(); //Access flags
+            final String field = pool[input.readUnsignedShort()] + ":" + pool[input.readUnsignedShort()];
+            final int attributeCount = input.readUnsignedShort();
+            for (int j = 0; j < attributeCount; j++) {
+                final String attribute = (String) pool[input.readUnsignedShort()];
+                final int length = input.readInt();
+                if (attribute.equals("ConstantValue")) {
+                    final int index = input.readUnsignedShort();
+                    constants.put(field, strings[index] != 0 ? pool[strings[index]] : pool[index]);
+                } else {
+                    input.skipBytes(length);
+                }
+            }
+        }
+
+        final int methodCount = input.readUnsignedShort();
+        for (int i = 0; i < methodCount; i++) {
+            input.skipBytes(6); //Access flags, name and descriptor
+            skipAttributes(input);
+        }
+
+        String nestHost = null;
+        String declaringClass = null;
+        String enclosingClass = null;
+        final int attributeCount = input.readUnsignedShort();
+        for (int i = 0; i < attributeCount; i++) {
+            final String attribute = (String) pool[input.readUnsignedShort()];
+            final int length = input.readInt();
+            switch (attribute) {
+                case "NestHost" -> nestHost = className(pool, classes, input.readUnsignedShort());
+                case "EnclosingMethod" -> {
+                    enclosingClass = className(pool, classes, input.readUnsignedShort());
+                    input.readUnsignedShort();
+                }
+                case "InnerClasses" -> {
+                    final int count = input.readUnsignedShort();
+                    for (int j = 0; j < count; j++) {
+                        final int inner = input.readUnsignedShort();
+                        final int outer = input.readUnsignedShort();
+                        input.readInt(); //Simple name and access flags
+                        if (outer != 0 && name.equals(className(pool, classes, inner))) {
+                            declaringClass = className(pool, classes, outer);
+                        }
+                    }
+                }
+                default -> input.skipBytes(length);
+            }
+        }
+
+        //The nest host is the top level class, the other attributes only name the next enclosing class.
+        final String outerClass = nestHost != null ? nestHost : declaringClass != null ? declaringClass : enclosingClass;
+        return new ClassFileSummary(name, outerClass, Set.copyOf(references), Set.copyOf(literals), Map.copyOf(constants));
+    }
+
+    /**
+     * Indicates whether javac stores the given constant in the constant pool of the classes which inline it.
+     * Small numbers are pushed by dedicated instructions instead, so their uses can not be found in the constant pool.
+     *
+     * @param value The value of the constant.
+     * @return True if every class which inlines the constant has it in its {@link #literals()}.
+     */
+    public static boolean isPooled(Object value) {
+        if (value instanceof Integer i) {
+            return i < Short.MIN_VALUE || i > Short.MAX_VALUE;
+        }
+        if (value instanceof Long l) {
+            return l != 0L && l != 1L;
+        }
+        if (value instanceof Float f) {
+            return Float.floatToRawIntBits(f) != Float.floatToRawIntBits(0F) && f != 1F && f != 2F;
+        }
+        if (value instanceof Double d) {
+            return Double.doubleToRawLongBits(d) != Double.doubleToRawLongBits(0D) && d != 1D;
+        }
+        return true;
+    }
+
+    private static void addClassReference(Set<String> references, String name) {
+        if (!name.startsWith("[")) {
+            references.add(name);
+            return;
+        }
+
+        final Matcher matcher = DESCRIPTOR_REFERENCE.matcher(name);
+        while (matcher.find()) {
+            references.add(matcher.group(1));
+        }
+    }
+
+    private static String className(Object[] pool, int[] classes, int index) {
+        return (String) pool[classes[index]];
+    }
+
+    private static void skipAttributes(DataInputStream input) throws IOException {
+        final int count = input.readUnsignedShort();
+        for (int i = 0; i < count; i++) {
+            input.readUnsignedShort();
+            input.skipBytes(input.readInt());
+        }
+    }
+}
@@ -0,0 +1,357 @@
+package net.neoforged.gradle.common.util.decompile;
+
+import net.neoforged.gradle.common.util.hash.HashCode;
+import net.neoforged.gradle.common.util.hash.Hashing;
+import org.apache.commons.io.FileUtils;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collection;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Function;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Decompiles a jar incrementally, based on the input and output of the previous decompilation.
+ * <p>
+ * The classes of the input are compared with those of the previous input. A class is decompiled again if it changed, if
+ * it contains a literal which may have been inlined from a changed constant, if it refers to a changed class, or if it
+ * shares a source file with such a class, as the decompiler writes a single source file for a top level class and all
+ * classes nested in it. Classes which only refer to a changed class through other classes keep their sources, so a
+ * change to a widely used class does not decompile most of the jar again.
+ * The sources of the other classes are taken from the previous output, the classes themselves are passed to the
+ * decompiler as a library, so the decompiled sources are the same as those of a full decompilation.
+ * <p>
+ * The previous input and output are kept in a state directory, together with a fingerprint of the decompiler and its
+ * arguments. If the fingerprint changes the whole jar is decompiled again.
+ */
+public final class IncrementalDecompilation {
+
+    /**
+     * The fraction of the classes above which the whole jar is decompiled, as the libraries would cost more than the
+     * few classes which are skipped.
+     */
+    private static final double MAXIMUM_CHANGED_FRACTION = 0.5;
+
+    private static final String CLASS_EXTENSION = ".class";
+    private static final String SOURCE_EXTENSION = ".java";
+
+    private final File stateDirectory;
+
+    public IncrementalDecompilation(File stateDirectory) {
+        this.stateDirectory = stateDirectory;
+    }
+
+    /**
+     * @return True if a previous decompilation was stored, which the next decompilation may be based on.
+     */
+    public boolean hasState() {
+        return getFingerprintFile().isFile() && getPreviousInput().isFile() && getPreviousOutput().isFile();
+    }
+
+    /**
+     * Determines what has to be decompiled to turn the previous output into the output for the given input.
+     *
+     * @param fingerprint The fingerprint of the decompiler, its arguments and its libraries.
+     * @param input The jar to decompile.
+     * @return The plan, or empty if the whole jar has to be decompiled.
+     * @throws IOException If a jar could not be read.
+     */
+    public Optional<Plan> plan(String fingerprint, File input) throws IOException {
+        if (!fingerprint.equals(readFingerprint()) || !getPreviousInput().isFile() || !getPreviousOutput().isFile()) {
+            return Optional.empty();
+        }
+
+        try (ZipFile previous = new ZipFile(getPreviousInput());
+             ZipFile current = new ZipFile(input)) {
+            final Map<String, HashCode> previousEntries = hashEntries(previous);
+            final Map<String, HashCode> currentEntries = hashEntries(current);
+
+            final Map<String, ClassFileSummary> classes = new HashMap<>();
+            for (String entry : currentEntries.keySet()) {
+                if (entry.endsWith(CLASS_EXTENSION)) {
+                    final ClassFileSummary summary = ClassFileSummary.read(read(current, entry));
+                    classes.put(summary.name(), summary);
+                }
+            }
+
+            final Set<String> resources = new TreeSet<>();
+            final Set<String> staleEntries = new TreeSet<>();
+            final Set<String> changed = new HashSet<>();
+            final Set<Object> changedConstants = new HashSet<>();
+            final Map<String, ClassFileSummary> previousClasses = new HashMap<>();
+            for (String entry : union(previousEntries.keySet(), currentEntries.keySet())) {
+                if (Objects.equals(previousEntries.get(entry), currentEntries.get(entry))) {
+                    continue;
+                }
+
+                if (!entry.endsWith(CLASS_EXTENSION)) {
+                    staleEntries.add(entry);
+                    if (currentEntries.containsKey(entry)) {
+                        resources.add(entry);
+                    }
+                    continue;
+                }
+
+                final ClassFileSummary previousClass = previousEntries.containsKey(entry) ? ClassFileSummary.read(read(previous, entry)) : null;
+                final ClassFileSummary currentClass = currentEntries.containsKey(entry) ? ClassFileSummary.read(read(current, entry)) : null;
+                if (previousClass != null) {
+                    previousClasses.put(previousClass.name(), previousClass);
+                    changed.add(previousClass.name());
+                    previousClass.constants().forEach((field, value) -> {
+                        if (currentClass == null || !value.equals(currentClass.constants().get(field))) {
+                            changedConstants.add(value);
+                        }
+                    });
+                }
+                if (currentClass != null) {
+                    changed.add(currentClass.name());
+                }
+            }
+
+            for (Object constant : changedConstants) {
+                if (!ClassFileSummary.isPooled(constant)) {
+                    //The uses of the constant can not be found.
+                    return Optional.empty();
+                }
+            }
+
+            final Set<String> affected = new HashSet<>(changed);
+
+            //Classes which may have inlined one of the changed constants.
+            for (ClassFileSummary summary : classes.values()) {
+                if (summary.literals().stream().anyMatch(changedConstants::contains)) {
+                    affected.add(summary.name());
+                }
+            }
+
+            //The decompiled source of a class only depends on the classes it refers to directly, so the direct referrers of
+            //a changed class are decompiled again, but not the classes which in turn refer to those.
+            for (ClassFileSummary summary : classes.values()) {
+                if (summary.references().stream().anyMatch(changed::contains)) {
+                    affected.add(summary.name());
+                }
+            }
+
+            //The decompiler writes a single source file for a top level class and all classes nested in it, so every
+            //class of a source file with an affected class is decompiled again.
+            //Unchanged classes are the same in both jars, so the previous nesting only differs for the changed classes.
+            final Function<String, ClassFileSummary> previousNesting = name -> previousClasses.getOrDefault(name, classes.get(name));
+            final Set<String> sourceFiles = new HashSet<>();
+            for (String name : affected) {
+                if (previousClasses.containsKey(name)) {
+                    sourceFiles.add(sourceFile(name, previousNesting));
+                }
+                if (classes.containsKey(name)) {
+                    sourceFiles.add(sourceFile(name, classes::get));
+                }
+            }
+            sourceFiles.forEach(sourceFile -> staleEntries.add(sourceFile + SOURCE_EXTENSION));
+
+            final Set<String> decompiled = new TreeSet<>();
+            for (String name : classes.keySet()) {
+                if (sourceFiles.contains(sourceFile(name, classes::get))) {
+                    decompiled.add(name + CLASS_EXTENSION);
+                }
+            }
+
+            if (decompiled.size() > classes.size() * MAXIMUM_CHANGED_FRACTION) {
+                return Optional.empty();
+            }
+
+            return Optional.of(new Plan(decompiled, resources, staleEntries));
+        }
+    }
+
+    /**
+     * Writes the jars the decompiler runs on for the given plan.
+     *
+     * @param plan The plan to write the jars for.
+     * @param input The jar to decompile.
+     * @param partialInput The jar which receives the classes and resources to decompile.
+     * @param library The jar which receives the classes which are not decompiled again.
+     * @throws IOException If a jar could not be read or written.
+     */
+    public void writeInputs(Plan plan, File input, File partialInput, File library) throws IOException {
+        try (ZipFile source = new ZipFile(input);
+             ZipOutputStream partial = new ZipOutputStream(Files.newOutputStream(partialInput.toPath()));
+             ZipOutputStream remaining = new ZipOutputStream(Files.newOutputStream(library.toPath()))) {
+            final Enumeration<? extends ZipEntry> entries = source.entries();
+            while (entries.hasMoreElements()) {
+                final ZipEntry entry = entries.nextElement();
+                if (entry.isDirectory()) {
+                    continue;
+                }
+
+                if (plan.classes().contains(entry.getName()) || plan.resources().contains(entry.getName())) {
+                    copy(source, entry, partial);
+                } else if (entry.getName().endsWith(CLASS_EXTENSION)) {
+                    copy(source, entry, remaining);
+                }
+            }
+        }
+    }
+
+    /**
+     * Replaces the stale entries of the previous output with those of the partial output.
+     *
+     * @param plan The plan the partial output was decompiled for.
+     * @param partialOutput The output of the decompiler for the partial input, or null if the plan has nothing to
+     *                      {@linkplain Plan#requiresDecompiler() decompile}.
+     * @param output The file which receives the complete output.
+     * @throws IOException If a jar could not be read or written.
+     */
+    public void splice(Plan plan, @Nullable File partialOutput, File output) throws IOException {
+        try (ZipFile previous = new ZipFile(getPreviousOutput());
+             ZipFile partial = partialOutput != null ? new ZipFile(partialOutput) : null;
+             ZipOutputStream target = new ZipOutputStream(Files.newOutputStream(output.toPath()))) {
+            final Map<String, ZipEntry> decompiled = new LinkedHashMap<>();
+            if (partial != null) {
+                partial.stream().forEach(entry -> decompiled.put(entry.getName(), entry));
+            }
+
+            final Enumeration<? extends ZipEntry> entries = previous.entries();
+            while (entries.hasMoreElements()) {
+                final ZipEntry entry = entries.nextElement();
+                if (!plan.staleEntries().contains(entry.getName()) && !decompiled.containsKey(entry.getName())) {
+                    copy(previous, entry, target);
+                }
+            }
+
+            for (ZipEntry entry : decompiled.values()) {
+                copy(partial, entry, target);
+            }
+        }
+    }
+
+    /**
+     * Stores the given input and output, so the next decompilation can be based on them.
+     *
+     * @param fingerprint The fingerprint of the decompiler, its arguments and its libraries.
+     * @param input The decompiled jar.
+     * @param output The sources of the decompiled jar.
+     * @throws IOException If the state could not be written.
+     */
+    public void save(String fingerprint, File input, File output) throws IOException {
+        invalidate();
+        FileUtils.copyFile(input, getPreviousInput());
+        FileUtils.copyFile(output, getPreviousOutput());
+        Files.writeString(getFingerprintFile().toPath(), fingerprint, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Removes the stored state, which is done before the output changes, so a failed decompilation is not used.
+     *
+     * @throws IOException If the state could not be removed.
+     */
+    public void invalidate() throws IOException {
+        Files.createDirectories(stateDirectory.toPath());
+        Files.deleteIfExists(getFingerprintFile().toPath());
+    }
+
+    private String readFingerprint() throws IOException {
+        final File file = getFingerprintFile();
+        return file.isFile() ? Files.readString(file.toPath(), StandardCharsets.UTF_8) : null;
+    }
+
+    private File getFingerprintFile() {
+        return new File(stateDirectory, "fingerprint.txt");
+    }
+
+    private File getPreviousInput() {
+        return new File(stateDirectory, "input.jar");
+    }
+
+    private File getPreviousOutput() {
+        return new File(stateDirectory, "output.jar");
+    }
+
+    /**
+     * @return The name of the source file the class is decompiled into, without extension.
+     */
+    private static String sourceFile(String name, Function<String, ClassFileSummary> classes) {
+        final Set<String> visited = new HashSet<>();
+        String current = name;
+        while (visited.add(current)) {
+            final ClassFileSummary summary = classes.apply(current);
+            if (summary == null || summary.outerClass() == null || classes.apply(summary.outerClass()) == null) {
+                return current;
+            }
+            current = summary.outerClass();
+        }
+        return current;
+    }
+
+    private static Map<String, HashCode> hashEntries(ZipFile zip) throws IOException {
+        final Map<String, HashCode> hashes = new HashMap<>();
+        final Enumeration<? extends ZipEntry> entries = zip.entries();
+        while (entries.hasMoreElements()) {
+            final ZipEntry entry = entries.nextElement();
+            if (!entry.isDirectory()) {
+                try (InputStream stream = zip.getInputStream(entry)) {
+                    hashes.put(entry.getName(), Hashing.hashStream(stream));
+                }
+            }
+        }
+        return hashes;
+    }
+
+    private static Set<String> union(Collection<String> first, Collection<String> second) {
+        final Set<String> union = new TreeSet<>(first);
+        union.addAll(second);
+        return union;
+    }
+
+    private static byte[] read(ZipFile zip, String entry) throws IOException {
+        try (InputStream stream = zip.getInputStream(zip.getEntry(entry))) {
+            return stream.readAllBytes();
+        }
+    }
+
+    private static void copy(ZipFile source, ZipEntry entry, ZipOutputStream target) throws IOException {
+        final ZipEntry copy = new ZipEntry(entry.getName());
+        copy.setTime(entry.getTime());
+        target.putNextEntry(copy);
+        try (InputStream stream = source.getInputStream(entry)) {
+            stream.transferTo(target);
+        }
+        target.closeEntry();
+    }
+
+    /**
+     * What an incremental decompilation decompiles, and which parts of the previous output it replaces.
+     *
+     * @param classes The class entries to decompile.
+     * @param resources The changed resources, which are passed through the decompiler.
+     * @param staleEntries The entries of the previous output which are removed.
+     */
+    public record Plan(Set<String> classes, Set<String> resources, Set<String> staleEntries) {
+
+        public Plan {
+            classes = Set.copyOf(classes);
+            resources = Set.copyOf(resources);
+            staleEntries = Set.copyOf(staleEntries);
+        }
+
+        /**
+         * @return True if the decompiler has to run, false if the output only drops entries of the previous output.
+         */
+        public boolean requiresDecompiler() {
+            return !classes.isEmpty() || !resources.isEmpty();
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package net.neoforged.gradle.common.util.download;
+
+import net.neoforged.gradle.common.services.caching.cache.CacheRestorer;
+import net.neoforged.gradle.common.services.caching.cache.RestoreStrategy;
+import net.neoforged.gradle.common.services.caching.locking.ChannelFileLock;
+import net.neoforged.gradle.common.services.caching.logging.CacheLogger;
+import net.neoforged.gradle.util.HashFunction;
+import org.gradle.api.logging.Logging;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Locale;
+
+/**
+ * A machine-wide store of artifacts, like libraries and natives, which are addressed by their SHA1 hash.
+ * <p>
+ * Every artifact is stored once, and materialized to the files of tasks as a hardlink, or as a copy on file systems
+ * which do not support them. Artifacts are only written while holding a lock on their entry, so concurrent builds and
+ * projects populating the same artifact download it only once.
+ */
+public final class ArtifactStore {
+
+    private static final CacheLogger LOGGER = new CacheLogger(Logging.getLogger(ArtifactStore.class), "artifact store", false, false);
+    private static final CacheRestorer RESTORER = new CacheRestorer(RestoreStrategy.HARDLINK);
+    private static final String LOCK_EXTENSION = ".lock";
+    private static final String STAGING_EXTENSION = ".staging";
+
+    private final File directory;
+
+    public ArtifactStore(File directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * @param sha1 The hash of the artifact.
+     * @return The file of the artifact in the store, which might not exist yet.
+     */
+    public File fileOf(String sha1) {
+        final String hash = sha1.toLowerCase(Locale.ROOT);
+        return new File(new File(directory, hash.substring(0, 2)), hash);
+    }
+
+    /**
+     * @param sha1 The hash of the artifact.
+     * @return True if the artifact is in the store.
+     */
+    public boolean contains(String sha1) {
+        return fileOf(sha1).isFile();
+    }
+
+    /**
+     * Gets the artifact with the given hash, writing it into the store with the given source if it is not present yet.
+     *
+     * @param sha1 The hash of the artifact.
+     * @param source The source to write the artifact with.
+     * @return The file of the artifact in the store.
+     * @throws IOException If the source failed, or wrote a file which does not match the hash.
+     */
+    public File obtain(String sha1, Source source) throws IOException {
+        final File stored = fileOf(sha1);
+        if (stored.isFile()) {
+            return stored;
+        }
+
+        final File lockFile = new File(stored.getParentFile(), stored.getName() + LOCK_EXTENSION);
+        final ChannelFileLock lock = ChannelFileLock.lock(lockFile, LOGGER);
+        try {
+            //Another build or project might have stored the artifact while we were waiting for the lock.
+            if (stored.isFile()) {
+                return stored;
+            }
+
+            //The staging file is only written while holding the lock, so its name is stable, which allows downloads to resume it.
+            final Path staging = stored.toPath().resolveSibling(stored.getName() + STAGING_EXTENSION);
+            source.writeTo(staging);
+
+            if (source instanceof VerifyingSource) {
+                if (!Files.isRegularFile(staging)) {
+                    throw new IOException("The source of the artifact did not write it: " + sha1);
+                }
+            } else {
+                verify(sha1, staging);
+            }
+
+            move(staging, stored.toPath());
+            return stored;
+        } finally {
+            //Waiters detect that they locked a deleted file and retry, so lock files do not accumulate in the store.
+            Files.deleteIfExists(lockFile.toPath());
+            try {
+                lock.close();
+            } catch (Exception e) {
+                throw new IOException("Failed to release the lock of the artifact: " + sha1, e);
+            }
+        }
+    }
+
+    /**
+     * Materializes the artifact with the given hash to the target, writing it into the store with the given source if
+     * it is not present yet.
+     *
+     * @param sha1 The hash of the artifact.
+     * @param target The file to materialize the artifact to.
+     * @param source The source to write the artifact with.
+     * @return True if the target was written, false if it already was the artifact of the store.
+     * @throws IOException If the artifact could not be obtained, or not be materialized.
+     */
+    public boolean materialize(String sha1, File target, Source source) throws IOException {
+        final Source adopting = staging -> {
+            //Adopt an existing file, like one downloaded before the store was used, instead of writing it again.
+            if (target.isFile() && HashFunction.SHA1.hash(target).equalsIgnoreCase(sha1)) {
+                Files.copy(target.toPath(), staging, StandardCopyOption.REPLACE_EXISTING);
+                return;
+            }
+
+            source.writeTo(staging);
+        };
+        //An adopted file was hashed before it was copied, so the adoption verifies whenever the source does.
+        final File stored = obtain(sha1, source instanceof VerifyingSource ? (VerifyingSource) adopting::writeTo : adopting);
+
+        if (target.isFile() && Files.isSameFile(stored.toPath(), target.toPath())) {
+            return false;
+        }
+
+        final File parent = target.getAbsoluteFile().getParentFile();
+        Files.createDirectories(parent.toPath());
+        final Path staging = Files.createTempFile(parent.toPath(), target.getName(), STAGING_EXTENSION);
+        try {
+            //The restorer requires a target which does not exist yet.
+            Files.delete(staging);
+            RESTORER.restoreFile(stored, staging.toFile());
+            move(staging, target.toPath());
+        } finally {
+            Files.deleteIfExists(staging);
+        }
+
+        return true;
+    }
+
+    private static void verify(String sha1, Path staging) throws IOException {
+        final String hash = Files.isRegularFile(staging) ? HashFunction.SHA1.hash(staging.toFile()) : "<missing>";
+        if (!hash.equalsIgnoreCase(sha1)) {
+            Files.deleteIfExists(staging);
+            throw new IOException("The artifact written into the store does not match its expected hash. Expected: %s Actual: %s".formatted(sha1, hash));
+        }
+    }
+
+    private static void move(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Writes an artifact which is missing from the store.
+     */
+    @FunctionalInterface
+    public interface Source {
+
+        /**
+         * @param file The file to write the artifact to, which might contain a partial artifact of an interrupted attempt.
+         * @throws IOException If the artifact could not be written.
+         */
+        void writeTo(Path file) throws IOException;
+    }
+
+    /**
+     * A source which verifies the hash of the artifact while writing it, and fails if it does not match, so the store
+     * does not need to read the artifact again.
+     */
+    @FunctionalInterface
+    public interface VerifyingSource extends Source {
+    }
+}
@@ -0,0 +1,369 @@
+package net.neoforged.gradle.common.util.download;
+
+import net.neoforged.gradle.common.util.NeoGradleUtils;
+import net.neoforged.gradle.util.HashFunction;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongConsumer;
+
+/**
+ * Downloads a batch of small, content addressed objects, like the assets of an asset index.
+ * <p>
+ * All objects are fetched through a single HTTP client, which keeps its connections alive between requests and uses
+ * HTTP/2 where the server supports it. The client and the threads are provided by the caller, so they can be shared by
+ * all downloads of a build. At most the configured number of objects are downloaded at the same time.
+ * Every object is verified against its SHA1 hash while it is streamed to disk, and failed downloads are retried
+ * according to the {@link RetryPolicy}. Each object is fetched with a permit of the {@link DownloadScheduler}, in the
+ * lane of the assets.
+ */
+public final class AssetDownloader {
+
+    public static final int DEFAULT_CONCURRENCY = 16;
+    public static final Duration DEFAULT_TIMEOUT = Duration.ofSeconds(60);
+
+    private static final int BUFFER_SIZE = 16 * 1024;
+    private static final int MAX_REPORTED_FAILURES = 10;
+
+    private final HttpClient client;
+    private final ExecutorService executor;
+    private final int concurrency;
+    private final Duration timeout;
+    private final RetryPolicy retryPolicy;
+    private final DownloadScheduler scheduler;
+
+    public AssetDownloader(HttpClient client, ExecutorService executor, int concurrency, Duration timeout, RetryPolicy retryPolicy, DownloadScheduler scheduler) {
+        if (concurrency < 1) {
+            throw new IllegalArgumentException("The concurrency must be at least one, got: " + concurrency);
+        }
+
+        this.client = client;
+        this.executor = executor;
+        this.concurrency = concurrency;
+        this.timeout = timeout;
+        this.retryPolicy = retryPolicy;
+        this.scheduler = scheduler;
+    }
+
+    public AssetDownloader(HttpClient client, int concurrency, Duration timeout, RetryPolicy retryPolicy) {
+        this(client, createExecutor(), concurrency, timeout, retryPolicy, DownloadScheduler.UNLIMITED);
+    }
+
+    public AssetDownloader(int concurrency) {
+        this(concurrency, DownloadScheduler.UNLIMITED);
+    }
+
+    public AssetDownloader(int concurrency, DownloadScheduler scheduler) {
+        this(createClient(DEFAULT_TIMEOUT), createExecutor(), concurrency, DEFAULT_TIMEOUT, RetryPolicy.DEFAULT, scheduler);
+    }
+
+    /**
+     * Creates a client, which keeps its connections alive and prefers HTTP/2.
+     *
+     * @param connectTimeout The timeout for establishing a connection.
+     * @return The client.
+     */
+    public static HttpClient createClient(Duration connectTimeout) {
+        return HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .connectTimeout(connectTimeout)
+                .build();
+    }
+
+    /**
+     * Creates the threads downloads run on, idle threads are stopped after a minute.
+     *
+     * @return The executor.
+     */
+    public static ExecutorService createExecutor() {
+        return Executors.newCachedThreadPool(new DownloadThreadFactory());
+    }
+
+    /**
+     * Downloads all objects which are missing, or whose local copy does not match their hash.
+     *
+     * @param requests The objects to download.
+     * @param progress Receives the number of bytes of every downloaded object, may be invoked concurrently.
+     * @return The result of the download.
+     * @throws IOException If any object could not be downloaded, after all other objects were processed.
+     */
+    public Result download(List<Request> requests, LongConsumer progress) throws IOException {
+        final AtomicInteger downloaded = new AtomicInteger();
+        final AtomicLong downloadedBytes = new AtomicLong();
+        final AtomicInteger retries = new AtomicInteger();
+
+        forEach(requests, "download", request -> {
+            if (isUpToDate(request)) {
+                return;
+            }
+
+            for (int attempt = 1; ; attempt++) {
+                try {
+                    final long size = fetch(request);
+                    downloaded.incrementAndGet();
+                    downloadedBytes.addAndGet(size);
+                    progress.accept(size);
+                    return;
+                } catch (IOException e) {
+                    if (!isRetryable(e) || attempt >= retryPolicy.maxAttempts()) {
+                        throw e;
+                    }
+
+                    retries.incrementAndGet();
+                    sleep(retryPolicy.delay(attempt));
+                }
+            }
+        });
+
+        return new Result(requests.size(), downloaded.get(), downloadedBytes.get(), retries.get());
+    }
+
+    /**
+     * Verifies that all objects are present and match their hash, without downloading anything.
+     *
+     * @param requests The objects to verify.
+     * @throws IOException If any object is missing or does not match its hash.
+     */
+    public void verify(List<Request> requests) throws IOException {
+        forEach(requests, "verify", request -> {
+            if (!request.target().isFile()) {
+                throw new IOException("Cannot download asset %s as Gradle is running in offline mode and the file does not exist".formatted(request.uri()));
+            }
+
+            if (!isUpToDate(request)) {
+                throw new IOException("Cannot validate asset %s as Gradle is running in offline mode and the file does not match the expected hash: %s".formatted(request.uri(), request.sha1()));
+            }
+        });
+    }
+
+    private void forEach(List<Request> requests, String operation, RequestAction action) throws IOException {
+        if (requests.isEmpty()) {
+            return;
+        }
+
+        //The executor is shared, so the concurrency is limited by the number of workers which take requests from the queue.
+        final Queue<Request> pending = new ConcurrentLinkedQueue<>(requests);
+        final Queue<Throwable> failures = new ConcurrentLinkedQueue<>();
+        final List<Future<?>> workers = new ArrayList<>();
+        try {
+            for (int i = 0; i < Math.min(concurrency, requests.size()); i++) {
+                workers.add(executor.submit(() -> {
+                    Request request;
+                    while ((request = pending.poll()) != null) {
+                        try {
+                            action.run(request);
+                        } catch (IOException | RuntimeException e) {
+                            failures.add(e);
+                        }
+                    }
+                    return null;
+                }));
+            }
+
+            for (Future<?> worker : workers) {
+                try {
+                    worker.get();
+                } catch (ExecutionException e) {
+                    failures.add(e.getCause());
+                }
+            }
+
+            if (!failures.isEmpty()) {
+                final List<Throwable> reported = List.copyOf(failures);
+                final IOException exception = new IOException("Failed to %s %d of %d assets".formatted(operation, reported.size(), requests.size()), reported.get(0));
+                reported.stream().skip(1).limit(MAX_REPORTED_FAILURES - 1).forEach(exception::addSuppressed);
+                throw exception;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the assets to " + operation);
+        } finally {
+            //Only has an effect if the download was interrupted, the workers are done otherwise.
+            pending.clear();
+            workers.forEach(worker -> worker.cancel(true));
+        }
+    }
+
+    private static boolean isUpToDate(Request request) throws IOException {
+        final File target = request.target();
+        if (!target.isFile() || (request.size() >= 0 && target.length() != request.size())) {
+            return false;
+        }
+
+        return HashFunction.SHA1.hash(target).equalsIgnoreCase(request.sha1());
+    }
+
+    /**
+     * Streams the object into a temporary file next to its target, while hashing it, and moves it into place once verified.
+     *
+     * @return The size of the object.
+     */
+    private long fetch(Request request) throws IOException {
+        try (DownloadScheduler.Permit permit = scheduler.acquire(request.uri(), DownloadScheduler.Lane.ASSETS)) {
+            return fetch(request, permit);
+        }
+    }
+
+    private long fetch(Request request, DownloadScheduler.Permit permit) throws IOException {
+        final HttpRequest httpRequest = HttpRequest.newBuilder(request.uri())
+                .timeout(timeout)
+                .header("User-Agent", "NeoGradle: %s".formatted(NeoGradleUtils.getNeogradleVersion()))
+                .GET()
+                .build();
+
+        final HttpResponse<InputStream> response;
+        try {
+            response = client.send(httpRequest, HttpResponse.BodyHandlers.ofInputStream());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while downloading: " + request.uri());
+        }
+
+        try (InputStream body = response.body()) {
+            if (response.statusCode() != 200) {
+                //Consume the error, so the connection can be reused.
+                body.transferTo(OutputStream.nullOutputStream());
+                throw new HttpStatusException(request.uri(), response.statusCode());
+            }
+
+            final Path target = request.target().toPath().toAbsolutePath();
+            Files.createDirectories(target.getParent());
+            final Path temp = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".download");
+            try {
+                final MessageDigest digest = HashFunction.SHA1.get();
+                final byte[] buffer = new byte[BUFFER_SIZE];
+                long size = 0;
+                try (OutputStream output = Files.newOutputStream(temp)) {
+                    int read;
+                    while ((read = body.read(buffer)) >= 0) {
+                        digest.update(buffer, 0, read);
+                        output.write(buffer, 0, read);
+                        size += read;
+                        permit.throttle(read);
+                    }
+                }
+
+                final String hash = HashFunction.SHA1.pad(new BigInteger(1, digest.digest()).toString(16));
+                if (!hash.equalsIgnoreCase(request.sha1())) {
+                    throw new ChecksumMismatchException(request.uri(), request.sha1(), hash);
+                }
+
+                move(temp, target);
+                return size;
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        }
+    }
+
+    private static void move(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static boolean isRetryable(IOException e) {
+        if (e instanceof HttpStatusException status) {
+            //Client errors, like a missing object, will not go away by asking again.
+            return status.status() >= 500 || status.status() == 408 || status.status() == 429;
+        }
+
+        //Connection resets, timeouts and corrupted transfers are retried, unless the build is being cancelled.
+        return !Thread.currentThread().isInterrupted();
+    }
+
+    private static void sleep(Duration delay) throws InterruptedIOException {
+        try {
+            Thread.sleep(delay.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting to retry a download");
+        }
+    }
+
+    /**
+     * A single object to download.
+     *
+     * @param uri The location of the object.
+     * @param target The file to store the object in.
+     * @param sha1 The expected SHA1 hash of the object.
+     * @param size The expected size of the object, or a negative value if it is unknown.
+     */
+    public record Request(URI uri, File target, String sha1, long size) {}
+
+    /**
+     * @param objects The number of requested objects.
+     * @param downloaded The number of objects which were downloaded, the others were already present.
+     * @param downloadedBytes The total size of the downloaded objects.
+     * @param retries The number of failed attempts which were retried.
+     */
+    public record Result(int objects, int downloaded, long downloadedBytes, int retries) {
+
+        public int upToDate() {
+            return objects - downloaded;
+        }
+    }
+
+    @FunctionalInterface
+    private interface RequestAction {
+        void run(Request request) throws IOException;
+    }
+
+    private static final class HttpStatusException extends IOException {
+        private final int status;
+
+        private HttpStatusException(URI uri, int status) {
+            super("Failed to download %s, HTTP-Status: %d".formatted(uri, status));
+            this.status = status;
+        }
+
+        public int status() {
+            return status;
+        }
+    }
+
+    private static final class ChecksumMismatchException extends IOException {
+        private ChecksumMismatchException(URI uri, String expected, String actual) {
+            super("Downloaded %s, but it does not match the expected hash. Expected: %s Actual: %s".formatted(uri, expected, actual));
+        }
+    }
+
+    private static final class DownloadThreadFactory implements ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            final Thread thread = new Thread(runnable, "NeoGradle asset download #" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
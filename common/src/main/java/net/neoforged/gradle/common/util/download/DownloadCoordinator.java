@@ -0,0 +1,157 @@
+package net.neoforged.gradle.common.util.download;
+
+import net.neoforged.gradle.common.services.caching.cache.CacheRestorer;
+import net.neoforged.gradle.common.services.caching.cache.RestoreStrategy;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Coalesces downloads of the same url and hash, which are requested by several tasks or projects of one build.
+ * <p>
+ * The first request downloads the file, and concurrent and later requests wait for it and share its result: a request
+ * for the same file returns right away, and a request for another file receives a copy of the downloaded one. Files
+ * with a known hash are linked instead, as their content can not change. If a download fails, the next waiting request
+ * attempts it again, so a failure of one task does not fail the others.
+ */
+public final class DownloadCoordinator {
+
+    private static final CacheRestorer LINKER = new CacheRestorer(RestoreStrategy.HARDLINK);
+    private static final CacheRestorer COPIER = new CacheRestorer(RestoreStrategy.COPY);
+    private static final String STAGING_EXTENSION = ".tmp";
+
+    private final ConcurrentMap<Key, CompletableFuture<Result>> downloads = new ConcurrentHashMap<>();
+
+    /**
+     * Downloads the file with the given action, unless the same url and hash was already downloaded by another request.
+     *
+     * @param url The url of the file.
+     * @param sha1 The hash of the file, or null if it is unknown.
+     * @param target The file to download to.
+     * @param download The download of the file to the target.
+     * @return True if the target was written, false if it already was up-to-date.
+     * @throws IOException If the file could not be downloaded, or the shared result could not be copied to the target.
+     */
+    public boolean download(String url, @Nullable String sha1, File target, Download download) throws IOException {
+        final Key key = new Key(url, sha1 == null ? null : sha1.toLowerCase(Locale.ROOT));
+        while (true) {
+            final CompletableFuture<Result> pending = new CompletableFuture<>();
+            final CompletableFuture<Result> existing = downloads.putIfAbsent(key, pending);
+            if (existing == null) {
+                return lead(key, pending, target, download);
+            }
+
+            final Result result = await(existing);
+            if (result == null || !result.describes()) {
+                //The download failed, or its file changed since, so it has to be downloaded again.
+                downloads.remove(key, existing);
+                continue;
+            }
+
+            return result.shareTo(target, key.sha1() != null);
+        }
+    }
+
+    private boolean lead(Key key, CompletableFuture<Result> pending, File target, Download download) throws IOException {
+        try {
+            final boolean written = download.run();
+            pending.complete(Result.of(target));
+            return written;
+        } catch (IOException | RuntimeException | Error e) {
+            downloads.remove(key, pending);
+            pending.complete(null);
+            throw e;
+        }
+    }
+
+    @Nullable
+    private static Result await(CompletableFuture<Result> download) throws IOException {
+        try {
+            return download.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a download");
+        } catch (ExecutionException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Downloads a file.
+     */
+    @FunctionalInterface
+    public interface Download {
+
+        /**
+         * @return True if the file was written, false if it already was up-to-date.
+         * @throws IOException If the file could not be downloaded.
+         */
+        boolean run() throws IOException;
+    }
+
+    private record Key(String url, @Nullable String sha1) {
+    }
+
+    /**
+     * The file of a completed download, with the size and time it had when it completed.
+     */
+    private record Result(File file, long size, long lastModified) {
+
+        private static Result of(File file) throws IOException {
+            final Path path = file.toPath();
+            return new Result(file.getAbsoluteFile(), Files.size(path), Files.getLastModifiedTime(path).toMillis());
+        }
+
+        private boolean describes() {
+            return describes(file);
+        }
+
+        private boolean describes(File other) {
+            try {
+                final Path path = other.toPath();
+                return Files.isRegularFile(path) && Files.size(path) == size && Files.getLastModifiedTime(path).toMillis() == lastModified;
+            } catch (IOException e) {
+                return false;
+            }
+        }
+
+        private boolean shareTo(File target, boolean immutable) throws IOException {
+            final File absolute = target.getAbsoluteFile();
+            //Shared copies carry the time of the download, so a target which received it before is recognized.
+            if (Objects.equals(absolute, file) || describes(absolute)) {
+                return false;
+            }
+
+            final Path parent = absolute.getParentFile().toPath();
+            Files.createDirectories(parent);
+            final Path staging = Files.createTempFile(parent, absolute.getName(), STAGING_EXTENSION);
+            try {
+                //The restorer requires a target which does not exist yet.
+                Files.delete(staging);
+                (immutable ? LINKER : COPIER).restoreFile(file, staging.toFile());
+                Files.setLastModifiedTime(staging, FileTime.fromMillis(lastModified));
+                try {
+                    Files.move(staging, absolute.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(staging, absolute.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                }
+            } finally {
+                Files.deleteIfExists(staging);
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package net.neoforged.gradle.common.util.download;
+
+import net.neoforged.gradle.util.HashFunction;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Properties;
+
+/**
+ * A persistent index of downloaded files, which remembers for every url the hash, size and ETag of the file that was
+ * downloaded from it, and when the server was last asked whether it changed.
+ * <p>
+ * Files with a known hash are identified by it, so once they are present the server never needs to be asked again.
+ * Other files are only revalidated with a conditional request, once the configured time has passed since their last
+ * verification. Every url is stored in its own small file, which is replaced atomically, so concurrent builds do not
+ * need to coordinate.
+ */
+public final class DownloadIndex {
+
+    private static final String EXTENSION = ".properties";
+
+    private final File directory;
+    private final Duration revalidateAfter;
+    private final Clock clock;
+
+    /**
+     * @param directory The directory to store the index in.
+     * @param revalidateAfter The time after which files without a known hash are revalidated, zero revalidates them on every use.
+     */
+    public DownloadIndex(File directory, Duration revalidateAfter) {
+        this(directory, revalidateAfter, Clock.systemUTC());
+    }
+
+    DownloadIndex(File directory, Duration revalidateAfter, Clock clock) {
+        this.directory = directory;
+        this.revalidateAfter = revalidateAfter;
+        this.clock = clock;
+    }
+
+    /**
+     * @param url The url of the file.
+     * @return The entry of the url, or null if it was never downloaded, or its entry is unreadable.
+     */
+    @Nullable
+    public Entry find(String url) {
+        final Properties properties = new Properties();
+        try (InputStream input = Files.newInputStream(fileOf(url))) {
+            properties.load(input);
+            if (!url.equals(properties.getProperty("url"))) {
+                return null;
+            }
+
+            return new Entry(
+                    properties.getProperty("sha1"),
+                    Long.parseLong(properties.getProperty("size")),
+                    properties.getProperty("etag"),
+                    Long.parseLong(properties.getProperty("lastModified")),
+                    Long.parseLong(properties.getProperty("verified"))
+            );
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException | IllegalArgumentException e) {
+            //A corrupt entry, the file is revalidated and the entry replaced.
+            return null;
+        }
+    }
+
+    /**
+     * Records that the given file is the current content of the url, as verified just now.
+     *
+     * @param url The url of the file.
+     * @param file The file, which was downloaded from the url.
+     * @param sha1 The hash of the file.
+     * @param etag The ETag of the file on the server, or null if it is unknown.
+     * @throws IOException If the file could not be read.
+     */
+    public void record(String url, File file, String sha1, @Nullable String etag) throws IOException {
+        final Properties properties = new Properties();
+        properties.setProperty("url", url);
+        properties.setProperty("sha1", sha1);
+        properties.setProperty("size", Long.toString(Files.size(file.toPath())));
+        if (etag != null) {
+            properties.setProperty("etag", etag);
+        }
+        properties.setProperty("lastModified", Long.toString(Files.getLastModifiedTime(file.toPath()).toMillis()));
+        properties.setProperty("verified", Long.toString(clock.millis()));
+
+        final Path entry = fileOf(url);
+        try {
+            Files.createDirectories(entry.getParent());
+            final Path temp = Files.createTempFile(entry.getParent(), entry.getFileName().toString(), ".tmp");
+            try {
+                try (BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                    properties.store(writer, null);
+                }
+
+                try {
+                    Files.move(temp, entry, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(temp, entry, StandardCopyOption.REPLACE_EXISTING);
+                }
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        } catch (IOException e) {
+            //The index is only an optimization, without the entry the file is revalidated on its next use.
+        }
+    }
+
+    /**
+     * @param entry The entry of a file.
+     * @return True if the entry was verified recently enough, that the server does not need to be asked again.
+     */
+    public boolean isFresh(Entry entry) {
+        return clock.millis() - entry.verified() < revalidateAfter.toMillis();
+    }
+
+    private Path fileOf(String url) {
+        return new File(directory, HashFunction.SHA1.hash(url) + EXTENSION).toPath();
+    }
+
+    /**
+     * @param sha1 The hash of the downloaded file.
+     * @param size The size of the downloaded file.
+     * @param etag The ETag of the file on the server, or null if it is unknown.
+     * @param lastModified The modification time of the downloaded file, in milliseconds since the epoch.
+     * @param verified The time the server was last asked, in milliseconds since the epoch.
+     */
+    public record Entry(String sha1, long size, @Nullable String etag, long lastModified, long verified) {
+
+        /**
+         * @param file A file which was downloaded from the url of this entry.
+         * @return True if the file is still the one described by this entry.
+         */
+        public boolean describes(File file) {
+            try {
+                final Path path = file.toPath();
+                return Files.isRegularFile(path) && Files.size(path) == size && Files.getLastModifiedTime(path).toMillis() == lastModified;
+            } catch (IOException e) {
+                return false;
+            }
+        }
+    }
+}
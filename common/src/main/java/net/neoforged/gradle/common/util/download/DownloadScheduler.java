@@ -0,0 +1,288 @@
+package net.neoforged.gradle.common.util.download;
+
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * Schedules the downloads of a build, so they do not overwhelm the network, or the servers they are made to.
+ * <p>
+ * Every download holds a {@link Permit} while it transfers data. At most the configured number of permits are handed
+ * out at the same time, over all hosts and for every single host. Waiting downloads receive their permit by the
+ * priority of their {@link Lane}, and in the order they asked for it within a lane, so the files the build can not
+ * continue without are not queued behind thousands of assets. The transferred bytes of all permits share a single
+ * bandwidth limit, which allows short bursts.
+ */
+public final class DownloadScheduler {
+
+    public static final int DEFAULT_MAX_CONCURRENT_DOWNLOADS = 32;
+    public static final int DEFAULT_MAX_CONCURRENT_DOWNLOADS_PER_HOST = 16;
+
+    /**
+     * A scheduler which hands out permits right away, and does not limit the bandwidth.
+     */
+    public static final DownloadScheduler UNLIMITED = new DownloadScheduler(Integer.MAX_VALUE, Integer.MAX_VALUE, 0);
+
+    private final int maxConcurrent;
+    private final int maxConcurrentPerHost;
+    private final long maxBytesPerSecond;
+    private final LongSupplier nanoTime;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    private final TreeSet<Waiter> waiters = new TreeSet<>();
+    private final Map<String, Integer> activePerHost = new HashMap<>();
+    private int active;
+    private long sequence;
+
+    private final Object bandwidthLock = new Object();
+    private long tokens;
+    private long refilled;
+
+    /**
+     * @param maxConcurrent The maximum number of downloads at the same time.
+     * @param maxConcurrentPerHost The maximum number of downloads from a single host at the same time.
+     * @param maxBytesPerSecond The maximum number of bytes that are transferred per second over all downloads, zero for no limit.
+     */
+    public DownloadScheduler(int maxConcurrent, int maxConcurrentPerHost, long maxBytesPerSecond) {
+        this(maxConcurrent, maxConcurrentPerHost, maxBytesPerSecond, System::nanoTime);
+    }
+
+    DownloadScheduler(int maxConcurrent, int maxConcurrentPerHost, long maxBytesPerSecond, LongSupplier nanoTime) {
+        if (maxConcurrent < 1 || maxConcurrentPerHost < 1) {
+            throw new IllegalArgumentException("The number of concurrent downloads must be at least one, got: %d and %d per host".formatted(maxConcurrent, maxConcurrentPerHost));
+        }
+        if (maxBytesPerSecond < 0) {
+            throw new IllegalArgumentException("The bandwidth limit can not be negative, got: " + maxBytesPerSecond);
+        }
+
+        this.maxConcurrent = maxConcurrent;
+        this.maxConcurrentPerHost = maxConcurrentPerHost;
+        this.maxBytesPerSecond = maxBytesPerSecond;
+        this.nanoTime = nanoTime;
+        this.tokens = burst();
+        this.refilled = nanoTime.getAsLong();
+    }
+
+    /**
+     * Waits until a download from the given url may start.
+     *
+     * @param url The url which is downloaded.
+     * @param lane The lane of the download.
+     * @return The permit of the download, which has to be closed once the download completed.
+     * @throws InterruptedIOException If the thread was interrupted while waiting.
+     */
+    public Permit acquire(URL url, Lane lane) throws InterruptedIOException {
+        return acquire(url.getHost(), lane);
+    }
+
+    /**
+     * Waits until a download from the given uri may start.
+     *
+     * @param uri The uri which is downloaded.
+     * @param lane The lane of the download.
+     * @return The permit of the download, which has to be closed once the download completed.
+     * @throws InterruptedIOException If the thread was interrupted while waiting.
+     */
+    public Permit acquire(URI uri, Lane lane) throws InterruptedIOException {
+        return acquire(uri.getHost(), lane);
+    }
+
+    private Permit acquire(String host, Lane lane) throws InterruptedIOException {
+        final String key = host == null ? "" : host.toLowerCase(Locale.ROOT);
+        lock.lock();
+        try {
+            final Waiter waiter = new Waiter(lane, sequence++, key);
+            waiters.add(waiter);
+            try {
+                while (next() != waiter) {
+                    changed.await();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting to download from: " + host);
+            } finally {
+                waiters.remove(waiter);
+            }
+
+            active++;
+            activePerHost.merge(key, 1, Integer::sum);
+            //Others of a different host might be able to start as well.
+            changed.signalAll();
+            return new Permit(key);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return The waiter with the highest priority which may start, if any.
+     */
+    private Waiter next() {
+        if (active >= maxConcurrent) {
+            return null;
+        }
+
+        for (Waiter waiter : waiters) {
+            if (activePerHost.getOrDefault(waiter.host(), 0) < maxConcurrentPerHost) {
+                return waiter;
+            }
+        }
+        return null;
+    }
+
+    private void release(String host) {
+        lock.lock();
+        try {
+            active--;
+            activePerHost.computeIfPresent(host, (key, count) -> count == 1 ? null : count - 1);
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return The number of downloads which wait for their permit.
+     */
+    int waiting() {
+        lock.lock();
+        try {
+            return waiters.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Takes the given number of bytes from the shared bandwidth, and waits until they would have been transferred
+     * within the limit.
+     */
+    private void throttle(long bytes) throws InterruptedIOException {
+        if (maxBytesPerSecond == 0 || bytes <= 0) {
+            return;
+        }
+
+        final long wait;
+        synchronized (bandwidthLock) {
+            final long now = nanoTime.getAsLong();
+            final long earned = (long) ((now - refilled) / 1e9 * maxBytesPerSecond);
+            if (earned > 0) {
+                tokens = Math.min(burst(), tokens + earned);
+                refilled = now;
+            }
+
+            //The bytes are taken right away, so the debt of one download delays the following ones as well.
+            tokens -= bytes;
+            wait = tokens >= 0 ? 0 : (long) (-tokens * 1e9 / maxBytesPerSecond);
+        }
+
+        if (wait > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(wait);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for the bandwidth limit");
+            }
+        }
+    }
+
+    /**
+     * @return The number of bytes which may be transferred at once, a tenth of a second of the limit.
+     */
+    private long burst() {
+        return Math.max(1, maxBytesPerSecond / 10);
+    }
+
+    /**
+     * The lanes of downloads, in the order of their priority.
+     */
+    public enum Lane {
+        /**
+         * The game jars, mappings and metadata, which most tasks of a build depend on.
+         */
+        GAME,
+        /**
+         * Libraries and natives.
+         */
+        LIBRARIES,
+        /**
+         * Assets, which are only needed to run the game.
+         */
+        ASSETS
+    }
+
+    private record Waiter(Lane lane, long sequence, String host) implements Comparable<Waiter> {
+
+        @Override
+        public int compareTo(Waiter other) {
+            final int byLane = lane.compareTo(other.lane);
+            return byLane != 0 ? byLane : Long.compare(sequence, other.sequence);
+        }
+    }
+
+    /**
+     * The permission of a single download to transfer data.
+     */
+    public final class Permit implements AutoCloseable {
+
+        private final String host;
+        private boolean closed;
+
+        private Permit(String host) {
+            this.host = host;
+        }
+
+        /**
+         * Waits until the given number of bytes may be transferred within the bandwidth limit.
+         *
+         * @param bytes The number of bytes which were received.
+         * @throws InterruptedIOException If the thread was interrupted while waiting.
+         */
+        public void throttle(long bytes) throws InterruptedIOException {
+            DownloadScheduler.this.throttle(bytes);
+        }
+
+        /**
+         * @param listener The listener of the download.
+         * @return A listener which throttles the download to the bandwidth limit, and then informs the given listener.
+         */
+        public ResumableDownloader.Listener throttling(ResumableDownloader.Listener listener) {
+            return new ResumableDownloader.Listener() {
+                @Override
+                public void started(long size, long offset) {
+                    listener.started(size, offset);
+                }
+
+                @Override
+                public void transferred(long bytes) {
+                    try {
+                        throttle(bytes);
+                    } catch (InterruptedIOException e) {
+                        //The interruption is kept, so the download stops retrying.
+                    }
+                    listener.transferred(bytes);
+                }
+            };
+        }
+
+        @Override
+        public void close() {
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+            }
+            release(host);
+        }
+    }
+}
@@ -0,0 +1,562 @@
+package net.neoforged.gradle.common.util.download;
+
+import net.neoforged.gradle.common.services.caching.locking.ChannelFileLock;
+import net.neoforged.gradle.common.services.caching.logging.CacheLogger;
+import net.neoforged.gradle.common.util.NeoGradleUtils;
+import org.gradle.api.logging.Logging;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Downloads single files, resuming partially downloaded files instead of starting over.
+ * <p>
+ * The file is downloaded into a partial file next to its target, and the validator of the response (its ETag or
+ * Last-Modified date) is stored next to it. When a download is interrupted, the next attempt, which may also happen in a
+ * later build, requests only the missing range, and only if the file on the server still matches the validator.
+ * Large files, of servers which support ranges, can optionally be fetched as multiple segments in parallel.
+ * <p>
+ * The partial file is guarded by a file lock, as other builds may download the same file at the same time. If the lock
+ * is held by another download, the file is downloaded into a unique temporary file instead, which is not resumable.
+ * <p>
+ * A downloader keeps a pool of threads for the segments, so it should be shared by all downloads.
+ */
+public final class ResumableDownloader {
+
+    public static final String PART_EXTENSION = ".part";
+    public static final String VALIDATOR_EXTENSION = ".part.validator";
+    public static final String LOCK_EXTENSION = ".part.lock";
+    public static final int DEFAULT_SEGMENTS = 4;
+    public static final long DEFAULT_SEGMENT_THRESHOLD = 16L * 1024 * 1024;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final Pattern CONTENT_RANGE = Pattern.compile("bytes (\\d+)-(\\d+)/(\\d+|\\*)");
+    private static final DateTimeFormatter HTTP_DATE = DateTimeFormatter.ofPattern("EEE, dd MMM yyyy HH:mm:ss 'GMT'", Locale.US);
+    private static final int MOVE_ATTEMPTS = 5;
+    private static final long MOVE_DELAY = 5000;
+    private static final CacheLogger LOGGER = new CacheLogger(Logging.getLogger(ResumableDownloader.class), "download", false, false);
+
+    private final RetryPolicy retryPolicy;
+    private final Duration timeout;
+    private final int segments;
+    private final long segmentThreshold;
+    private final ExecutorService executor;
+
+    /**
+     * @param retryPolicy The policy for retrying failed attempts, each attempt resumes where the previous one stopped.
+     * @param timeout The timeout for connecting, and for waiting on data.
+     * @param segments The number of segments large files are fetched in, one disables segmented fetching.
+     * @param segmentThreshold The minimum size of a file, for it to be fetched in segments.
+     */
+    public ResumableDownloader(RetryPolicy retryPolicy, Duration timeout, int segments, long segmentThreshold) {
+        if (segments < 1) {
+            throw new IllegalArgumentException("At least one segment is required, got: " + segments);
+        }
+
+        this.retryPolicy = retryPolicy;
+        this.timeout = timeout;
+        this.segments = segments;
+        this.segmentThreshold = segmentThreshold;
+        this.executor = Executors.newCachedThreadPool(new SegmentThreadFactory());
+    }
+
+    public ResumableDownloader() {
+        this(RetryPolicy.DEFAULT, AssetDownloader.DEFAULT_TIMEOUT, DEFAULT_SEGMENTS, DEFAULT_SEGMENT_THRESHOLD);
+    }
+
+    /**
+     * Downloads the file at the given url to the target.
+     *
+     * @param url The url to download.
+     * @param target The file to download to, it is only replaced once the download is complete.
+     * @param ifModifiedSince If positive, the file is only downloaded if it was modified after this time, in milliseconds since the epoch.
+     * @param listener The listener to report the progress to.
+     * @return The result of the download.
+     * @throws IOException If the file could not be downloaded within the attempts of the retry policy.
+     */
+    public Download download(URL url, Path target, long ifModifiedSince, Listener listener) throws IOException {
+        return download(url, target, ifModifiedSince, null, listener);
+    }
+
+    /**
+     * Downloads the file at the given url to the target.
+     *
+     * @param url The url to download.
+     * @param target The file to download to, it is only replaced once the download is complete.
+     * @param ifModifiedSince If positive, the file is only downloaded if it was modified after this time, in milliseconds since the epoch.
+     * @param ifNoneMatch If not null, the file is only downloaded if its ETag on the server does not match this one.
+     * @param listener The listener to report the progress to.
+     * @return The result of the download.
+     * @throws IOException If the file could not be downloaded within the attempts of the retry policy.
+     */
+    public Download download(URL url, Path target, long ifModifiedSince, @Nullable String ifNoneMatch, Listener listener) throws IOException {
+        final Path absoluteTarget = target.toAbsolutePath();
+        Files.createDirectories(absoluteTarget.getParent());
+
+        final Path lockFile = lockOf(absoluteTarget);
+        final ChannelFileLock lock = ChannelFileLock.tryLock(lockFile.toFile(), LOGGER);
+        final Path part;
+        final Path validatorFile;
+        if (lock != null) {
+            part = partOf(absoluteTarget);
+            validatorFile = validatorOf(absoluteTarget);
+        } else {
+            //Another download of the same file owns the partial file, so this one can not resume or write it.
+            part = Files.createTempFile(absoluteTarget.getParent(), absoluteTarget.getFileName().toString(), PART_EXTENSION);
+            validatorFile = null;
+        }
+
+        try {
+            for (int attempt = 1; ; attempt++) {
+                try {
+                    return attempt(url, absoluteTarget, part, validatorFile, ifModifiedSince, ifNoneMatch, listener);
+                } catch (IOException e) {
+                    if (!isRetryable(e) || attempt >= retryPolicy.maxAttempts()) {
+                        throw e;
+                    }
+
+                    sleep(retryPolicy.delay(attempt));
+                }
+            }
+        } finally {
+            if (lock == null) {
+                Files.deleteIfExists(part);
+            } else {
+                //Waiters detect that they locked a deleted file and retry, so lock files do not accumulate.
+                Files.deleteIfExists(lockFile);
+                try {
+                    lock.close();
+                } catch (Exception e) {
+                    throw new IOException("Failed to release the lock of the partial file: " + part, e);
+                }
+            }
+        }
+    }
+
+    /**
+     * @param validatorFile The file to store the validator of the partial file in, or null if it is not resumable.
+     */
+    private Download attempt(URL url, Path target, Path part, @Nullable Path validatorFile, long ifModifiedSince, @Nullable String ifNoneMatch, Listener listener) throws IOException {
+        final Validator previous = validatorFile == null ? null : Validator.read(validatorFile);
+        long offset = 0;
+        if (previous != null && previous.isResumable() && Files.isRegularFile(part)) {
+            offset = Files.size(part);
+        } else {
+            //Without a usable validator, the partial file can not be trusted.
+            discard(part, validatorFile);
+        }
+
+        final HttpURLConnection connection = open(url);
+        try {
+            if (offset > 0) {
+                connection.setRequestProperty("Range", "bytes=" + offset + "-");
+                connection.setRequestProperty("If-Range", previous.ifRange());
+            } else {
+                if (ifModifiedSince > 0) {
+                    connection.setIfModifiedSince(ifModifiedSince);
+                }
+                if (ifNoneMatch != null) {
+                    connection.setRequestProperty("If-None-Match", ifNoneMatch);
+                }
+            }
+
+            final int status = connection.getResponseCode();
+            if (status == HttpURLConnection.HTTP_NOT_MODIFIED) {
+                final String etag = connection.getHeaderField("ETag");
+                return new Download(false, 0, connection.getLastModified(), 0, etag != null ? etag : ifNoneMatch);
+            }
+
+            if (status == 416 && previous != null && previous.length() == offset) {
+                //The previous attempt received all data, but was interrupted before completing.
+                complete(part, validatorFile, target);
+                return new Download(true, offset, previous.lastModified(), offset, previous.etag());
+            }
+
+            if (status == HttpURLConnection.HTTP_PARTIAL) {
+                final Matcher range = CONTENT_RANGE.matcher(String.valueOf(connection.getHeaderField("Content-Range")));
+                if (!range.matches() || Long.parseLong(range.group(1)) != offset) {
+                    discard(part, validatorFile);
+                    throw new IOException("The server responded to %s with an unexpected range: %s".formatted(url, connection.getHeaderField("Content-Range")));
+                }
+
+                final long length = range.group(3).equals("*") ? -1 : Long.parseLong(range.group(3));
+                listener.started(length, offset);
+                final long received = transfer(connection, part, true, listener);
+                return finish(url, part, validatorFile, target, previous, offset + received, offset);
+            }
+
+            if (status != HttpURLConnection.HTTP_OK) {
+                throw new HttpStatusException(url, status);
+            }
+
+            //Either a fresh download, or the file changed on the server, in which case it was sent in full.
+            final Validator validator = Validator.of(connection);
+            final boolean segmented = segments > 1 && validator.acceptsRanges() && validator.isResumable() && validator.length() >= segmentThreshold;
+            //Segments are written out of order, so their partial file can not be resumed by a later attempt.
+            if (validatorFile != null) {
+                if (validator.isResumable() && !segmented) {
+                    validator.write(validatorFile);
+                } else {
+                    Files.deleteIfExists(validatorFile);
+                }
+            }
+
+            if (segmented) {
+                connection.disconnect();
+                listener.started(validator.length(), 0);
+                fetchSegmented(url, part, validator, listener);
+                return finish(url, part, validatorFile, target, validator, validator.length(), 0);
+            }
+
+            listener.started(validator.length(), 0);
+            final long received = transfer(connection, part, false, listener);
+            return finish(url, part, validatorFile, target, validator, received, 0);
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    private Download finish(URL url, Path part, @Nullable Path validatorFile, Path target, Validator validator, long size, long resumedFrom) throws IOException {
+        if (validator.length() >= 0 && size != validator.length()) {
+            //The partial file is kept, so the next attempt can resume it.
+            throw new IOException("The connection to %s was closed after %d of %d bytes".formatted(url, size, validator.length()));
+        }
+
+        complete(part, validatorFile, target);
+        return new Download(true, size, validator.lastModified(), resumedFrom, validator.etag());
+    }
+
+    private long transfer(HttpURLConnection connection, Path part, boolean append, Listener listener) throws IOException {
+        final StandardOpenOption mode = append ? StandardOpenOption.APPEND : StandardOpenOption.TRUNCATE_EXISTING;
+        long received = 0;
+        //Everything which was received before a failure is kept in the partial file.
+        try (InputStream input = connection.getInputStream();
+             OutputStream output = Files.newOutputStream(part, StandardOpenOption.CREATE, StandardOpenOption.WRITE, mode)) {
+            final byte[] buffer = new byte[BUFFER_SIZE];
+            int read;
+            while ((read = input.read(buffer)) >= 0) {
+                output.write(buffer, 0, read);
+                received += read;
+                listener.transferred(read);
+            }
+        }
+
+        return received;
+    }
+
+    /**
+     * Fetches the file as multiple ranges in parallel, writing each range at its position in the partial file.
+     * Each segment resumes its own range when its connection fails.
+     */
+    private void fetchSegmented(URL url, Path part, Validator validator, Listener listener) throws IOException {
+        final long length = validator.length();
+        final long segmentSize = (length + segments - 1) / segments;
+        final List<Future<?>> futures = new ArrayList<>();
+        try (FileChannel channel = FileChannel.open(part, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            final Listener synchronizedListener = new SynchronizedListener(listener);
+            for (long start = 0; start < length; start += segmentSize) {
+                final long first = start;
+                final long last = Math.min(length, start + segmentSize) - 1;
+                futures.add(executor.submit(() -> {
+                    fetchSegment(url, channel, validator, first, last, synchronizedListener);
+                    return null;
+                }));
+            }
+
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof IOException exception) {
+                        throw exception;
+                    }
+                    throw new IOException("Failed to download a segment of: " + url, e.getCause());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while downloading: " + url);
+        } finally {
+            //Only has an effect if a segment failed, or the download was interrupted, the others are done otherwise.
+            futures.forEach(future -> future.cancel(true));
+        }
+    }
+
+    private void fetchSegment(URL url, FileChannel channel, Validator validator, long first, long last, Listener listener) throws IOException {
+        long position = first;
+        for (int attempt = 1; position <= last; attempt++) {
+            final HttpURLConnection connection = open(url);
+            try {
+                connection.setRequestProperty("Range", "bytes=" + position + "-" + last);
+                connection.setRequestProperty("If-Range", validator.ifRange());
+                if (connection.getResponseCode() != HttpURLConnection.HTTP_PARTIAL) {
+                    //The file changed on the server while it was being downloaded, the whole download has to start over.
+                    throw new IOException("The server did not respond to a segment request for %s with a range, but with: %d".formatted(url, connection.getResponseCode()));
+                }
+
+                try (InputStream input = connection.getInputStream()) {
+                    final byte[] buffer = new byte[BUFFER_SIZE];
+                    int read;
+                    while (position <= last && (read = input.read(buffer, 0, (int) Math.min(buffer.length, last - position + 1))) >= 0) {
+                        final ByteBuffer data = ByteBuffer.wrap(buffer, 0, read);
+                        while (data.hasRemaining()) {
+                            position += channel.write(data, position);
+                        }
+                        listener.transferred(read);
+                    }
+                }
+
+                if (position <= last) {
+                    throw new IOException("The connection to %s was closed before the end of the segment".formatted(url));
+                }
+            } catch (IOException e) {
+                if (e instanceof HttpStatusException || attempt >= retryPolicy.maxAttempts() || Thread.currentThread().isInterrupted()) {
+                    throw e;
+                }
+
+                sleep(retryPolicy.delay(attempt));
+            } finally {
+                connection.disconnect();
+            }
+        }
+    }
+
+    private HttpURLConnection open(URL url) throws IOException {
+        final HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        connection.setInstanceFollowRedirects(true);
+        connection.setConnectTimeout((int) timeout.toMillis());
+        connection.setReadTimeout((int) timeout.toMillis());
+        connection.setRequestProperty("User-Agent", "NeoGradle: %s".formatted(NeoGradleUtils.getNeogradleVersion()));
+        //Ranges refer to the encoded bytes, so the file has to be transferred as is.
+        connection.setRequestProperty("Accept-Encoding", "identity");
+        return connection;
+    }
+
+    private static void complete(Path part, @Nullable Path validatorFile, Path target) throws IOException {
+        move(part, target);
+        if (validatorFile != null) {
+            Files.deleteIfExists(validatorFile);
+        }
+    }
+
+    private static void discard(Path part, @Nullable Path validatorFile) throws IOException {
+        Files.deleteIfExists(part);
+        if (validatorFile != null) {
+            Files.deleteIfExists(validatorFile);
+        }
+    }
+
+    private static void move(Path source, Path target) throws IOException {
+        int tries = 0;
+        while (true) {
+            tries++;
+            try {
+                try {
+                    Files.move(source, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                } catch (AtomicMoveNotSupportedException e) {
+                    // Atomic moves within the same directory should have worked, we fall back to the inferior normal move.
+                    Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+                }
+                return;
+            } catch (IOException e) {
+                if (tries >= MOVE_ATTEMPTS) {
+                    throw e;
+                }
+
+                // Wait a bit to give whatever concurrent process has it locked to unlock...
+                sleep(Duration.ofMillis(MOVE_DELAY));
+            }
+        }
+    }
+
+    public static Path partOf(Path target) {
+        return target.resolveSibling(target.getFileName() + PART_EXTENSION);
+    }
+
+    public static Path validatorOf(Path target) {
+        return target.resolveSibling(target.getFileName() + VALIDATOR_EXTENSION);
+    }
+
+    public static Path lockOf(Path target) {
+        return target.resolveSibling(target.getFileName() + LOCK_EXTENSION);
+    }
+
+    private static boolean isRetryable(IOException e) {
+        if (e instanceof HttpStatusException status) {
+            return status.status() >= 500 || status.status() == 408 || status.status() == 429;
+        }
+
+        return !Thread.currentThread().isInterrupted();
+    }
+
+    private static void sleep(Duration delay) throws InterruptedIOException {
+        try {
+            Thread.sleep(delay.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting to retry a download");
+        }
+    }
+
+    /**
+     * @param modified False if the file was not modified since the requested time, and nothing was downloaded.
+     * @param size The size of the downloaded file.
+     * @param lastModified The last modification time reported by the server, or zero if it is unknown.
+     * @param resumedFrom The number of bytes of the file, which were downloaded by a previous attempt.
+     * @param etag The ETag reported by the server, or null if it is unknown.
+     */
+    public record Download(boolean modified, long size, long lastModified, long resumedFrom, @Nullable String etag) {}
+
+    /**
+     * Receives the progress of a download.
+     */
+    public interface Listener {
+
+        Listener NONE = bytes -> {};
+
+        /**
+         * Invoked when the server started sending the file, this can happen multiple times when attempts are retried.
+         *
+         * @param size The total size of the file, or a negative value if it is unknown.
+         * @param offset The number of bytes which are already present.
+         */
+        default void started(long size, long offset) {
+        }
+
+        /**
+         * @param bytes The number of bytes which were received.
+         */
+        void transferred(long bytes);
+    }
+
+    private record SynchronizedListener(Listener delegate) implements Listener {
+
+        @Override
+        public synchronized void started(long size, long offset) {
+            delegate.started(size, offset);
+        }
+
+        @Override
+        public synchronized void transferred(long bytes) {
+            delegate.transferred(bytes);
+        }
+    }
+
+    /**
+     * Identifies the version of a file on the server, so that a partial file is only resumed if the file did not change.
+     */
+    private record Validator(@Nullable String etag, long lastModified, long length, boolean acceptsRanges) {
+
+        private static Validator of(HttpURLConnection connection) {
+            return new Validator(
+                    connection.getHeaderField("ETag"),
+                    connection.getLastModified(),
+                    connection.getContentLengthLong(),
+                    "bytes".equalsIgnoreCase(connection.getHeaderField("Accept-Ranges"))
+            );
+        }
+
+        /**
+         * Weak ETags can not be used for ranges, and without a length the completeness of the file can not be verified.
+         */
+        private boolean isResumable() {
+            final boolean strongEtag = etag != null && !etag.startsWith("W/");
+            return length >= 0 && (strongEtag || lastModified > 0);
+        }
+
+        private String ifRange() {
+            if (etag != null && !etag.startsWith("W/")) {
+                return etag;
+            }
+
+            return HTTP_DATE.format(Instant.ofEpochMilli(lastModified).atOffset(ZoneOffset.UTC));
+        }
+
+        @Nullable
+        private static Validator read(Path file) throws IOException {
+            final Properties properties = new Properties();
+            try (InputStream input = Files.newInputStream(file)) {
+                properties.load(input);
+                return new Validator(
+                        properties.getProperty("etag"),
+                        Long.parseLong(properties.getProperty("lastModified", "0")),
+                        Long.parseLong(properties.getProperty("length", "-1")),
+                        Boolean.parseBoolean(properties.getProperty("acceptsRanges"))
+                );
+            } catch (NoSuchFileException e) {
+                return null;
+            } catch (IllegalArgumentException e) {
+                //A corrupt validator, the partial file will be discarded.
+                return null;
+            }
+        }
+
+        private void write(Path file) throws IOException {
+            final Properties properties = new Properties();
+            if (etag != null) {
+                properties.setProperty("etag", etag);
+            }
+            properties.setProperty("lastModified", Long.toString(lastModified));
+            properties.setProperty("length", Long.toString(length));
+            properties.setProperty("acceptsRanges", Boolean.toString(acceptsRanges));
+            try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+                properties.store(writer, null);
+            }
+        }
+    }
+
+    private static final class SegmentThreadFactory implements ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            final Thread thread = new Thread(runnable, "NeoGradle segmented download #" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+
+    private static final class HttpStatusException extends IOException {
+        private final int status;
+
+        private HttpStatusException(URL url, int status) {
+            super("Failed to download " + url + ", HTTP-Status: " + status);
+            this.status = status;
+        }
+
+        public int status() {
+            return status;
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package net.neoforged.gradle.common.util.download;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Defines how often, and with which delay, a failed download is retried.
+ * The delay grows exponentially with every attempt, up to the maximum delay, and is randomized so that concurrent
+ * downloads which failed at the same time do not retry at the same time.
+ *
+ * @param maxAttempts The maximum number of attempts, including the first one.
+ * @param initialDelay The delay before the first retry.
+ * @param maxDelay The maximum delay between two attempts.
+ */
+public record RetryPolicy(int maxAttempts, Duration initialDelay, Duration maxDelay) {
+
+    public static final RetryPolicy DEFAULT = new RetryPolicy(6, Duration.ofMillis(250), Duration.ofSeconds(10));
+
+    public RetryPolicy {
+        if (maxAttempts < 1) {
+            throw new IllegalArgumentException("At least one attempt is required, got: " + maxAttempts);
+        }
+    }
+
+    /**
+     * @param attempt The attempt which failed, starting at one.
+     * @return The delay before the next attempt.
+     */
+    public Duration delay(int attempt) {
+        final long initial = Math.max(1, initialDelay.toMillis());
+        final long exponential = initial << Math.min(attempt - 1, 20);
+        final long capped = Math.min(exponential, Math.max(initial, maxDelay.toMillis()));
+        //Between half and the full delay.
+        return Duration.ofMillis(capped / 2 + ThreadLocalRandom.current().nextLong(capped / 2 + 1));
+    }
+}
@@ -0,0 +1,145 @@
+package net.neoforged.gradle.common.util.hash;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+
+/**
+ * Hashes directories into a Merkle tree.
+ * <p>
+ * The entries of every directory are sorted by name, so the digest does not depend on the order in which the file
+ * system lists them.
+ * Files are hashed in parallel on a bounded pool, after which the digest of every directory is computed from the names,
+ * kinds and digests of its children.
+ * The name of the hashed directory itself is not part of its digest, so two directories with the same contents have
+ * the same digest, and the digest of an unchanged subtree stays the same when other parts of the tree change.
+ */
+public final class DirectoryHasher {
+
+    private static final ForkJoinPool POOL = new ForkJoinPool(
+            Math.max(1, Math.min(8, Runtime.getRuntime().availableProcessors())),
+            pool -> {
+                final ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+                thread.setName("NeoGradle Directory Hasher " + thread.getPoolIndex());
+                thread.setDaemon(true);
+                return thread;
+            },
+            null,
+            false
+    );
+
+    /**
+     * Computes the digest of a single file.
+     */
+    @FunctionalInterface
+    public interface FileHasher {
+        HashCode hash(File file) throws IOException;
+    }
+
+    private final HashFunction function;
+    private final FileHasher fileHasher;
+    private final Executor executor;
+
+    public DirectoryHasher(HashFunction function) {
+        this(function, function::hashFile);
+    }
+
+    public DirectoryHasher(HashFunction function, FileHasher fileHasher) {
+        this(function, fileHasher, POOL);
+    }
+
+    public DirectoryHasher(HashFunction function, FileHasher fileHasher, Executor executor) {
+        this.function = function;
+        this.fileHasher = fileHasher;
+        this.executor = executor;
+    }
+
+    /**
+     * Hashes the given directory.
+     *
+     * @param directory The directory to hash.
+     * @return The root node of the hashed tree.
+     * @throws IOException If a file could not be read.
+     */
+    public Node hash(File directory) throws IOException {
+        final PendingNode root = scan(directory);
+        try {
+            return root.resolve(function);
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof UncheckedIOException io) {
+                throw io.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private PendingNode scan(File directory) throws IOException {
+        final String[] names = directory.list();
+        if (names == null) {
+            throw new IOException("Failed to list directory: %s".formatted(directory.getAbsolutePath()));
+        }
+        Arrays.sort(names);
+
+        final List<PendingNode> children = new ArrayList<>(names.length);
+        for (String name : names) {
+            final File child = new File(directory, name);
+            if (child.isDirectory()) {
+                children.add(scan(child));
+            } else {
+                children.add(new PendingNode(name, CompletableFuture.supplyAsync(() -> {
+                    try {
+                        return fileHasher.hash(child);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }, executor), List.of()));
+            }
+        }
+
+        return new PendingNode(directory.getName(), null, children);
+    }
+
+    private record PendingNode(String name, @Nullable CompletableFuture<HashCode> file, List<PendingNode> children) {
+
+        private Node resolve(HashFunction function) {
+            if (file != null) {
+                return new Node(name, false, file.join(), List.of());
+            }
+
+            final List<Node> resolved = new ArrayList<>(children.size());
+            final Hasher hasher = function.newHasher();
+            hasher.putString("DIRECTORY");
+            for (PendingNode child : children) {
+                final Node node = child.resolve(function);
+                hasher.putString(node.name());
+                hasher.putBoolean(node.directory());
+                hasher.putHash(node.hash());
+                resolved.add(node);
+            }
+
+            return new Node(name, true, hasher.hash(), Collections.unmodifiableList(resolved));
+        }
+    }
+
+    /**
+     * A node of a hashed directory tree.
+     *
+     * @param name The name of the file or directory.
+     * @param directory Whether the node is a directory.
+     * @param hash The digest of the file contents, or of the subtree for a directory.
+     * @param children The children of a directory, sorted by name.
+     */
+    public record Node(String name, boolean directory, HashCode hash, List<Node> children) {
+    }
+}
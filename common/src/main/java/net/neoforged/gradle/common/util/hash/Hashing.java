@@ -1,7 +1,7 @@
 package net.neoforged.gradle.common.util.hash;
 
 import com.google.common.io.ByteStreams;
-import com.google.common.io.Files;
+import net.neoforged.gradle.util.DigestUtils;
 import org.jetbrains.annotations.Nullable;
 
 import java.io.File;
@@ -13,6 +13,7 @@ import java.nio.ByteOrder;
 import java.nio.charset.Charset;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
 import java.util.Objects;
 
 public class Hashing {
@@ -61,19 +62,7 @@ public class Hashing {
     }
 
     public static HashCode hashDirectory(File file) throws IOException {
-        Hasher hasher = newHasher();
-        hasher.putString("DIRECTORY");
-        hasher.putString(file.getName());
-        for (File listFile : Objects.requireNonNull(file.listFiles())) {
-            final HashCode innerHash;
-            if (listFile.isFile()) {
-                 innerHash = hashFile(listFile);
-            } else {
-                innerHash = hashDirectory(listFile);
-            }
-            hasher.putHash(innerHash);
-        }
-        return hasher.hash();
+        return new DirectoryHasher(DEFAULT).hash(file).hash();
     }
 
     public static HashCode hashHashable(Hashable hashable) {
@@ -376,16 +365,18 @@ public class Hashing {
                 if (file.isDirectory()) {
                     final Hasher hasher = this.newHasher();
 
-                    for (File listFile : Objects.requireNonNull(file.listFiles())) {
+                    final File[] listFiles = Objects.requireNonNull(file.listFiles());
+                    Arrays.sort(listFiles);
+                    for (File listFile : listFiles) {
                         final HashCode innerHash = this.hashFile(listFile);
                         hasher.putHash(innerHash);
                     }
 
                     return hasher.hash();
                 } else {
-                    HashingOutputStream hashingOutputStream = this.primitiveStreamHasher();
-                    Files.copy(file, hashingOutputStream);
-                    return hashingOutputStream.hash();
+                    final MessageDigest digest = this.createDigest();
+                    DigestUtils.update(digest, file.toPath());
+                    return HashCode.fromBytes(digest.digest(), HashCode.Usage.SAFE_TO_REUSE_BYTES);
                 }
             } else {
                 return HashCode.fromString("");
@@ -0,0 +1,431 @@
+package net.neoforged.gradle.common.util.tools;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.security.Permission;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalInt;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Runs tools in the JVM of the build, each from an isolated class loader which is kept between the runs of the tool.
+ * <p>
+ * The class loaders only see the classpath of their tool and the platform classes, never the classes of the build.
+ * Concurrent runs of the same tool each receive a class loader of their own, which returns to the pool once the run
+ * completed, so runs of a tool never share static state at the same time. While a tool runs, everything the threads it
+ * started write to {@link System#out} and {@link System#err} goes to the streams of its run, and their calls to
+ * {@link System#exit(int)} end the run instead of the build. Threads which the tool did not start, like those of the
+ * common fork join pool, are neither routed nor trapped.
+ * <p>
+ * Trapping exits requires a security manager. It is installed, and the standard streams replaced, only while at least
+ * one tool runs, and both are restored once no tool runs anymore. A JVM which does not allow a security manager can
+ * not run tools in process, and its callers have to fall back to another mode.
+ */
+public final class InProcessTools implements Closeable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(InProcessTools.class);
+
+    /**
+     * The run of the current thread, inherited by the threads the tool starts.
+     */
+    private static final InheritableThreadLocal<Run> CURRENT = new InheritableThreadLocal<>();
+
+    private static final Object RUNS_LOCK = new Object();
+    private static int activeRuns;
+    private static PrintStream originalOut;
+    private static PrintStream originalErr;
+    private static PrintStream routedOut;
+    private static PrintStream routedErr;
+
+    private final Map<List<File>, Deque<URLClassLoader>> idle = new HashMap<>();
+    private final Set<List<File>> unsupported = ConcurrentHashMap.newKeySet();
+    private boolean closed;
+
+    /**
+     * @return True if this JVM can trap the exits of tools, and as such run them in process.
+     */
+    public static boolean trapsExit() {
+        if (!beginRun()) {
+            return false;
+        }
+
+        endRun();
+        return true;
+    }
+
+    /**
+     * Runs the tool in process.
+     *
+     * @param classpath The classpath of the tool.
+     * @param mainClass The main class of the tool.
+     * @param args The program arguments.
+     * @param output The stream which receives the standard output of the run.
+     * @param error The stream which receives the error output of the run.
+     * @return The exit code of the run, or empty if the tool can not be run in process.
+     */
+    public OptionalInt run(List<File> classpath, String mainClass, List<String> args, OutputStream output, OutputStream error) {
+        final List<File> key = key(classpath);
+        if (unsupported.contains(key)) {
+            return OptionalInt.empty();
+        }
+
+        final URLClassLoader loader;
+        try {
+            loader = acquire(key);
+        } catch (MalformedURLException e) {
+            LOGGER.info("Failed to create the class loader of a tool, the tool does not run in process", e);
+            markUnsupported(key);
+            return OptionalInt.empty();
+        }
+
+        if (loader == null) {
+            return OptionalInt.empty();
+        }
+
+        if (!beginRun()) {
+            LOGGER.info("The JVM of the build can not trap exits, the tool does not run in process");
+            closeQuietly(loader);
+            markUnsupported(key);
+            return OptionalInt.empty();
+        }
+
+        final Run run = new Run(output, error);
+        final Thread thread = new Thread(() -> {
+            CURRENT.set(run);
+            run.run(loader, mainClass, args.toArray(String[]::new));
+        }, "tool-main");
+        thread.setContextClassLoader(loader);
+
+        try {
+            thread.start();
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            thread.interrupt();
+            run.close();
+            closeQuietly(loader);
+            return OptionalInt.empty();
+        } finally {
+            System.out.flush();
+            System.err.flush();
+            endRun();
+        }
+
+        //Output of threads the tool left behind is dropped from now on.
+        run.close();
+        release(key, loader);
+
+        if (run.failure != null) {
+            run.failure.printStackTrace(new PrintStream(error, true));
+            return OptionalInt.of(1);
+        }
+        return OptionalInt.of(run.exitCode == null ? 0 : run.exitCode);
+    }
+
+    /**
+     * Prevents the tool from being run in process again, for example because it did not behave in process.
+     */
+    public void markUnsupported(List<File> classpath) {
+        final List<File> key = key(classpath);
+        unsupported.add(key);
+        final List<URLClassLoader> loaders;
+        synchronized (this) {
+            final Deque<URLClassLoader> removed = idle.remove(key);
+            loaders = removed == null ? List.of() : new ArrayList<>(removed);
+        }
+        loaders.forEach(InProcessTools::closeQuietly);
+    }
+
+    private URLClassLoader acquire(List<File> key) throws MalformedURLException {
+        synchronized (this) {
+            if (closed) {
+                return null;
+            }
+
+            final Deque<URLClassLoader> loaders = idle.get(key);
+            if (loaders != null && !loaders.isEmpty()) {
+                return loaders.pop();
+            }
+        }
+
+        final URL[] urls = new URL[key.size()];
+        for (int i = 0; i < urls.length; i++) {
+            urls[i] = key.get(i).toURI().toURL();
+        }
+        return new URLClassLoader("tool", urls, ClassLoader.getPlatformClassLoader());
+    }
+
+    private void release(List<File> key, URLClassLoader loader) {
+        synchronized (this) {
+            if (!closed && !unsupported.contains(key)) {
+                idle.computeIfAbsent(key, k -> new ArrayDeque<>()).push(loader);
+                return;
+            }
+        }
+
+        closeQuietly(loader);
+    }
+
+    private static List<File> key(List<File> classpath) {
+        return classpath.stream().map(File::getAbsoluteFile).toList();
+    }
+
+    private static void closeQuietly(URLClassLoader loader) {
+        try {
+            loader.close();
+        } catch (IOException e) {
+            LOGGER.debug("Failed to close the class loader of a tool", e);
+        }
+    }
+
+    /**
+     * Installs the exit trap and replaces the standard streams with streams which write to the run of the writing
+     * thread, if this is the only run. Threads which do not belong to a run keep writing to the original streams.
+     *
+     * @return False if the exit trap can not be installed, in which case the run may not start.
+     */
+    private static boolean beginRun() {
+        synchronized (RUNS_LOCK) {
+            if (activeRuns == 0) {
+                if (!ExitTrap.install()) {
+                    return false;
+                }
+
+                originalOut = System.out;
+                originalErr = System.err;
+                routedOut = new PrintStream(new RoutingOutputStream(originalOut, false), true);
+                routedErr = new PrintStream(new RoutingOutputStream(originalErr, true), true);
+                System.setOut(routedOut);
+                System.setErr(routedErr);
+            }
+
+            activeRuns++;
+            return true;
+        }
+    }
+
+    /**
+     * Restores the standard streams and the security manager of the build, if this was the last run.
+     */
+    private static void endRun() {
+        synchronized (RUNS_LOCK) {
+            if (--activeRuns == 0) {
+                //Somebody else might have replaced the streams in the meantime, those are kept.
+                if (System.out == routedOut) {
+                    System.setOut(originalOut);
+                }
+                if (System.err == routedErr) {
+                    System.setErr(originalErr);
+                }
+                originalOut = originalErr = routedOut = routedErr = null;
+                ExitTrap.uninstall();
+            }
+        }
+    }
+
+    /**
+     * Closes all idle class loaders, class loaders which are still running a tool are closed once their run completes.
+     */
+    @Override
+    public void close() {
+        final List<URLClassLoader> loaders = new ArrayList<>();
+        synchronized (this) {
+            closed = true;
+            idle.values().forEach(loaders::addAll);
+            idle.clear();
+        }
+        loaders.forEach(InProcessTools::closeQuietly);
+    }
+
+    /**
+     * A single run of a tool.
+     */
+    private static final class Run {
+
+        private final OutputStream output;
+        private final OutputStream error;
+        private volatile boolean closed;
+        private volatile Integer exitCode;
+        private volatile Throwable failure;
+
+        private Run(OutputStream output, OutputStream error) {
+            this.output = output;
+            this.error = error;
+        }
+
+        private void run(ClassLoader loader, String mainClass, String[] arguments) {
+            try {
+                final Method main = Class.forName(mainClass, true, loader).getMethod("main", String[].class);
+                main.invoke(null, (Object) arguments);
+            } catch (InvocationTargetException e) {
+                if (exitCode == null && !(e.getCause() instanceof ExitTrappedException)) {
+                    failure = e.getCause();
+                }
+            } catch (ExitTrappedException e) {
+                //The exit code was recorded when the exit was trapped.
+            } catch (Throwable e) {
+                if (exitCode == null) {
+                    failure = e;
+                }
+            }
+        }
+
+        private void close() {
+            closed = true;
+        }
+    }
+
+    /**
+     * Writes to the run of the current thread, or to the original stream if the thread does not belong to a run.
+     */
+    private static final class RoutingOutputStream extends OutputStream {
+
+        private final PrintStream original;
+        private final boolean error;
+
+        private RoutingOutputStream(PrintStream original, boolean error) {
+            this.original = original;
+            this.error = error;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            final Run run = CURRENT.get();
+            if (run == null) {
+                original.write(bytes, offset, length);
+            } else if (!run.closed) {
+                final OutputStream target = error ? run.error : run.output;
+                synchronized (target) {
+                    target.write(bytes, offset, length);
+                }
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            final Run run = CURRENT.get();
+            if (run == null) {
+                original.flush();
+            } else if (!run.closed) {
+                (error ? run.error : run.output).flush();
+            }
+        }
+    }
+
+    /**
+     * Turns calls to {@link System#exit(int)} from the threads of a run into the exit code of the run, and leaves every
+     * other check to the security manager it replaced, if any.
+     */
+    @SuppressWarnings("removal")
+    private static final class ExitTrap extends SecurityManager {
+
+        private static Boolean supported;
+        private static ExitTrap installed;
+
+        private final SecurityManager previous;
+
+        private ExitTrap(SecurityManager previous) {
+            this.previous = previous;
+        }
+
+        /**
+         * Installs the trap in place of the current security manager, called under the lock of the runs.
+         *
+         * @return False if this JVM does not allow a security manager.
+         */
+        private static boolean install() {
+            if (Boolean.FALSE.equals(supported)) {
+                return false;
+            }
+
+            try {
+                final ExitTrap trap = new ExitTrap(System.getSecurityManager());
+                System.setSecurityManager(trap);
+                installed = trap;
+                supported = true;
+            } catch (UnsupportedOperationException | SecurityException e) {
+                //The security manager is disabled, no longer exists, or the current one does not allow replacing it.
+                supported = false;
+            }
+            return supported;
+        }
+
+        /**
+         * Puts the replaced security manager back, called under the lock of the runs.
+         */
+        private static void uninstall() {
+            final ExitTrap trap = installed;
+            installed = null;
+            //Somebody else might have replaced the trap in the meantime, theirs is kept.
+            if (trap == null || System.getSecurityManager() != trap) {
+                return;
+            }
+
+            try {
+                System.setSecurityManager(trap.previous);
+            } catch (SecurityException e) {
+                LOGGER.warn("Failed to restore the security manager of the build after running a tool in process", e);
+            }
+        }
+
+        @Override
+        public void checkPermission(Permission perm) {
+            if (previous != null) {
+                previous.checkPermission(perm);
+            }
+        }
+
+        @Override
+        public void checkPermission(Permission perm, Object context) {
+            if (previous != null) {
+                previous.checkPermission(perm, context);
+            }
+        }
+
+        @Override
+        public void checkExit(int status) {
+            final Run run = CURRENT.get();
+            if (run == null) {
+                if (previous != null) {
+                    previous.checkExit(status);
+                }
+                return;
+            }
+
+            //Threads a tool left behind never end the build while the trap is installed.
+            if (!run.closed && run.exitCode == null) {
+                run.exitCode = status;
+            }
+            throw new ExitTrappedException(status);
+        }
+    }
+
+    private static final class ExitTrappedException extends SecurityException {
+
+        private ExitTrappedException(int status) {
+            super("The tool exited with code " + status);
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package net.neoforged.gradle.common.util.tools;
+
+import javax.annotation.Nullable;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A JVM which stays alive between runs of a tool, so the tool pays for the startup of the JVM, the loading of its
+ * classes and the warm-up of the JIT only once.
+ * <p>
+ * The daemon is driven over its standard streams. It first answers with a magic number and whether it can trap calls
+ * to {@link System#exit(int)}. Every request then consists of the main class and the arguments, and is answered by any
+ * number of output and error frames, followed by a frame with the exit code, or with the stack trace of the exception
+ * the tool failed with. Strings are sent as their length followed by their UTF-8 bytes.
+ * <p>
+ * Everything the JVM of the daemon writes to its own error stream, like warnings of the JVM and output of threads the
+ * tool left behind, is written to the error log of the daemon.
+ * <p>
+ * A daemon runs a single request at a time, and is not thread safe.
+ *
+ * @see ToolDaemonMain
+ */
+public final class ToolDaemon implements Closeable {
+
+    private static final long CLOSE_TIMEOUT_SECONDS = 5;
+
+    private final Key key;
+    private final File errorLog;
+    private final Process process;
+    private final DataOutputStream requests;
+    private final DataInputStream responses;
+    private final boolean trapsExit;
+
+    private ToolDaemon(Key key, File errorLog, Process process, DataOutputStream requests, DataInputStream responses, boolean trapsExit) {
+        this.key = key;
+        this.errorLog = errorLog;
+        this.process = process;
+        this.requests = requests;
+        this.responses = responses;
+        this.trapsExit = trapsExit;
+    }
+
+    /**
+     * Starts a daemon for the given tool, and waits until it is ready.
+     *
+     * @param key The JVM and classpath of the tool.
+     * @param errorLog The file which receives the error output of the JVM of the daemon.
+     * @return The started daemon.
+     * @throws IOException If the daemon could not be started, for example because the JVM is too old to run it.
+     */
+    public static ToolDaemon start(Key key, File errorLog) throws IOException {
+        final List<String> command = new ArrayList<>();
+        command.add(key.executable());
+        command.addAll(key.jvmArgs());
+        if (key.javaVersion() >= 18 && key.javaVersion() < 24) {
+            //Installing a security manager at runtime has to be allowed explicitly from 18 on, and is impossible from 24 on.
+            command.add("-Djava.security.manager=allow");
+        }
+        command.add("-cp");
+        command.add(daemonClasspath());
+        command.add(ToolDaemonMain.class.getName());
+        for (File entry : key.classpath()) {
+            command.add(entry.getAbsolutePath());
+        }
+
+        final File logDirectory = errorLog.getAbsoluteFile().getParentFile();
+        if (!logDirectory.isDirectory() && !logDirectory.mkdirs()) {
+            throw new IOException("Failed to create the log directory of the tool daemon: " + logDirectory);
+        }
+
+        final Process process = new ProcessBuilder(command)
+                .directory(key.workingDirectory())
+                .redirectError(ProcessBuilder.Redirect.to(errorLog))
+                .start();
+        try {
+            final DataOutputStream requests = new DataOutputStream(new BufferedOutputStream(process.getOutputStream()));
+            final DataInputStream responses = new DataInputStream(new BufferedInputStream(process.getInputStream()));
+            if (responses.readInt() != ToolDaemonMain.MAGIC) {
+                throw new IOException("The tool daemon did not start correctly");
+            }
+
+            return new ToolDaemon(key, errorLog, process, requests, responses, responses.readBoolean());
+        } catch (IOException | RuntimeException e) {
+            process.destroyForcibly();
+            throw new IOException("Failed to start a tool daemon for: " + key.classpath() + ", see: " + errorLog, e);
+        }
+    }
+
+    /**
+     * @return The location of the daemon entry point, which is the only thing the daemon has on its own classpath.
+     */
+    private static String daemonClasspath() throws IOException {
+        try {
+            return new File(ToolDaemonMain.class.getProtectionDomain().getCodeSource().getLocation().toURI()).getAbsolutePath();
+        } catch (URISyntaxException | NullPointerException e) {
+            throw new IOException("Failed to locate the tool daemon entry point", e);
+        }
+    }
+
+    /**
+     * @return The JVM and classpath of the tool this daemon runs.
+     */
+    public Key getKey() {
+        return key;
+    }
+
+    /**
+     * @return The file which receives the error output of the JVM of the daemon.
+     */
+    public File getErrorLog() {
+        return errorLog;
+    }
+
+    /**
+     * @return True if the daemon turns calls to {@link System#exit(int)} into the exit code of a run.
+     */
+    public boolean trapsExit() {
+        return trapsExit;
+    }
+
+    /**
+     * @return True if the daemon can accept another run.
+     */
+    public boolean isAlive() {
+        return process.isAlive();
+    }
+
+    /**
+     * Runs the main class of the tool, and waits for it to complete.
+     *
+     * @param mainClass The main class of the tool.
+     * @param args The program arguments.
+     * @param output The stream which receives the standard output of this run.
+     * @param error The stream which receives the error output of this run.
+     * @return The exit code of the run.
+     * @throws IOException If the daemon died during the run, or could not be reached.
+     */
+    public int run(String mainClass, List<String> args, OutputStream output, OutputStream error) throws IOException {
+        ToolDaemonMain.writeString(requests, mainClass);
+        requests.writeInt(args.size());
+        for (String arg : args) {
+            ToolDaemonMain.writeString(requests, arg);
+        }
+        requests.flush();
+
+        byte[] buffer = new byte[8192];
+        while (true) {
+            final byte type = responses.readByte();
+            switch (type) {
+                case ToolDaemonMain.FRAME_OUT, ToolDaemonMain.FRAME_ERR -> {
+                    final int length = responses.readInt();
+                    if (buffer.length < length) {
+                        buffer = new byte[length];
+                    }
+                    responses.readFully(buffer, 0, length);
+                    (type == ToolDaemonMain.FRAME_OUT ? output : error).write(buffer, 0, length);
+                }
+                case ToolDaemonMain.FRAME_EXIT -> {
+                    output.flush();
+                    error.flush();
+                    return responses.readInt();
+                }
+                case ToolDaemonMain.FRAME_FAILURE -> {
+                    error.write(ToolDaemonMain.readString(responses).getBytes(StandardCharsets.UTF_8));
+                    output.flush();
+                    error.flush();
+                    return 1;
+                }
+                default -> throw new IOException("Unknown frame from the tool daemon: " + type);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            requests.close();
+            if (!process.waitFor(CLOSE_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+            }
+        } catch (IOException e) {
+            process.destroyForcibly();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            process.destroyForcibly();
+        }
+    }
+
+    /**
+     * Identifies the daemons which can run a tool: the same tool on the same JVM, with the same JVM arguments and
+     * working directory.
+     *
+     * @param executable The java executable.
+     * @param javaVersion The feature version of the java executable.
+     * @param jvmArgs The JVM arguments.
+     * @param classpath The classpath of the tool.
+     * @param workingDirectory The working directory of the tool, or null if the tool only takes absolute paths and can
+     *                         run in any directory.
+     */
+    public record Key(String executable, int javaVersion, List<String> jvmArgs, List<File> classpath, @Nullable File workingDirectory) {
+
+        public Key {
+            jvmArgs = List.copyOf(jvmArgs);
+            classpath = classpath.stream().map(File::getAbsoluteFile).toList();
+            workingDirectory = workingDirectory == null ? null : workingDirectory.getAbsoluteFile();
+        }
+
+        public Key(String executable, int javaVersion, List<String> jvmArgs, List<File> classpath) {
+            this(executable, javaVersion, jvmArgs, classpath, null);
+        }
+    }
+}
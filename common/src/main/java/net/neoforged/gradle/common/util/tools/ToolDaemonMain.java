@@ -0,0 +1,246 @@
+package net.neoforged.gradle.common.util.tools;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileDescriptor;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.security.Permission;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The entry point of a tool daemon, a JVM which runs the main class of a tool for one request after another.
+ * <p>
+ * The daemon reads its requests from its standard input, and answers through frames on its standard output, see
+ * {@link ToolDaemon} for the protocol. The tool is loaded once, by a class loader of its own, so its classes stay loaded
+ * and compiled between requests. While a request runs, everything the tool writes to {@link System#out} and
+ * {@link System#err} is sent as frames of that request, and calls to {@link System#exit(int)} end the request instead
+ * of the daemon.
+ * <p>
+ * This class runs in the daemon, so it may only use the JDK.
+ */
+public final class ToolDaemonMain {
+
+    static final int MAGIC = 0x4E47_5444;
+
+    static final byte FRAME_OUT = 1;
+    static final byte FRAME_ERR = 2;
+    static final byte FRAME_EXIT = 3;
+    static final byte FRAME_FAILURE = 4;
+
+    private static final Object CHANNEL_LOCK = new Object();
+    private static volatile Request active;
+
+    private ToolDaemonMain() {
+    }
+
+    /**
+     * @param args The classpath of the tool, one entry per argument.
+     */
+    public static void main(String[] args) throws IOException {
+        //The protocol owns the real standard streams, the tool only ever sees the redirected ones.
+        final DataInputStream input = new DataInputStream(new FileInputStream(FileDescriptor.in));
+        final DataOutputStream channel = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(FileDescriptor.out)));
+        System.setIn(new ByteArrayInputStream(new byte[0]));
+        System.setOut(new PrintStream(new BufferedOutputStream(new FrameOutputStream(channel, FRAME_OUT)), true));
+        System.setErr(new PrintStream(new BufferedOutputStream(new FrameOutputStream(channel, FRAME_ERR)), true));
+
+        final boolean trapsExit = installExitTrap();
+        synchronized (CHANNEL_LOCK) {
+            channel.writeInt(MAGIC);
+            channel.writeBoolean(trapsExit);
+            channel.flush();
+        }
+
+        final List<URL> classpath = new ArrayList<>();
+        for (String entry : args) {
+            classpath.add(new File(entry).toURI().toURL());
+        }
+        System.setProperty("java.class.path", String.join(File.pathSeparator, args));
+        final ClassLoader loader = new URLClassLoader(classpath.toArray(URL[]::new), ClassLoader.getPlatformClassLoader());
+
+        while (true) {
+            final String mainClass;
+            final String[] arguments;
+            try {
+                mainClass = readString(input);
+                arguments = new String[input.readInt()];
+                for (int i = 0; i < arguments.length; i++) {
+                    arguments[i] = readString(input);
+                }
+            } catch (EOFException e) {
+                //The build closed the daemon.
+                break;
+            }
+
+            run(loader, mainClass, arguments, channel);
+        }
+
+        System.exit(0);
+    }
+
+    private static void run(ClassLoader loader, String mainClass, String[] arguments, DataOutputStream channel) throws IOException {
+        final Request request = new Request();
+        final Thread thread = new Thread(() -> request.run(loader, mainClass, arguments), "tool-main");
+        thread.setContextClassLoader(loader);
+
+        active = request;
+        thread.start();
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while running the tool", e);
+        } finally {
+            System.out.flush();
+            System.err.flush();
+            active = null;
+        }
+
+        synchronized (CHANNEL_LOCK) {
+            if (request.exitCode != null) {
+                channel.writeByte(FRAME_EXIT);
+                channel.writeInt(request.exitCode);
+            } else if (request.failure != null) {
+                final StringWriter trace = new StringWriter();
+                request.failure.printStackTrace(new PrintWriter(trace));
+                channel.writeByte(FRAME_FAILURE);
+                writeString(channel, trace.toString());
+            } else {
+                channel.writeByte(FRAME_EXIT);
+                channel.writeInt(0);
+            }
+            channel.flush();
+        }
+    }
+
+    @SuppressWarnings("removal")
+    private static boolean installExitTrap() {
+        try {
+            System.setSecurityManager(new ExitTrap());
+            return true;
+        } catch (UnsupportedOperationException | SecurityException e) {
+            //The security manager is disabled, or no longer exists.
+            return false;
+        }
+    }
+
+    static String readString(DataInputStream input) throws IOException {
+        final byte[] bytes = new byte[input.readInt()];
+        input.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    static void writeString(DataOutputStream output, String value) throws IOException {
+        final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    /**
+     * A single run of the tool.
+     */
+    private static final class Request {
+
+        private volatile Integer exitCode;
+        private volatile Throwable failure;
+
+        private void run(ClassLoader loader, String mainClass, String[] arguments) {
+            try {
+                final Method main = Class.forName(mainClass, true, loader).getMethod("main", String[].class);
+                main.invoke(null, (Object) arguments);
+            } catch (InvocationTargetException e) {
+                if (exitCode == null) {
+                    failure = e.getCause();
+                }
+            } catch (ExitTrappedException e) {
+                //The exit code was recorded when the exit was trapped.
+            } catch (Throwable e) {
+                if (exitCode == null) {
+                    failure = e;
+                }
+            }
+        }
+    }
+
+    /**
+     * Sends everything written while a request runs as frames of the given type, and drops what is written between
+     * requests, for example by threads the previous request left behind.
+     */
+    private static final class FrameOutputStream extends OutputStream {
+
+        private final DataOutputStream channel;
+        private final byte type;
+
+        private FrameOutputStream(DataOutputStream channel, byte type) {
+            this.channel = channel;
+            this.type = type;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            if (active == null || length == 0) {
+                return;
+            }
+
+            synchronized (CHANNEL_LOCK) {
+                channel.writeByte(type);
+                channel.writeInt(length);
+                channel.write(bytes, offset, length);
+                channel.flush();
+            }
+        }
+    }
+
+    @SuppressWarnings("removal")
+    private static final class ExitTrap extends SecurityManager {
+
+        @Override
+        public void checkPermission(Permission perm) {
+        }
+
+        @Override
+        public void checkPermission(Permission perm, Object context) {
+        }
+
+        @Override
+        public void checkExit(int status) {
+            final Request request = active;
+            if (request == null) {
+                return;
+            }
+
+            if (request.exitCode == null) {
+                request.exitCode = status;
+            }
+            throw new ExitTrappedException(status);
+        }
+    }
+
+    private static final class ExitTrappedException extends SecurityException {
+
+        private ExitTrappedException(int status) {
+            super("The tool exited with code " + status);
+        }
+    }
+}
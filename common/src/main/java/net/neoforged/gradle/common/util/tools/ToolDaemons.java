@@ -0,0 +1,150 @@
+package net.neoforged.gradle.common.util.tools;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalInt;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The tool daemons of a build, kept idle between the runs of their tool.
+ * <p>
+ * Concurrent runs of the same tool each receive a daemon of their own, which returns to the pool once the run
+ * completed. A tool whose daemon can not be started, can not trap {@link System#exit(int)}, or dies during a run is
+ * not run in a daemon again, and its callers have to fall back to a forked JVM. A tool which fails with an exit code
+ * does not, its failure is the result of the run.
+ */
+public final class ToolDaemons implements Closeable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ToolDaemons.class);
+
+    private final File logDirectory;
+    private final Map<ToolDaemon.Key, Deque<ToolDaemon>> idle = new HashMap<>();
+    private final Set<ToolDaemon.Key> unsupported = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger started = new AtomicInteger();
+    private boolean closed;
+
+    /**
+     * @param logDirectory The directory which receives the error logs of the daemons.
+     */
+    public ToolDaemons(File logDirectory) {
+        this.logDirectory = logDirectory;
+    }
+
+    /**
+     * Runs the tool in a daemon.
+     *
+     * @param key The JVM and classpath of the tool.
+     * @param mainClass The main class of the tool.
+     * @param args The program arguments.
+     * @param output The stream which receives the standard output of the run.
+     * @param error The stream which receives the error output of the run.
+     * @return The exit code of the run, or empty if the tool can not be run in a daemon.
+     */
+    public OptionalInt run(ToolDaemon.Key key, String mainClass, List<String> args, OutputStream output, OutputStream error) {
+        if (unsupported.contains(key)) {
+            return OptionalInt.empty();
+        }
+
+        final ToolDaemon daemon;
+        try {
+            daemon = acquire(key);
+        } catch (IOException e) {
+            LOGGER.info("Failed to start a tool daemon, the tool runs in a forked JVM instead", e);
+            markUnsupported(key);
+            return OptionalInt.empty();
+        }
+
+        if (daemon == null) {
+            return OptionalInt.empty();
+        }
+
+        if (!daemon.trapsExit()) {
+            LOGGER.info("The JVM of the tool can not trap exits, the tool runs in a forked JVM instead");
+            daemon.close();
+            markUnsupported(key);
+            return OptionalInt.empty();
+        }
+
+        final int exitCode;
+        try {
+            exitCode = daemon.run(mainClass, args, output, error);
+        } catch (IOException e) {
+            LOGGER.info("The tool daemon died during a run, the tool runs in a forked JVM instead, see: {}", daemon.getErrorLog(), e);
+            daemon.close();
+            markUnsupported(key);
+            return OptionalInt.empty();
+        }
+
+        release(daemon);
+        return OptionalInt.of(exitCode);
+    }
+
+    /**
+     * Prevents the tool from being run in a daemon again, because it did not behave in one.
+     */
+    private void markUnsupported(ToolDaemon.Key key) {
+        unsupported.add(key);
+        final List<ToolDaemon> daemons;
+        synchronized (this) {
+            final Deque<ToolDaemon> removed = idle.remove(key);
+            daemons = removed == null ? List.of() : new ArrayList<>(removed);
+        }
+        daemons.forEach(ToolDaemon::close);
+    }
+
+    private ToolDaemon acquire(ToolDaemon.Key key) throws IOException {
+        synchronized (this) {
+            if (closed) {
+                return null;
+            }
+
+            final Deque<ToolDaemon> daemons = idle.get(key);
+            while (daemons != null && !daemons.isEmpty()) {
+                final ToolDaemon daemon = daemons.pop();
+                if (daemon.isAlive()) {
+                    return daemon;
+                }
+            }
+        }
+
+        return ToolDaemon.start(key, new File(logDirectory, "daemon-" + started.incrementAndGet() + ".log"));
+    }
+
+    private void release(ToolDaemon daemon) {
+        synchronized (this) {
+            if (!closed && daemon.isAlive() && !unsupported.contains(daemon.getKey())) {
+                idle.computeIfAbsent(daemon.getKey(), k -> new ArrayDeque<>()).push(daemon);
+                return;
+            }
+        }
+
+        daemon.close();
+    }
+
+    /**
+     * Stops all idle daemons, daemons which are still running a tool are stopped once their run completes.
+     */
+    @Override
+    public void close() {
+        final List<ToolDaemon> daemons = new ArrayList<>();
+        synchronized (this) {
+            closed = true;
+            idle.values().forEach(daemons::addAll);
+            idle.clear();
+        }
+        daemons.forEach(ToolDaemon::close);
+    }
+}
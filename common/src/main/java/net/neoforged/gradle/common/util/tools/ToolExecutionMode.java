@@ -0,0 +1,19 @@
+package net.neoforged.gradle.common.util.tools;
+
+/**
+ * How a task runs its tool.
+ */
+public enum ToolExecutionMode {
+    /**
+     * In a new JVM for every run, which works for every tool.
+     */
+    FORK,
+    /**
+     * In a {@link ToolDaemon} which is reused between runs, falling back to {@link #FORK} if the tool can not run in
+     * one. Only suitable for tools which do not depend on the working directory, and do not keep state between runs.
+     * <p>
+     * If the build opts in, tasks which support it run these tools in the JVM of the build instead, from an isolated
+     * class loader which is reused between runs, see {@link InProcessTools}.
+     */
+    DAEMON
+}
@@ -0,0 +1,51 @@
+package net.neoforged.gradle.common.services.caching;
+
+import org.gradle.api.Task;
+import org.gradle.api.file.FileCollection;
+import org.gradle.api.logging.Logging;
+import org.gradle.api.tasks.TaskInputs;
+
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Creates minimal tasks for driving the {@link CachedExecutionBuilder} in tests, without a Gradle project.
+ */
+public final class TestTasks {
+
+    private TestTasks() {
+        throw new IllegalStateException("Can not instantiate an instance of: TestTasks. This is a utility class");
+    }
+
+    /**
+     * Creates a task, whose only input is the given property value.
+     *
+     * @param input The value of the input property.
+     * @return The task.
+     */
+    public static Task withInput(String input) {
+        return withInputs(Map.of("input", input));
+    }
+
+    /**
+     * Creates a task, whose only inputs are the given property values.
+     *
+     * @param properties The values of the input properties.
+     * @return The task.
+     */
+    public static Task withInputs(Map<String, ?> properties) {
+        final FileCollection files = proxy(FileCollection.class, Map.of("iterator", Collections.emptyIterator()));
+        final TaskInputs inputs = proxy(TaskInputs.class, Map.of("getProperties", properties, "getFiles", files));
+        return proxy(Task.class, Map.of("getInputs", inputs, "getPath", ":test", "getLogger", Logging.getLogger(TestTasks.class)));
+    }
+
+    private static <T> T proxy(Class<T> type, Map<String, Object> answers) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (instance, method, args) -> switch (method.getName()) {
+            case "hashCode" -> System.identityHashCode(instance);
+            case "equals" -> instance == args[0];
+            case "toString" -> type.getSimpleName();
+            default -> answers.get(method.getName());
+        }));
+    }
+}
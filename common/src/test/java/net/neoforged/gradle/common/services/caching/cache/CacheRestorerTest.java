@@ -0,0 +1,165 @@
+package net.neoforged.gradle.common.services.caching.cache;
+
+import net.neoforged.gradle.common.util.VersionJson;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermission;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CacheRestorerTest {
+
+    @TempDir
+    public Path temp;
+
+    @Test
+    public void copyRestoresAnIndependentFile() throws IOException {
+        final File source = write("cache/output", "content");
+        final File target = temp.resolve("target/output.jar").toFile();
+
+        final RestoreStrategy used = new CacheRestorer(RestoreStrategy.COPY).restoreFile(source, target);
+
+        assertEquals(RestoreStrategy.COPY, used);
+        assertEquals("content", read(target));
+        assertFalse(Files.isSameFile(source.toPath(), target.toPath()));
+        assertFalse(isReadOnly(source));
+    }
+
+    @Test
+    public void hardlinkRestoresALinkWithoutChangingPermissions() throws IOException {
+        final File source = write("cache/output", "content");
+        final File target = temp.resolve("target/output.jar").toFile();
+
+        final RestoreStrategy used = new CacheRestorer(RestoreStrategy.HARDLINK).restoreFile(source, target);
+
+        assertEquals(RestoreStrategy.HARDLINK, used);
+        assertEquals("content", read(target));
+        assertTrue(Files.isSameFile(source.toPath(), target.toPath()));
+        assertFalse(isReadOnly(source));
+    }
+
+    @Test
+    public void reflinkRestoresAnIndependentFileOrFallsBackToCopying() throws IOException {
+        final File source = write("cache/output", "content");
+        final File target = temp.resolve("target/output.jar").toFile();
+
+        final RestoreStrategy used = new CacheRestorer(RestoreStrategy.REFLINK).restoreFile(source, target);
+
+        assertTrue(used == RestoreStrategy.REFLINK || used == RestoreStrategy.COPY);
+        assertEquals("content", read(target));
+        assertFalse(Files.isSameFile(source.toPath(), target.toPath()));
+        assertFalse(isReadOnly(source));
+    }
+
+    @Test
+    public void reflinkCopiesSmallFiles() throws IOException {
+        final File source = write("cache/output", "content");
+        final File target = temp.resolve("target/output.jar").toFile();
+
+        final RestoreStrategy used = new CacheRestorer(RestoreStrategy.REFLINK).restoreFile(source, target);
+
+        assertEquals(RestoreStrategy.COPY, used);
+    }
+
+    @Test
+    public void autoRestoresAnOutputIndependentOfTheCache() throws IOException {
+        final File source = write("cache/output", "content".repeat(200_000));
+        final File target = temp.resolve("target/output.jar").toFile();
+
+        final RestoreStrategy used = new CacheRestorer(RestoreStrategy.AUTO).restoreFile(source, target);
+
+        assertTrue(used == RestoreStrategy.REFLINK || used == RestoreStrategy.COPY);
+        assertFalse(Files.isSameFile(source.toPath(), target.toPath()));
+        Files.writeString(target.toPath(), "modified", StandardCharsets.UTF_8);
+        assertEquals("content".repeat(200_000), read(source));
+    }
+
+    @Test
+    public void copyRestoresDirectories() throws IOException {
+        assertRestoresDirectory(RestoreStrategy.COPY);
+    }
+
+    @Test
+    public void hardlinkRestoresDirectories() throws IOException {
+        assertRestoresDirectory(RestoreStrategy.HARDLINK);
+        assertTrue(Files.isSameFile(temp.resolve("cache/output/nested/b.txt"), temp.resolve("target/nested/b.txt")));
+    }
+
+    @Test
+    public void reflinkRestoresDirectories() throws IOException {
+        assertRestoresDirectory(RestoreStrategy.REFLINK);
+        assertFalse(Files.isSameFile(temp.resolve("cache/output/nested/b.txt"), temp.resolve("target/nested/b.txt")));
+    }
+
+    @Test
+    public void autoRestoresDirectories() throws IOException {
+        assertRestoresDirectory(RestoreStrategy.AUTO);
+    }
+
+    @Test
+    public void linkedFilesAreConsideredEqualWithoutRestoring() throws IOException {
+        final File cacheDir = temp.resolve("cache").toFile();
+        write("cache/output", "content");
+        final File target = temp.resolve("target/output.jar").toFile();
+        final FileCache cache = new FileCache(cacheDir, new CacheRestorer(RestoreStrategy.HARDLINK));
+
+        assertTrue(cache.restoreTo(target));
+        assertFalse(cache.restoreTo(target));
+        assertEquals("content", read(target));
+    }
+
+    @Test
+    public void restoringReplacesAPreviouslyLinkedFileWithoutTouchingTheCache() throws IOException {
+        final File cacheDir = temp.resolve("cache").toFile();
+        final File cached = write("cache/output", "content");
+        final File target = temp.resolve("target/output.jar").toFile();
+        new FileCache(cacheDir, new CacheRestorer(RestoreStrategy.HARDLINK)).restoreTo(target);
+
+        final File otherCacheDir = temp.resolve("other").toFile();
+        write("other/output", "other content");
+        new FileCache(otherCacheDir, new CacheRestorer(RestoreStrategy.COPY)).restoreTo(target);
+
+        assertEquals("other content", read(target));
+        assertEquals("content", read(cached));
+    }
+
+    private void assertRestoresDirectory(RestoreStrategy strategy) throws IOException {
+        write("cache/output/a.txt", "a");
+        write("cache/output/nested/b.txt", "b");
+        final File target = temp.resolve("target").toFile();
+        Files.createDirectories(target.toPath());
+
+        new CacheRestorer(strategy).restoreDirectory(temp.resolve("cache/output").toFile(), target);
+
+        assertEquals("a", read(new File(target, "a.txt")));
+        assertEquals("b", read(new File(target, "nested/b.txt")));
+    }
+
+    private File write(String path, String content) throws IOException {
+        final Path file = temp.resolve(path);
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, content, StandardCharsets.UTF_8);
+        return file.toFile();
+    }
+
+    private static boolean isReadOnly(File file) throws IOException {
+        //File#canWrite can not be used, as it ignores permissions when running as a privileged user.
+        if (VersionJson.OS.getCurrent() == VersionJson.OS.WINDOWS) {
+            return (boolean) Files.getAttribute(file.toPath(), "dos:readonly");
+        }
+
+        return !Files.getPosixFilePermissions(file.toPath()).contains(PosixFilePermission.OWNER_WRITE);
+    }
+
+    private static String read(File file) throws IOException {
+        return Files.readString(file.toPath(), StandardCharsets.UTF_8);
+    }
+}
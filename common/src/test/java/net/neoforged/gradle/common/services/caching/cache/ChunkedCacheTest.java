@@ -0,0 +1,128 @@
+package net.neoforged.gradle.common.services.caching.cache;
+
+import net.neoforged.gradle.common.services.caching.logging.CacheLogger;
+import net.neoforged.gradle.common.services.caching.storage.ChunkCompression;
+import net.neoforged.gradle.common.services.caching.storage.ChunkManifest;
+import net.neoforged.gradle.common.services.caching.storage.ChunkStore;
+import net.neoforged.gradle.common.util.hash.Hashing;
+import org.gradle.api.logging.Logging;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ChunkedCacheTest {
+
+    private static final CacheLogger LOGGER = new CacheLogger(Logging.getLogger(ChunkedCacheTest.class), "test", false, false);
+
+    @TempDir
+    public Path temp;
+
+    @Test
+    public void directoriesAreRestoredWithAllFilesAndEmptyDirectories() throws IOException {
+        final ChunkStore store = new ChunkStore(temp.resolve("cache").toFile(), ChunkCompression.DEFLATE);
+        final File output = temp.resolve("output").toFile();
+        write(output, "a.txt", "a".getBytes(StandardCharsets.UTF_8));
+        write(output, "nested/b.bin", randomBytes(1, 16 * 1024));
+        assertTrue(new File(output, "empty/inner").mkdirs());
+        assertTrue(new File(output, "a.txt").setLastModified(1_000_000L));
+
+        final ChunkedCache cache = create(store, "entry", true);
+        cache.loadFrom(output);
+
+        final File target = temp.resolve("target").toFile();
+        assertTrue(cache.restoreTo(target));
+
+        assertEquals("a", Files.readString(new File(target, "a.txt").toPath()));
+        assertArrayEquals(randomBytes(1, 16 * 1024), Files.readAllBytes(new File(target, "nested/b.bin").toPath()));
+        assertTrue(new File(target, "empty/inner").isDirectory());
+        assertEquals(1_000_000L, new File(target, "a.txt").lastModified());
+    }
+
+    @Test
+    public void unchangedOutputsAreNotRestoredAgain() throws IOException {
+        final ChunkStore store = new ChunkStore(temp.resolve("cache").toFile(), ChunkCompression.DEFLATE);
+        final File output = temp.resolve("output.jar").toFile();
+        write(output.getParentFile(), output.getName(), randomBytes(2, 4096));
+
+        final ChunkedCache cache = create(store, "entry", false);
+        cache.loadFrom(output);
+
+        assertFalse(cache.restoreTo(output));
+
+        Files.writeString(output.toPath(), "modified");
+        assertTrue(cache.restoreTo(output));
+        assertArrayEquals(randomBytes(2, 4096), Files.readAllBytes(output.toPath()));
+    }
+
+    @Test
+    public void changedDirectoriesAreRestoredCompletely() throws IOException {
+        final ChunkStore store = new ChunkStore(temp.resolve("cache").toFile(), ChunkCompression.NONE);
+        final File output = temp.resolve("output").toFile();
+        write(output, "a.txt", "a".getBytes(StandardCharsets.UTF_8));
+
+        final ChunkedCache cache = create(store, "entry", true);
+        cache.loadFrom(output);
+
+        assertFalse(cache.restoreTo(output));
+
+        write(output, "extra.txt", "extra".getBytes(StandardCharsets.UTF_8));
+        assertTrue(cache.restoreTo(output));
+        assertFalse(new File(output, "extra.txt").exists());
+        assertEquals("a", Files.readString(new File(output, "a.txt").toPath()));
+    }
+
+    @Test
+    public void missingOutputsAreNotRestored() throws IOException {
+        final ChunkStore store = new ChunkStore(temp.resolve("cache").toFile(), ChunkCompression.NONE);
+        final ChunkedCache cache = create(store, "entry", false);
+
+        cache.loadFrom(temp.resolve("missing.jar").toFile());
+
+        assertFalse(new File(temp.resolve("cache/entry").toFile(), ChunkManifest.FILE_NAME).exists());
+        final File target = temp.resolve("target.jar").toFile();
+        assertTrue(cache.restoreTo(target));
+        assertFalse(target.exists());
+    }
+
+    @Test
+    public void entriesShareTheBlobsOfIdenticalFiles() throws IOException {
+        final ChunkStore store = new ChunkStore(temp.resolve("cache").toFile(), ChunkCompression.NONE);
+        final File output = temp.resolve("output.bin").toFile();
+        write(output.getParentFile(), output.getName(), randomBytes(3, 64 * 1024));
+
+        create(store, "first", false).loadFrom(output);
+        create(store, "second", false).loadFrom(output);
+
+        final ChunkManifest first = ChunkManifest.read(temp.resolve("cache/first/" + ChunkManifest.FILE_NAME).toFile());
+        final ChunkManifest second = ChunkManifest.read(temp.resolve("cache/second/" + ChunkManifest.FILE_NAME).toFile());
+        assertEquals(first.blobs(), second.blobs());
+        assertEquals(64 * 1024, store.statistics().deduplicatedBytes());
+    }
+
+    private ChunkedCache create(ChunkStore store, String entry, boolean directory) {
+        return new ChunkedCache(temp.resolve("cache").resolve(entry).toFile(), store, directory, file -> Hashing.sha256().hashFile(file), LOGGER);
+    }
+
+    private static void write(File directory, String path, byte[] content) throws IOException {
+        final File file = new File(directory, path);
+        file.getParentFile().mkdirs();
+        Files.write(file.toPath(), content);
+    }
+
+    private static byte[] randomBytes(long seed, int length) {
+        final byte[] bytes = new byte[length];
+        new Random(seed).nextBytes(bytes);
+        return bytes;
+    }
+}
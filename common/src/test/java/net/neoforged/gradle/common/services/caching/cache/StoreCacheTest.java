@@ -0,0 +1,179 @@
+package net.neoforged.gradle.common.services.caching.cache;
+
+import net.neoforged.gradle.common.services.caching.CachedExecutionBuilder;
+import net.neoforged.gradle.common.services.caching.TestTasks;
+import net.neoforged.gradle.common.services.caching.hasher.FileHashIndex;
+import net.neoforged.gradle.common.services.caching.hasher.PropertyFingerprinter;
+import net.neoforged.gradle.common.services.caching.jobs.ICacheableJob;
+import net.neoforged.gradle.common.services.caching.statistics.CacheStatistics;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class StoreCacheTest {
+
+    private static final FileTime WRITTEN = FileTime.fromMillis(1_600_000_000_000L);
+
+    @TempDir
+    public File temp;
+
+    private final AtomicInteger executions = new AtomicInteger();
+    private final AtomicInteger writtenObjects = new AtomicInteger();
+    private PropertyFingerprinter fingerprinter;
+
+    @Test
+    public void warmRunsDoNotCopyOrRewriteObjects() throws IOException {
+        final Map<String, String> objects = objects(50);
+
+        run("index-1", objects, "v1");
+        assertEquals(1, executions.get());
+        assertEquals(50, writtenObjects.get());
+
+        run("index-1", objects, "v1");
+        assertEquals(1, executions.get());
+        assertEquals(50, writtenObjects.get());
+
+        //None of the objects were copied into the cache, or touched in the store.
+        assertEquals(List.of(), objectNamesIn(cache(), objects));
+        for (String path : objects.keySet()) {
+            assertEquals(WRITTEN, Files.getLastModifiedTime(store().toPath().resolve(path)), path);
+        }
+    }
+
+    @Test
+    public void tasksWithTheSameContentsShareTheEntry() throws IOException {
+        final Map<String, String> objects = objects(10);
+
+        run("index-1", objects, "v1");
+        run("index-1", objects, "v2");
+
+        assertEquals(1, executions.get());
+    }
+
+    @Test
+    public void missingObjectsCauseAnExecution() throws IOException {
+        final Map<String, String> objects = objects(10);
+        run("index-1", objects, "v1");
+
+        Files.delete(store().toPath().resolve(objects.keySet().iterator().next()));
+        run("index-1", objects, "v1");
+
+        assertEquals(2, executions.get());
+        assertEquals(11, writtenObjects.get());
+    }
+
+    @Test
+    public void objectsWithADifferentSizeCauseAnExecution() throws IOException {
+        final Map<String, String> objects = objects(10);
+        run("index-1", objects, "v1");
+
+        Files.writeString(store().toPath().resolve(objects.keySet().iterator().next()), "truncated", StandardCharsets.UTF_8);
+        run("index-1", objects, "v1");
+
+        assertEquals(2, executions.get());
+    }
+
+    @Test
+    public void otherContentsOfTheStoreAreKept() throws IOException {
+        final File unrelated = new File(store(), "ff/unrelated");
+        unrelated.getParentFile().mkdirs();
+        Files.writeString(unrelated.toPath(), "unrelated", StandardCharsets.UTF_8);
+
+        final Map<String, String> objects = objects(10);
+        run("index-1", objects, "v1");
+        final Map<String, String> more = objects(20);
+        run("index-2", more, "v1");
+
+        assertEquals(2, executions.get());
+        assertEquals(20, writtenObjects.get());
+        assertTrue(unrelated.exists());
+    }
+
+    private PropertyFingerprinter fingerprinter(FileHashIndex fileHashes) {
+        if (fingerprinter == null) {
+            fingerprinter = new PropertyFingerprinter(fileHashes);
+        }
+
+        return fingerprinter;
+    }
+
+    private void run(String key, Map<String, String> objects, String input) throws IOException {
+        final Map<String, Long> files = new LinkedHashMap<>();
+        objects.forEach((path, content) -> files.put(path, (long) content.getBytes(StandardCharsets.UTF_8).length));
+
+        final File cache = cache();
+        final FileHashIndex fileHashes = FileHashIndex.load(cache);
+        final CachedExecutionBuilder.Options options = new CachedExecutionBuilder.Options(
+                true,
+                cache,
+                RestoreStrategy.COPY,
+                fileHashes,
+                fingerprinter(fileHashes),
+                null,
+                new CacheStatistics(),
+                null,
+                new CachedExecutionBuilder.LoggingOptions(false, false)
+        );
+
+        new CachedExecutionBuilder<>(options, TestTasks.withInput(input), new ICacheableJob.Store<>(
+                "objects",
+                store(),
+                () -> new ICacheableJob.Store.Contents(key, files),
+                () -> {
+                    executions.incrementAndGet();
+                    //Like the asset download, only missing or invalid objects are written.
+                    for (Map.Entry<String, String> object : objects.entrySet()) {
+                        final Path path = store().toPath().resolve(object.getKey());
+                        if (Files.isRegularFile(path) && Files.readString(path, StandardCharsets.UTF_8).equals(object.getValue())) {
+                            continue;
+                        }
+
+                        Files.createDirectories(path.getParent());
+                        Files.writeString(path, object.getValue(), StandardCharsets.UTF_8);
+                        Files.setLastModifiedTime(path, WRITTEN);
+                        writtenObjects.incrementAndGet();
+                    }
+                    return null;
+                }
+        )).execute();
+    }
+
+    private static Map<String, String> objects(int count) {
+        final Map<String, String> objects = new LinkedHashMap<>();
+        for (int i = 0; i < count; i++) {
+            final String hash = "%040x".formatted(i + 1);
+            objects.put(hash.substring(0, 2) + "/" + hash, "object " + i);
+        }
+        return objects;
+    }
+
+    private static List<String> objectNamesIn(File directory, Map<String, String> objects) throws IOException {
+        try (Stream<Path> files = Files.walk(directory.toPath())) {
+            return files.map(path -> path.getFileName().toString())
+                    .filter(name -> objects.keySet().stream().anyMatch(path -> path.endsWith(name)))
+                    .toList();
+        }
+    }
+
+    private File cache() {
+        return new File(temp, "cache");
+    }
+
+    private File store() {
+        return new File(temp, "assets/objects");
+    }
+}
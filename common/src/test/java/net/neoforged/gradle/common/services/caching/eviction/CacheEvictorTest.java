@@ -0,0 +1,170 @@
+package net.neoforged.gradle.common.services.caching.eviction;
+
+import net.neoforged.gradle.common.services.caching.locking.FileBasedLock;
+import net.neoforged.gradle.common.services.caching.locking.IOControlledFileBasedLock;
+import net.neoforged.gradle.common.services.caching.locking.LockManager;
+import net.neoforged.gradle.common.services.caching.logging.CacheLogger;
+import org.gradle.api.logging.Logging;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CacheEvictorTest {
+
+    private static final CacheLogger LOGGER = new CacheLogger(Logging.getLogger(CacheEvictorTest.class), "test", false, false);
+
+    @TempDir
+    public File cacheDirectory;
+
+    @Test
+    public void leastRecentlyUsedEntriesAreEvictedWhenTheEntryCountIsExceeded() throws IOException {
+        for (int i = 0; i < 5; i++) {
+            createEntry("entry" + i, 10, 1_000_000L * (i + 1));
+        }
+
+        final CacheEvictor.Result result = new CacheEvictor(cacheDirectory, 3, 0, LOGGER).evict();
+
+        assertEquals(2, result.evicted().size());
+        assertEquals(3, result.remainingEntries());
+        assertEquals(Set.of("entry2", "entry3", "entry4"), survivingEntries());
+    }
+
+    @Test
+    public void leastRecentlyUsedEntriesAreEvictedWhenTheSizeIsExceeded() throws IOException {
+        createEntry("newest", 100, 4_000_000L);
+        createEntry("oldest", 100, 1_000_000L);
+        createEntry("middle", 100, 2_000_000L);
+        createEntry("recent", 100, 3_000_000L);
+
+        final CacheEvictor.Result result = new CacheEvictor(cacheDirectory, 0, 250, LOGGER).evict();
+
+        assertEquals(200, result.evictedBytes());
+        assertEquals(Set.of("newest", "recent"), survivingEntries());
+    }
+
+    @Test
+    public void accessingAnEntryMakesItSurviveEviction() throws IOException {
+        for (int i = 0; i < 4; i++) {
+            createEntry("entry" + i, 10, 1_000_000L * (i + 1));
+        }
+        touch("entry0", 5_000_000L);
+
+        new CacheEvictor(cacheDirectory, 2, 0, LOGGER).evict();
+
+        assertEquals(Set.of("entry0", "entry3"), survivingEntries());
+    }
+
+    @Test
+    public void lockedEntriesAreNotEvicted() throws Exception {
+        for (int i = 0; i < 4; i++) {
+            createEntry("entry" + i, 10, 0);
+        }
+
+        try (FileBasedLock ignored = LockManager.createLock(new File(cacheDirectory, "entry0"), LOGGER)) {
+            for (int i = 0; i < 4; i++) {
+                touch("entry" + i, 1_000_000L * (i + 1));
+            }
+
+            final CacheEvictor.Result result = new CacheEvictor(cacheDirectory, 2, 0, LOGGER).evict();
+
+            assertEquals(2, result.evicted().size());
+            assertEquals(Set.of("entry0", "entry3"), survivingEntries());
+            assertTrue(new File(cacheDirectory, "entry0/output").exists());
+        }
+    }
+
+    @Test
+    public void evictionStopsWhenOnlyLockedEntriesRemain() throws Exception {
+        createEntry("entry0", 10, 0);
+        createEntry("entry1", 10, 0);
+
+        try (FileBasedLock ignored = LockManager.createLock(new File(cacheDirectory, "entry0"), LOGGER);
+             FileBasedLock ignored2 = LockManager.createLock(new File(cacheDirectory, "entry1"), LOGGER)) {
+            final CacheEvictor.Result result = new CacheEvictor(cacheDirectory, 1, 0, LOGGER).evict();
+
+            assertTrue(result.evicted().isEmpty());
+            assertEquals(2, result.remainingEntries());
+        }
+    }
+
+    @Test
+    public void evictedEntriesAreRemovedCompletely() throws IOException {
+        createEntry("old", 10, 1_000_000L);
+        createEntry("new", 10, 2_000_000L);
+
+        new CacheEvictor(cacheDirectory, 1, 0, LOGGER).evict();
+
+        assertFalse(new File(cacheDirectory, "old").exists());
+        assertTrue(new File(cacheDirectory, "new/output").exists());
+        assertTrue(new File(cacheDirectory, "new/" + IOControlledFileBasedLock.HEALTHY_FILE_NAME).exists());
+    }
+
+    @Test
+    public void directoriesWithoutLockFilesAreNotConsideredEntries() throws IOException {
+        createEntry("entry", 10, 1_000_000L);
+        final File unrelated = new File(cacheDirectory, "unrelated");
+        Files.createDirectories(unrelated.toPath());
+        Files.write(new File(unrelated, "data").toPath(), new byte[1000]);
+
+        final CacheEvictor.Result result = new CacheEvictor(cacheDirectory, 1, 100, LOGGER).evict();
+
+        assertTrue(result.evicted().isEmpty());
+        assertTrue(unrelated.exists());
+    }
+
+    @Test
+    public void noLimitsKeepsAllEntries() throws IOException {
+        for (int i = 0; i < 10; i++) {
+            createEntry("entry" + i, 100, 1_000_000L * (i + 1));
+        }
+
+        final CacheEvictor.Result result = new CacheEvictor(cacheDirectory, 0, 0, LOGGER).evict();
+
+        assertTrue(result.evicted().isEmpty());
+        assertEquals(10, survivingEntries().size());
+    }
+
+    @Test
+    public void entriesAreOrderedByLastAccess() throws IOException {
+        createEntry("b", 10, 2_000_000L);
+        createEntry("a", 10, 3_000_000L);
+        createEntry("c", 10, 1_000_000L);
+
+        final List<String> names = new CacheEvictor(cacheDirectory, 0, 0, LOGGER).entries().stream()
+                .map(entry -> entry.directory().getName())
+                .toList();
+
+        assertEquals(List.of("c", "b", "a"), names);
+    }
+
+    private void createEntry(String name, int size, long lastAccess) throws IOException {
+        final File directory = new File(cacheDirectory, name);
+        Files.createDirectories(directory.toPath());
+        Files.write(new File(directory, "output").toPath(), new byte[size]);
+        Files.createFile(new File(directory, IOControlledFileBasedLock.HEALTHY_FILE_NAME).toPath());
+        Files.createFile(new File(directory, LockManager.LOCK_FILE_NAME).toPath());
+        touch(name, lastAccess);
+    }
+
+    private void touch(String name, long lastAccess) {
+        assertTrue(new File(new File(cacheDirectory, name), LockManager.LOCK_FILE_NAME).setLastModified(lastAccess));
+    }
+
+    private Set<String> survivingEntries() {
+        return Arrays.stream(Objects.requireNonNull(cacheDirectory.listFiles(File::isDirectory)))
+                .map(File::getName)
+                .collect(Collectors.toSet());
+    }
+}
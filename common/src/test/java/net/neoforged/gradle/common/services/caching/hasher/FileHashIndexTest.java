@@ -0,0 +1,244 @@
+package net.neoforged.gradle.common.services.caching.hasher;
+
+import net.neoforged.gradle.common.util.hash.HashCode;
+import net.neoforged.gradle.common.util.hash.HashFunction;
+import net.neoforged.gradle.common.util.hash.Hasher;
+import net.neoforged.gradle.common.util.hash.Hashing;
+import net.neoforged.gradle.common.util.hash.PrimitiveHasher;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+public class FileHashIndexTest {
+
+    private static final long OLD = 1_600_000_000_000L;
+
+    @TempDir
+    public File temp;
+
+    private final CountingHashFunction function = new CountingHashFunction();
+
+    @Test
+    public void unchangedFilesReuseTheirStoredHash() throws IOException {
+        final File file = write("input.jar", "content", OLD);
+        final FileHashIndex index = FileHashIndex.load(cache());
+
+        final HashCode first = index.hash(function, file);
+        final HashCode second = index.hash(function, file);
+
+        assertEquals(first, second);
+        assertEquals(Hashing.sha256().hashFile(file), second);
+        assertEquals(1, function.files);
+    }
+
+    @Test
+    public void storedHashesAreReusedAfterReloading() throws IOException {
+        final File file = write("input.jar", "content", OLD);
+        final FileHashIndex index = FileHashIndex.load(cache());
+        final HashCode first = index.hash(function, file);
+        index.save();
+
+        final HashCode second = FileHashIndex.load(cache()).hash(function, file);
+
+        assertEquals(first, second);
+        assertEquals(1, function.files);
+    }
+
+    @Test
+    public void modifiedFilesAreRehashed() throws IOException {
+        final File file = write("input.jar", "content", OLD);
+        final FileHashIndex index = FileHashIndex.load(cache());
+        final HashCode first = index.hash(function, file);
+
+        write("input.jar", "changed content", OLD + 10_000);
+        final HashCode second = index.hash(function, file);
+
+        assertNotEquals(first, second);
+        assertEquals(Hashing.sha256().hashFile(file), second);
+        assertEquals(2, function.files);
+    }
+
+    @Test
+    public void modifiedFilesWithTheSameSizeAreRehashed() throws IOException {
+        final File file = write("input.jar", "content", OLD);
+        final FileHashIndex index = FileHashIndex.load(cache());
+        final HashCode first = index.hash(function, file);
+
+        write("input.jar", "CONTENT", OLD + 10_000);
+        final HashCode second = index.hash(function, file);
+
+        assertNotEquals(first, second);
+        assertEquals(Hashing.sha256().hashFile(file), second);
+    }
+
+    @Test
+    public void touchedFilesAreRehashedToTheSameHash() throws IOException {
+        final File file = write("input.jar", "content", OLD);
+        final FileHashIndex index = FileHashIndex.load(cache());
+        final HashCode first = index.hash(function, file);
+
+        assertTrue(file.setLastModified(OLD + 10_000));
+        final HashCode second = index.hash(function, file);
+        final HashCode third = index.hash(function, file);
+
+        assertEquals(first, second);
+        assertEquals(second, third);
+        assertEquals(2, function.files);
+    }
+
+    @Test
+    public void replacedFilesWithTheSameSizeAndModificationTimeAreRehashed() throws IOException {
+        final File file = write("input.jar", "content", OLD);
+        assumeTrue(Files.readAttributes(file.toPath(), BasicFileAttributes.class).fileKey() != null);
+        final FileHashIndex index = FileHashIndex.load(cache());
+        final HashCode first = index.hash(function, file);
+
+        final File replacement = write("replacement.jar", "CONTENT", OLD);
+        Files.move(replacement.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        final HashCode second = index.hash(function, file);
+
+        assertNotEquals(first, second);
+        assertEquals(Hashing.sha256().hashFile(file), second);
+    }
+
+    @Test
+    public void recentlyModifiedFilesAreNotMemoized() throws IOException {
+        final File file = write("input.jar", "content", System.currentTimeMillis());
+        final FileHashIndex index = FileHashIndex.load(cache());
+
+        index.hash(function, file);
+        index.hash(function, file);
+
+        assertEquals(2, function.files);
+        assertEquals(0, index.size());
+    }
+
+    @Test
+    public void hashesOfOtherAlgorithmsAreNotReused() throws IOException {
+        final File file = write("input.jar", "content", OLD);
+        final FileHashIndex index = FileHashIndex.load(cache());
+
+        index.hash(function, file);
+        final HashCode sha1 = index.hash(Hashing.sha1(), file);
+
+        assertEquals(Hashing.sha1().hashFile(file), sha1);
+    }
+
+    @Test
+    public void corruptIndexesAreTreatedAsEmpty() throws IOException {
+        final File file = write("input.jar", "content", OLD);
+        Files.createDirectories(cache().toPath());
+        Files.write(new File(cache(), FileHashIndex.FILE_NAME).toPath(), new byte[] { 0, 0, 0, 1, 0, 0, 0, 5, 1 });
+
+        final FileHashIndex index = FileHashIndex.load(cache());
+
+        assertEquals(Hashing.sha256().hashFile(file), index.hash(function, file));
+        assertEquals(1, function.files);
+    }
+
+    @Test
+    public void concurrentSavesKeepEachOthersEntries() throws IOException {
+        final File first = write("first.jar", "first", OLD);
+        final File second = write("second.jar", "second", OLD);
+        final FileHashIndex firstBuild = FileHashIndex.load(cache());
+        final FileHashIndex secondBuild = FileHashIndex.load(cache());
+
+        firstBuild.hash(function, first);
+        secondBuild.hash(function, second);
+        firstBuild.save();
+        secondBuild.save();
+
+        final FileHashIndex index = FileHashIndex.load(cache());
+        assertEquals(2, index.size());
+        index.hash(function, first);
+        index.hash(function, second);
+        assertEquals(2, function.files);
+    }
+
+    @Test
+    public void entriesOfDeletedFilesAreDroppedWhenSaving() throws IOException {
+        final File kept = write("kept.jar", "kept", OLD);
+        final File deleted = write("deleted.jar", "deleted", OLD);
+        final FileHashIndex index = FileHashIndex.load(cache());
+        index.hash(function, kept);
+        index.hash(function, deleted);
+        index.save();
+
+        Files.delete(deleted.toPath());
+        final FileHashIndex next = FileHashIndex.load(cache());
+        next.hash(function, write("other.jar", "other", OLD));
+        next.save();
+
+        assertEquals(2, FileHashIndex.load(cache()).size());
+    }
+
+    private File cache() {
+        return new File(temp, "cache");
+    }
+
+    private File write(String name, String content, long modified) throws IOException {
+        final File file = new File(temp, name);
+        Files.writeString(file.toPath(), content, StandardCharsets.UTF_8);
+        assertTrue(file.setLastModified(modified));
+        return file;
+    }
+
+    private static final class CountingHashFunction implements HashFunction {
+
+        private final HashFunction delegate = Hashing.sha256();
+        private int files = 0;
+
+        @Override
+        public String getAlgorithm() {
+            return delegate.getAlgorithm();
+        }
+
+        @Override
+        public PrimitiveHasher newPrimitiveHasher() {
+            return delegate.newPrimitiveHasher();
+        }
+
+        @Override
+        public Hasher newHasher() {
+            return delegate.newHasher();
+        }
+
+        @Override
+        public HashCode hashBytes(byte[] bytes) {
+            return delegate.hashBytes(bytes);
+        }
+
+        @Override
+        public HashCode hashString(CharSequence string) {
+            return delegate.hashString(string);
+        }
+
+        @Override
+        public HashCode hashStream(InputStream stream) throws IOException {
+            return delegate.hashStream(stream);
+        }
+
+        @Override
+        public HashCode hashFile(File file) throws IOException {
+            files++;
+            return delegate.hashFile(file);
+        }
+
+        @Override
+        public int getHexDigits() {
+            return delegate.getHexDigits();
+        }
+    }
+}
@@ -0,0 +1,254 @@
+package net.neoforged.gradle.common.services.caching.hasher;
+
+import net.neoforged.gradle.common.services.caching.TestTasks;
+import net.neoforged.gradle.common.services.caching.logging.CacheLogger;
+import net.neoforged.gradle.common.util.hash.HashCode;
+import org.gradle.api.Task;
+import org.gradle.api.file.FileCollection;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.provider.ListProperty;
+import org.gradle.api.provider.MapProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.Optional;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class PropertyFingerprinterTest {
+
+    @TempDir
+    public File temp;
+
+    private final List<String> warnings = new ArrayList<>();
+    private FileHashIndex fileHashes;
+    private PropertyFingerprinter fingerprinter;
+
+    @Test
+    public void distinctProviderValuesProduceDistinctKeys() throws IOException {
+        final HashCode absent = key(Map.of("maxMemory", provider(Property.class, null)));
+        final HashCode fourGigabytes = key(Map.of("maxMemory", provider(Property.class, "4g")));
+        final HashCode eightGigabytes = key(Map.of("maxMemory", provider(Property.class, "8g")));
+
+        assertNotEquals(absent, fourGigabytes);
+        assertNotEquals(fourGigabytes, eightGigabytes);
+        assertEquals(fourGigabytes, key(Map.of("maxMemory", provider(Property.class, "4g"))));
+        assertTrue(warnings.isEmpty(), "Unexpected warnings: " + warnings);
+    }
+
+    @Test
+    public void listPropertiesAreOrderedAndMapPropertiesAreNot() throws IOException {
+        final HashCode first = key(Map.of("jvmArgs", provider(ListProperty.class, List.of("-Xss4m", "-ea"))));
+        final HashCode reordered = key(Map.of("jvmArgs", provider(ListProperty.class, List.of("-ea", "-Xss4m"))));
+        assertNotEquals(first, reordered);
+
+        final Map<String, Object> forward = new LinkedHashMap<>();
+        forward.put("a", 1);
+        forward.put("b", 2);
+        final Map<String, Object> backward = new LinkedHashMap<>();
+        backward.put("b", 2);
+        backward.put("a", 1);
+        final Map<String, Object> changed = new LinkedHashMap<>();
+        changed.put("a", 2);
+        changed.put("b", 1);
+
+        assertEquals(key(Map.of("settings", provider(MapProperty.class, forward))), key(Map.of("settings", provider(MapProperty.class, backward))));
+        assertNotEquals(key(Map.of("settings", provider(MapProperty.class, forward))), key(Map.of("settings", provider(MapProperty.class, changed))));
+        assertEquals(key(Map.of("values", new LinkedHashSet<>(List.of("x", "y")))), key(Map.of("values", new LinkedHashSet<>(List.of("y", "x")))));
+    }
+
+    @Test
+    public void emptyCollectionsOfDifferentKindsProduceDistinctKeys() throws IOException {
+        assertNotEquals(key(Map.of("value", List.of())), key(Map.of("value", Map.of())));
+        assertNotEquals(key(Map.of("value", List.of())), key(Map.of("value", Set.of())));
+        assertNotEquals(key(Map.of("value", 1)), key(Map.of("value", 1L)));
+        assertNotEquals(key(Map.of("value", "1")), key(Map.of("value", 1)));
+    }
+
+    @Test
+    public void recordsAreFingerprintedByTheirComponents() throws IOException {
+        final HashCode first = key(Map.of("tool", new Tool("jst", 1, List.of("--enable-parchment"))));
+        assertEquals(first, key(Map.of("tool", new Tool("jst", 1, List.of("--enable-parchment")))));
+        assertNotEquals(first, key(Map.of("tool", new Tool("jst", 2, List.of("--enable-parchment")))));
+        assertNotEquals(first, key(Map.of("tool", new Tool("jst", 1, List.of()))));
+    }
+
+    @Test
+    public void dslObjectsAreFingerprintedByTheirInputGetters() throws IOException {
+        final HashCode defaults = key(Map.of("decompiler", decompiler(null, null, List.of(), "ignored")));
+        final HashCode limited = key(Map.of("decompiler", decompiler("4g", null, List.of(), "ignored")));
+        final HashCode threads = key(Map.of("decompiler", decompiler("4g", 2, List.of(), "ignored")));
+        final HashCode arguments = key(Map.of("decompiler", decompiler("4g", 2, List.of("-Dfoo=bar"), "ignored")));
+
+        assertEquals(4, Set.of(defaults, limited, threads, arguments).size());
+        //Internal properties do not affect the outputs, so they are not part of the key.
+        assertEquals(arguments, key(Map.of("decompiler", decompiler("4g", 2, List.of("-Dfoo=bar"), "changed"))));
+        assertTrue(warnings.isEmpty(), "Unexpected warnings: " + warnings);
+    }
+
+    @Test
+    public void fileCollectionsAreFingerprintedByNameAndContent() throws IOException {
+        final File first = write("a/mappings.txt", "a -> b");
+        final File moved = write("b/mappings.txt", "a -> b");
+        final File changed = write("c/mappings.txt", "a -> c");
+        final File renamed = write("d/other.txt", "a -> b");
+
+        final HashCode original = key(Map.of("mappings", files(first)));
+        assertEquals(original, key(Map.of("mappings", files(moved))));
+        assertNotEquals(original, key(Map.of("mappings", files(changed))));
+        assertNotEquals(original, key(Map.of("mappings", files(renamed))));
+        assertNotEquals(original, key(Map.of("mappings", files(first, moved))));
+    }
+
+    @Test
+    public void unsupportedTypesProduceAWarning() throws IOException {
+        final HashCode key = key(Map.of("opaque", new Opaque()));
+
+        assertEquals(1, warnings.size());
+        assertTrue(warnings.get(0).contains(Opaque.class.getName()), warnings.get(0));
+        assertNotEquals(key, key(Map.of("opaque", "value")));
+
+        key(Map.of("opaque", new Opaque()));
+        assertEquals(1, warnings.size(), "The same type should only be reported once");
+    }
+
+    @Test
+    public void fingerprintsAreCachedPerTaskInstance() throws IOException {
+        final PropertyFingerprinter fingerprinter = fingerprinter();
+        final CacheLogger logger = logger();
+        final List<String> args = new ArrayList<>(List.of("-ea"));
+        final Task task = TestTasks.withInputs(Map.of("jvmArgs", args));
+
+        final HashCode first = fingerprinter.fingerprint(task, "jvmArgs", args, logger);
+        args.add("-Xss4m");
+        assertEquals(first, fingerprinter.fingerprint(task, "jvmArgs", args, logger));
+
+        final Task other = TestTasks.withInputs(Map.of("jvmArgs", args));
+        assertNotEquals(first, fingerprinter.fingerprint(other, "jvmArgs", args, logger));
+    }
+
+    @Test
+    public void forgottenTasksAreFingerprintedAgain() throws IOException {
+        final PropertyFingerprinter fingerprinter = fingerprinter();
+        final CacheLogger logger = logger();
+        final List<String> args = new ArrayList<>(List.of("-ea"));
+        final Task task = TestTasks.withInputs(Map.of("jvmArgs", args));
+
+        final HashCode first = fingerprinter.fingerprint(task, "jvmArgs", args, logger);
+        fingerprinter.forget(task);
+        args.add("-Xss4m");
+        assertNotEquals(first, fingerprinter.fingerprint(task, "jvmArgs", args, logger));
+    }
+
+    private HashCode key(Map<String, ?> properties) throws IOException {
+        final Task task = TestTasks.withInputs(properties);
+        return new TaskHasher(task, logger(), fileHashes(), fingerprinter()).create();
+    }
+
+    private PropertyFingerprinter fingerprinter() {
+        if (fingerprinter == null) {
+            fileHashes = FileHashIndex.load(new File(temp, "cache"));
+            fingerprinter = new PropertyFingerprinter(fileHashes);
+        }
+
+        return fingerprinter;
+    }
+
+    private FileHashIndex fileHashes() {
+        fingerprinter();
+        return fileHashes;
+    }
+
+    private CacheLogger logger() {
+        final Logger logger = (Logger) Proxy.newProxyInstance(Logger.class.getClassLoader(), new Class<?>[]{Logger.class}, (instance, method, args) -> {
+            if (method.getName().equals("warn")) {
+                warnings.add((String) args[0]);
+            }
+            return method.getReturnType() == boolean.class ? false : null;
+        });
+        return new CacheLogger(logger, ":test", false, false);
+    }
+
+    private File write(String path, String content) throws IOException {
+        final File file = new File(temp, path);
+        file.getParentFile().mkdirs();
+        Files.writeString(file.toPath(), content, StandardCharsets.UTF_8);
+        return file;
+    }
+
+    private static FileCollection files(File... files) {
+        return (FileCollection) Proxy.newProxyInstance(FileCollection.class.getClassLoader(), new Class<?>[]{FileCollection.class}, (instance, method, args) -> switch (method.getName()) {
+            case "getFiles" -> new LinkedHashSet<>(List.of(files));
+            case "iterator" -> List.of(files).iterator();
+            case "hashCode" -> System.identityHashCode(instance);
+            case "equals" -> instance == args[0];
+            default -> throw new UnsupportedOperationException(method.getName());
+        });
+    }
+
+    private static <T extends Provider<?>> T provider(Class<T> type, Object value) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (instance, method, args) -> switch (method.getName()) {
+            case "getOrNull" -> value;
+            case "isPresent" -> value != null;
+            case "hashCode" -> System.identityHashCode(instance);
+            case "equals" -> instance == args[0];
+            default -> throw new UnsupportedOperationException(method.getName());
+        }));
+    }
+
+    private static DecompilerSettings decompiler(String maxMemory, Integer maxThreads, List<String> jvmArgs, String description) {
+        final Map<String, Object> values = Map.of(
+                "getMaxMemory", provider(Property.class, maxMemory),
+                "getMaxThreads", provider(Property.class, maxThreads),
+                "getJvmArgs", provider(ListProperty.class, jvmArgs),
+                "getDescription", description
+        );
+        return (DecompilerSettings) Proxy.newProxyInstance(DecompilerSettings.class.getClassLoader(), new Class<?>[]{DecompilerSettings.class}, (instance, method, args) -> switch (method.getName()) {
+            case "hashCode" -> System.identityHashCode(instance);
+            case "equals" -> instance == args[0];
+            default -> values.get(method.getName());
+        });
+    }
+
+    /**
+     * Mirrors the shape of the decompiler settings of the DSL, which are generated by Gradle at runtime.
+     */
+    public interface DecompilerSettings {
+
+        @Input
+        @Optional
+        Property<String> getMaxMemory();
+
+        @Input
+        @Optional
+        Property<Integer> getMaxThreads();
+
+        @Input
+        ListProperty<String> getJvmArgs();
+
+        @Internal
+        String getDescription();
+    }
+
+    public record Tool(String name, int version, List<String> args) {}
+
+    private static final class Opaque {
+    }
+}
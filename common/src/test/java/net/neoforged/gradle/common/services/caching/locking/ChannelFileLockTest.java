@@ -0,0 +1,204 @@
+package net.neoforged.gradle.common.services.caching.locking;
+
+import net.neoforged.gradle.common.services.caching.logging.CacheLogger;
+import org.gradle.api.logging.Logging;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ChannelFileLockTest {
+
+    private static final CacheLogger LOGGER = new CacheLogger(Logging.getLogger(ChannelFileLockTest.class), "test", false, false);
+
+    private static final int PROCESSES = 4;
+    private static final int ITERATIONS = 50;
+
+    @TempDir
+    public File tempDir;
+
+    @Test
+    public void locksAreReentrantWithinAThread() {
+        try (FileBasedLock outer = LockManager.createLock(tempDir, LOGGER)) {
+            try (FileBasedLock inner = LockManager.createLock(tempDir, LOGGER)) {
+                inner.updateAccessTime();
+            }
+
+            assertTrue(new File(tempDir, LockManager.LOCK_FILE_NAME).exists());
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Test
+    public void tryLockFailsWhileAnotherThreadHoldsTheLock() throws Exception {
+        final CountDownLatch locked = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final Thread holder = new Thread(() -> {
+            try (FileBasedLock ignored = LockManager.createLock(tempDir, LOGGER)) {
+                locked.countDown();
+                release.await();
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+        holder.start();
+
+        assertTrue(locked.await(10, TimeUnit.SECONDS));
+        assertNull(LockManager.tryCreateLock(tempDir, LOGGER));
+
+        release.countDown();
+        holder.join();
+
+        final FileBasedLock lock = LockManager.tryCreateLock(tempDir, LOGGER);
+        assertNotNull(lock);
+        lock.close();
+    }
+
+    @Test
+    public void threadsAreMutuallyExclusive() throws Exception {
+        final AtomicInteger inside = new AtomicInteger();
+        final AtomicInteger violations = new AtomicInteger();
+        final AtomicInteger counter = new AtomicInteger();
+        final List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            final Thread thread = new Thread(() -> {
+                for (int j = 0; j < ITERATIONS; j++) {
+                    try (FileBasedLock ignored = LockManager.createLock(tempDir, LOGGER)) {
+                        if (inside.incrementAndGet() != 1) {
+                            violations.incrementAndGet();
+                        }
+                        counter.incrementAndGet();
+                        inside.decrementAndGet();
+                    } catch (Exception e) {
+                        throw new RuntimeException(e);
+                    }
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(0, violations.get());
+        assertEquals(8 * ITERATIONS, counter.get());
+    }
+
+    @Test
+    public void processesAreMutuallyExclusive() throws Exception {
+        final File counter = new File(tempDir, "counter");
+        Files.writeString(counter.toPath(), "0");
+
+        final List<Process> processes = new ArrayList<>();
+        for (int i = 0; i < PROCESSES; i++) {
+            processes.add(fork(Increment.class, tempDir.getAbsolutePath(), String.valueOf(ITERATIONS)));
+        }
+
+        for (Process process : processes) {
+            assertTrue(process.waitFor(2, TimeUnit.MINUTES), "Child process did not finish in time");
+            assertEquals(0, process.exitValue(), "Child process failed: " + readOutput(process));
+        }
+
+        assertEquals(PROCESSES * ITERATIONS, Integer.parseInt(Files.readString(counter.toPath()).trim()));
+        assertFalse(new File(tempDir, Increment.VIOLATION_FILE_NAME).exists(), "Two processes held the lock at the same time");
+    }
+
+    @Test
+    public void lockOfACrashedProcessIsReleasedImmediately() throws Exception {
+        final Process process = fork(Crash.class, tempDir.getAbsolutePath());
+        assertTrue(process.waitFor(1, TimeUnit.MINUTES), "Child process did not finish in time");
+        assertEquals(Crash.EXIT_CODE, process.exitValue(), "Child process failed: " + readOutput(process));
+        assertTrue(new File(tempDir, LockManager.LOCK_FILE_NAME).exists());
+
+        final long start = System.nanoTime();
+        final FileBasedLock lock = LockManager.tryCreateLock(tempDir, LOGGER);
+        assertNotNull(lock, "The lock of the crashed process was not released");
+        lock.close();
+        assertTrue(TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start) < 5);
+    }
+
+    private static Process fork(Class<?> main, String... args) throws IOException {
+        final List<String> command = new ArrayList<>();
+        command.add(ProcessHandle.current().info().command().orElse(Path.of(System.getProperty("java.home"), "bin", "java").toString()));
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(main.getName());
+        command.addAll(List.of(args));
+
+        return new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.PIPE)
+                .start();
+    }
+
+    private static String readOutput(Process process) {
+        try {
+            return new String(process.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            return "<unavailable: " + e.getMessage() + ">";
+        }
+    }
+
+    /**
+     * Repeatedly locks the given directory and increments the counter file inside it.
+     * A marker file detects two processes holding the lock at the same time.
+     */
+    public static final class Increment {
+
+        private static final String VIOLATION_FILE_NAME = "violation";
+
+        public static void main(String[] args) throws Exception {
+            final File directory = new File(args[0]);
+            final int iterations = Integer.parseInt(args[1]);
+            final Path counter = directory.toPath().resolve("counter");
+            final Path marker = directory.toPath().resolve("inside");
+            final Path violation = directory.toPath().resolve(VIOLATION_FILE_NAME);
+
+            for (int i = 0; i < iterations; i++) {
+                try (FileBasedLock ignored = LockManager.createLock(directory, LOGGER)) {
+                    try {
+                        Files.createFile(marker);
+                    } catch (java.nio.file.FileAlreadyExistsException e) {
+                        Files.writeString(violation, String.valueOf(ProcessHandle.current().pid()));
+                    }
+
+                    final int value = Integer.parseInt(Files.readString(counter).trim());
+                    Files.writeString(counter, String.valueOf(value + 1));
+
+                    Files.deleteIfExists(marker);
+                }
+            }
+        }
+    }
+
+    /**
+     * Acquires the lock of the given directory and halts the JVM without releasing it.
+     */
+    public static final class Crash {
+
+        private static final int EXIT_CODE = 3;
+
+        public static void main(String[] args) {
+            LockManager.createLock(new File(args[0]), LOGGER);
+            Runtime.getRuntime().halt(EXIT_CODE);
+        }
+    }
+}
@@ -0,0 +1,263 @@
+package net.neoforged.gradle.common.services.caching.remote;
+
+import net.neoforged.gradle.common.services.caching.CachedExecutionBuilder;
+import net.neoforged.gradle.common.services.caching.TestTasks;
+import net.neoforged.gradle.common.services.caching.cache.RestoreStrategy;
+import net.neoforged.gradle.common.services.caching.hasher.FileHashIndex;
+import net.neoforged.gradle.common.services.caching.hasher.PropertyFingerprinter;
+import net.neoforged.gradle.common.services.caching.jobs.ICacheableJob;
+import net.neoforged.gradle.common.services.caching.statistics.CacheStatistics;
+import net.neoforged.gradle.common.services.caching.statistics.StageReport;
+import net.neoforged.gradle.common.util.hash.Hashing;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class RemoteCacheTest {
+
+    private static final String KEY = "0123456789abcdef0123456789abcdef";
+
+    @TempDir
+    public File tempDir;
+
+    private RemoteCacheServer server;
+    private HttpRemoteCache remote;
+    private PropertyFingerprinter fingerprinter;
+
+    @BeforeEach
+    public void startServer() throws IOException {
+        server = RemoteCacheServer.start(new File(tempDir, "server"), 0);
+        remote = new HttpRemoteCache(server.uri(), null, null, Duration.ofSeconds(10));
+    }
+
+    @AfterEach
+    public void stopServer() {
+        server.close();
+    }
+
+    @Test
+    public void missingEntriesAreAMiss() throws IOException {
+        final File target = new File(tempDir, "download");
+
+        assertFalse(remote.load(KEY, target));
+        assertFalse(target.exists());
+    }
+
+    @Test
+    public void uploadedEntriesAreAHit() throws IOException {
+        final File source = write("upload", randomBytes(1, 100_000));
+        remote.store(KEY, source);
+
+        final File target = new File(tempDir, "download");
+        assertTrue(remote.load(KEY, target));
+        assertArrayEquals(Files.readAllBytes(source.toPath()), Files.readAllBytes(target.toPath()));
+    }
+
+    @Test
+    public void uploadsWithAWrongChecksumAreRejected() throws IOException {
+        final HttpURLConnection connection = (HttpURLConnection) server.uri().resolve(KEY).toURL().openConnection();
+        connection.setRequestMethod("PUT");
+        connection.setDoOutput(true);
+        connection.setRequestProperty(HttpRemoteCache.CHECKSUM_HEADER, Hashing.sha256().hashString("something else").toString());
+        try (OutputStream output = connection.getOutputStream()) {
+            output.write("corrupted in transit".getBytes(StandardCharsets.UTF_8));
+        }
+
+        assertEquals(400, connection.getResponseCode());
+        connection.disconnect();
+
+        assertFalse(remote.load(KEY, new File(tempDir, "download")));
+    }
+
+    @Test
+    public void corruptEntriesAreNotUsed() throws IOException {
+        remote.store(KEY, write("upload", randomBytes(2, 4096)));
+
+        //Flip a byte of the stored contents, after the leading digest.
+        final File stored = new File(new File(tempDir, "server"), KEY);
+        final byte[] contents = Files.readAllBytes(stored.toPath());
+        contents[contents.length - 1] ^= 1;
+        Files.write(stored.toPath(), contents);
+
+        final File target = new File(tempDir, "download");
+        assertThrows(IOException.class, () -> remote.load(KEY, target));
+        assertFalse(target.exists());
+    }
+
+    @Test
+    public void concurrentWritersNeverMixTheirUploads() throws Exception {
+        final int writers = 8;
+        final List<byte[]> contents = new ArrayList<>();
+        final List<File> sources = new ArrayList<>();
+        for (int i = 0; i < writers; i++) {
+            contents.add(randomBytes(10 + i, 512 * 1024));
+            sources.add(write("upload-" + i, contents.get(i)));
+        }
+
+        final ExecutorService executor = Executors.newFixedThreadPool(writers);
+        try {
+            final CountDownLatch start = new CountDownLatch(1);
+            final List<Future<?>> futures = new ArrayList<>();
+            for (File source : sources) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int round = 0; round < 5; round++) {
+                        remote.store(KEY, source);
+                    }
+                    return null;
+                }));
+            }
+
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        final File target = new File(tempDir, "download");
+        assertTrue(remote.load(KEY, target));
+        final byte[] downloaded = Files.readAllBytes(target.toPath());
+        assertTrue(contents.stream().anyMatch(candidate -> Arrays.equals(candidate, downloaded)), "The entry is not one of the uploads");
+
+        //No temporary uploads are left behind.
+        assertEquals(Set.of(KEY), Set.of(new File(tempDir, "server").list()));
+    }
+
+    @Test
+    public void unreachableServersDisableTheRemoteCache() throws IOException {
+        final int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+
+        final HttpRemoteCache unreachable = new HttpRemoteCache(URI.create("http://127.0.0.1:%d/".formatted(port)), null, null, Duration.ofSeconds(2));
+        assertThrows(IOException.class, () -> unreachable.load(KEY, new File(tempDir, "download")));
+        assertTrue(unreachable.isUnreachable());
+        assertFalse(unreachable.load(KEY, new File(tempDir, "download")));
+    }
+
+    @Test
+    public void directoryPayloadsRoundTrip() throws IOException {
+        final File output = new File(tempDir, "output");
+        write("output/a.txt", "a".getBytes(StandardCharsets.UTF_8));
+        write("output/nested/b.bin", randomBytes(3, 2048));
+        assertTrue(new File(output, "empty").mkdirs());
+
+        final File payload = new File(tempDir, "payload.zip");
+        RemoteCachePayload.pack(output, true, payload);
+
+        final File restored = new File(tempDir, "restored");
+        write("restored/stale.txt", "stale".getBytes(StandardCharsets.UTF_8));
+        RemoteCachePayload.unpack(payload, restored, true);
+
+        assertEquals("a", Files.readString(new File(restored, "a.txt").toPath()));
+        assertArrayEquals(randomBytes(3, 2048), Files.readAllBytes(new File(restored, "nested/b.bin").toPath()));
+        assertTrue(new File(restored, "empty").isDirectory());
+        assertFalse(new File(restored, "stale.txt").exists());
+    }
+
+    @Test
+    public void outputsArePulledFromAnotherMachine() throws IOException {
+        final AtomicInteger executions = new AtomicInteger();
+
+        //The first machine executes the stage and pushes its output.
+        final CacheStatistics first = new CacheStatistics();
+        run(new File(tempDir, "first"), first, true, executions);
+        assertEquals(1, executions.get());
+        assertEquals(1, first.report().stages().get("generate").uploads());
+
+        //The second machine has an empty local cache, and pulls the output instead of executing the stage.
+        final CacheStatistics second = new CacheStatistics();
+        final File output = run(new File(tempDir, "second"), second, false, executions);
+        assertEquals(1, executions.get());
+        assertEquals("generated", Files.readString(output.toPath()));
+
+        final StageReport report = second.report().stages().get("generate");
+        assertEquals(1, report.remoteHits());
+        assertEquals(0, report.misses());
+        assertEquals(0, report.uploads());
+
+        //The pulled output is now cached locally as well.
+        assertTrue(output.delete());
+        run(new File(tempDir, "second"), second, false, executions);
+        assertEquals(1, executions.get());
+        assertEquals(1, second.report().stages().get("generate").hits());
+    }
+
+    private File run(File machine, CacheStatistics statistics, boolean push, AtomicInteger executions) throws IOException {
+        final File cache = new File(machine, "cache");
+        final File output = new File(machine, "out/generated.txt");
+        output.getParentFile().mkdirs();
+
+        final FileHashIndex fileHashes = FileHashIndex.load(cache);
+        final CachedExecutionBuilder.Options options = new CachedExecutionBuilder.Options(
+                true,
+                cache,
+                RestoreStrategy.COPY,
+                fileHashes,
+                fingerprinter(fileHashes),
+                null,
+                statistics,
+                new CachedExecutionBuilder.RemoteOptions(remote, push),
+                new CachedExecutionBuilder.LoggingOptions(false, false)
+        );
+
+        new CachedExecutionBuilder<>(options, TestTasks.withInput("v1"), new ICacheableJob.Initial<>("generate", output, false, () -> {
+            executions.incrementAndGet();
+            Files.writeString(output.toPath(), "generated", StandardCharsets.UTF_8);
+            return null;
+        })).execute();
+
+        return output;
+    }
+
+    private PropertyFingerprinter fingerprinter(FileHashIndex fileHashes) {
+        if (fingerprinter == null) {
+            fingerprinter = new PropertyFingerprinter(fileHashes);
+        }
+
+        return fingerprinter;
+    }
+
+    private File write(String name, byte[] content) throws IOException {
+        final File file = new File(tempDir, name);
+        file.getParentFile().mkdirs();
+        Files.write(file.toPath(), content);
+        return file;
+    }
+
+    private static byte[] randomBytes(long seed, int length) {
+        final byte[] bytes = new byte[length];
+        new Random(seed).nextBytes(bytes);
+        return bytes;
+    }
+}
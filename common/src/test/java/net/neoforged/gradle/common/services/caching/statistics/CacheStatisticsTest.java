@@ -0,0 +1,159 @@
+package net.neoforged.gradle.common.services.caching.statistics;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import net.neoforged.gradle.common.services.caching.CachedExecutionBuilder;
+import net.neoforged.gradle.common.services.caching.TestTasks;
+import net.neoforged.gradle.common.services.caching.cache.RestoreStrategy;
+import net.neoforged.gradle.common.services.caching.hasher.FileHashIndex;
+import net.neoforged.gradle.common.services.caching.hasher.PropertyFingerprinter;
+import net.neoforged.gradle.common.services.caching.jobs.ICacheableJob;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CacheStatisticsTest {
+
+    @TempDir
+    public File tempDir;
+
+    private PropertyFingerprinter fingerprinter;
+
+    @Test
+    public void recordedEventsAreAggregatedPerStage() {
+        final CacheStatistics statistics = new CacheStatistics();
+        statistics.recordHashing(100);
+        statistics.recordLockWait("decompile", 5);
+        statistics.recordMiss("decompile", 1_000, 50);
+        statistics.recordLockWait("decompile", 7);
+        statistics.recordHit("decompile", 20, 4096, 1_000);
+        statistics.recordUpToDate("recompile", 10, 300);
+
+        final CacheReport report = statistics.report();
+
+        assertEquals(1, report.hashedTasks());
+        assertEquals(100, report.hashingNanos());
+        assertEquals(new StageReport(1, 0, 1, 12, 20, 4096, 1_000, 50, 1_000, 0, 0, 0), report.stages().get("decompile"));
+        assertEquals(new StageReport(0, 1, 0, 0, 10, 0, 0, 0, 300, 0, 0, 0), report.stages().get("recompile"));
+
+        final StageReport total = report.total();
+        assertEquals(3, total.requests());
+        assertEquals(2d / 3, total.hitRate(), 1e-9);
+        assertEquals(1_300 - 30 - 12, total.netSavedNanos());
+    }
+
+    @Test
+    public void scriptedExecutionsAreCounted() throws IOException {
+        final CacheStatistics statistics = new CacheStatistics();
+        final File generated = new File(tempDir, "out/generated.txt");
+        final File transformed = new File(tempDir, "out/transformed.txt");
+        final AtomicInteger executions = new AtomicInteger();
+        assertTrue(generated.getParentFile().mkdirs());
+
+        //First build, nothing is cached.
+        run(statistics, "v1", generated, transformed, executions);
+        assertCounts(statistics.report(), "generate", 0, 0, 1);
+        assertCounts(statistics.report(), "transform", 0, 0, 1);
+        assertEquals(2, executions.get());
+
+        //Second build, the outputs are still in place.
+        run(statistics, "v1", generated, transformed, executions);
+        assertCounts(statistics.report(), "generate", 0, 1, 1);
+        assertCounts(statistics.report(), "transform", 0, 1, 1);
+        assertEquals(2, executions.get());
+
+        //Third build, one output was deleted and is restored.
+        assertTrue(transformed.delete());
+        run(statistics, "v1", generated, transformed, executions);
+        assertCounts(statistics.report(), "generate", 0, 2, 1);
+        assertCounts(statistics.report(), "transform", 1, 1, 1);
+        assertEquals("TRANSFORMED V1", Files.readString(transformed.toPath()));
+        assertEquals(transformed.length(), statistics.report().stages().get("transform").restoredBytes());
+        assertEquals(2, executions.get());
+
+        //Fourth build, the input changed.
+        run(statistics, "v2", generated, transformed, executions);
+        assertCounts(statistics.report(), "generate", 0, 2, 2);
+        assertCounts(statistics.report(), "transform", 1, 1, 2);
+        assertEquals(4, executions.get());
+
+        final CacheReport report = statistics.report();
+        assertEquals(4, report.hashedTasks());
+        assertTrue(report.stages().get("generate").executionNanos() >= TimeUnit.MILLISECONDS.toNanos(2 * 10));
+        //Every hit and up-to-date check saved the recorded execution time of the entry.
+        assertTrue(report.stages().get("generate").savedNanos() >= TimeUnit.MILLISECONDS.toNanos(2 * 10));
+    }
+
+    @Test
+    public void reportIsWrittenAsJson() throws IOException {
+        final CacheStatistics statistics = new CacheStatistics();
+        statistics.recordHashing(TimeUnit.MILLISECONDS.toNanos(3));
+        statistics.recordMiss("decompile", TimeUnit.SECONDS.toNanos(2), TimeUnit.MILLISECONDS.toNanos(10));
+        statistics.recordHit("decompile", TimeUnit.MILLISECONDS.toNanos(40), 1234, TimeUnit.SECONDS.toNanos(2));
+
+        final File file = new File(tempDir, "reports/cache.json");
+        statistics.report().writeJson(file);
+
+        final JsonObject json = JsonParser.parseString(Files.readString(file.toPath())).getAsJsonObject();
+        assertEquals(1, json.get("hashedTasks").getAsLong());
+        assertEquals(3, json.get("hashingMillis").getAsLong());
+        final JsonObject stage = json.getAsJsonObject("stages").getAsJsonObject("decompile");
+        assertEquals(1, stage.get("hits").getAsLong());
+        assertEquals(1, stage.get("misses").getAsLong());
+        assertEquals(1234, stage.get("restoredBytes").getAsLong());
+        assertEquals(2000, stage.get("executionMillis").getAsLong());
+        assertEquals(1960, stage.get("netSavedMillis").getAsLong());
+        assertEquals(0.5, json.getAsJsonObject("total").get("hitRate").getAsDouble(), 1e-9);
+    }
+
+    private void run(CacheStatistics statistics, String input, File generated, File transformed, AtomicInteger executions) throws IOException {
+        final FileHashIndex fileHashes = FileHashIndex.load(new File(tempDir, "cache"));
+        final CachedExecutionBuilder.Options options = new CachedExecutionBuilder.Options(
+                true,
+                new File(tempDir, "cache"),
+                RestoreStrategy.COPY,
+                fileHashes,
+                fingerprinter(fileHashes),
+                null,
+                statistics,
+                null,
+                new CachedExecutionBuilder.LoggingOptions(false, false)
+        );
+
+        new CachedExecutionBuilder<>(options, TestTasks.withInput(input), new ICacheableJob.Initial<>("generate", generated, false, () -> {
+            executions.incrementAndGet();
+            Thread.sleep(10);
+            Files.writeString(generated.toPath(), input, StandardCharsets.UTF_8);
+            return input;
+        })).withStage(new ICacheableJob.Staged<>("transform", transformed, false, (String value) -> {
+            executions.incrementAndGet();
+            Files.writeString(transformed.toPath(), "TRANSFORMED " + value.toUpperCase(), StandardCharsets.UTF_8);
+            return null;
+        })).execute();
+    }
+
+    private PropertyFingerprinter fingerprinter(FileHashIndex fileHashes) {
+        //Like the execution service, every execution of the test shares one fingerprinter.
+        if (fingerprinter == null) {
+            fingerprinter = new PropertyFingerprinter(fileHashes);
+        }
+
+        return fingerprinter;
+    }
+
+    private static void assertCounts(CacheReport report, String stage, long hits, long upToDate, long misses) {
+        final StageReport statistics = report.stages().get(stage);
+        assertEquals(hits, statistics.hits(), "hits of " + stage);
+        assertEquals(upToDate, statistics.upToDate(), "up-to-date of " + stage);
+        assertEquals(misses, statistics.misses(), "misses of " + stage);
+    }
+}
@@ -0,0 +1,261 @@
+package net.neoforged.gradle.common.services.caching.storage;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ChunkStoreTest {
+
+    @TempDir
+    public Path temp;
+
+    @Test
+    public void jarsAreRestoredByteForByte() throws Exception {
+        final ChunkStore store = new ChunkStore(temp.resolve("cache").toFile(), ChunkCompression.DEFLATE);
+        final Path jar = temp.resolve("mixed.jar");
+        try (ZipOutputStream output = new ZipOutputStream(Files.newOutputStream(jar))) {
+            output.setComment("A comment at the end of the archive");
+            output.putNextEntry(new ZipEntry("META-INF/"));
+            output.closeEntry();
+            putEntry(output, "META-INF/MANIFEST.MF", "Manifest-Version: 1.0\n".getBytes(StandardCharsets.UTF_8), false);
+            putEntry(output, "empty.txt", new byte[0], false);
+            putEntry(output, "stored.bin", randomBytes(1, 4096), true);
+            putEntry(output, "deflated.bin", randomBytes(2, 8192), false);
+            putEntry(output, "text.txt", "text ".repeat(2000).getBytes(StandardCharsets.UTF_8), false);
+        }
+
+        assertRoundTrip(store, jar);
+    }
+
+    @Test
+    public void plainFilesAreRestoredByteForByte() throws Exception {
+        final ChunkStore store = new ChunkStore(temp.resolve("cache").toFile(), ChunkCompression.DEFLATE);
+
+        assertRoundTrip(store, write("empty", new byte[0]));
+        assertRoundTrip(store, write("small", "tiny".getBytes(StandardCharsets.UTF_8)));
+        assertRoundTrip(store, write("random", randomBytes(3, 256 * 1024)));
+
+        //Looks like a zip, but is not one.
+        final byte[] fake = randomBytes(4, 2048);
+        fake[0] = 'P';
+        fake[1] = 'K';
+        fake[2] = 3;
+        fake[3] = 4;
+        assertRoundTrip(store, write("fake.jar", fake));
+    }
+
+    @Test
+    public void truncatedJarsAreRestoredByteForByte() throws Exception {
+        final ChunkStore store = new ChunkStore(temp.resolve("cache").toFile(), ChunkCompression.DEFLATE);
+        final byte[] jar = Files.readAllBytes(createJar("complete.jar", 5, 50, Set.of()));
+
+        final byte[] truncated = new byte[jar.length / 2];
+        System.arraycopy(jar, 0, truncated, 0, truncated.length);
+
+        assertRoundTrip(store, write("truncated.jar", truncated));
+    }
+
+    @Test
+    public void identicalEntriesOfDifferentJarsAreStoredOnce() throws Exception {
+        final ChunkStore store = new ChunkStore(temp.resolve("cache").toFile(), ChunkCompression.NONE);
+        final List<Path> jars = new ArrayList<>();
+        //The base jar and three variants which each change a tenth of its classes, like the stripped or renamed variants of a jar.
+        jars.add(createJar("raw.jar", 5, 200, Set.of()));
+        for (int variant = 1; variant <= 3; variant++) {
+            final Set<Integer> changed = new HashSet<>();
+            for (int i = 0; i < 20; i++) {
+                changed.add(variant * 20 + i);
+            }
+            jars.add(createJar("variant-%d.jar".formatted(variant), 5, 200, changed));
+        }
+
+        for (Path jar : jars) {
+            assertRoundTrip(store, jar);
+        }
+
+        final ChunkStore.Statistics statistics = store.statistics();
+        final long totalSize = jars.stream().mapToLong(ChunkStoreTest::size).sum();
+        assertEquals(totalSize, statistics.logicalBytes());
+        assertTrue(statistics.deduplicatedBytes() > 0);
+
+        final double ratio = (double) statistics.writtenBytes() / statistics.logicalBytes();
+        assertTrue(ratio < 0.4, "Expected at most 40%% of the jars to be written, but %.1f%% were".formatted(ratio * 100));
+        assertEquals(statistics.logicalBytes() - statistics.writtenBytes(), statistics.savedBytes());
+    }
+
+    @Test
+    public void storingTheSameFileTwiceWritesNoNewBlobs() throws Exception {
+        final ChunkStore store = new ChunkStore(temp.resolve("cache").toFile(), ChunkCompression.DEFLATE);
+        final Path jar = createJar("a.jar", 5, 50, Set.of());
+
+        final ChunkStore.StoredFile first = store.store(jar);
+        final ChunkStore.StoredFile second = store.store(jar);
+
+        assertTrue(first.writtenBytes() > 0);
+        final long literals = second.segments().stream()
+                .filter(ChunkManifest.Literal.class::isInstance)
+                .mapToLong(ChunkManifest.Segment::length)
+                .sum();
+        assertEquals(literals, second.writtenBytes());
+    }
+
+    @Test
+    public void compressibleBlobsAreDeflated() throws Exception {
+        final Path text = write("text.txt", "a very repetitive line of text\n".repeat(10_000).getBytes(StandardCharsets.UTF_8));
+
+        final ChunkStore compressed = new ChunkStore(temp.resolve("compressed").toFile(), ChunkCompression.DEFLATE);
+        final ChunkStore uncompressed = new ChunkStore(temp.resolve("uncompressed").toFile(), ChunkCompression.NONE);
+
+        final ChunkStore.StoredFile deflated = compressed.store(text);
+        final ChunkStore.StoredFile plain = uncompressed.store(text);
+
+        assertTrue(deflated.writtenBytes() * 10 < plain.writtenBytes());
+        assertEquals(size(text) + 1, plain.writtenBytes());
+        assertArrayEquals(Files.readAllBytes(text), restore(compressed, deflated));
+    }
+
+    @Test
+    public void incompressibleBlobsAreStoredAsIs() throws Exception {
+        final ChunkStore store = new ChunkStore(temp.resolve("cache").toFile(), ChunkCompression.DEFLATE);
+        final Path random = write("random", randomBytes(5, 64 * 1024));
+
+        final ChunkStore.StoredFile stored = store.store(random);
+
+        //The blob only carries its one byte codec header.
+        assertEquals(size(random) + 1, stored.writtenBytes());
+        assertArrayEquals(Files.readAllBytes(random), restore(store, stored));
+    }
+
+    @Test
+    public void corruptBlobsAreDetected() throws Exception {
+        final File cache = temp.resolve("cache").toFile();
+        final ChunkStore store = new ChunkStore(cache, ChunkCompression.NONE);
+        final ChunkStore.StoredFile stored = store.store(write("random", randomBytes(6, 4096)));
+
+        final ChunkManifest.BlobReference reference = (ChunkManifest.BlobReference) stored.segments().get(0);
+        final Path blob = cache.toPath().resolve(ChunkStore.DIRECTORY_NAME).resolve(reference.hash().substring(0, 2)).resolve(reference.hash());
+        Files.write(blob, new byte[]{0, 1, 2, 3});
+
+        assertThrows(IOException.class, () -> restore(store, stored));
+    }
+
+    @Test
+    public void onlyUnreferencedBlobsPastTheGracePeriodAreCollected() throws Exception {
+        final File cache = temp.resolve("cache").toFile();
+        final ChunkStore store = new ChunkStore(cache, ChunkCompression.NONE);
+        final String referenced = blobOf(store.store(write("referenced", randomBytes(7, 4096))));
+        final String unreferenced = blobOf(store.store(write("unreferenced", randomBytes(8, 4096))));
+        final String recent = blobOf(store.store(write("recent", randomBytes(9, 4096))));
+
+        final long old = System.currentTimeMillis() - TimeUnit.DAYS.toMillis(2);
+        assertTrue(blobFile(cache, referenced).setLastModified(old));
+        assertTrue(blobFile(cache, unreferenced).setLastModified(old));
+
+        final long freed = store.collectGarbage(Set.of(referenced));
+
+        assertEquals(4096 + 1, freed);
+        assertTrue(blobFile(cache, referenced).exists());
+        assertFalse(blobFile(cache, unreferenced).exists());
+        assertTrue(blobFile(cache, recent).exists());
+    }
+
+    private static void assertRoundTrip(ChunkStore store, Path file) throws Exception {
+        final byte[] expected = Files.readAllBytes(file);
+        final ChunkStore.StoredFile stored = store.store(file);
+
+        assertEquals(expected.length, stored.size());
+        assertArrayEquals(MessageDigest.getInstance("SHA-256").digest(expected), stored.hash());
+        assertArrayEquals(expected, restore(store, stored));
+    }
+
+    private static byte[] restore(ChunkStore store, ChunkStore.StoredFile stored) throws IOException {
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        store.restore(stored.segments(), output);
+        return output.toByteArray();
+    }
+
+    private static String blobOf(ChunkStore.StoredFile stored) {
+        assertEquals(1, stored.segments().size());
+        return ((ChunkManifest.BlobReference) stored.segments().get(0)).hash();
+    }
+
+    private static File blobFile(File cache, String hash) {
+        return new File(new File(new File(cache, ChunkStore.DIRECTORY_NAME), hash.substring(0, 2)), hash);
+    }
+
+    private Path createJar(String name, long seed, int classes, Set<Integer> changed) throws IOException {
+        final Path jar = temp.resolve(name);
+        try (ZipOutputStream output = new ZipOutputStream(Files.newOutputStream(jar))) {
+            for (int i = 0; i < classes; i++) {
+                //Changed classes get different contents, but keep their name.
+                final long classSeed = changed.contains(i) ? seed * 31 + i + name.hashCode() : seed * 31 + i;
+                final int length = 2048 + new Random(classSeed).nextInt(6144);
+                putEntry(output, "net/minecraft/Class%d.class".formatted(i), randomBytes(classSeed, length), false);
+            }
+        }
+
+        return jar;
+    }
+
+    private static void putEntry(ZipOutputStream output, String name, byte[] data, boolean stored) throws IOException {
+        final ZipEntry entry = new ZipEntry(name);
+        entry.setTime(0);
+        if (stored) {
+            final CRC32 crc = new CRC32();
+            crc.update(data);
+            entry.setMethod(ZipEntry.STORED);
+            entry.setSize(data.length);
+            entry.setCompressedSize(data.length);
+            entry.setCrc(crc.getValue());
+        }
+
+        output.putNextEntry(entry);
+        output.write(data);
+        output.closeEntry();
+    }
+
+    private static byte[] randomBytes(long seed, int length) {
+        final byte[] bytes = new byte[length];
+        new Random(seed).nextBytes(bytes);
+        return bytes;
+    }
+
+    private Path write(String name, byte[] content) throws IOException {
+        final Path file = temp.resolve(name);
+        try (OutputStream output = Files.newOutputStream(file)) {
+            output.write(content);
+        }
+        return file;
+    }
+
+    private static long size(Path file) {
+        try {
+            return Files.size(file);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
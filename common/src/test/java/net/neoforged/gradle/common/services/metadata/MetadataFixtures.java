@@ -0,0 +1,64 @@
+package net.neoforged.gradle.common.services.metadata;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+/**
+ * Writes launcher manifests and version jsons, which resemble the real ones in size and structure.
+ */
+final class MetadataFixtures {
+
+    private MetadataFixtures() {
+        throw new IllegalStateException("Can not instantiate an instance of: MetadataFixtures. This is a utility class");
+    }
+
+    static File launcherManifest(File directory, int versions) throws IOException {
+        final StringBuilder json = new StringBuilder("{\"latest\":{\"release\":\"1.0.0\",\"snapshot\":\"1.0.0\"},\"versions\":[");
+        for (int i = 0; i < versions; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            final String id = "1.%d.%d".formatted(versions - i, i % 10);
+            json.append("""
+                    {"id":"%s","type":"release","url":"https://piston-meta.mojang.com/v1/packages/%040x/%s.json","time":"2024-01-01T00:00:00+00:00","releaseTime":"2024-01-01T00:00:00+00:00","sha1":"%040x","complianceLevel":1}"""
+                    .formatted(id, i, id, i));
+        }
+        json.append("]}");
+        return write(new File(directory, "launcher_metadata.json"), json.toString());
+    }
+
+    static File versionJson(File directory, String id, int libraries) throws IOException {
+        final StringBuilder json = new StringBuilder();
+        json.append("{\"id\":\"").append(id).append("\",\"type\":\"release\",\"mainClass\":\"net.minecraft.client.main.Main\",");
+        json.append("\"assets\":\"17\",\"assetIndex\":{\"id\":\"17\",\"sha1\":\"%040x\",\"size\":449964,\"totalSize\":813460588,\"url\":\"https://piston-meta.mojang.com/v1/packages/17.json\"},".formatted(17));
+        json.append("\"javaVersion\":{\"component\":\"java-runtime-delta\",\"majorVersion\":21},");
+        json.append("\"downloads\":{");
+        json.append(download("client", 1)).append(',').append(download("client_mappings", 2)).append(',');
+        json.append(download("server", 3)).append(',').append(download("server_mappings", 4));
+        json.append("},\"arguments\":{\"game\":[\"--username\",\"${auth_player_name}\"],\"jvm\":[{\"rules\":[{\"action\":\"allow\",\"os\":{\"name\":\"osx\"}}],\"value\":[\"-XstartOnFirstThread\"]},\"-cp\",\"${classpath}\"]},");
+        json.append("\"libraries\":[");
+        for (int i = 0; i < libraries; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            final String path = "org/example/library%d/1.%d/library%d-1.%d.jar".formatted(i, i, i, i);
+            json.append("""
+                    {"name":"org.example:library%d:1.%d","downloads":{"artifact":{"path":"%s","sha1":"%040x","size":%d,"url":"https://libraries.minecraft.net/%s"}}%s}"""
+                    .formatted(i, i, path, i, 1000 + i, path, i % 5 == 0 ? ",\"rules\":[{\"action\":\"allow\",\"os\":{\"name\":\"linux\"}}]" : ""));
+        }
+        json.append("]}");
+        return write(new File(directory, id + ".json"), json.toString());
+    }
+
+    private static String download(String name, int seed) {
+        return "\"%s\":{\"sha1\":\"%040x\",\"size\":%d,\"url\":\"https://piston-data.mojang.com/v1/objects/%040x/%s.jar\"}".formatted(name, seed, 1000 * seed, seed, name);
+    }
+
+    private static File write(File file, String content) throws IOException {
+        Files.createDirectories(file.getParentFile().toPath());
+        Files.writeString(file.toPath(), content, StandardCharsets.UTF_8);
+        return file;
+    }
+}
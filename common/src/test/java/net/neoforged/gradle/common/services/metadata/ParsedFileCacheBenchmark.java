@@ -0,0 +1,96 @@
+package net.neoforged.gradle.common.services.metadata;
+
+import net.neoforged.gradle.common.util.LauncherManifest;
+import net.neoforged.gradle.common.util.VersionJson;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Locale;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Compares configuring 20 subprojects, each of which resolves its version from the launcher manifest and reads the
+ * version json from several tasks, with and without the parsed file cache.
+ * Run through the benchmark task: {@code ./gradlew :common:benchmark}
+ */
+@Tag("benchmark")
+public class ParsedFileCacheBenchmark {
+
+    private static final int SUBPROJECTS = 20;
+    private static final int VERSION_JSON_READS = 5;
+    private static final int ROUNDS = 10;
+
+    @TempDir
+    public File temp;
+
+    @Test
+    public void configureSubprojects() throws Exception {
+        final File manifest = MetadataFixtures.launcherManifest(temp, 800);
+        final File versionJson = MetadataFixtures.versionJson(temp, "1.21", 300);
+
+        //Warm up the JIT, so only the strategies themselves are compared.
+        for (int i = 0; i < ROUNDS; i++) {
+            uncached(manifest, versionJson);
+            cached(manifest, versionJson);
+        }
+
+        System.out.printf(Locale.ROOT, "%-26s %12s %8s %10s%n", "Strategy", "Millis/build", "Parses", "Hits");
+        run("uncached", () -> {
+            uncached(manifest, versionJson);
+            return null;
+        });
+        run("cached per build", () -> cached(manifest, versionJson));
+    }
+
+    private static void run(String name, Build build) throws Exception {
+        long nanos = 0;
+        int parses = 0;
+        int hits = 0;
+        for (int i = 0; i < ROUNDS; i++) {
+            final long start = System.nanoTime();
+            final ParsedFileCache cache = build.configure();
+            nanos += System.nanoTime() - start;
+            if (cache == null) {
+                parses += SUBPROJECTS * (1 + VERSION_JSON_READS);
+            } else {
+                parses += cache.parses();
+                hits += cache.hits();
+            }
+        }
+
+        System.out.printf(Locale.ROOT, "%-26s %12.2f %8d %10d%n", name, nanos / 1_000_000D / ROUNDS, parses / ROUNDS, hits / ROUNDS);
+    }
+
+    /**
+     * Mirrors parsing the files again in every subproject and task, like the plugin did before.
+     */
+    private static void uncached(File manifest, File versionJson) throws IOException {
+        for (int project = 0; project < SUBPROJECTS; project++) {
+            LauncherManifest.get(manifest).find("1.800.0");
+            for (int task = 0; task < VERSION_JSON_READS; task++) {
+                assertEquals(300, VersionJson.get(versionJson).getAllLibraries().size());
+            }
+        }
+    }
+
+    private static ParsedFileCache cached(File manifest, File versionJson) throws IOException {
+        //The build service hands the same cache to every subproject.
+        final ParsedFileCache cache = new ParsedFileCache();
+        for (int project = 0; project < SUBPROJECTS; project++) {
+            cache.get(manifest, LauncherManifest.class, LauncherManifest::get).find("1.800.0");
+            for (int task = 0; task < VERSION_JSON_READS; task++) {
+                assertEquals(300, cache.get(versionJson, VersionJson.class, VersionJson::get).getAllLibraries().size());
+            }
+        }
+        return cache;
+    }
+
+    @FunctionalInterface
+    private interface Build {
+        ParsedFileCache configure() throws Exception;
+    }
+}
@@ -0,0 +1,135 @@
+package net.neoforged.gradle.common.services.metadata;
+
+import net.neoforged.gradle.common.util.LauncherManifest;
+import net.neoforged.gradle.common.util.VersionJson;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class ParsedFileCacheTest {
+
+    @TempDir
+    public File temp;
+
+    @Test
+    public void filesAreParsedOncePerBuild() throws IOException {
+        final File manifest = MetadataFixtures.launcherManifest(temp, 50);
+        final AtomicInteger parses = new AtomicInteger();
+
+        //Every project gets the cache from the build service of the build.
+        final ParsedFileCache cache = new ParsedFileCache();
+        LauncherManifest first = null;
+        for (int project = 0; project < 20; project++) {
+            final LauncherManifest parsed = cache.get(manifest, LauncherManifest.class, file -> {
+                parses.incrementAndGet();
+                return LauncherManifest.get(file);
+            });
+            if (first == null) {
+                first = parsed;
+            }
+            assertSame(first, parsed);
+        }
+
+        assertEquals(1, parses.get());
+        assertEquals(50, first.getVersions().size());
+        assertEquals("1.50.0", first.find("+").getId());
+        assertNotNull(first.find("1.1.9"));
+        assertNull(first.find("0.0.0"));
+    }
+
+    @Test
+    public void buildsDoNotShareParsedFiles() throws IOException {
+        final File versionJson = MetadataFixtures.versionJson(temp, "1.21", 40);
+
+        final VersionJson first = new ParsedFileCache().get(versionJson, VersionJson.class, VersionJson::get);
+        final ParsedFileCache nextBuild = new ParsedFileCache();
+        final VersionJson second = nextBuild.get(versionJson, VersionJson.class, VersionJson::get);
+
+        assertNotSame(first, second);
+        assertEquals(1, nextBuild.parses());
+    }
+
+    @Test
+    public void sharedObjectsCanNotBeModified() throws IOException {
+        final ParsedFileCache cache = new ParsedFileCache();
+        final VersionJson versionJson = cache.get(MetadataFixtures.versionJson(temp, "1.21", 40), VersionJson.class, VersionJson::get);
+        final LauncherManifest manifest = cache.get(MetadataFixtures.launcherManifest(temp, 10), LauncherManifest.class, LauncherManifest::get);
+
+        assertThrows(UnsupportedOperationException.class, () -> versionJson.getAllLibraries().set(0, null));
+        assertThrows(UnsupportedOperationException.class, () -> versionJson.getLibraries().clear());
+        assertThrows(UnsupportedOperationException.class, () -> versionJson.getNatives().clear());
+        assertThrows(UnsupportedOperationException.class, () -> versionJson.getDownloads().clear());
+        assertThrows(UnsupportedOperationException.class, () -> manifest.getVersions().clear());
+        assertEquals(40, cache.get(MetadataFixtures.versionJson(temp, "1.21", 40), VersionJson.class, VersionJson::get).getAllLibraries().size());
+    }
+
+    @Test
+    public void changedFilesAreParsedAgain() throws IOException {
+        final File manifest = MetadataFixtures.launcherManifest(temp, 10);
+        final ParsedFileCache cache = new ParsedFileCache();
+        assertEquals(10, cache.get(manifest, LauncherManifest.class, LauncherManifest::get).getVersions().size());
+
+        MetadataFixtures.launcherManifest(temp, 12);
+        assertEquals(12, cache.get(manifest, LauncherManifest.class, LauncherManifest::get).getVersions().size());
+        assertEquals(2, cache.parses());
+    }
+
+    @Test
+    public void projectsConfiguredInParallelParseOnce() throws Exception {
+        final File versionJson = MetadataFixtures.versionJson(temp, "1.21", 200);
+        final AtomicInteger parses = new AtomicInteger();
+        final CountDownLatch start = new CountDownLatch(1);
+        final ParsedFileCache cache = new ParsedFileCache();
+
+        final ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            final List<Future<VersionJson>> projects = new ArrayList<>();
+            for (int project = 0; project < 20; project++) {
+                projects.add(executor.submit(() -> {
+                    start.await();
+                    return cache.get(versionJson, VersionJson.class, file -> {
+                        parses.incrementAndGet();
+                        return VersionJson.get(file);
+                    });
+                }));
+            }
+
+            start.countDown();
+            final VersionJson first = projects.get(0).get(10, TimeUnit.SECONDS);
+            for (Future<VersionJson> project : projects) {
+                assertSame(first, project.get(10, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(1, parses.get());
+    }
+
+    @Test
+    public void typesAreCachedSeparately() throws IOException {
+        final File manifest = MetadataFixtures.launcherManifest(temp, 10);
+        final ParsedFileCache cache = new ParsedFileCache();
+        cache.get(manifest, LauncherManifest.class, LauncherManifest::get);
+        cache.get(manifest, VersionJson.class, VersionJson::get);
+
+        assertEquals(2, cache.parses());
+    }
+}
@@ -0,0 +1,212 @@
+package net.neoforged.gradle.common.util;
+
+import net.neoforged.gradle.common.util.download.ArtifactStore;
+import net.neoforged.gradle.util.HashFunction;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class BundledServerTest {
+
+    private static final long ENTRY_TIME = 1_700_000_000_000L;
+    private static final byte[] SERVER = random(48 * 1024, 1);
+    private static final Map<String, byte[]> LIBRARIES = new LinkedHashMap<>();
+
+    static {
+        LIBRARIES.put("com/google/guava/guava/32.1.2/guava-32.1.2.jar", random(32 * 1024, 2));
+        LIBRARIES.put("com/mojang/brigadier/1.1.8/brigadier-1.1.8.jar", random(8 * 1024, 3));
+        LIBRARIES.put("io/netty/netty-common/4.1.97/netty-common-4.1.97.jar", random(16 * 1024, 4));
+        LIBRARIES.put("org/slf4j/slf4j-api/2.0.7/slf4j-api-2.0.7.jar", random(4 * 1024, 5));
+        LIBRARIES.put("it/unimi/dsi/fastutil/8.5.12/fastutil-8.5.12.jar", random(64 * 1024, 6));
+    }
+
+    @TempDir
+    public Path temp;
+
+    @Test
+    public void theIndexIsReadOnOpen() throws IOException {
+        final File bundle = bundle(Map.of());
+
+        try (BundledServer server = BundledServer.open(bundle)) {
+            assertTrue(server.isBundled());
+            assertEquals("1.0", server.getFormat());
+            assertEquals("net.minecraft.server.Main", server.getMainClass());
+            assertEquals("1.20.1", server.getVersion().id());
+            assertEquals("1.20.1/server-1.20.1.jar", server.getVersion().path());
+            assertEquals(List.copyOf(LIBRARIES.keySet()), server.getLibraries().stream().map(BundledServer.Entry::path).toList());
+            assertEquals(HashFunction.SHA1.hash(LIBRARIES.get("org/slf4j/slf4j-api/2.0.7/slf4j-api-2.0.7.jar")), server.getLibraries().get(3).hash());
+        }
+
+        assertTrue(BundledServerUtils.isBundledServer(bundle));
+        assertEquals("net.minecraft.server.Main", BundledServerUtils.getBundledMainClass(bundle));
+        assertEquals("1.20.1", BundledServerUtils.getBundledVersion(bundle));
+        assertEquals("org.slf4j:slf4j-api:2.0.7", BundledServerUtils.getBundledDependencies(bundle).get(3));
+    }
+
+    @Test
+    public void plainServerJarsAreNoBundle() throws IOException {
+        final File jar = temp.resolve("server.jar").toFile();
+        write(jar, Map.of("net/minecraft/server/Main.class", SERVER));
+
+        try (BundledServer server = BundledServer.open(jar)) {
+            assertFalse(server.isBundled());
+            assertTrue(server.getLibraries().isEmpty());
+        }
+        assertFalse(BundledServerUtils.isBundledServer(jar));
+        assertNull(BundledServerUtils.getBundledMainClass(jar));
+    }
+
+    @Test
+    public void theServerJarIsExtractedFromItsListedPath() throws IOException {
+        final File bundle = bundle(Map.of());
+        final File output = temp.resolve("output/server.jar").toFile();
+
+        BundledServerUtils.extractBundledVersion(bundle, output);
+
+        assertArrayEquals(SERVER, Files.readAllBytes(output.toPath()));
+        try (BundledServer server = BundledServer.open(bundle)) {
+            assertFalse(server.extractVersion(output));
+        }
+    }
+
+    @Test
+    public void librariesAreExtractedInParallelAndSkippedWhenUnchanged() throws IOException {
+        final File bundle = bundle(Map.of());
+        final File directory = temp.resolve("libraries").toFile();
+
+        final List<File> extracted;
+        try (BundledServer server = BundledServer.open(bundle)) {
+            extracted = server.extractLibraries(directory, null, 4);
+        }
+
+        assertEquals(LIBRARIES.size(), extracted.size());
+        for (Map.Entry<String, byte[]> library : LIBRARIES.entrySet()) {
+            final Path file = directory.toPath().resolve(library.getKey());
+            assertArrayEquals(library.getValue(), Files.readAllBytes(file));
+            assertEquals(ENTRY_TIME, Files.getLastModifiedTime(file).toMillis());
+        }
+
+        //A file of the same size but with different content is detected by its hash, and replaced.
+        final Path tampered = directory.toPath().resolve("com/mojang/brigadier/1.1.8/brigadier-1.1.8.jar");
+        Files.write(tampered, random(8 * 1024, 100));
+        //A file with the right content but another time is adopted, without writing it again.
+        final Path touched = directory.toPath().resolve("org/slf4j/slf4j-api/2.0.7/slf4j-api-2.0.7.jar");
+        final Object touchedKey = Files.readAttributes(touched, BasicFileAttributes.class).fileKey();
+        Files.setLastModifiedTime(touched, FileTime.fromMillis(1000));
+
+        try (BundledServer server = BundledServer.open(bundle)) {
+            server.extractLibraries(directory, null);
+        }
+
+        assertArrayEquals(LIBRARIES.get("com/mojang/brigadier/1.1.8/brigadier-1.1.8.jar"), Files.readAllBytes(tampered));
+        assertEquals(touchedKey, Files.readAttributes(touched, BasicFileAttributes.class).fileKey());
+        assertEquals(ENTRY_TIME, Files.getLastModifiedTime(touched).toMillis());
+    }
+
+    @Test
+    public void librariesAreMaterializedFromTheStore() throws IOException {
+        final File bundle = bundle(Map.of());
+        final ArtifactStore store = new ArtifactStore(temp.resolve("store").toFile());
+        final File first = temp.resolve("first").toFile();
+        final File second = temp.resolve("second").toFile();
+
+        try (BundledServer server = BundledServer.open(bundle)) {
+            server.extractLibraries(first, store, 4);
+            server.extractLibraries(second, store, 4);
+        }
+
+        for (Map.Entry<String, byte[]> library : LIBRARIES.entrySet()) {
+            final String hash = HashFunction.SHA1.hash(library.getValue());
+            assertTrue(store.contains(hash));
+            assertArrayEquals(library.getValue(), Files.readAllBytes(second.toPath().resolve(library.getKey())));
+            assertTrue(Files.isSameFile(store.fileOf(hash).toPath(), first.toPath().resolve(library.getKey())));
+        }
+    }
+
+    @Test
+    public void librariesWhichDoNotMatchTheirHashAreRejected() throws IOException {
+        final String corrupt = "io/netty/netty-common/4.1.97/netty-common-4.1.97.jar";
+        final File bundle = bundle(Map.of(corrupt, random(16 * 1024, 200)));
+        final ArtifactStore store = new ArtifactStore(temp.resolve("store").toFile());
+        final File directory = temp.resolve("libraries").toFile();
+
+        try (BundledServer server = BundledServer.open(bundle)) {
+            assertThrows(IOException.class, () -> server.extractLibraries(directory, null, 4));
+            assertThrows(IOException.class, () -> server.extractLibraries(directory, store));
+        }
+
+        assertFalse(Files.exists(directory.toPath().resolve(corrupt)));
+        assertFalse(store.contains(HashFunction.SHA1.hash(LIBRARIES.get(corrupt))));
+    }
+
+    /**
+     * Creates a bundle in the layout of the vanilla server jar.
+     *
+     * @param corrupted Libraries whose content in the bundle differs from the one listed.
+     */
+    private File bundle(Map<String, byte[]> corrupted) throws IOException {
+        final StringBuilder libraries = new StringBuilder();
+        final StringBuilder classpath = new StringBuilder();
+        final Map<String, byte[]> entries = new LinkedHashMap<>();
+        for (Map.Entry<String, byte[]> library : LIBRARIES.entrySet()) {
+            final String[] parts = library.getKey().split("/");
+            final String group = String.join(".", List.of(parts).subList(0, parts.length - 3));
+            final String id = group + ":" + parts[parts.length - 3] + ":" + parts[parts.length - 2];
+            libraries.append(HashFunction.SHA1.hash(library.getValue())).append('\t').append(id).append('\t').append(library.getKey()).append('\n');
+            classpath.append("libraries/").append(library.getKey()).append(';');
+            entries.put("META-INF/libraries/" + library.getKey(), corrupted.getOrDefault(library.getKey(), library.getValue()));
+        }
+
+        entries.put("META-INF/MANIFEST.MF", "Manifest-Version: 1.0\r\nMain-Class: net.minecraft.bundler.Main\r\nBundler-Format: 1.0\r\n".getBytes(StandardCharsets.UTF_8));
+        entries.put("META-INF/main-class", "net.minecraft.server.Main\n".getBytes(StandardCharsets.UTF_8));
+        entries.put("META-INF/classpath-joined", classpath.toString().getBytes(StandardCharsets.UTF_8));
+        entries.put("META-INF/libraries.list", libraries.toString().getBytes(StandardCharsets.UTF_8));
+        entries.put("META-INF/versions.list", (HashFunction.SHA1.hash(SERVER) + "\t1.20.1\t1.20.1/server-1.20.1.jar\n").getBytes(StandardCharsets.UTF_8));
+        entries.put("META-INF/versions/1.20.1/server-1.20.1.jar", SERVER);
+        entries.put("versions.json", "{}".getBytes(StandardCharsets.UTF_8));
+
+        final File bundle = temp.resolve("server-bundle.jar").toFile();
+        write(bundle, entries);
+        return bundle;
+    }
+
+    private static void write(File jar, Map<String, byte[]> entries) throws IOException {
+        try (OutputStream output = Files.newOutputStream(jar.toPath());
+             ZipOutputStream stream = new ZipOutputStream(output)) {
+            for (Map.Entry<String, byte[]> entry : entries.entrySet()) {
+                final ZipEntry zipEntry = new ZipEntry(entry.getKey());
+                zipEntry.setTime(ENTRY_TIME);
+                stream.putNextEntry(zipEntry);
+                stream.write(entry.getValue());
+                stream.closeEntry();
+            }
+        }
+    }
+
+    private static byte[] random(int size, long seed) {
+        final byte[] bytes = new byte[size];
+        new Random(seed).nextBytes(bytes);
+        return bytes;
+    }
+}
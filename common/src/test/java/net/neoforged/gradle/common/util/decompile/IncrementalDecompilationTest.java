@@ -0,0 +1,332 @@
+package net.neoforged.gradle.common.util.decompile;
+
+import net.neoforged.gradle.common.util.tools.ToolDaemon;
+import net.neoforged.gradle.common.util.tools.ToolDaemons;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.jar.JarFile;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Checks that an incremental decompilation only decompiles the changed classes and those which depend on them, and that
+ * the spliced output is the same as that of a full decompilation.
+ * <p>
+ * The decompiler is Vineflower, with the arguments NeoForm runs it with. The build passes its jar as
+ * {@value #VINEFLOWER_PROPERTY}, without it the tests are skipped.
+ */
+public class IncrementalDecompilationTest {
+
+    private static final String VINEFLOWER_PROPERTY = "neogradle.test.vineflower";
+    private static final String FINGERPRINT = "decompiler";
+
+    @TempDir
+    public Path temp;
+
+    private ToolDaemons daemons;
+    private ToolDaemon.Key vineflower;
+    private String mainClass;
+    private Map<String, String> sources;
+    private File previousInput;
+    private IncrementalDecompilation decompilation;
+
+    @BeforeEach
+    public void decompilePreviousInput() throws IOException {
+        final String property = System.getProperty(VINEFLOWER_PROPERTY);
+        assumeTrue(property != null, "Vineflower is not configured, run the tests through the build, or pass -D" + VINEFLOWER_PROPERTY);
+        final File jar = new File(property);
+        try (JarFile file = new JarFile(jar)) {
+            mainClass = file.getManifest().getMainAttributes().getValue("Main-Class");
+        }
+        daemons = new ToolDaemons(temp.resolve("logs").toFile());
+        vineflower = new ToolDaemon.Key(Path.of(System.getProperty("java.home"), "bin", "java").toString(), Runtime.version().feature(), List.of("-Xmx512m"), List.of(jar));
+
+        sources = new HashMap<>();
+        sources.put("example/Constants", """
+                package example;
+                public class Constants {
+                    public static final String NAME = "constant-name";
+                    public static final int SMALL = 4;
+                }
+                """);
+        sources.put("example/User", """
+                package example;
+                public class User {
+                    public String name() { return Constants.NAME; }
+                }
+                """);
+        sources.put("example/UserCaller", """
+                package example;
+                public class UserCaller {
+                    public String call() { return new User().name(); }
+                }
+                """);
+        sources.put("example/Outer", """
+                package example;
+                public class Outer {
+                    private int count;
+                    public class Inner {
+                        public int value() { return count + 1; }
+                    }
+                    public int value() { return new Inner().value(); }
+                }
+                """);
+        sources.put("example/Caller", """
+                package example;
+                public class Caller {
+                    public int call() { return new Outer().value(); }
+                }
+                """);
+        for (int i = 0; i < 8; i++) {
+            sources.put("example/Other" + i, """
+                    package example;
+                    public class Other%d {
+                        public int value() { return %d; }
+                    }
+                    """.formatted(i, i));
+        }
+        //A widely used class, like Block or Entity, whose direct and indirect users are more than half of the jar.
+        sources.put("example/Shared", """
+                package example;
+                public class Shared {
+                    int value() { return 1; }
+                }
+                """);
+        for (int i = 0; i < 4; i++) {
+            sources.put("example/Direct" + i, """
+                    package example;
+                    public class Direct%d {
+                        public int value() { return new Shared().value() + %d; }
+                    }
+                    """.formatted(i, i));
+        }
+        for (int i = 0; i < 10; i++) {
+            sources.put("example/Indirect" + i, """
+                    package example;
+                    public class Indirect%d {
+                        public int value() { return new Direct%d().value(); }
+                    }
+                    """.formatted(i, i % 4));
+        }
+
+        previousInput = compile("previous");
+        final File previousOutput = temp.resolve("previous-output.jar").toFile();
+        decompile(previousInput, null, previousOutput);
+
+        decompilation = new IncrementalDecompilation(temp.resolve("state").toFile());
+        decompilation.save(FINGERPRINT, previousInput, previousOutput);
+    }
+
+    @AfterEach
+    public void closeDaemons() {
+        if (daemons != null) {
+            daemons.close();
+        }
+    }
+
+    @Test
+    public void changedAccessFlagsOnlyDecompileThatClass() throws IOException {
+        sources.put("example/Other3", sources.get("example/Other3").replace("public class", "public final class"));
+        final File input = compile("current");
+
+        final IncrementalDecompilation.Plan plan = decompilation.plan(FINGERPRINT, input).orElseThrow();
+
+        assertEquals(Set.of("example/Other3.class"), plan.classes());
+        assertEquals(Set.of("example/Other3.java"), plan.staleEntries());
+        assertSplicedOutputMatchesFullDecompilation(plan, input);
+    }
+
+    @Test
+    public void changedInnerClassDecompilesItsSourceFile() throws IOException {
+        sources.put("example/Outer", sources.get("example/Outer").replace("count + 1", "count + 2"));
+        final File input = compile("current");
+
+        final IncrementalDecompilation.Plan plan = decompilation.plan(FINGERPRINT, input).orElseThrow();
+
+        //Only the inner class changed, the caller of the outer class keeps its source.
+        assertEquals(Set.of("example/Outer.class", "example/Outer$Inner.class"), plan.classes());
+        assertSplicedOutputMatchesFullDecompilation(plan, input);
+    }
+
+    @Test
+    public void changedWidelyUsedClassOnlyDecompilesItsDirectUsers() throws IOException {
+        sources.put("example/Shared", sources.get("example/Shared").replace("    int value()", "    public int value()"));
+        final File input = compile("current");
+
+        final IncrementalDecompilation.Plan plan = decompilation.plan(FINGERPRINT, input).orElseThrow();
+
+        assertEquals(Set.of("example/Shared.class", "example/Direct0.class", "example/Direct1.class", "example/Direct2.class", "example/Direct3.class"), plan.classes());
+        assertSplicedOutputMatchesFullDecompilation(plan, input);
+    }
+
+    @Test
+    public void changedConstantDecompilesTheClassesWhichChangedWithIt() throws IOException {
+        sources.put("example/Constants", sources.get("example/Constants").replace("constant-name", "other-name"));
+        final File input = compile("current");
+
+        final IncrementalDecompilation.Plan plan = decompilation.plan(FINGERPRINT, input).orElseThrow();
+
+        //The user inlined the constant, so it changed as well, and with it the class which calls it.
+        assertEquals(Set.of("example/Constants.class", "example/User.class", "example/UserCaller.class"), plan.classes());
+        assertSplicedOutputMatchesFullDecompilation(plan, input);
+    }
+
+    @Test
+    public void changedConstantDecompilesClassesWhichInlinedIt() throws IOException {
+        final File input = compile("current");
+        //Only change the constant, the class which inlined it keeps its previous bytes, like in a remapped jar.
+        final File changed = replaceEntry(input, "example/Constants.class", compileSingle("example/Constants", sources.get("example/Constants").replace("constant-name", "other-name")));
+
+        final IncrementalDecompilation.Plan plan = decompilation.plan(FINGERPRINT, changed).orElseThrow();
+
+        assertEquals(Set.of("example/Constants.class", "example/User.class"), plan.classes());
+        assertSplicedOutputMatchesFullDecompilation(plan, changed);
+    }
+
+    @Test
+    public void changedSmallConstantDecompilesEverything() throws IOException {
+        sources.put("example/Constants", sources.get("example/Constants").replace("SMALL = 4", "SMALL = 5"));
+        final File input = compile("current");
+
+        assertEquals(Optional.empty(), decompilation.plan(FINGERPRINT, input));
+    }
+
+    @Test
+    public void removedClassDropsItsSource() throws IOException {
+        sources.remove("example/Other5");
+        final File input = compile("current");
+
+        final IncrementalDecompilation.Plan plan = decompilation.plan(FINGERPRINT, input).orElseThrow();
+
+        assertTrue(plan.classes().isEmpty());
+        assertFalse(plan.requiresDecompiler());
+        assertSplicedOutputMatchesFullDecompilation(plan, input);
+    }
+
+    @Test
+    public void changedFingerprintDecompilesEverything() throws IOException {
+        assertEquals(Optional.empty(), decompilation.plan("other", previousInput));
+    }
+
+    private void assertSplicedOutputMatchesFullDecompilation(IncrementalDecompilation.Plan plan, File input) throws IOException {
+        final File output = temp.resolve("incremental-output.jar").toFile();
+        File partialOutput = null;
+        if (plan.requiresDecompiler()) {
+            final File partialInput = temp.resolve("partial-input.jar").toFile();
+            final File library = temp.resolve("library.jar").toFile();
+            partialOutput = temp.resolve("partial-output.jar").toFile();
+            decompilation.writeInputs(plan, input, partialInput, library);
+            decompile(partialInput, library, partialOutput);
+        }
+        decompilation.splice(plan, partialOutput, output);
+
+        final File expected = temp.resolve("full-output.jar").toFile();
+        decompile(input, null, expected);
+        assertEquals(readEntries(expected), readEntries(output));
+    }
+
+    /**
+     * Runs Vineflower like the decompile task does, with the unchanged classes as a library.
+     */
+    private void decompile(File input, File library, File output) throws IOException {
+        final Path libraries = Files.writeString(temp.resolve("libraries.cfg"), library == null ? "" : "-e=" + library.getAbsolutePath() + "\n");
+        final List<String> args = List.of(
+                "--decompile-inner", "--remove-bridge", "--decompile-generics", "--ascii-strings", "--remove-synthetic",
+                "--variable-renaming=jad", "--ignore-invalid-bytecode", "--bytecode-source-mapping", "--dump-code-lines",
+                "--indent-string=    ", "-log=WARN",
+                "-cfg", libraries.toString(), input.getAbsolutePath(), output.getAbsolutePath()
+        );
+
+        final ByteArrayOutputStream log = new ByteArrayOutputStream();
+        final OptionalInt exitCode = daemons.run(vineflower, mainClass, args, log, log);
+        assertEquals(OptionalInt.of(0), exitCode, log.toString(StandardCharsets.UTF_8));
+    }
+
+    private static Map<String, String> readEntries(File jar) throws IOException {
+        final Map<String, String> entries = new TreeMap<>();
+        try (ZipFile zip = new ZipFile(jar)) {
+            for (ZipEntry entry : zip.stream().filter(entry -> !entry.isDirectory()).toList()) {
+                try (InputStream stream = zip.getInputStream(entry)) {
+                    entries.put(entry.getName(), new String(stream.readAllBytes(), StandardCharsets.ISO_8859_1));
+                }
+            }
+        }
+        return entries;
+    }
+
+    private File compile(String name) throws IOException {
+        final Path classes = compileAll(temp.resolve(name), sources);
+        final File jar = temp.resolve(name + ".jar").toFile();
+        try (ZipOutputStream stream = new ZipOutputStream(Files.newOutputStream(jar.toPath()));
+             Stream<Path> files = Files.walk(classes)) {
+            for (Path file : files.filter(Files::isRegularFile).sorted().toList()) {
+                stream.putNextEntry(new ZipEntry(classes.relativize(file).toString().replace(File.separatorChar, '/')));
+                stream.write(Files.readAllBytes(file));
+                stream.closeEntry();
+            }
+        }
+        return jar;
+    }
+
+    private byte[] compileSingle(String name, String source) throws IOException {
+        final Path classes = compileAll(temp.resolve("single"), Map.of(name, source));
+        return Files.readAllBytes(classes.resolve(name + ".class"));
+    }
+
+    private static Path compileAll(Path directory, Map<String, String> sources) throws IOException {
+        final Path sourceDirectory = Files.createDirectories(directory.resolve("src"));
+        final Path classes = Files.createDirectories(directory.resolve("classes"));
+        final List<String> args = new ArrayList<>(List.of("-d", classes.toString()));
+        for (Map.Entry<String, String> source : sources.entrySet()) {
+            final Path file = sourceDirectory.resolve(source.getKey() + ".java");
+            Files.createDirectories(file.getParent());
+            Files.writeString(file, source.getValue(), StandardCharsets.UTF_8);
+            args.add(file.toString());
+        }
+
+        final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler.run(null, null, null, args.toArray(String[]::new)) != 0) {
+            throw new IOException("Failed to compile the test classes");
+        }
+        return classes;
+    }
+
+    private File replaceEntry(File jar, String name, byte[] content) throws IOException {
+        final File result = temp.resolve("replaced.jar").toFile();
+        try (ZipOutputStream stream = new ZipOutputStream(Files.newOutputStream(result.toPath()))) {
+            for (Map.Entry<String, String> entry : readEntries(jar).entrySet()) {
+                stream.putNextEntry(new ZipEntry(entry.getKey()));
+                stream.write(entry.getKey().equals(name) ? content : entry.getValue().getBytes(StandardCharsets.ISO_8859_1));
+                stream.closeEntry();
+            }
+        }
+        return result;
+    }
+}
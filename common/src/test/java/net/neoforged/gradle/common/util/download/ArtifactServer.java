@@ -0,0 +1,221 @@
+package net.neoforged.gradle.common.util.download;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import net.neoforged.gradle.util.HashFunction;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A local stand-in for a server of a single large artifact, like the client jar, which supports ranges and validators,
+ * and can drop connections in the middle of a response.
+ */
+public class ArtifactServer implements AutoCloseable {
+
+    private static final DateTimeFormatter HTTP_DATE = DateTimeFormatter.ofPattern("EEE, dd MMM yyyy HH:mm:ss 'GMT'", Locale.US);
+    private static final Pattern RANGE = Pattern.compile("bytes=(\\d+)-(\\d*)");
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final List<String> ranges = new CopyOnWriteArrayList<>();
+    private final AtomicLong bodyBytes = new AtomicLong();
+    private final AtomicInteger drops = new AtomicInteger();
+    private final AtomicInteger notModified = new AtomicInteger();
+    private volatile byte[] content = new byte[0];
+    private volatile long lastModified;
+    private volatile boolean supportsRanges = true;
+    private volatile boolean sendsEtag = true;
+    private volatile long dropAfter;
+
+    ArtifactServer() throws IOException {
+        //Without it, the separately written headers and body of every response are delayed by the TCP acknowledgement timer.
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        this.executor = Executors.newFixedThreadPool(16);
+        server.createContext("/", this::handle);
+        server.setExecutor(executor);
+    }
+
+    public static ArtifactServer start() throws IOException {
+        final ArtifactServer server = new ArtifactServer();
+        server.listen();
+        return server;
+    }
+
+    void listen() {
+        server.start();
+    }
+
+    public URL url() {
+        try {
+            return new URL("http://%s:%d/artifact.jar".formatted(server.getAddress().getHostString(), server.getAddress().getPort()));
+        } catch (MalformedURLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Replaces the served artifact, which changes its validators.
+     */
+    public void serve(byte[] content, Instant lastModified) {
+        this.content = content;
+        this.lastModified = lastModified.getEpochSecond() * 1000;
+    }
+
+    public void supportRanges(boolean supportsRanges) {
+        this.supportsRanges = supportsRanges;
+    }
+
+    public void sendEtag(boolean sendsEtag) {
+        this.sendsEtag = sendsEtag;
+    }
+
+    /**
+     * Closes the connection of the next responses, after the given number of body bytes were sent.
+     *
+     * @param bytes The number of bytes after which the connection is closed.
+     * @param times The number of responses which are dropped.
+     */
+    public void drop(long bytes, int times) {
+        this.dropAfter = bytes;
+        this.drops.set(times);
+    }
+
+    /**
+     * @return The requested ranges of all requests in order, with an empty string for requests of the whole artifact.
+     */
+    public List<String> ranges() {
+        return ranges;
+    }
+
+    /**
+     * @return The number of requests which were received.
+     */
+    public int requests() {
+        return ranges.size();
+    }
+
+    /**
+     * @return The number of requests which were answered with not modified.
+     */
+    public int notModified() {
+        return notModified.get();
+    }
+
+    /**
+     * @return The number of body bytes which were sent over all responses.
+     */
+    public long bodyBytes() {
+        return bodyBytes.get();
+    }
+
+    private String etag() {
+        return "\"" + HashFunction.SHA1.hash(content) + "\"";
+    }
+
+    /**
+     * Called for every request before it is answered.
+     */
+    void received(HttpExchange exchange) throws InterruptedException {
+    }
+
+    /**
+     * Called for every request after it was answered.
+     */
+    void completed(HttpExchange exchange) {
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            final byte[] content = this.content;
+            final String range = exchange.getRequestHeaders().getFirst("Range");
+            ranges.add(range == null ? "" : range);
+            try {
+                received(exchange);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+
+            final String lastModifiedHeader = HTTP_DATE.format(Instant.ofEpochMilli(lastModified).atOffset(ZoneOffset.UTC));
+            exchange.getResponseHeaders().set("Last-Modified", lastModifiedHeader);
+            if (sendsEtag) {
+                exchange.getResponseHeaders().set("ETag", etag());
+            }
+            if (supportsRanges) {
+                exchange.getResponseHeaders().set("Accept-Ranges", "bytes");
+            }
+
+            //If-None-Match takes precedence over If-Modified-Since, when both are sent.
+            final String ifNoneMatch = exchange.getRequestHeaders().getFirst("If-None-Match");
+            final String ifModifiedSince = exchange.getRequestHeaders().getFirst("If-Modified-Since");
+            if (ifNoneMatch != null ? sendsEtag && ifNoneMatch.equals(etag()) : ifModifiedSince != null && ifModifiedSince.equals(lastModifiedHeader)) {
+                notModified.incrementAndGet();
+                exchange.sendResponseHeaders(304, -1);
+                return;
+            }
+
+            final String ifRange = exchange.getRequestHeaders().getFirst("If-Range");
+            final boolean validatorMatches = ifRange == null || ifRange.equals(etag()) || ifRange.equals(lastModifiedHeader);
+            final Matcher matcher = range == null ? null : RANGE.matcher(range);
+            if (!supportsRanges || matcher == null || !matcher.matches() || !validatorMatches) {
+                send(exchange, 200, content, 0, content.length);
+                return;
+            }
+
+            final long first = Long.parseLong(matcher.group(1));
+            final long last = matcher.group(2).isEmpty() ? content.length - 1 : Math.min(content.length - 1, Long.parseLong(matcher.group(2)));
+            if (first >= content.length) {
+                exchange.getResponseHeaders().set("Content-Range", "bytes */" + content.length);
+                exchange.sendResponseHeaders(416, -1);
+                return;
+            }
+
+            exchange.getResponseHeaders().set("Content-Range", "bytes %d-%d/%d".formatted(first, last, content.length));
+            send(exchange, 206, content, (int) first, (int) (last - first + 1));
+        } finally {
+            completed(exchange);
+        }
+    }
+
+    private void send(HttpExchange exchange, int status, byte[] content, int offset, int length) throws IOException {
+        exchange.sendResponseHeaders(status, length);
+        final OutputStream body = exchange.getResponseBody();
+        if (drops.getAndUpdate(remaining -> Math.max(0, remaining - 1)) > 0) {
+            final int sent = (int) Math.min(length, dropAfter);
+            //Counted before writing, as the client might complete its download before the write returns.
+            bodyBytes.addAndGet(sent);
+            body.write(content, offset, sent);
+            body.flush();
+            //Closing the exchange before the promised length was written terminates the connection.
+            return;
+        }
+
+        bodyBytes.addAndGet(length);
+        body.write(content, offset, length);
+        body.close();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+}
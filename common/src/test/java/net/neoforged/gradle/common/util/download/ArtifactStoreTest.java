@@ -0,0 +1,178 @@
+package net.neoforged.gradle.common.util.download;
+
+import net.neoforged.gradle.util.HashFunction;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ArtifactStoreTest {
+
+    @TempDir
+    public File temp;
+
+    @Test
+    public void twoProjectsPopulatingTheSameArtifactWriteItOnce() throws Exception {
+        final byte[] content = random(256 * 1024, 1);
+        final String sha1 = HashFunction.SHA1.hash(content);
+        final AtomicInteger writes = new AtomicInteger();
+        final CountDownLatch start = new CountDownLatch(1);
+
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            final List<Future<Boolean>> projects = new ArrayList<>();
+            for (String project : List.of("projectA", "projectB")) {
+                projects.add(executor.submit(() -> {
+                    start.await();
+                    //Every project uses its own instance, like separate builds would.
+                    return store().materialize(sha1, librariesOf(project, "lwjgl.jar"), staging -> {
+                        writes.incrementAndGet();
+                        sleep(100);
+                        Files.write(staging, content);
+                    });
+                }));
+            }
+
+            start.countDown();
+            for (Future<Boolean> project : projects) {
+                assertTrue(project.get(10, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(1, writes.get());
+        for (String project : List.of("projectA", "projectB")) {
+            assertArrayEquals(content, Files.readAllBytes(librariesOf(project, "lwjgl.jar").toPath()));
+        }
+        assertTrue(Files.isSameFile(librariesOf("projectA", "lwjgl.jar").toPath(), librariesOf("projectB", "lwjgl.jar").toPath()));
+        assertLeftoverFiles(0);
+    }
+
+    @Test
+    public void concurrentProjectsWriteEveryArtifactOnce() throws Exception {
+        final List<byte[]> contents = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            contents.add(random(1024 + i, i));
+        }
+        final Map<String, AtomicInteger> writes = new ConcurrentHashMap<>();
+
+        final ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            final List<Future<?>> futures = new ArrayList<>();
+            for (int project = 0; project < 4; project++) {
+                for (int i = 0; i < contents.size(); i++) {
+                    final byte[] content = contents.get(i);
+                    final String sha1 = HashFunction.SHA1.hash(content);
+                    final File target = librariesOf("project" + project, "library" + i + ".jar");
+                    futures.add(executor.submit(() -> store().materialize(sha1, target, staging -> {
+                        writes.computeIfAbsent(sha1, key -> new AtomicInteger()).incrementAndGet();
+                        Files.write(staging, content);
+                    })));
+                }
+            }
+
+            for (Future<?> future : futures) {
+                future.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(20, writes.size());
+        writes.forEach((sha1, count) -> assertEquals(1, count.get(), sha1));
+        assertLeftoverFiles(0);
+    }
+
+    @Test
+    public void materializedArtifactsAreNotWrittenAgain() throws IOException {
+        final byte[] content = random(4096, 2);
+        final String sha1 = HashFunction.SHA1.hash(content);
+        final File target = librariesOf("project", "guava.jar");
+
+        assertTrue(store().materialize(sha1, target, staging -> Files.write(staging, content)));
+        assertFalse(store().materialize(sha1, target, staging -> {
+            throw new IOException("The artifact is already in the store");
+        }));
+    }
+
+    @Test
+    public void existingFilesAreAdopted() throws IOException {
+        final byte[] content = random(4096, 3);
+        final String sha1 = HashFunction.SHA1.hash(content);
+        final File target = librariesOf("project", "netty.jar");
+        Files.createDirectories(target.getParentFile().toPath());
+        Files.write(target.toPath(), content);
+
+        assertTrue(store().materialize(sha1, target, staging -> {
+            throw new IOException("The existing file should have been used");
+        }));
+
+        assertTrue(store().contains(sha1));
+        assertTrue(Files.isSameFile(store().fileOf(sha1).toPath(), target.toPath()));
+    }
+
+    @Test
+    public void artifactsWithTheWrongHashAreRejected() throws IOException {
+        final byte[] content = random(4096, 4);
+        final String sha1 = HashFunction.SHA1.hash(content);
+        final File target = librariesOf("project", "corrupt.jar");
+
+        assertThrows(IOException.class, () -> store().materialize(sha1, target, staging -> Files.write(staging, random(4096, 5))));
+        assertFalse(store().contains(sha1));
+        assertFalse(target.exists());
+
+        store().materialize(sha1, target, staging -> Files.write(staging, content));
+        assertArrayEquals(content, Files.readAllBytes(target.toPath()));
+    }
+
+    private ArtifactStore store() {
+        return new ArtifactStore(new File(temp, "store"));
+    }
+
+    private File librariesOf(String project, String name) {
+        return new File(temp, project + "/libraries/" + name);
+    }
+
+    private void assertLeftoverFiles(long expected) throws IOException {
+        try (var files = Files.walk(temp.toPath())) {
+            assertEquals(expected, files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.endsWith(".staging") || name.endsWith(".lock"))
+                    .count());
+        }
+    }
+
+    private static byte[] random(int size, long seed) {
+        final byte[] bytes = new byte[size];
+        new Random(seed).nextBytes(bytes);
+        return bytes;
+    }
+
+    private static void sleep(long millis) throws IOException {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package net.neoforged.gradle.common.util.download;
+
+import net.neoforged.gradle.util.HashFunction;
+import net.neoforged.gradle.util.UrlUtils;
+import org.apache.ivy.util.FileUtil;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Compares downloading 5000 small objects one work item at a time, like the asset download did before, with the pooled downloader.
+ * Run through the benchmark task: {@code ./gradlew :common:benchmark}
+ */
+@Tag("benchmark")
+public class AssetDownloaderBenchmark {
+
+    private static final int OBJECTS = 5000;
+
+    @TempDir
+    public File temp;
+
+    @Test
+    public void smallObjects() throws Exception {
+        System.out.printf(Locale.ROOT, "%-22s %10s %10s %12s%n", "Strategy", "Millis", "Requests", "Connections");
+
+        try (AssetServer server = AssetServer.start()) {
+            final List<String> hashes = new ArrayList<>();
+            final Random random = new Random(OBJECTS);
+            for (int i = 0; i < OBJECTS; i++) {
+                final byte[] content = new byte[256 + random.nextInt(8 * 1024)];
+                random.nextBytes(content);
+                hashes.add(server.add(content));
+            }
+
+            run(server, "per-object actions", () -> perObject(server, hashes, new File(temp, "per-object")));
+            run(server, "pooled", () -> pooled(server, hashes, new File(temp, "pooled"), false));
+            run(server, "pooled (up-to-date)", () -> pooled(server, hashes, new File(temp, "pooled"), true));
+        }
+    }
+
+    private static void run(AssetServer server, String name, Strategy strategy) throws Exception {
+        final int requestsBefore = server.requests();
+        final int connectionsBefore = server.connections();
+        final long start = System.nanoTime();
+        strategy.run();
+        final long millis = (System.nanoTime() - start) / 1_000_000;
+        System.out.printf(Locale.ROOT, "%-22s %10d %10d %12d%n", name, millis, server.requests() - requestsBefore, server.connections() - connectionsBefore);
+    }
+
+    /**
+     * Mirrors a worker action per object: a size request, a download over a fresh connection and a hash check.
+     */
+    private static void perObject(AssetServer server, List<String> hashes, File directory) throws Exception {
+        final ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        try {
+            final List<Future<?>> futures = new ArrayList<>();
+            for (String hash : hashes) {
+                futures.add(executor.submit(() -> {
+                    final URL url = server.uri().resolve(AssetServer.pathOf(hash)).toURL();
+                    final File output = new File(directory, AssetServer.pathOf(hash));
+                    UrlUtils.getFileSize(url);
+                    FileUtil.copy(url, output, null, null);
+                    assertEquals(hash, HashFunction.SHA1.hash(output));
+                    return null;
+                }));
+            }
+
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void pooled(AssetServer server, List<String> hashes, File directory, boolean upToDate) throws IOException {
+        final List<AssetDownloader.Request> requests = new ArrayList<>();
+        for (String hash : hashes) {
+            requests.add(new AssetDownloader.Request(server.uri().resolve(AssetServer.pathOf(hash)), new File(directory, AssetServer.pathOf(hash)), hash, -1));
+        }
+
+        final AssetDownloader.Result result = new AssetDownloader(AssetDownloader.DEFAULT_CONCURRENCY).download(requests, bytes -> {});
+        assertEquals(upToDate ? 0 : OBJECTS, result.downloaded());
+    }
+
+    @FunctionalInterface
+    private interface Strategy {
+        void run() throws Exception;
+    }
+}
@@ -0,0 +1,193 @@
+package net.neoforged.gradle.common.util.download;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class AssetDownloaderTest {
+
+    private static final RetryPolicy FAST_RETRIES = new RetryPolicy(4, Duration.ofMillis(1), Duration.ofMillis(5));
+
+    @TempDir
+    public File temp;
+
+    private AssetServer server;
+    private final List<byte[]> contents = new ArrayList<>();
+    private final List<String> hashes = new ArrayList<>();
+
+    @BeforeEach
+    public void startServer() throws IOException {
+        server = AssetServer.start();
+        final Random random = new Random(42);
+        for (int i = 0; i < 200; i++) {
+            final byte[] content = new byte[64 + random.nextInt(4096)];
+            random.nextBytes(content);
+            contents.add(content);
+            hashes.add(server.add(content));
+        }
+    }
+
+    @AfterEach
+    public void stopServer() {
+        server.close();
+    }
+
+    @Test
+    public void allObjectsAreDownloadedOverReusedConnections() throws IOException {
+        final AtomicLong progress = new AtomicLong();
+        final AssetDownloader.Result result = downloader(4).download(requests(), progress::addAndGet);
+
+        assertEquals(200, result.downloaded());
+        assertEquals(0, result.retries());
+        assertEquals(contents.stream().mapToLong(content -> content.length).sum(), result.downloadedBytes());
+        assertEquals(result.downloadedBytes(), progress.get());
+        for (int i = 0; i < hashes.size(); i++) {
+            assertArrayEquals(contents.get(i), Files.readAllBytes(target(hashes.get(i)).toPath()));
+        }
+
+        //Every request only opens a connection, if no idle one is available.
+        assertEquals(200, server.requests());
+        assertTrue(server.connections() <= 4, "Expected at most 4 connections, but got: " + server.connections());
+    }
+
+    @Test
+    public void presentObjectsAreNotRequestedAgain() throws IOException {
+        downloader(4).download(requests(), bytes -> {});
+        final int requests = server.requests();
+
+        final AssetDownloader.Result result = downloader(4).download(requests(), bytes -> {});
+
+        assertEquals(0, result.downloaded());
+        assertEquals(200, result.upToDate());
+        assertEquals(requests, server.requests());
+    }
+
+    @Test
+    public void modifiedObjectsAreDownloadedAgain() throws IOException {
+        downloader(4).download(requests(), bytes -> {});
+        final File modified = target(hashes.get(7));
+        Files.write(modified.toPath(), "modified".getBytes(StandardCharsets.UTF_8));
+
+        final AssetDownloader.Result result = downloader(4).download(requests(), bytes -> {});
+
+        assertEquals(1, result.downloaded());
+        assertArrayEquals(contents.get(7), Files.readAllBytes(modified.toPath()));
+    }
+
+    @Test
+    public void transientFailuresAreRetried() throws IOException {
+        server.fail(hashes.get(0), AssetServer.Failure.ERROR, AssetServer.Failure.ERROR);
+        server.fail(hashes.get(1), AssetServer.Failure.DROP);
+        server.fail(hashes.get(2), AssetServer.Failure.CORRUPT, AssetServer.Failure.DROP, AssetServer.Failure.ERROR);
+
+        final AssetDownloader.Result result = downloader(4).download(requests(), bytes -> {});
+
+        assertEquals(200, result.downloaded());
+        assertEquals(6, result.retries());
+        assertEquals(3, server.requests(hashes.get(0)));
+        assertEquals(2, server.requests(hashes.get(1)));
+        assertEquals(4, server.requests(hashes.get(2)));
+        for (int i = 0; i < 3; i++) {
+            assertArrayEquals(contents.get(i), Files.readAllBytes(target(hashes.get(i)).toPath()));
+        }
+        assertEquals(0, leftoverTemporaryFiles());
+    }
+
+    @Test
+    public void persistentFailuresGiveUpAfterTheLastAttempt() {
+        server.fail(hashes.get(3), AssetServer.Failure.ERROR, AssetServer.Failure.ERROR, AssetServer.Failure.ERROR, AssetServer.Failure.ERROR);
+
+        final IOException exception = assertThrows(IOException.class, () -> downloader(4).download(requests(), bytes -> {}));
+
+        assertTrue(exception.getMessage().contains("1 of 200"), exception.getMessage());
+        assertEquals(4, server.requests(hashes.get(3)));
+        assertFalse(target(hashes.get(3)).exists());
+        //The other objects are still downloaded.
+        assertTrue(target(hashes.get(4)).exists());
+    }
+
+    @Test
+    public void missingObjectsAreNotRetried() {
+        final List<AssetDownloader.Request> requests = new ArrayList<>(requests());
+        final String missing = "0123456789abcdef0123456789abcdef01234567";
+        requests.add(request(missing, 10));
+
+        assertThrows(IOException.class, () -> downloader(4).download(requests, bytes -> {}));
+
+        assertEquals(1, server.requests(missing));
+        assertTrue(target(hashes.get(199)).exists());
+    }
+
+    @Test
+    public void offlineVerificationRequiresAllObjects() throws IOException {
+        final AssetDownloader downloader = downloader(4);
+        assertThrows(IOException.class, () -> downloader.verify(requests()));
+
+        downloader.download(requests(), bytes -> {});
+        final int requests = server.requests();
+        downloader.verify(requests());
+        assertEquals(requests, server.requests());
+    }
+
+    @Test
+    public void downloadersOfOneBuildShareTheirConnectionsAndThreads() throws IOException {
+        final HttpClient client = AssetDownloader.createClient(Duration.ofSeconds(5));
+        final ExecutorService executor = AssetDownloader.createExecutor();
+        try {
+            final List<AssetDownloader.Request> requests = requests();
+            new AssetDownloader(client, executor, 4, Duration.ofSeconds(5), FAST_RETRIES, DownloadScheduler.UNLIMITED).download(requests.subList(0, 100), bytes -> {});
+            new AssetDownloader(client, executor, 4, Duration.ofSeconds(5), FAST_RETRIES, DownloadScheduler.UNLIMITED).download(requests.subList(100, 200), bytes -> {});
+
+            assertEquals(200, server.requests());
+            assertTrue(server.connections() <= 4, "Expected at most 4 connections, but got: " + server.connections());
+            assertFalse(executor.isShutdown());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private AssetDownloader downloader(int concurrency) {
+        return new AssetDownloader(AssetDownloader.createClient(Duration.ofSeconds(5)), concurrency, Duration.ofSeconds(5), FAST_RETRIES);
+    }
+
+    private List<AssetDownloader.Request> requests() {
+        final List<AssetDownloader.Request> requests = new ArrayList<>();
+        for (int i = 0; i < hashes.size(); i++) {
+            requests.add(request(hashes.get(i), contents.get(i).length));
+        }
+        return requests;
+    }
+
+    private AssetDownloader.Request request(String hash, long size) {
+        return new AssetDownloader.Request(server.uri().resolve(AssetServer.pathOf(hash)), target(hash), hash, size);
+    }
+
+    private File target(String hash) {
+        return new File(temp, "objects/" + AssetServer.pathOf(hash));
+    }
+
+    private long leftoverTemporaryFiles() throws IOException {
+        try (var files = Files.walk(temp.toPath())) {
+            return files.filter(path -> path.getFileName().toString().endsWith(".download")).count();
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package net.neoforged.gradle.common.util.download;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import net.neoforged.gradle.util.HashFunction;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A local stand-in for the asset repository, which serves objects under their hash and can inject failures.
+ */
+public final class AssetServer implements AutoCloseable {
+
+    /**
+     * The failures which can be injected into the response for an object.
+     */
+    public enum Failure {
+        /**
+         * Responds with a server error.
+         */
+        ERROR,
+        /**
+         * Responds with the full length, but closes the connection halfway through the body.
+         */
+        DROP,
+        /**
+         * Responds with a body, which does not match the hash of the object.
+         */
+        CORRUPT
+    }
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final Map<String, byte[]> objects = new ConcurrentHashMap<>();
+    private final Map<String, ConcurrentLinkedQueue<Failure>> failures = new ConcurrentHashMap<>();
+    private final Map<String, AtomicInteger> requests = new ConcurrentHashMap<>();
+    private final Set<InetSocketAddress> connections = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger totalRequests = new AtomicInteger();
+
+    private AssetServer(HttpServer server, ExecutorService executor) {
+        this.server = server;
+        this.executor = executor;
+    }
+
+    public static AssetServer start() throws IOException {
+        //Without it, the separately written headers and body of every response are delayed by the TCP acknowledgement timer.
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        final HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        final ExecutorService executor = Executors.newFixedThreadPool(32);
+        final AssetServer assetServer = new AssetServer(server, executor);
+        server.createContext("/", assetServer::handle);
+        server.setExecutor(executor);
+        server.start();
+        return assetServer;
+    }
+
+    /**
+     * @return The base uri of the repository, ending with a slash.
+     */
+    public URI uri() {
+        return URI.create("http://%s:%d/".formatted(server.getAddress().getHostString(), server.getAddress().getPort()));
+    }
+
+    /**
+     * Adds an object to the repository.
+     *
+     * @param content The content of the object.
+     * @return The SHA1 hash of the object.
+     */
+    public String add(byte[] content) {
+        final String hash = HashFunction.SHA1.hash(content);
+        objects.put(hash, content);
+        return hash;
+    }
+
+    /**
+     * Injects the given failures, in order, into the next responses for the given object.
+     */
+    public void fail(String hash, Failure... failures) {
+        this.failures.computeIfAbsent(hash, key -> new ConcurrentLinkedQueue<>()).addAll(List.of(failures));
+    }
+
+    public static String pathOf(String hash) {
+        return hash.substring(0, 2) + "/" + hash;
+    }
+
+    /**
+     * @return The number of requests for the given object.
+     */
+    public int requests(String hash) {
+        final AtomicInteger count = requests.get(hash);
+        return count == null ? 0 : count.get();
+    }
+
+    /**
+     * @return The number of requests for all objects.
+     */
+    public int requests() {
+        return totalRequests.get();
+    }
+
+    /**
+     * @return The number of distinct connections requests were received on.
+     */
+    public int connections() {
+        return connections.size();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            totalRequests.incrementAndGet();
+            connections.add(exchange.getRemoteAddress());
+
+            final String path = exchange.getRequestURI().getPath();
+            final String hash = path.substring(path.lastIndexOf('/') + 1);
+            requests.computeIfAbsent(hash, key -> new AtomicInteger()).incrementAndGet();
+
+            final byte[] content = objects.get(hash);
+            if (content == null || !path.equals("/" + pathOf(hash))) {
+                respond(exchange, 404, "Not found".getBytes());
+                return;
+            }
+
+            final ConcurrentLinkedQueue<Failure> pending = failures.get(hash);
+            final Failure failure = pending == null ? null : pending.poll();
+            if (failure == null) {
+                respond(exchange, 200, content);
+                return;
+            }
+
+            switch (failure) {
+                case ERROR -> respond(exchange, 503, "Unavailable".getBytes());
+                case CORRUPT -> {
+                    final byte[] corrupt = content.clone();
+                    corrupt[0] ^= 0x1;
+                    respond(exchange, 200, corrupt);
+                }
+                case DROP -> {
+                    exchange.sendResponseHeaders(200, content.length);
+                    final OutputStream body = exchange.getResponseBody();
+                    body.write(content, 0, content.length / 2);
+                    body.flush();
+                    //Closing the exchange before the promised length was written terminates the connection.
+                }
+            }
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int status, byte[] body) throws IOException {
+        if (exchange.getRequestMethod().equals("HEAD")) {
+            exchange.getResponseHeaders().set("Content-Length", Integer.toString(body.length));
+            exchange.sendResponseHeaders(status, -1);
+            return;
+        }
+
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream output = exchange.getResponseBody()) {
+            output.write(body);
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,201 @@
+package net.neoforged.gradle.common.util.download;
+
+import net.neoforged.gradle.common.util.FileDownloadingUtils;
+import net.neoforged.gradle.util.HashFunction;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class DownloadCoordinatorTest {
+
+    private static final int PROJECTS = 8;
+
+    @TempDir
+    public File temp;
+
+    private SlowArtifactServer server;
+    private byte[] content;
+    private ExecutorService executor;
+
+    @BeforeEach
+    public void startServer() throws IOException {
+        server = SlowArtifactServer.start();
+        content = new byte[256 * 1024];
+        new Random(1).nextBytes(content);
+        server.serve(content, Instant.parse("2024-05-01T10:15:30Z"));
+        executor = Executors.newFixedThreadPool(PROJECTS);
+    }
+
+    @AfterEach
+    public void stopServer() {
+        executor.shutdownNow();
+        server.close();
+    }
+
+    @Test
+    public void concurrentProjectsDownloadAFileOnce() throws Exception {
+        final DownloadCoordinator coordinator = new DownloadCoordinator();
+        final FileDownloadingUtils.DownloadInfo info = new FileDownloadingUtils.DownloadInfo(server.url().toString(), null, "json", null, null);
+        server.delay(Duration.ofMillis(200));
+
+        final List<File> targets = runConcurrently(project -> {
+            final File target = new File(temp, "project%d/version.json".formatted(project));
+            coordinator.download(info.getUrl(), null, target, () -> FileDownloadingUtils.downloadTo(false, info, target));
+            return target;
+        });
+
+        assertEquals(1, server.requests());
+        for (File target : targets) {
+            assertArrayEquals(content, Files.readAllBytes(target.toPath()));
+        }
+    }
+
+    @Test
+    public void concurrentProjectsSharePinnedFilesThroughTheStore() throws Exception {
+        final DownloadCoordinator coordinator = new DownloadCoordinator();
+        final ArtifactStore store = new ArtifactStore(new File(temp, "store"));
+        final String sha1 = HashFunction.SHA1.hash(content);
+        final FileDownloadingUtils.DownloadInfo info = new FileDownloadingUtils.DownloadInfo(server.url().toString(), sha1, "jar", "1.20.1", "server");
+        server.delay(Duration.ofMillis(200));
+
+        final List<File> targets = runConcurrently(project -> {
+            final File target = new File(temp, "project%d/server.jar".formatted(project));
+            coordinator.download(info.getUrl(), sha1, target, () -> FileDownloadingUtils.downloadTo(false, info, target, store));
+            return target;
+        });
+
+        assertEquals(1, server.requests());
+        for (File target : targets) {
+            assertArrayEquals(content, Files.readAllBytes(target.toPath()));
+            assertTrue(Files.isSameFile(store.fileOf(sha1).toPath(), target.toPath()));
+        }
+    }
+
+    @Test
+    public void waitingRequestsRetryAFailedDownload() throws Exception {
+        final DownloadCoordinator coordinator = new DownloadCoordinator();
+        final FileDownloadingUtils.DownloadInfo info = new FileDownloadingUtils.DownloadInfo(server.url().toString(), null, "json", null, null);
+        final CountDownLatch leading = new CountDownLatch(1);
+        final AtomicInteger attempts = new AtomicInteger();
+
+        final List<Future<File>> results = new ArrayList<>();
+        for (int project = 0; project < PROJECTS; project++) {
+            final File target = new File(temp, "project%d/version.json".formatted(project));
+            results.add(executor.submit(() -> {
+                coordinator.download(info.getUrl(), null, target, () -> {
+                    if (attempts.getAndIncrement() == 0) {
+                        leading.countDown();
+                        //Gives the other projects time to start waiting for this download.
+                        sleep(Duration.ofMillis(200));
+                        throw new IOException("Connection reset");
+                    }
+                    return FileDownloadingUtils.downloadTo(false, info, target);
+                });
+                return target;
+            }));
+            if (project == 0) {
+                assertTrue(leading.await(10, TimeUnit.SECONDS));
+            }
+        }
+
+        int failures = 0;
+        for (Future<File> result : results) {
+            try {
+                assertArrayEquals(content, Files.readAllBytes(result.get().toPath()));
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof IOException);
+                failures++;
+            }
+        }
+
+        assertEquals(1, failures);
+        assertEquals(2, attempts.get());
+        assertEquals(1, server.requests());
+    }
+
+    @Test
+    public void laterRequestsShareTheResult() throws IOException {
+        final DownloadCoordinator coordinator = new DownloadCoordinator();
+        final FileDownloadingUtils.DownloadInfo info = new FileDownloadingUtils.DownloadInfo(server.url().toString(), null, "json", null, null);
+        final File first = new File(temp, "first/version.json");
+        final File second = new File(temp, "second/version.json");
+
+        assertTrue(coordinator.download(info.getUrl(), null, first, () -> FileDownloadingUtils.downloadTo(false, info, first)));
+        assertTrue(coordinator.download(info.getUrl(), null, second, () -> FileDownloadingUtils.downloadTo(false, info, second)));
+        assertFalse(coordinator.download(info.getUrl(), null, second, () -> FileDownloadingUtils.downloadTo(false, info, second)));
+        assertFalse(coordinator.download(info.getUrl(), null, first, () -> FileDownloadingUtils.downloadTo(false, info, first)));
+
+        assertEquals(1, server.requests());
+        assertArrayEquals(content, Files.readAllBytes(second.toPath()));
+        assertEquals(Files.getLastModifiedTime(first.toPath()), Files.getLastModifiedTime(second.toPath()));
+    }
+
+    @Test
+    public void changedResultsAreDownloadedAgain() throws IOException {
+        final DownloadCoordinator coordinator = new DownloadCoordinator();
+        final FileDownloadingUtils.DownloadInfo info = new FileDownloadingUtils.DownloadInfo(server.url().toString(), null, "json", null, null);
+        final File first = new File(temp, "first/version.json");
+        final File second = new File(temp, "second/version.json");
+
+        coordinator.download(info.getUrl(), null, first, () -> FileDownloadingUtils.downloadTo(false, info, first));
+        Files.writeString(first.toPath(), "modified");
+        coordinator.download(info.getUrl(), null, second, () -> FileDownloadingUtils.downloadTo(false, info, second));
+
+        assertEquals(2, server.requests());
+        assertArrayEquals(content, Files.readAllBytes(second.toPath()));
+    }
+
+    private List<File> runConcurrently(Project project) throws Exception {
+        final CountDownLatch start = new CountDownLatch(1);
+        final List<Future<File>> results = new ArrayList<>();
+        for (int i = 0; i < PROJECTS; i++) {
+            final int index = i;
+            results.add(executor.submit(() -> {
+                start.await();
+                return project.run(index);
+            }));
+        }
+        start.countDown();
+
+        final List<File> files = new ArrayList<>();
+        for (Future<File> result : results) {
+            files.add(result.get());
+        }
+        return files;
+    }
+
+    private static void sleep(Duration duration) {
+        try {
+            Thread.sleep(duration.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @FunctionalInterface
+    private interface Project {
+        File run(int index) throws IOException;
+    }
+}
@@ -0,0 +1,227 @@
+package net.neoforged.gradle.common.util.download;
+
+import net.neoforged.gradle.common.util.FileDownloadingUtils;
+import net.neoforged.gradle.util.HashFunction;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class DownloadIndexTest {
+
+    private static final Duration REVALIDATE_AFTER = Duration.ofMinutes(60);
+    private static final Instant LAST_MODIFIED = Instant.parse("2024-05-01T10:15:30Z");
+
+    @TempDir
+    public File temp;
+
+    private ArtifactServer server;
+    private MutableClock clock;
+    private byte[] content;
+
+    @BeforeEach
+    public void startServer() throws IOException {
+        server = ArtifactServer.start();
+        clock = new MutableClock(Instant.parse("2024-06-01T00:00:00Z"));
+        content = random(64 * 1024, 1);
+        server.serve(content, LAST_MODIFIED);
+    }
+
+    @AfterEach
+    public void stopServer() {
+        server.close();
+    }
+
+    @Test
+    public void pinnedFilesNeverTouchTheNetworkOncePresent() throws IOException {
+        final FileDownloadingUtils.DownloadInfo info = pinned(content);
+
+        assertTrue(FileDownloadingUtils.downloadTo(false, info, target(), index()));
+        assertEquals(1, server.requests());
+
+        //Even long after the revalidation time, the hash identifies the file.
+        clock.advance(REVALIDATE_AFTER.multipliedBy(100));
+        for (int build = 0; build < 5; build++) {
+            assertFalse(FileDownloadingUtils.downloadTo(false, info, target(), index()));
+        }
+
+        assertEquals(1, server.requests());
+        assertArrayEquals(content, Files.readAllBytes(target().toPath()));
+    }
+
+    @Test
+    public void presentPinnedFilesAreIndexedWithoutRequests() throws IOException {
+        Files.createDirectories(target().getParentFile().toPath());
+        Files.write(target().toPath(), content);
+
+        assertFalse(FileDownloadingUtils.downloadTo(false, pinned(content), target(), index()));
+        assertFalse(FileDownloadingUtils.downloadTo(false, pinned(content), target(), index()));
+
+        assertEquals(0, server.requests());
+        assertEquals(HashFunction.SHA1.hash(content), index().find(server.url().toString()).sha1());
+    }
+
+    @Test
+    public void changedPinnedFilesAreDownloadedAgain() throws IOException {
+        FileDownloadingUtils.downloadTo(false, pinned(content), target(), index());
+        Files.write(target().toPath(), random(1024, 2));
+
+        assertTrue(FileDownloadingUtils.downloadTo(false, pinned(content), target(), index()));
+
+        assertEquals(2, server.requests());
+        assertArrayEquals(content, Files.readAllBytes(target().toPath()));
+    }
+
+    @Test
+    public void unpinnedFilesAreRevalidatedAfterTheConfiguredTime() throws IOException {
+        final FileDownloadingUtils.DownloadInfo info = unpinned();
+
+        assertTrue(FileDownloadingUtils.downloadTo(false, info, target(), index()));
+        clock.advance(REVALIDATE_AFTER.minusMinutes(1));
+        assertFalse(FileDownloadingUtils.downloadTo(false, info, target(), index()));
+        assertEquals(1, server.requests());
+
+        clock.advance(Duration.ofMinutes(2));
+        assertFalse(FileDownloadingUtils.downloadTo(false, info, target(), index()));
+        assertEquals(2, server.requests());
+        assertEquals(1, server.notModified());
+        assertEquals(content.length, server.bodyBytes());
+
+        //The revalidation counts as a verification.
+        clock.advance(REVALIDATE_AFTER.minusMinutes(1));
+        assertFalse(FileDownloadingUtils.downloadTo(false, info, target(), index()));
+        assertEquals(2, server.requests());
+    }
+
+    @Test
+    public void revalidationUsesTheEtag() throws IOException {
+        FileDownloadingUtils.downloadTo(false, unpinned(), target(), index());
+
+        //A new modification date alone, like a redeployment of the same file, does not cause a download.
+        server.serve(content, LAST_MODIFIED.plusSeconds(3600));
+        clock.advance(REVALIDATE_AFTER);
+        assertFalse(FileDownloadingUtils.downloadTo(false, unpinned(), target(), index()));
+
+        assertEquals(1, server.notModified());
+        assertEquals(content.length, server.bodyBytes());
+    }
+
+    @Test
+    public void changedUnpinnedFilesAreDownloadedOnRevalidation() throws IOException {
+        FileDownloadingUtils.downloadTo(false, unpinned(), target(), index());
+
+        final byte[] changed = random(32 * 1024, 3);
+        server.serve(changed, LAST_MODIFIED.plusSeconds(3600));
+        assertFalse(FileDownloadingUtils.downloadTo(false, unpinned(), target(), index()));
+
+        clock.advance(REVALIDATE_AFTER);
+        assertTrue(FileDownloadingUtils.downloadTo(false, unpinned(), target(), index()));
+        assertArrayEquals(changed, Files.readAllBytes(target().toPath()));
+        assertEquals(HashFunction.SHA1.hash(changed), index().find(server.url().toString()).sha1());
+    }
+
+    @Test
+    public void unpinnedFilesAreRevalidatedOnEveryUseWithoutRevalidationTime() throws IOException {
+        final DownloadIndex index = new DownloadIndex(new File(temp, "index"), Duration.ZERO, clock);
+
+        FileDownloadingUtils.downloadTo(false, unpinned(), target(), index);
+        FileDownloadingUtils.downloadTo(false, unpinned(), target(), index);
+        FileDownloadingUtils.downloadTo(false, unpinned(), target(), index);
+
+        assertEquals(3, server.requests());
+        assertEquals(2, server.notModified());
+    }
+
+    @Test
+    public void offlineBuildsNeverTouchTheNetwork() throws IOException {
+        FileDownloadingUtils.downloadTo(false, unpinned(), target(), index());
+        server.serve(random(1024, 4), LAST_MODIFIED.plusSeconds(3600));
+        clock.advance(REVALIDATE_AFTER.multipliedBy(2));
+
+        assertFalse(FileDownloadingUtils.downloadTo(true, unpinned(), target(), index()));
+        assertFalse(FileDownloadingUtils.downloadTo(true, pinned(content), target(), index()));
+        assertThrows(RuntimeException.class, () -> FileDownloadingUtils.downloadTo(true, pinned(content), new File(temp, "missing.jar"), index()));
+
+        assertEquals(1, server.requests());
+        assertArrayEquals(content, Files.readAllBytes(target().toPath()));
+    }
+
+    @Test
+    public void corruptEntriesAreIgnored() throws IOException {
+        FileDownloadingUtils.downloadTo(false, unpinned(), target(), index());
+        try (var entries = Files.list(new File(temp, "index").toPath())) {
+            for (var entry : entries.toList()) {
+                Files.writeString(entry, "url=" + server.url() + "\nsize=broken\n");
+            }
+        }
+
+        assertFalse(FileDownloadingUtils.downloadTo(false, unpinned(), target(), index()));
+        assertEquals(2, server.requests());
+        assertEquals(content.length, index().find(server.url().toString()).size());
+    }
+
+    private DownloadIndex index() {
+        return new DownloadIndex(new File(temp, "index"), REVALIDATE_AFTER, clock);
+    }
+
+    private FileDownloadingUtils.DownloadInfo pinned(byte[] content) {
+        return new FileDownloadingUtils.DownloadInfo(server.url().toString(), HashFunction.SHA1.hash(content), null, null, null);
+    }
+
+    private FileDownloadingUtils.DownloadInfo unpinned() {
+        return new FileDownloadingUtils.DownloadInfo(server.url().toString(), null, null, null, null);
+    }
+
+    private File target() {
+        return new File(temp, "downloads/artifact.jar");
+    }
+
+    private static byte[] random(int size, long seed) {
+        final byte[] bytes = new byte[size];
+        new Random(seed).nextBytes(bytes);
+        return bytes;
+    }
+
+    private static final class MutableClock extends Clock {
+        private Instant now;
+
+        private MutableClock(Instant now) {
+            this.now = now;
+        }
+
+        private void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package net.neoforged.gradle.common.util.download;
+
+import net.neoforged.gradle.common.util.FileDownloadingUtils;
+import net.neoforged.gradle.util.HashFunction;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class DownloadSchedulerTest {
+
+    private static final int DOWNLOADS = 6;
+
+    @TempDir
+    public File temp;
+
+    private SlowArtifactServer server;
+    private byte[] content;
+    private ExecutorService executor;
+
+    @BeforeEach
+    public void startServer() throws IOException {
+        server = SlowArtifactServer.start();
+        content = new byte[256 * 1024];
+        new Random(1).nextBytes(content);
+        server.serve(content, Instant.parse("2024-05-01T10:15:30Z"));
+        executor = Executors.newCachedThreadPool();
+    }
+
+    @AfterEach
+    public void stopServer() {
+        executor.shutdownNow();
+        server.close();
+    }
+
+    @Test
+    public void downloadsAreLimitedOverAllHosts() throws Exception {
+        final DownloadScheduler scheduler = new DownloadScheduler(3, 8, 0);
+        server.delay(Duration.ofMillis(200));
+
+        final List<Future<File>> results = new ArrayList<>();
+        for (int i = 0; i < DOWNLOADS; i++) {
+            //Every other download goes to another name of the same server, which the scheduler sees as another host.
+            final String host = i % 2 == 0 ? "127.0.0.1" : "localhost";
+            results.add(download(scheduler, "http://%s:%d/file%d.jar".formatted(host, server.url().getPort(), i), "file%d.jar".formatted(i)));
+        }
+
+        assertDownloaded(results);
+        assertEquals(3, server.peakConcurrentRequests());
+    }
+
+    @Test
+    public void downloadsAreLimitedPerHost() throws Exception {
+        final DownloadScheduler scheduler = new DownloadScheduler(8, 2, 0);
+        server.delay(Duration.ofMillis(200));
+
+        final List<Future<File>> results = new ArrayList<>();
+        for (int i = 0; i < DOWNLOADS; i++) {
+            results.add(download(scheduler, url("/file%d.jar".formatted(i)), "file%d.jar".formatted(i)));
+        }
+
+        assertDownloaded(results);
+        assertEquals(2, server.peakConcurrentRequests());
+    }
+
+    @Test
+    public void otherHostsAreNotBlockedByABusyHost() throws Exception {
+        final DownloadScheduler scheduler = new DownloadScheduler(8, 2, 0);
+        server.delay(Duration.ofMillis(200));
+
+        final List<Future<File>> results = new ArrayList<>();
+        for (int i = 0; i < DOWNLOADS; i++) {
+            final String host = i < DOWNLOADS / 2 ? "127.0.0.1" : "localhost";
+            results.add(download(scheduler, "http://%s:%d/file%d.jar".formatted(host, server.url().getPort(), i), "file%d.jar".formatted(i)));
+        }
+
+        assertDownloaded(results);
+        assertEquals(4, server.peakConcurrentRequests());
+    }
+
+    @Test
+    public void gameDownloadsGoAheadOfWaitingAssets() throws Exception {
+        final DownloadScheduler scheduler = new DownloadScheduler(1, 1, 0);
+        final AssetDownloader assets = new AssetDownloader(4, scheduler);
+        final String sha1 = HashFunction.SHA1.hash(content);
+        server.delay(Duration.ofMillis(200));
+
+        final Future<File> clientJar = download(scheduler, url("/client.jar"), "client.jar");
+        awaitCondition(() -> server.requests() == 1);
+
+        final List<AssetDownloader.Request> requests = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            requests.add(new AssetDownloader.Request(URI.create(url("/assets/object%d".formatted(i))), new File(temp, "assets/object%d".formatted(i)), sha1, content.length));
+        }
+        final Future<AssetDownloader.Result> objects = executor.submit(() -> assets.download(requests, bytes -> {}));
+        awaitCondition(() -> scheduler.waiting() == requests.size());
+
+        //Requested after the assets, but needed by the build before them.
+        final Future<File> serverJar = download(scheduler, url("/server.jar"), "server.jar");
+        awaitCondition(() -> scheduler.waiting() == requests.size() + 1);
+
+        assertArrayEquals(content, Files.readAllBytes(clientJar.get().toPath()));
+        assertArrayEquals(content, Files.readAllBytes(serverJar.get().toPath()));
+        assertEquals(requests.size(), objects.get().downloaded());
+
+        final List<String> paths = server.paths();
+        assertEquals(List.of("/client.jar", "/server.jar"), paths.subList(0, 2));
+        assertTrue(paths.subList(2, paths.size()).stream().allMatch(path -> path.startsWith("/assets/")));
+        assertEquals(1, server.peakConcurrentRequests());
+    }
+
+    @Test
+    public void bandwidthIsSharedByAllDownloads() throws Exception {
+        //Two downloads of 256 KiB at 256 KiB per second take two seconds, less the initial burst.
+        final DownloadScheduler scheduler = new DownloadScheduler(4, 4, content.length);
+
+        final long start = System.nanoTime();
+        final List<Future<File>> results = List.of(
+                download(scheduler, url("/first.jar"), "first.jar"),
+                download(scheduler, url("/second.jar"), "second.jar")
+        );
+        assertDownloaded(results);
+        final Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+
+        assertTrue(elapsed.compareTo(Duration.ofMillis(1700)) >= 0, "Downloads completed too fast: " + elapsed);
+    }
+
+    @Test
+    public void permitsAreReleasedOnce() throws Exception {
+        final DownloadScheduler scheduler = new DownloadScheduler(1, 1, 0);
+
+        final DownloadScheduler.Permit permit = scheduler.acquire(URI.create(url("/first.jar")), DownloadScheduler.Lane.GAME);
+        permit.close();
+        permit.close();
+
+        try (DownloadScheduler.Permit ignored = scheduler.acquire(URI.create(url("/second.jar")), DownloadScheduler.Lane.GAME)) {
+            final Future<?> waiting = executor.submit(() -> {
+                scheduler.acquire(URI.create(url("/third.jar")), DownloadScheduler.Lane.GAME).close();
+                return null;
+            });
+            awaitCondition(() -> scheduler.waiting() == 1);
+            assertFalse(waiting.isDone());
+        }
+    }
+
+    @Test
+    public void invalidLimitsAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new DownloadScheduler(0, 1, 0));
+        assertThrows(IllegalArgumentException.class, () -> new DownloadScheduler(1, 0, 0));
+        assertThrows(IllegalArgumentException.class, () -> new DownloadScheduler(1, 1, -1));
+    }
+
+    private Future<File> download(DownloadScheduler scheduler, String url, String name) {
+        final File target = new File(temp, name);
+        final FileDownloadingUtils.DownloadInfo info = new FileDownloadingUtils.DownloadInfo(url, null, "json", null, null);
+        return executor.submit(() -> {
+            FileDownloadingUtils.downloadTo(false, info, target, null, scheduler);
+            return target;
+        });
+    }
+
+    private void assertDownloaded(List<Future<File>> results) throws Exception {
+        for (Future<File> result : results) {
+            assertArrayEquals(content, Files.readAllBytes(result.get().toPath()));
+        }
+    }
+
+    private String url(String path) {
+        return "http://%s:%d%s".formatted(server.url().getHost(), server.url().getPort(), path);
+    }
+
+    private static void awaitCondition(BooleanSupplier condition) throws InterruptedException {
+        final long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "Timed out waiting for the downloads");
+            Thread.sleep(10);
+        }
+    }
+}
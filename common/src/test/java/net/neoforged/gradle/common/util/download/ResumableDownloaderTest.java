@@ -0,0 +1,196 @@
+package net.neoforged.gradle.common.util.download;
+
+import net.neoforged.gradle.common.services.caching.locking.ChannelFileLock;
+import net.neoforged.gradle.common.services.caching.logging.CacheLogger;
+import org.gradle.api.logging.Logging;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ResumableDownloaderTest {
+
+    private static final RetryPolicy FAST_RETRIES = new RetryPolicy(4, Duration.ofMillis(1), Duration.ofMillis(5));
+    private static final RetryPolicy SINGLE_ATTEMPT = new RetryPolicy(1, Duration.ofMillis(1), Duration.ofMillis(1));
+    private static final Instant LAST_MODIFIED = Instant.parse("2024-05-01T10:15:30Z");
+    private static final int SIZE = 1024 * 1024;
+    private static final CacheLogger LOGGER = new CacheLogger(Logging.getLogger(ResumableDownloaderTest.class), "test", false, false);
+
+    @TempDir
+    public File temp;
+
+    private ArtifactServer server;
+    private byte[] content;
+
+    @BeforeEach
+    public void startServer() throws IOException {
+        server = ArtifactServer.start();
+        content = random(SIZE, 1);
+        server.serve(content, LAST_MODIFIED);
+    }
+
+    @AfterEach
+    public void stopServer() {
+        server.close();
+    }
+
+    @Test
+    public void droppedConnectionsAreResumed() throws IOException {
+        server.drop(300 * 1024, 2);
+        final AtomicLong progress = new AtomicLong();
+
+        final ResumableDownloader.Download download = downloader(FAST_RETRIES, 1).download(server.url(), target(), 0, progress::addAndGet);
+
+        assertArrayEquals(content, Files.readAllBytes(target()));
+        assertEquals(List.of("", "bytes=" + 300 * 1024 + "-", "bytes=" + 600 * 1024 + "-"), server.ranges());
+        //No byte was transferred twice.
+        assertEquals(SIZE, server.bodyBytes());
+        assertEquals(SIZE, progress.get());
+        assertEquals(600 * 1024, download.resumedFrom());
+        assertEquals(LAST_MODIFIED.toEpochMilli(), download.lastModified());
+        assertNoLeftovers();
+    }
+
+    @Test
+    public void partialFilesAreResumedByLaterDownloads() throws IOException {
+        server.drop(400 * 1024, 1);
+        assertThrows(IOException.class, () -> downloader(SINGLE_ATTEMPT, 1).download(server.url(), target(), 0, ResumableDownloader.Listener.NONE));
+        assertFalse(Files.exists(target()));
+        assertEquals(400 * 1024, Files.size(ResumableDownloader.partOf(target())));
+
+        downloader(SINGLE_ATTEMPT, 1).download(server.url(), target(), 0, ResumableDownloader.Listener.NONE);
+
+        assertArrayEquals(content, Files.readAllBytes(target()));
+        assertEquals("bytes=" + 400 * 1024 + "-", server.ranges().get(1));
+        assertNoLeftovers();
+    }
+
+    @Test
+    public void lastModifiedIsUsedWithoutAnEtag() throws IOException {
+        server.sendEtag(false);
+        server.drop(100 * 1024, 1);
+
+        downloader(FAST_RETRIES, 1).download(server.url(), target(), 0, ResumableDownloader.Listener.NONE);
+
+        assertArrayEquals(content, Files.readAllBytes(target()));
+        assertEquals(List.of("", "bytes=" + 100 * 1024 + "-"), server.ranges());
+        assertEquals(SIZE, server.bodyBytes());
+    }
+
+    @Test
+    public void changedArtifactsAreDownloadedFromTheStart() throws IOException {
+        server.drop(500 * 1024, 1);
+        assertThrows(IOException.class, () -> downloader(SINGLE_ATTEMPT, 1).download(server.url(), target(), 0, ResumableDownloader.Listener.NONE));
+
+        final byte[] changed = random(SIZE, 2);
+        server.serve(changed, LAST_MODIFIED.plusSeconds(60));
+        downloader(SINGLE_ATTEMPT, 1).download(server.url(), target(), 0, ResumableDownloader.Listener.NONE);
+
+        //The range was requested, but the validator did not match, so the server sent the whole new artifact.
+        assertEquals("bytes=" + 500 * 1024 + "-", server.ranges().get(1));
+        assertArrayEquals(changed, Files.readAllBytes(target()));
+        assertNoLeftovers();
+    }
+
+    @Test
+    public void serversWithoutRangesRestartTheDownload() throws IOException {
+        server.supportRanges(false);
+        server.drop(200 * 1024, 1);
+
+        downloader(FAST_RETRIES, 1).download(server.url(), target(), 0, ResumableDownloader.Listener.NONE);
+
+        assertArrayEquals(content, Files.readAllBytes(target()));
+        assertEquals(SIZE + 200 * 1024, server.bodyBytes());
+    }
+
+    @Test
+    public void unmodifiedArtifactsAreNotDownloaded() throws IOException {
+        downloader(FAST_RETRIES, 1).download(server.url(), target(), 0, ResumableDownloader.Listener.NONE);
+
+        final ResumableDownloader.Download download = downloader(FAST_RETRIES, 1).download(server.url(), target(), LAST_MODIFIED.toEpochMilli(), ResumableDownloader.Listener.NONE);
+
+        assertFalse(download.modified());
+        assertEquals(SIZE, server.bodyBytes());
+    }
+
+    @Test
+    public void largeArtifactsAreFetchedInSegments() throws IOException {
+        final AtomicLong progress = new AtomicLong();
+
+        downloader(FAST_RETRIES, 4).download(server.url(), target(), 0, progress::addAndGet);
+
+        assertArrayEquals(content, Files.readAllBytes(target()));
+        assertEquals(5, server.ranges().size());
+        assertTrue(server.ranges().contains("bytes=0-262143"), server.ranges().toString());
+        assertTrue(server.ranges().contains("bytes=786432-1048575"), server.ranges().toString());
+        assertEquals(SIZE, progress.get());
+        assertNoLeftovers();
+    }
+
+    @Test
+    public void droppedSegmentsAreResumed() throws IOException {
+        //The first response is only used for its headers, the next two segments are dropped halfway.
+        server.drop(128 * 1024, 3);
+
+        downloader(FAST_RETRIES, 4).download(server.url(), target(), 0, ResumableDownloader.Listener.NONE);
+
+        assertArrayEquals(content, Files.readAllBytes(target()));
+        assertEquals(7, server.ranges().size());
+        assertNoLeftovers();
+    }
+
+    @Test
+    public void partialFilesOfConcurrentDownloadsAreNotShared() throws Exception {
+        //Another download holds the partial file, which must neither be resumed nor written.
+        Files.createDirectories(target().getParent());
+        final byte[] foreign = random(200 * 1024, 2);
+        Files.write(ResumableDownloader.partOf(target()), foreign);
+        try (ChannelFileLock lock = ChannelFileLock.lock(ResumableDownloader.lockOf(target()).toFile(), LOGGER)) {
+            downloader(FAST_RETRIES, 1).download(server.url(), target(), 0, ResumableDownloader.Listener.NONE);
+        }
+
+        assertArrayEquals(content, Files.readAllBytes(target()));
+        assertEquals(List.of(""), server.ranges());
+        assertArrayEquals(foreign, Files.readAllBytes(ResumableDownloader.partOf(target())));
+        try (Stream<Path> files = Files.list(target().getParent())) {
+            assertEquals(3, files.count(), "Only the target, the foreign partial file and its lock should remain");
+        }
+    }
+
+    private ResumableDownloader downloader(RetryPolicy retryPolicy, int segments) {
+        return new ResumableDownloader(retryPolicy, Duration.ofSeconds(5), segments, 512 * 1024);
+    }
+
+    private Path target() {
+        return temp.toPath().resolve("versions/client.jar");
+    }
+
+    private void assertNoLeftovers() {
+        assertFalse(Files.exists(ResumableDownloader.partOf(target())));
+        assertFalse(Files.exists(ResumableDownloader.validatorOf(target())));
+        assertFalse(Files.exists(ResumableDownloader.lockOf(target())));
+    }
+
+    private static byte[] random(int size, long seed) {
+        final byte[] bytes = new byte[size];
+        new Random(seed).nextBytes(bytes);
+        return bytes;
+    }
+}
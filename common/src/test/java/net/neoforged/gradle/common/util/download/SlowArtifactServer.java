@@ -0,0 +1,65 @@
+package net.neoforged.gradle.common.util.download;
+
+import com.sun.net.httpserver.HttpExchange;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An {@link ArtifactServer} which delays its responses, so that concurrent requests overlap, and records how many of
+ * them were handled at the same time.
+ */
+public final class SlowArtifactServer extends ArtifactServer {
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger peakInFlight = new AtomicInteger();
+    private final List<String> paths = new CopyOnWriteArrayList<>();
+    private volatile long delay;
+
+    private SlowArtifactServer() throws IOException {
+    }
+
+    public static SlowArtifactServer start() throws IOException {
+        final SlowArtifactServer server = new SlowArtifactServer();
+        server.listen();
+        return server;
+    }
+
+    /**
+     * Delays every response by the given time, so concurrent requests overlap.
+     */
+    public void delay(Duration delay) {
+        this.delay = delay.toMillis();
+    }
+
+    /**
+     * @return The requested paths of all requests, in the order they were received.
+     */
+    public List<String> paths() {
+        return paths;
+    }
+
+    /**
+     * @return The highest number of requests which were handled at the same time.
+     */
+    public int peakConcurrentRequests() {
+        return peakInFlight.get();
+    }
+
+    @Override
+    void received(HttpExchange exchange) throws InterruptedException {
+        peakInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+        paths.add(exchange.getRequestURI().getPath());
+        if (delay > 0) {
+            Thread.sleep(delay);
+        }
+    }
+
+    @Override
+    void completed(HttpExchange exchange) {
+        inFlight.decrementAndGet();
+    }
+}
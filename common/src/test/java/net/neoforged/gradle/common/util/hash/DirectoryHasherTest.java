@@ -0,0 +1,185 @@
+package net.neoforged.gradle.common.util.hash;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class DirectoryHasherTest {
+
+    private static final List<String> FILES = List.of(
+            "a.txt",
+            "b.txt",
+            "nested/c.txt",
+            "nested/deeper/d.txt",
+            "other/e.txt"
+    );
+
+    @TempDir
+    public Path temp;
+
+    @Test
+    public void digestDoesNotDependOnCreationOrder() throws IOException {
+        final Set<HashCode> digests = new HashSet<>();
+        int index = 0;
+        for (List<String> permutation : permutations(FILES)) {
+            final File root = temp.resolve("root" + index++).toFile();
+            for (String file : permutation) {
+                write(root, file, file);
+            }
+            digests.add(new DirectoryHasher(Hashing.sha256()).hash(root).hash());
+        }
+
+        assertEquals(1, digests.size());
+    }
+
+    @Test
+    public void digestIsTheSameForSequentialAndParallelHashing() throws IOException {
+        final File root = createTree("root");
+
+        final DirectoryHasher.Node parallel = new DirectoryHasher(Hashing.sha256()).hash(root);
+        final DirectoryHasher.Node sequential = new DirectoryHasher(Hashing.sha256(), Hashing.sha256()::hashFile, Runnable::run).hash(root);
+
+        assertEquals(sequential, parallel);
+    }
+
+    @Test
+    public void nameOfTheRootDoesNotAffectTheDigest() throws IOException {
+        assertEquals(
+                new DirectoryHasher(Hashing.sha256()).hash(createTree("first")).hash(),
+                new DirectoryHasher(Hashing.sha256()).hash(createTree("second")).hash()
+        );
+        assertEquals(Hashing.hashDirectory(createTree("third")), Hashing.hashDirectory(createTree("fourth")));
+    }
+
+    @Test
+    public void renamingAFileChangesTheDigest() throws IOException {
+        final File original = createTree("original");
+        final File renamed = createTree("renamed");
+        Files.move(new File(renamed, "a.txt").toPath(), new File(renamed, "z.txt").toPath());
+
+        assertNotEquals(new DirectoryHasher(Hashing.sha256()).hash(original).hash(), new DirectoryHasher(Hashing.sha256()).hash(renamed).hash());
+    }
+
+    @Test
+    public void movingAFileIntoAnotherDirectoryChangesTheDigest() throws IOException {
+        final File original = createTree("original");
+        final File moved = createTree("moved");
+        Files.move(new File(moved, "nested/c.txt").toPath(), new File(moved, "other/c.txt").toPath());
+
+        assertNotEquals(new DirectoryHasher(Hashing.sha256()).hash(original).hash(), new DirectoryHasher(Hashing.sha256()).hash(moved).hash());
+    }
+
+    @Test
+    public void emptyDirectoriesAreDistinguishedFromEmptyFiles() throws IOException {
+        final File withDirectory = temp.resolve("directory").toFile();
+        Files.createDirectories(new File(withDirectory, "entry").toPath());
+        final File withFile = temp.resolve("file").toFile();
+        write(withFile, "entry", "");
+
+        assertNotEquals(new DirectoryHasher(Hashing.sha256()).hash(withDirectory).hash(), new DirectoryHasher(Hashing.sha256()).hash(withFile).hash());
+    }
+
+    @Test
+    public void changingAFileOnlyChangesTheDigestsOfItsAncestors() throws IOException {
+        final File root = createTree("root");
+        final DirectoryHasher.Node before = new DirectoryHasher(Hashing.sha256()).hash(root);
+
+        write(root, "nested/deeper/d.txt", "changed");
+        final DirectoryHasher.Node after = new DirectoryHasher(Hashing.sha256()).hash(root);
+
+        final Map<String, HashCode> beforeDigests = digests(before);
+        final Map<String, HashCode> afterDigests = digests(after);
+        final Set<String> changed = new HashSet<>();
+        for (String path : beforeDigests.keySet()) {
+            if (!beforeDigests.get(path).equals(afterDigests.get(path))) {
+                changed.add(path);
+            }
+        }
+
+        assertEquals(Set.of("", "nested", "nested/deeper", "nested/deeper/d.txt"), changed);
+    }
+
+    @Test
+    public void everyFileIsHashedExactlyOnce() throws IOException {
+        final File root = createTree("root");
+        final AtomicInteger hashed = new AtomicInteger();
+
+        new DirectoryHasher(Hashing.sha256(), file -> {
+            hashed.incrementAndGet();
+            return Hashing.sha256().hashFile(file);
+        }).hash(root);
+
+        assertEquals(FILES.size(), hashed.get());
+    }
+
+    @Test
+    public void failuresToHashAFileArePropagated() throws IOException {
+        final File root = createTree("root");
+
+        assertThrows(IOException.class, () -> new DirectoryHasher(Hashing.sha256(), file -> {
+            throw new IOException("Failed");
+        }).hash(root));
+    }
+
+    private File createTree(String name) throws IOException {
+        final File root = temp.resolve(name).toFile();
+        for (String file : FILES) {
+            write(root, file, file);
+        }
+        return root;
+    }
+
+    private static Map<String, HashCode> digests(DirectoryHasher.Node root) {
+        final Map<String, HashCode> digests = new HashMap<>();
+        collect(root, "", digests);
+        return digests;
+    }
+
+    private static void collect(DirectoryHasher.Node node, String path, Map<String, HashCode> digests) {
+        digests.put(path, node.hash());
+        for (DirectoryHasher.Node child : node.children()) {
+            collect(child, path.isEmpty() ? child.name() : path + "/" + child.name(), digests);
+        }
+    }
+
+    private static void write(File root, String path, String content) throws IOException {
+        final Path file = root.toPath().resolve(path);
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, content, StandardCharsets.UTF_8);
+    }
+
+    private static List<List<String>> permutations(List<String> values) {
+        if (values.isEmpty()) {
+            return List.of(List.of());
+        }
+
+        final List<List<String>> result = new ArrayList<>();
+        for (String value : values) {
+            final List<String> remaining = new ArrayList<>(values);
+            remaining.remove(value);
+            for (List<String> permutation : permutations(remaining)) {
+                final List<String> combined = new ArrayList<>();
+                combined.add(value);
+                combined.addAll(permutation);
+                result.add(combined);
+            }
+        }
+        return result;
+    }
+}
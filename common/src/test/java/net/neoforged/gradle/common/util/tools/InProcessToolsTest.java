@@ -0,0 +1,156 @@
+package net.neoforged.gradle.common.util.tools;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.OptionalInt;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+public class InProcessToolsTest {
+
+    @TempDir
+    public Path temp;
+
+    private InProcessTools tools;
+    private File jar;
+    @SuppressWarnings("removal")
+    private SecurityManager securityManager;
+
+    @BeforeEach
+    @SuppressWarnings("removal")
+    public void createTool() throws IOException {
+        securityManager = System.getSecurityManager();
+        assumeTrue(InProcessTools.trapsExit(), "This JVM can not trap exits");
+        tools = new InProcessTools();
+        jar = ToolJars.create(temp.resolve("tool"), ToolJars.TOOL);
+    }
+
+    @AfterEach
+    @SuppressWarnings("removal")
+    public void closeTools() {
+        if (tools != null) {
+            tools.close();
+        }
+        if (System.getSecurityManager() != securityManager) {
+            System.setSecurityManager(securityManager);
+        }
+    }
+
+    @Test
+    public void runsShareOneClassLoader() {
+        final Run first = run(jar, "loader");
+        final Run second = run(jar, "loader");
+
+        assertEquals(0, first.exitCode());
+        assertEquals(first.output(), second.output());
+        //The tool class stays loaded between runs.
+        assertEquals("3", run(jar, "runs").output().trim());
+    }
+
+    @Test
+    public void toolsDoNotSeeTheClassesOfTheBuild() {
+        assertEquals("false", run(jar, "visible", InProcessTools.class.getName()).output().trim());
+        assertEquals("false", run(jar, "visible", "org.junit.jupiter.api.Test").output().trim());
+        assertEquals("true", run(jar, "visible", "java.sql.Connection").output().trim());
+    }
+
+    @Test
+    public void differentToolsAreIsolatedFromEachOther() throws IOException {
+        final File other = ToolJars.create(temp.resolve("other"), ToolJars.TOOL);
+
+        assertNotEquals(run(jar, "loader").output(), run(other, "loader").output());
+        assertEquals("2", run(jar, "runs").output().trim());
+        assertEquals("2", run(other, "runs").output().trim());
+    }
+
+    @Test
+    public void outputIsSeparatedPerRun() {
+        final PrintStream out = System.out;
+        final PrintStream err = System.err;
+
+        final Run first = run(jar, "echo", "first");
+        final Run second = run(jar, "echo", "second");
+
+        assertEquals("out:first", first.output().trim());
+        assertEquals("err:first", first.error().trim());
+        assertEquals("out:second", second.output().trim());
+        assertEquals("err:second", second.error().trim());
+        //The streams of the build are restored once no tool runs.
+        assertSame(out, System.out);
+        assertSame(err, System.err);
+    }
+
+    @Test
+    public void exitsEndTheRunInsteadOfTheJvm() {
+        final String loader = run(jar, "loader").output();
+
+        assertEquals(3, run(jar, "exit", "3").exitCode());
+        assertEquals(0, run(jar, "exit", "0").exitCode());
+        assertEquals(loader, run(jar, "loader").output());
+    }
+
+    @Test
+    public void exceptionsFailTheRun() {
+        final Run run = run(jar, "throw");
+
+        assertEquals(1, run.exitCode());
+        assertTrue(run.error().contains("java.lang.IllegalStateException: broken"), run.error());
+        assertEquals(0, run(jar, "runs").exitCode());
+    }
+
+    @Test
+    public void unsupportedToolsAreNotRunInProcessAgain() {
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        tools.markUnsupported(List.of(jar));
+
+        assertTrue(tools.run(List.of(jar), ToolJars.MAIN_CLASS, List.of("runs"), output, output).isEmpty());
+    }
+
+    @Test
+    public void repeatedRunsReuseTheLoadedTool() {
+        final String loader = run(jar, "loader").output();
+
+        for (int i = 0; i < 20; i++) {
+            assertEquals(0, run(jar, "runs").exitCode());
+        }
+        //The first run loaded the tool, later runs only start a thread.
+        assertEquals("22", run(jar, "runs").output().trim());
+        assertEquals(loader, run(jar, "loader").output());
+    }
+
+    @Test
+    @SuppressWarnings("removal")
+    public void theSecurityManagerOfTheBuildIsRestoredAfterEveryRun() {
+        assertSame(securityManager, System.getSecurityManager());
+
+        assertEquals(3, run(jar, "exit", "3").exitCode());
+        assertSame(securityManager, System.getSecurityManager());
+        assertEquals(0, run(jar, "runs").exitCode());
+        assertSame(securityManager, System.getSecurityManager());
+    }
+
+    private Run run(File classpath, String... args) {
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        final ByteArrayOutputStream error = new ByteArrayOutputStream();
+        final OptionalInt exitCode = tools.run(List.of(classpath), ToolJars.MAIN_CLASS, List.of(args), output, error);
+        assertTrue(exitCode.isPresent(), "The tool did not run in process");
+        return new Run(exitCode.getAsInt(), output.toString(StandardCharsets.UTF_8), error.toString(StandardCharsets.UTF_8));
+    }
+
+    private record Run(int exitCode, String output, String error) {
+    }
+}
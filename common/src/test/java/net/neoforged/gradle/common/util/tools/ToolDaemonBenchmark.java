@@ -0,0 +1,142 @@
+package net.neoforged.gradle.common.util.tools;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.OptionalInt;
+import java.util.jar.JarFile;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Compares running a tool in a new JVM for every run, like a forked execution does, with running it in a tool daemon,
+ * and in process.
+ * The JST benchmark needs the JST cli bundle, passed as {@value #JST_PROPERTY}.
+ * Run through the benchmark task: {@code ./gradlew :common:benchmark -Dneogradle.benchmark.jst=/path/to/jst-cli-bundle.jar}
+ */
+@Tag("benchmark")
+public class ToolDaemonBenchmark {
+
+    private static final String JST_PROPERTY = "neogradle.benchmark.jst";
+    private static final int RUNS = 10;
+
+    @TempDir
+    public Path temp;
+
+    @Test
+    public void trivialTool() throws Exception {
+        final File jar = ToolJars.create(temp.resolve("tool"), ToolJars.TOOL);
+        compare("trivial tool", jar, ToolJars.MAIN_CLASS, run -> List.of("runs"));
+    }
+
+    @Test
+    public void accessTransformers() throws Exception {
+        final String property = System.getProperty(JST_PROPERTY);
+        assumeTrue(property != null, "The JST cli bundle is not configured");
+
+        final File jst = new File(property);
+        final String mainClass;
+        try (JarFile jar = new JarFile(jst)) {
+            mainClass = jar.getManifest().getMainAttributes().getValue("Main-Class");
+        }
+
+        final Path sources = createSources(temp.resolve("sources.jar"));
+        final Path transformer = Files.writeString(temp.resolve("accesstransformer.cfg"), "public example.Example0 value\n");
+        final Path libraries = Files.writeString(temp.resolve("libraries.txt"), "");
+        compare("JST", jst, mainClass, run -> List.of(
+                "--enable-accesstransformers",
+                "--access-transformer", transformer.toString(),
+                "--libraries-list=" + libraries,
+                sources.toString(),
+                temp.resolve("output-%d.jar".formatted(run)).toString()
+        ));
+    }
+
+    private void compare(String name, File jar, String mainClass, Arguments arguments) throws Exception {
+        final ToolDaemon.Key key = ToolJars.key(jar);
+        System.out.printf(Locale.ROOT, "%-14s %-8s %10s %14s%n", "Tool", "Mode", "Millis", "Millis per run");
+
+        final long forkedStart = System.nanoTime();
+        for (int run = 0; run < RUNS; run++) {
+            final List<String> command = new ArrayList<>();
+            command.add(key.executable());
+            command.addAll(key.jvmArgs());
+            command.add("-cp");
+            command.add(jar.getAbsolutePath());
+            command.add(mainClass);
+            command.addAll(arguments.of(run));
+            final Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+            process.getInputStream().transferTo(OutputStream.nullOutputStream());
+            assertEquals(0, process.waitFor());
+        }
+        print(name, "forked", System.nanoTime() - forkedStart);
+
+        try (ToolDaemons daemons = new ToolDaemons(temp.resolve("logs").toFile())) {
+            final long daemonStart = System.nanoTime();
+            for (int run = 0; run < RUNS; run++) {
+                final ByteArrayOutputStream output = new ByteArrayOutputStream();
+                final OptionalInt exitCode = daemons.run(key, mainClass, arguments.of(run), output, output);
+                assertEquals(OptionalInt.of(0), exitCode, output.toString(StandardCharsets.UTF_8));
+            }
+            print(name, "daemon", System.nanoTime() - daemonStart);
+        }
+
+        if (InProcessTools.trapsExit()) {
+            try (InProcessTools tools = new InProcessTools()) {
+                final long inProcessStart = System.nanoTime();
+                for (int run = 0; run < RUNS; run++) {
+                    final ByteArrayOutputStream output = new ByteArrayOutputStream();
+                    final OptionalInt exitCode = tools.run(key.classpath(), mainClass, arguments.of(run), output, output);
+                    assertEquals(OptionalInt.of(0), exitCode, output.toString(StandardCharsets.UTF_8));
+                }
+                print(name, "process", System.nanoTime() - inProcessStart);
+            }
+        }
+    }
+
+    private static void print(String name, String mode, long nanos) {
+        final long millis = nanos / 1_000_000;
+        System.out.printf(Locale.ROOT, "%-14s %-8s %10d %14d%n", name, mode, millis, millis / RUNS);
+    }
+
+    private static Path createSources(Path jar) throws IOException {
+        try (OutputStream output = Files.newOutputStream(jar);
+             ZipOutputStream stream = new ZipOutputStream(output)) {
+            for (int i = 0; i < 20; i++) {
+                stream.putNextEntry(new ZipEntry("example/Example%d.java".formatted(i)));
+                stream.write("""
+                        package example;
+
+                        public class Example%d {
+                            private int value;
+
+                            private int next() {
+                                return value++;
+                            }
+                        }
+                        """.formatted(i).getBytes(StandardCharsets.UTF_8));
+                stream.closeEntry();
+            }
+        }
+        return jar;
+    }
+
+    @FunctionalInterface
+    private interface Arguments {
+        List<String> of(int run);
+    }
+}
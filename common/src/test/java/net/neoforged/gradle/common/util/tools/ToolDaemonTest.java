@@ -0,0 +1,156 @@
+package net.neoforged.gradle.common.util.tools;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.OptionalInt;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ToolDaemonTest {
+
+    @TempDir
+    public Path temp;
+
+    private ToolDaemons daemons;
+    private ToolDaemon.Key key;
+
+    @BeforeEach
+    public void createTool() throws IOException {
+        daemons = new ToolDaemons(temp.resolve("logs").toFile());
+        key = ToolJars.key(ToolJars.create(temp.resolve("tool"), ToolJars.TOOL));
+    }
+
+    @AfterEach
+    public void closeDaemons() {
+        daemons.close();
+    }
+
+    @Test
+    public void runsAreServedByOneWarmDaemon() {
+        final Run first = run("pid");
+        final Run second = run("pid");
+
+        assertEquals(0, first.exitCode());
+        assertEquals(first.output(), second.output());
+        assertFalse(first.output().trim().equals(String.valueOf(ProcessHandle.current().pid())));
+        //The tool class stays loaded between runs.
+        assertEquals("3", run("runs").output().trim());
+    }
+
+    @Test
+    public void outputIsSeparatedPerRun() {
+        final Run first = run("echo", "first");
+        final Run second = run("echo", "second");
+
+        assertEquals("out:first", first.output().trim());
+        assertEquals("err:first", first.error().trim());
+        assertEquals("out:second", second.output().trim());
+        assertEquals("err:second", second.error().trim());
+    }
+
+    @Test
+    public void exitsEndTheRunInsteadOfTheDaemon() {
+        final String pid = run("pid").output();
+
+        assertEquals(3, run("exit", "3").exitCode());
+        assertEquals(0, run("exit", "0").exitCode());
+        assertEquals(pid, run("pid").output());
+    }
+
+    @Test
+    public void exceptionsFailTheRun() {
+        final Run run = run("throw");
+
+        assertEquals(1, run.exitCode());
+        assertTrue(run.error().contains("java.lang.IllegalStateException: broken"), run.error());
+        assertEquals(0, run("runs").exitCode());
+    }
+
+    @Test
+    public void toolsRunWithAbsolutePaths() throws IOException {
+        final Path output = temp.resolve("output.txt");
+
+        assertEquals(0, run("write", output.toString(), "written").exitCode());
+        assertEquals("written", Files.readString(output));
+    }
+
+    @Test
+    public void failedToolsStayInTheirDaemon() {
+        final String pid = run("pid").output();
+
+        assertEquals(1, run("throw").exitCode());
+        assertEquals(7, run("exit", "7").exitCode());
+        assertEquals(pid, run("pid").output());
+    }
+
+    @Test
+    public void toolsRunInTheirWorkingDirectory() throws IOException {
+        final Path workingDirectory = Files.createDirectories(temp.resolve("work"));
+        final ToolDaemon.Key inDirectory = new ToolDaemon.Key(key.executable(), key.javaVersion(), key.jvmArgs(), key.classpath(), workingDirectory.toFile());
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        assertEquals(OptionalInt.of(0), daemons.run(inDirectory, ToolJars.MAIN_CLASS, List.of("cwd"), output, output));
+        assertEquals(workingDirectory.toRealPath(), Path.of(output.toString(StandardCharsets.UTF_8).trim()).toRealPath());
+    }
+
+    @Test
+    public void errorOutputOfTheDaemonIsLogged() throws IOException {
+        //Written to the real error stream, past the redirection of the run.
+        final Run run = run("raw-err", "daemon error");
+        daemons.close();
+
+        assertEquals("", run.error());
+        try (Stream<Path> logs = Files.list(temp.resolve("logs"))) {
+            final List<String> contents = logs.map(log -> {
+                try {
+                    return Files.readString(log);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }).toList();
+            assertTrue(contents.stream().anyMatch(content -> content.contains("daemon error")), contents.toString());
+        }
+    }
+
+    @Test
+    public void toolsWhichBreakTheirDaemonAreNotRunInOneAgain() {
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        //Writing to the real standard output corrupts the channel to the daemon.
+        assertTrue(daemons.run(key, ToolJars.MAIN_CLASS, List.of("corrupt"), output, output).isEmpty());
+        assertTrue(daemons.run(key, ToolJars.MAIN_CLASS, List.of("runs"), output, output).isEmpty());
+    }
+
+    @Test
+    public void daemonsWhichCanNotStartAreReported() {
+        final ToolDaemon.Key missingJava = new ToolDaemon.Key(temp.resolve("missing/bin/java").toString(), key.javaVersion(), key.jvmArgs(), key.classpath());
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        assertTrue(daemons.run(missingJava, ToolJars.MAIN_CLASS, List.of("runs"), output, output).isEmpty());
+    }
+
+    private Run run(String... args) {
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        final ByteArrayOutputStream error = new ByteArrayOutputStream();
+        final OptionalInt exitCode = daemons.run(key, ToolJars.MAIN_CLASS, List.of(args), output, error);
+        assertTrue(exitCode.isPresent(), "The tool did not run in a daemon");
+        return new Run(exitCode.getAsInt(), output.toString(StandardCharsets.UTF_8), error.toString(StandardCharsets.UTF_8));
+    }
+
+    private record Run(int exitCode, String output, String error) {
+    }
+}
@@ -0,0 +1,107 @@
+package net.neoforged.gradle.common.util.tools;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+import java.util.stream.Stream;
+
+/**
+ * Builds small tool jars for tests, compiled from source with the compiler of the running JDK.
+ */
+final class ToolJars {
+
+    static final String MAIN_CLASS = "tool.Main";
+
+    /**
+     * The source of a tool which does what its first argument says, and counts its runs in a static field.
+     */
+    static final String TOOL = """
+            package tool;
+
+            import java.nio.file.Files;
+            import java.nio.file.Path;
+
+            public class Main {
+                private static int runs;
+
+                public static void main(String[] args) throws Exception {
+                    runs++;
+                    switch (args[0]) {
+                        case "echo" -> {
+                            System.out.println("out:" + args[1]);
+                            System.err.println("err:" + args[1]);
+                        }
+                        case "runs" -> System.out.println(runs);
+                        case "pid" -> System.out.println(ProcessHandle.current().pid());
+                        case "loader" -> System.out.println(System.identityHashCode(Main.class.getClassLoader()));
+                        case "visible" -> {
+                            try {
+                                Class.forName(args[1]);
+                                System.out.println(true);
+                            } catch (ClassNotFoundException e) {
+                                System.out.println(false);
+                            }
+                        }
+                        case "exit" -> System.exit(Integer.parseInt(args[1]));
+                        case "throw" -> throw new IllegalStateException("broken");
+                        case "corrupt" -> new java.io.FileOutputStream(java.io.FileDescriptor.out).write(new byte[]{99});
+                        case "raw-err" -> new java.io.FileOutputStream(java.io.FileDescriptor.err).write(args[1].getBytes());
+                        case "cwd" -> System.out.println(Path.of("").toAbsolutePath());
+                        case "write" -> Files.writeString(Path.of(args[1]), args[2]);
+                        default -> throw new IllegalArgumentException(args[0]);
+                    }
+                }
+            }
+            """;
+
+    private ToolJars() {
+    }
+
+    /**
+     * Compiles the given source of {@value #MAIN_CLASS} into a jar, with the class as its main class.
+     */
+    static File create(Path directory, String source) throws IOException {
+        final Path sources = Files.createDirectories(directory.resolve("src/tool"));
+        final Path classes = Files.createDirectories(directory.resolve("classes"));
+        final Path sourceFile = sources.resolve("Main.java");
+        Files.writeString(sourceFile, source, StandardCharsets.UTF_8);
+
+        final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler.run(null, null, null, "-d", classes.toString(), sourceFile.toString()) != 0) {
+            throw new IOException("Failed to compile the tool");
+        }
+
+        final Manifest manifest = new Manifest();
+        manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+        manifest.getMainAttributes().put(Attributes.Name.MAIN_CLASS, MAIN_CLASS);
+        final Path jar = directory.resolve("tool.jar");
+        try (OutputStream output = Files.newOutputStream(jar);
+             JarOutputStream stream = new JarOutputStream(output, manifest);
+             Stream<Path> files = Files.walk(classes)) {
+            for (Path file : files.filter(Files::isRegularFile).toList()) {
+                stream.putNextEntry(new JarEntry(classes.relativize(file).toString().replace(File.separatorChar, '/')));
+                stream.write(Files.readAllBytes(file));
+                stream.closeEntry();
+            }
+        }
+        return jar.toFile();
+    }
+
+    /**
+     * @return The key of a daemon for the given classpath, on the running JVM.
+     */
+    static ToolDaemon.Key key(File... classpath) {
+        final String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+        return new ToolDaemon.Key(java, Runtime.version().feature(), List.of("-Xmx64m"), List.of(classpath));
+    }
+}
@@ -0,0 +1,41 @@
+package net.neoforged.gradle.dsl.common.extensions.subsystems
+
+import groovy.transform.CompileStatic
+import net.minecraftforge.gdi.ConfigurableDSLElement
+import net.minecraftforge.gdi.annotations.DSLProperty
+import org.gradle.api.provider.Property
+import org.gradle.api.tasks.Input
+import org.gradle.api.tasks.Optional
+
+/**
+ * Allows configuration of how NeoGradle downloads the game, its libraries and its assets.
+ * <p>
+ * The settings apply to the whole build, the first project which downloads a file determines them.
+ */
+@CompileStatic
+interface Downloads extends ConfigurableDSLElement<Downloads> {
+
+    /**
+     * Allows the maximum number of files which are downloaded at the same time to be overridden.
+     */
+    @Input
+    @Optional
+    @DSLProperty
+    Property<Integer> getMaxConcurrentDownloads();
+
+    /**
+     * Allows the maximum number of files which are downloaded from a single host at the same time to be overridden.
+     */
+    @Input
+    @Optional
+    @DSLProperty
+    Property<Integer> getMaxConcurrentDownloadsPerHost();
+
+    /**
+     * Allows the bandwidth used by all downloads to be limited, in bytes per second. By default, it is not limited.
+     */
+    @Input
+    @Optional
+    @DSLProperty
+    Property<Long> getMaxBytesPerSecond();
+}
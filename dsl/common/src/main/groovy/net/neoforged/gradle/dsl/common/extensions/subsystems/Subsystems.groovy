@@ -65,4 +65,11 @@ interface Subsystems extends BaseDSLElement<Subsystems> {
     @Nested
     @DSLProperty
     RenderDoc getRenderDoc();
+
+    /**
+     * @return settings for the downloads subsystem
+     */
+    @Nested
+    @DSLProperty
+    Downloads getDownloads();
 }
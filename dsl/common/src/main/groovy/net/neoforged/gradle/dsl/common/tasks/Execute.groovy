@@ -138,7 +138,10 @@ interface Execute extends WithWorkspace, WithOutput, WithJavaVersion, ExecuteSpe
         }
     }
 
-    private static final class LogLevelAwareOutputStream extends OutputStream {
+    /**
+     * Writes to the target, if the current log level includes the given minimum level.
+     */
+    static final class LogLevelAwareOutputStream extends OutputStream {
 
         private final OutputStream target;
         private final boolean shouldLog;
@@ -156,7 +159,10 @@ interface Execute extends WithWorkspace, WithOutput, WithJavaVersion, ExecuteSpe
         }
     }
 
-    private static final class LoggerOutputStream
+    /**
+     * Writes every line to the logger, at the given level.
+     */
+    static final class LoggerOutputStream
             extends OutputStream {
         private final ByteArrayOutputStream baos = new ByteArrayOutputStream(1000)
         private final Logger logger
@@ -1,6 +1,7 @@
 package net.neoforged.gradle.neoform
 
 
+import groovy.io.FileType
 import net.neoforged.trainingwheels.gradle.functional.BuilderBasedTestSpecification
 import org.gradle.testkit.runner.TaskOutcome
 
@@ -155,5 +156,101 @@ class FunctionalTests extends BuilderBasedTestSpecification {
         secondRun.task(':neoFormRecompile').outcome == TaskOutcome.FROM_CACHE
     }
 
+    def "changing one source only recompiles it and its dependants"() {
+        given:
+        def project = create "neoform-recompiles-incrementally", {
+            it.build("""
+            java {
+                toolchain {
+                    languageVersion = JavaLanguageVersion.of(17)
+                }
+            }
+            
+            minecraft.accessTransformers.file rootProject.file('src/main/resources/META-INF/accesstransformer.cfg')
+            
+            dependencies {
+                implementation 'net.minecraft:neoform_client:${NEOFORM_VERSION}'
+            }
+            """)
+            it.file("src/main/resources/META-INF/accesstransformer.cfg", """public-f net.minecraft.client.Minecraft LOGGER""")
+            it.withToolchains()
+            it.withGlobalCacheDirectory(tempDir)
+        }
+
+        when:
+        def initialRun = project.run { it.tasks('build') }
+
+        then:
+        initialRun.task(':neoFormRecompile').outcome == TaskOutcome.SUCCESS
+
+        when:
+        //The access transformer only changes the source of Minecraft, which Mth does not depend on.
+        File classes = recompiledClasses(initialRun.file("build"))
+        File changed = new File(classes, "net/minecraft/client/Minecraft.class")
+        File unrelated = new File(classes, "net/minecraft/util/Mth.class")
+        changed.setLastModified(0)
+        unrelated.setLastModified(0)
+
+        File atFile = initialRun.file("src/main/resources/META-INF/accesstransformer.cfg")
+        atFile.delete()
+        atFile << """public-f net.minecraft.client.Minecraft LOGGER
+public net.minecraft.client.Minecraft fixerUpper"""
+
+        def secondRun = project.run { it.tasks('build') }
+
+        then:
+        secondRun.task(':neoFormRecompile').outcome == TaskOutcome.SUCCESS
+        changed.lastModified() != 0
+        unrelated.lastModified() == 0
+    }
+
+    def "the first full recompile is stored in the build cache"() {
+        given:
+        def project = create "neoform-stores-the-full-recompile", {
+            it.build("""
+            java {
+                toolchain {
+                    languageVersion = JavaLanguageVersion.of(17)
+                }
+            }
+            
+            dependencies {
+                implementation 'net.minecraft:neoform_client:${NEOFORM_VERSION}'
+            }
+            """)
+            it.withToolchains()
+            it.withGlobalCacheDirectory(tempDir)
+            it.enableLocalBuildCache()
+        }
+
+        when:
+        def initialRun = project.run { it.tasks('build') }
+
+        then:
+        initialRun.task(':neoFormRecompile').outcome == TaskOutcome.SUCCESS
+
+        when:
+        //Without the classes of the previous run, the compilation is a full one again, which the build cache can provide.
+        recompiledClasses(initialRun.file("build")).deleteDir()
+        def secondRun = project.run { it.tasks('build') }
+
+        then:
+        secondRun.task(':neoFormRecompile').outcome == TaskOutcome.FROM_CACHE
+    }
+
+    private static File recompiledClasses(File buildDirectory) {
+        File classes = null
+        new File(buildDirectory, "neoForm").eachFileRecurse(FileType.DIRECTORIES) {
+            if (it.name == "classes" && new File(it, "net/minecraft/client/Minecraft.class").isFile()) {
+                classes = it
+            }
+        }
+
+        if (classes == null) {
+            throw new IllegalStateException("The recompiled classes were not found")
+        }
+        return classes
+    }
+
 
 }
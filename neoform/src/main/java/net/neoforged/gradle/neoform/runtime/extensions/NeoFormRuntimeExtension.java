@@ -5,8 +5,11 @@ import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 import net.minecraftforge.gdi.ConfigurableDSLElement;
 import net.neoforged.gradle.common.runtime.extensions.CommonRuntimeExtension;
+import net.neoforged.gradle.common.runtime.tasks.Decompile;
 import net.neoforged.gradle.common.runtime.tasks.DefaultExecute;
 import net.neoforged.gradle.common.runtime.tasks.ListLibraries;
+import net.neoforged.gradle.common.runtime.tasks.SourceTransformation;
+import net.neoforged.gradle.common.util.CommonRuntimeTaskUtils;
 import net.neoforged.gradle.common.util.ConfigurationUtils;
 import net.neoforged.gradle.common.util.ProjectUtils;
 import net.neoforged.gradle.common.util.ToolUtilities;
@@ -43,7 +46,6 @@ import org.gradle.api.file.FileCollection;
 import org.gradle.api.file.RegularFile;
 import org.gradle.api.provider.Provider;
 import org.gradle.api.tasks.TaskProvider;
-import org.gradle.api.tasks.compile.AbstractCompile;
 import org.gradle.api.tasks.compile.ForkOptions;
 import org.gradle.jvm.toolchain.JavaLanguageVersion;
 import org.gradle.process.CommandLineArgumentProvider;
@@ -187,7 +189,7 @@ public abstract class NeoFormRuntimeExtension extends CommonRuntimeExtension<Neo
         }
         decompilerArgs.add(0, "-log=" + logLevel);
 
-        return spec.getProject().getTasks().register(CommonRuntimeUtils.buildTaskName(spec, step.getName()), DefaultExecute.class, task -> {
+        return spec.getProject().getTasks().register(CommonRuntimeUtils.buildTaskName(spec, step.getName()), Decompile.class, task -> {
             task.getExecutingJar().set(ToolUtilities.resolveTool(task.getProject(), function.getVersion()));
             task.getJvmArguments().addAll(jvmArgs);
             task.getProgramArguments().addAll(decompilerArgs);
@@ -474,7 +476,7 @@ public abstract class NeoFormRuntimeExtension extends CommonRuntimeExtension<Neo
         final TaskProvider<PackJar> packTask = spec.getProject()
                 .getTasks().register(CommonRuntimeUtils.buildTaskName(spec, "packRecomp"), PackJar.class, task -> {
                     task.getInputFiles().from(extractionSource.flatMap(WithOutput::getOutput).map(task.getArchiveOperations()::zipTree).map(zipTree -> zipTree.matching(sp -> sp.exclude("**/*.java"))));
-                    task.getInputFiles().from(recompileTask.flatMap(AbstractCompile::getDestinationDirectory));
+                    task.getInputFiles().from(recompileTask.flatMap(RecompileSourceJar::getRuntimeClasses));
                 });
         packTask.configure(neoFormRuntimeTask -> configureMcpRuntimeTaskWithDefaults(spec, neoFormDirectory, symbolicDataSources, neoFormRuntimeTask));
 
@@ -523,47 +525,16 @@ public abstract class NeoFormRuntimeExtension extends CommonRuntimeExtension<Neo
                                                              Provider<RegularFile> listLibrariesOutput) {
         Project project = runtimeDefinition.getSpecification().getProject();
         Parchment parchment = project.getExtensions().getByType(Subsystems.class).getParchment();
-        Tools tools = project.getExtensions().getByType(Subsystems.class).getTools();
         if (!parchment.getIsEnabled().get()) {
             return recompileInput;
         }
 
-        return project.getTasks().register(CommonRuntimeUtils.buildTaskName(runtimeDefinition, "applyParchment"), DefaultExecute.class, task -> {
-            // Provide the mappings via artifact
-            File mappingFile = ToolUtilities.resolveTool(project, parchment.getParchmentArtifact().get());
-            String conflictPrefix = parchment.getConflictPrefix().get();
-            File toolExecutable = ToolUtilities.resolveTool(project, tools.getJST().get());
-
-            task.getArguments().putFile("mappings", project.provider(() -> mappingFile));
-            task.getArguments().putRegularFile("libraries", listLibrariesOutput);
-            task.getArguments().putRegularFile("input", recompileInput.flatMap(WithOutput::getOutput));
-
-            task.getExecutingJar().set(toolExecutable);
-            task.getProgramArguments().add("--libraries-list");
-            task.getProgramArguments().add("{libraries}");
-            task.getProgramArguments().add("--enable-parchment");
-            task.getProgramArguments().add("--parchment-mappings");
-            task.getProgramArguments().add("{mappings}");
-            task.getProgramArguments().add("--in-format=archive");
-            task.getProgramArguments().add("--out-format=archive");
-            task.getProgramArguments().add("--parchment-conflict-prefix=%s".formatted(conflictPrefix));
-            task.getProgramArguments().add("{input}");
-            task.getProgramArguments().add("{output}");
-
-            final StringBuilder builder = new StringBuilder();
-            runtimeDefinition.getAllDependencies().forEach(f -> {
-                if (!builder.isEmpty()) {
-                    builder.append(File.pathSeparator);
-                }
-                builder.append(f.getAbsolutePath());
-            });
-            task.getProgramArguments().add("--classpath=" + builder);
+        // Provide the mappings via artifact
+        final Provider<File> mappingFile = project.provider(() -> ToolUtilities.resolveTool(project, parchment.getParchmentArtifact().get()));
 
-            task.dependsOn(listLibrariesOutput);
-            task.dependsOn(recompileInput);
-
-            configureCommonRuntimeTaskParameters(task, symbolicDataSources, "applyParchment", runtimeDefinition.getSpecification(), neoFormDirectory);
-        });
+        final TaskProvider<? extends SourceTransformation> parchmentTask = CommonRuntimeTaskUtils.createSourceParchment(runtimeDefinition, recompileInput, listLibrariesOutput, runtimeDefinition.getAllDependencies(), mappingFile, parchment.getConflictPrefix());
+        parchmentTask.configure(task -> configureCommonRuntimeTaskParameters(task, symbolicDataSources, "applyParchment", runtimeDefinition.getSpecification(), neoFormDirectory));
+        return parchmentTask;
     }
 
     public record CustomCompilerArgsProvider(Provider<List<String>> args) implements CommandLineArgumentProvider {
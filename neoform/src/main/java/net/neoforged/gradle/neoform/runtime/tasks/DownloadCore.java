@@ -1,8 +1,7 @@
 package net.neoforged.gradle.neoform.runtime.tasks;
 
-import com.google.gson.JsonObject;
 import net.neoforged.gradle.common.util.FileDownloadingUtils;
-import net.neoforged.gradle.common.util.SerializationUtils;
+import net.neoforged.gradle.common.util.VersionJson;
 import org.gradle.api.file.RegularFileProperty;
 import org.gradle.api.provider.Property;
 import org.gradle.api.tasks.*;
@@ -21,12 +20,12 @@ public abstract class DownloadCore extends DownloadFile {
     @Override
     public void run() throws Exception {
         if (!getDownloadInfo().isPresent()) {
-            JsonObject json = SerializationUtils.fromJson(getDownloadedVersionJson().get().getAsFile(), JsonObject.class);
+            final VersionJson json = getMetadataCache().get().getVersionJson(getDownloadedVersionJson().get().getAsFile());
 
-            JsonObject artifactInfo = json.getAsJsonObject("downloads").getAsJsonObject(getArtifact().get());
-            String url = artifactInfo.get("url").getAsString();
-            String hash = artifactInfo.get("sha1").getAsString();
-            String version = json.getAsJsonObject().get("id").getAsString();
+            final VersionJson.Download artifactInfo = json.getDownloads().get(getArtifact().get());
+            String url = artifactInfo.getUrl().toString();
+            String hash = artifactInfo.getSha1();
+            String version = json.getId();
             final FileDownloadingUtils.DownloadInfo info = new FileDownloadingUtils.DownloadInfo(url, hash, getExtension().get(), version, getArtifact().get());
 
             doDownloadFrom(info);
@@ -1,8 +1,15 @@
 package net.neoforged.gradle.neoform.runtime.tasks;
 
 import net.neoforged.gradle.common.runtime.tasks.DefaultRuntime;
+import net.neoforged.gradle.common.services.downloads.DownloadCoordinatorService;
+import net.neoforged.gradle.common.services.downloads.DownloadIndexService;
+import net.neoforged.gradle.common.services.metadata.MetadataCacheService;
+import net.neoforged.gradle.common.util.FileCacheUtils;
 import net.neoforged.gradle.common.util.FileDownloadingUtils;
+import net.neoforged.gradle.common.util.download.ArtifactStore;
+import org.gradle.api.file.DirectoryProperty;
 import org.gradle.api.provider.Property;
+import org.gradle.api.services.ServiceReference;
 import org.gradle.api.tasks.*;
 
 import java.io.File;
@@ -14,6 +21,7 @@ public abstract class DownloadFile extends DefaultRuntime {
     public DownloadFile() {
         getDownloadInfo().finalizeValueOnRead();
         getIsOffline().convention(getProject().getGradle().getStartParameter().isOffline());
+        getArtifactStore().convention(FileCacheUtils.getArtifactStoreDirectory(getProject()));
     }
 
     @TaskAction
@@ -29,7 +37,9 @@ public abstract class DownloadFile extends DefaultRuntime {
     protected void doDownloadFrom(FileDownloadingUtils.DownloadInfo info) throws IOException {
         final File outputFile = ensureFileWorkspaceReady(getOutput());
 
-        FileDownloadingUtils.downloadTo(getIsOffline().get(), info, outputFile);
+        final ArtifactStore store = new ArtifactStore(getArtifactStore().get().getAsFile());
+        getDownloadCoordinator().get().getCoordinator().download(info.getUrl(), info.getHash(), outputFile,
+                () -> FileDownloadingUtils.downloadTo(getIsOffline().get(), info, outputFile, store, getDownloadIndex().get().getIndex(), getDownloadCoordinator().get().getScheduler()));
 
         setDidWork(true);
     }
@@ -42,4 +52,16 @@ public abstract class DownloadFile extends DefaultRuntime {
     @Optional
     public abstract Property<Boolean> getIsOffline();
 
+    @Internal
+    public abstract DirectoryProperty getArtifactStore();
+
+    @ServiceReference(MetadataCacheService.NAME)
+    public abstract Property<MetadataCacheService> getMetadataCache();
+
+    @ServiceReference(DownloadIndexService.NAME)
+    public abstract Property<DownloadIndexService> getDownloadIndex();
+
+    @ServiceReference(DownloadCoordinatorService.NAME)
+    public abstract Property<DownloadCoordinatorService> getDownloadCoordinator();
+
 }
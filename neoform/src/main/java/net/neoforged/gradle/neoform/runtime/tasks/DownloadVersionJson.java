@@ -1,9 +1,7 @@
 package net.neoforged.gradle.neoform.runtime.tasks;
 
-import com.google.gson.JsonElement;
-import com.google.gson.JsonObject;
 import net.neoforged.gradle.common.util.FileDownloadingUtils;
-import net.neoforged.gradle.common.util.SerializationUtils;
+import net.neoforged.gradle.common.util.LauncherManifest;
 import org.gradle.api.file.RegularFileProperty;
 import org.gradle.api.tasks.*;
 
@@ -19,12 +17,11 @@ public abstract class DownloadVersionJson extends DownloadFile {
     @Override
     public void run() throws Exception {
         if (!getDownloadInfo().isPresent()) {
-            JsonObject json = SerializationUtils.fromJson(getDownloadedManifest().get().getAsFile(), JsonObject.class);
+            final LauncherManifest manifest = getMetadataCache().get().getLauncherManifest(getDownloadedManifest().get().getAsFile());
 
-            for (JsonElement e : json.getAsJsonArray("versions")) {
-                String v = e.getAsJsonObject().get("id").getAsString();
-                if (v.equals(getMinecraftVersion().get().toString())) {
-                    final FileDownloadingUtils.DownloadInfo info = new FileDownloadingUtils.DownloadInfo(e.getAsJsonObject().get("url").getAsString(), null, "json", v, null);
+            for (LauncherManifest.Version version : manifest.getVersions()) {
+                if (version.getId().equals(getMinecraftVersion().get().toString())) {
+                    final FileDownloadingUtils.DownloadInfo info = new FileDownloadingUtils.DownloadInfo(version.getUrl(), null, "json", version.getId(), null);
                     doDownloadFrom(info);
                     return;
                 }
@@ -24,12 +24,21 @@ import org.gradle.jvm.toolchain.JavaToolchainService;
 import org.gradle.work.InputChanges;
 
 import javax.inject.Inject;
+import java.io.File;
 import java.io.IOException;
+import java.util.HashSet;
 import java.util.Objects;
+import java.util.Set;
 
 @CacheableTask
 public abstract class RecompileSourceJar extends JavaCompile implements Runtime {
 
+    /**
+     * Whether recompilation is incremental, which is the default. If disabled, all sources are compiled on every run,
+     * through the execution cache.
+     */
+    public static final String INCREMENTAL_PROPERTY = "net.neoforged.gradle.recompile.incremental";
+
     private final Property<JavaLanguageVersion> javaVersion;
     private final Provider<JavaToolchainService> javaToolchainService;
     private final RuntimeArguments arguments;
@@ -82,6 +91,9 @@ public abstract class RecompileSourceJar extends JavaCompile implements Runtime
         getOptions().setFork(true);
         getOptions().setIncremental(true);
         getOptions().getIncrementalAfterFailure().set(true);
+
+        getIncremental().convention(getProviderFactory().gradleProperty(INCREMENTAL_PROPERTY).map(Boolean::parseBoolean).orElse(true));
+        getOutputs().doNotCacheIf("The classes of the previous run are compiled incrementally", task -> isIncrementalRun());
     }
 
     @Override
@@ -135,17 +147,56 @@ public abstract class RecompileSourceJar extends JavaCompile implements Runtime
     @PathSensitive(PathSensitivity.NONE)
     public abstract ConfigurableFileCollection getAdditionalInputFiles();
 
+    /**
+     * @return The compiled classes, without those of the additional input files, which are only compiled for the sources
+     * which refer to them. They stay in the destination directory, so that an incremental compilation can use them.
+     */
+    @Internal
+    public Provider<FileTree> getRuntimeClasses() {
+        final ConfigurableFileCollection additionalInputFiles = getAdditionalInputFiles();
+        return getDestinationDirectory().map(directory -> {
+            final Set<String> additionalSources = new HashSet<>();
+            additionalInputFiles.getAsFileTree().visit(details -> additionalSources.add(details.getRelativePath().getPathString()));
+
+            return directory.getAsFileTree().matching(pattern -> pattern.exclude(fileTreeElement -> {
+                final String relativePath = fileTreeElement.getRelativePath().getPathString();
+                if (!relativePath.endsWith(".class")) {
+                    return false;
+                }
+
+                final String sourceFilePath;
+                if (!relativePath.contains("$")) {
+                    sourceFilePath = relativePath.substring(0, relativePath.length() - ".class".length()) + ".java";
+                } else {
+                    sourceFilePath = relativePath.substring(0, relativePath.indexOf('$')) + ".java";
+                }
+
+                return additionalSources.contains(sourceFilePath);
+            }));
+        });
+    }
+
+    /**
+     * @return Whether Gradle compiles only the changed sources and their dependants, the output is the same either way.
+     */
+    @Internal
+    public abstract Property<Boolean> getIncremental();
+
     @Override
     protected void compile(InputChanges inputs) {
+        //Gradle compiles the changed sources with the classes of the previous run, which is not stored under the key of a full compilation.
+        if (getIncremental().get() && inputs.isIncremental()) {
+            super.compile(inputs);
+            return;
+        }
+
         try {
             getCacheService().get()
                     .cached(
                             this,
                             ICacheableJob.Default.directory(
                                     getDestinationDirectory(),
-                                    () -> {
-                                        doCachedCompile(inputs);
-                                    }
+                                    () -> super.compile(inputs)
                             )
                     ).execute();
         } catch (IOException e) {
@@ -153,30 +204,11 @@ public abstract class RecompileSourceJar extends JavaCompile implements Runtime
         }
     }
 
-    private void doCachedCompile(InputChanges inputs) {
-        super.compile(inputs);
-
-        final FileTree outputTree = getDestinationDirectory().get().getAsFileTree();
-        outputTree.matching(pattern -> pattern.include(fileTreeElement -> {
-            final String relativePath = fileTreeElement.getRelativePath().getPathString();
-            if (!relativePath.endsWith(".class")) {
-                return false;
-            }
-
-            final String sourceFilePath;
-            if (!relativePath.contains("$")) {
-                sourceFilePath = relativePath.substring(0, relativePath.length() - ".class".length()) + ".java";
-            } else {
-                sourceFilePath = relativePath.substring(0, relativePath.indexOf('$')) + ".java";
-            }
-
-            return !getAdditionalInputFiles()
-                    .getAsFileTree()
-                    .matching(sp1 -> sp1.include(sourceFilePath))
-                    .getFiles().isEmpty();
-        })).forEach(file -> {
-            getLogger().debug("Removing additional source file: {}", file);
-            file.delete();
-        });
+    /**
+     * @return Whether the classes of the previous run may be compiled incrementally, in which case they are not cached.
+     */
+    private boolean isIncrementalRun() {
+        final File[] classes = getDestinationDirectory().get().getAsFile().listFiles();
+        return getIncremental().get() && classes != null && classes.length > 0;
     }
 }
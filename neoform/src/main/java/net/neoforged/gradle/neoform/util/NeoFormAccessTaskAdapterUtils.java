@@ -1,13 +1,11 @@
 package net.neoforged.gradle.neoform.util;
 
-import net.neoforged.gradle.common.runtime.tasks.SourceAccessTransformer;
-import net.neoforged.gradle.common.runtime.tasks.SourceInterfaceInjection;
+import net.neoforged.gradle.common.runtime.tasks.SourceTransformation;
 import net.neoforged.gradle.common.util.CommonRuntimeTaskUtils;
 import net.neoforged.gradle.dsl.common.extensions.AccessTransformers;
 import net.neoforged.gradle.dsl.common.extensions.InterfaceInjections;
 import net.neoforged.gradle.dsl.common.extensions.Minecraft;
 import net.neoforged.gradle.dsl.common.runtime.tasks.tree.TaskTreeAdapter;
-import net.neoforged.gradle.dsl.common.tasks.WithOutput;
 import org.gradle.api.Project;
 import org.gradle.api.tasks.TaskProvider;
 
@@ -26,10 +24,7 @@ public class NeoFormAccessTaskAdapterUtils {
                 return null;
             }
 
-            final TaskProvider<? extends SourceAccessTransformer> accessTransformerTask = CommonRuntimeTaskUtils.createSourceAccessTransformer(definition, "User", accessTransformerFiles.getFiles().getAsFileTree(), definition.getListLibrariesTaskProvider(), definition.getAllDependencies());
-            accessTransformerTask.configure(task -> task.getInputFile().set(previousTasksOutput.flatMap(WithOutput::getOutput)));
-            accessTransformerTask.configure(task -> task.dependsOn(previousTasksOutput));
-            return accessTransformerTask;
+            return CommonRuntimeTaskUtils.createSourceAccessTransformer(definition, "User", previousTasksOutput, accessTransformerFiles.getFiles().getAsFileTree(), definition.getListLibrariesTaskProvider(), definition.getAllDependencies());
         };
     }
 
@@ -42,14 +37,12 @@ public class NeoFormAccessTaskAdapterUtils {
                 return null;
             }
 
-            final TaskProvider<? extends SourceInterfaceInjection> interfaceInjectionTask = CommonRuntimeTaskUtils.createSourceInterfaceInjection(definition, "User", interfaceInjectionFiles.getFiles().getAsFileTree(), definition.getListLibrariesTaskProvider(), definition.getAllDependencies());
-            interfaceInjectionTask.configure(task -> task.getInputFile().set(previousTasksOutput.flatMap(WithOutput::getOutput)));
-            interfaceInjectionTask.configure(task -> task.dependsOn(previousTasksOutput));
+            final TaskProvider<? extends SourceTransformation> interfaceInjectionTask = CommonRuntimeTaskUtils.createSourceInterfaceInjection(definition, "User", previousTasksOutput, interfaceInjectionFiles.getFiles().getAsFileTree(), definition.getListLibrariesTaskProvider(), definition.getAllDependencies());
 
             //Register the stubs
             definition.additionalCompileSources(
                     project.zipTree(
-                            interfaceInjectionTask.flatMap(SourceInterfaceInjection::getStubs)
+                            interfaceInjectionTask.flatMap(SourceTransformation::getStubs)
                     )
             );
 
@@ -5,6 +5,7 @@ import net.neoforged.gradle.common.runtime.extensions.CommonRuntimeExtension;
 import net.neoforged.gradle.common.runtime.specification.CommonRuntimeSpecification;
 import net.neoforged.gradle.common.runtime.tasks.DefaultExecute;
 import net.neoforged.gradle.common.util.ToolUtilities;
+import net.neoforged.gradle.common.util.tools.ToolExecutionMode;
 import net.neoforged.gradle.dsl.common.extensions.subsystems.Subsystems;
 import net.neoforged.gradle.dsl.common.tasks.ArtifactProvider;
 import net.neoforged.gradle.dsl.common.tasks.WithOutput;
@@ -101,6 +102,7 @@ public abstract class RuntimeDevRuntimeExtension extends CommonRuntimeExtension<
             }
 
             task.getExecutingJar().set(toolExecutable);
+            task.getExecutionMode().set(ToolExecutionMode.DAEMON);
             task.getProgramArguments().add("--enable-parchment");
             task.getProgramArguments().add("--no-parchment-javadoc");
             task.getProgramArguments().add("--parchment-mappings");
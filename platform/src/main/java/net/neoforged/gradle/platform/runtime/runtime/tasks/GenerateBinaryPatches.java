@@ -7,6 +7,7 @@ package net.neoforged.gradle.platform.runtime.runtime.tasks;
 
 import net.neoforged.gradle.common.runtime.tasks.DefaultExecute;
 import net.neoforged.gradle.common.util.ToolUtilities;
+import net.neoforged.gradle.common.util.tools.ToolExecutionMode;
 import net.neoforged.gradle.dsl.common.extensions.subsystems.Subsystems;
 import net.neoforged.gradle.dsl.common.extensions.subsystems.Tools;
 import net.neoforged.gradle.dsl.common.tasks.WithOutput;
@@ -32,6 +33,7 @@ public abstract class GenerateBinaryPatches extends DefaultExecute implements Wi
         getArguments().putRegularFile("srg", getMappings());
         
         getMultiArguments().putFiles("patches", getPatches());
+        getExecutionMode().convention(ToolExecutionMode.DAEMON);
     }
 
     @InputFile
@@ -1,7 +1,6 @@
 package net.neoforged.gradle.userdev.runtime.extension;
 
 import net.neoforged.gradle.common.runtime.extensions.CommonRuntimeExtension;
-import net.neoforged.gradle.common.runtime.tasks.SourceAccessTransformer;
 import net.neoforged.gradle.common.util.CommonRuntimeTaskUtils;
 import net.neoforged.gradle.common.util.ConfigurationUtils;
 import net.neoforged.gradle.common.util.run.TypesUtil;
@@ -26,7 +25,6 @@ import org.gradle.api.Project;
 import org.gradle.api.artifacts.Configuration;
 import org.gradle.api.file.FileTree;
 import org.gradle.api.provider.Provider;
-import org.gradle.api.tasks.TaskProvider;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
@@ -143,10 +141,7 @@ public abstract class UserDevRuntimeExtension extends CommonRuntimeExtension<Use
                 return null;
             }
 
-            final TaskProvider<? extends SourceAccessTransformer> accessTransformerTask = CommonRuntimeTaskUtils.createSourceAccessTransformer(definition, "Forges", accessTransformerFiles, definition.getListLibrariesTaskProvider(), definition.getAllDependencies());
-            accessTransformerTask.configure(task -> task.getInputFile().set(previousTasksOutput.flatMap(WithOutput::getOutput)));
-            accessTransformerTask.configure(task -> task.dependsOn(previousTasksOutput));
-            return accessTransformerTask;
+            return CommonRuntimeTaskUtils.createSourceAccessTransformer(definition, "Forges", previousTasksOutput, accessTransformerFiles, definition.getListLibrariesTaskProvider(), definition.getAllDependencies());
         };
     }
 
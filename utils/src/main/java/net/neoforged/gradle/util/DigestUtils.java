@@ -0,0 +1,115 @@
+package net.neoforged.gradle.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.Locale;
+
+/**
+ * Utility class for feeding files and streams into a {@link MessageDigest} without loading them onto the heap.
+ * <p>
+ * Small files are read through a fixed size buffer, large files are memory mapped in windows, so that the operating
+ * system can page them in directly.
+ * Memory mapping is not used on Windows, where a mapped file can not be deleted or replaced until the mapping is
+ * garbage collected.
+ */
+public final class DigestUtils {
+
+    /**
+     * The size of the buffer used when reading files and streams.
+     */
+    public static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * The minimal size of a file before it is memory mapped instead of read through a buffer.
+     */
+    public static final long MAPPING_THRESHOLD = 16L * 1024 * 1024;
+
+    private static final long MAPPING_WINDOW = 256L * 1024 * 1024;
+    private static final boolean CAN_MAP = !System.getProperty("os.name").toLowerCase(Locale.ROOT).contains("win");
+
+    private DigestUtils() {
+        throw new IllegalStateException("Can not instantiate an instance of: DigestUtils. This is a utility class");
+    }
+
+    /**
+     * Updates the digest with the contents of the given file, choosing the reading strategy based on its size.
+     *
+     * @param digest The digest to update.
+     * @param file The file to read.
+     * @throws IOException If an I/O error occurs.
+     */
+    public static void update(MessageDigest digest, Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            final long size = channel.size();
+            if (CAN_MAP && size >= MAPPING_THRESHOLD) {
+                updateMapped(digest, channel, size);
+            } else {
+                updateStreaming(digest, channel);
+            }
+        }
+    }
+
+    /**
+     * Updates the digest with the contents of the given file, reading it through a fixed size buffer.
+     *
+     * @param digest The digest to update.
+     * @param file The file to read.
+     * @throws IOException If an I/O error occurs.
+     */
+    public static void updateStreaming(MessageDigest digest, Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            updateStreaming(digest, channel);
+        }
+    }
+
+    /**
+     * Updates the digest with the contents of the given file, memory mapping it.
+     *
+     * @param digest The digest to update.
+     * @param file The file to read.
+     * @throws IOException If an I/O error occurs.
+     */
+    public static void updateMapped(MessageDigest digest, Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            updateMapped(digest, channel, channel.size());
+        }
+    }
+
+    /**
+     * Updates the digest with the remaining contents of the given stream, reading it through a fixed size buffer.
+     * The stream is not closed.
+     *
+     * @param digest The digest to update.
+     * @param stream The stream to read.
+     * @throws IOException If an I/O error occurs.
+     */
+    public static void update(MessageDigest digest, InputStream stream) throws IOException {
+        final byte[] buffer = new byte[BUFFER_SIZE];
+        int read;
+        while ((read = stream.read(buffer)) != -1) {
+            digest.update(buffer, 0, read);
+        }
+    }
+
+    private static void updateStreaming(MessageDigest digest, FileChannel channel) throws IOException {
+        final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        while (channel.read(buffer) != -1) {
+            buffer.flip();
+            digest.update(buffer);
+            buffer.clear();
+        }
+    }
+
+    private static void updateMapped(MessageDigest digest, FileChannel channel, long size) throws IOException {
+        for (long position = 0; position < size; position += MAPPING_WINDOW) {
+            final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(MAPPING_WINDOW, size - position));
+            digest.update(buffer);
+        }
+    }
+}
@@ -1,15 +1,8 @@
 package net.neoforged.gradle.util;
 
-import com.google.common.collect.Sets;
 import de.siegmar.fastcsv.writer.CsvWriter;
 import de.siegmar.fastcsv.writer.LineDelimiter;
 import org.apache.commons.io.file.DeletingPathVisitor;
-import org.gradle.api.Action;
-import org.gradle.api.file.ArchiveOperations;
-import org.gradle.api.file.FileTree;
-import org.gradle.api.file.FileVisitDetails;
-import org.gradle.api.file.FileVisitor;
-import org.gradle.api.tasks.util.PatternFilterable;
 
 import java.io.File;
 import java.io.FileNotFoundException;
@@ -19,10 +12,7 @@ import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.nio.file.*;
 import java.util.List;
-import java.util.Set;
 import java.util.TimeZone;
-import java.util.function.Function;
-import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
@@ -148,8 +138,12 @@ public final class FileUtils {
      * @param asFile The file to get the size of
      * @return The size in bytes of the file
      */
-    public static int getFileSize(File asFile) {
-        return readAllBytes(asFile.toPath()).length;
+    public static long getFileSize(File asFile) {
+        try {
+            return Files.size(asFile.toPath());
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to get the file size!", e);
+        }
     }
 
     /**
@@ -170,68 +164,6 @@ public final class FileUtils {
         }
     }
 
-    /**
-     * Performs a complex zip extraction from the input zip file to the output directory.
-     *
-     * @param archiveOperations The archive operations
-     * @param input The input zip file
-     * @param output The output directory
-     * @param overrideExisting Whether to override existing files
-     * @param clean Whether to clean the output directory
-     * @param filter The filter to apply to the zip file
-     * @param renamer The renamer to apply to the zip file
-     * @param loggerWrapper The progress logger wrapper
-     * @throws IOException If an I/O error occurs
-     * @implNote This method does not use the {@link CopyingFileTreeVisitor} since it has some special functions.
-     */
-    //TODO: In the future expand this method to use the CopyingFileTreeVisitor instead of a custom implementation.
-    public static void extractZip(final ArchiveOperations archiveOperations, final File input, final File output, final boolean overrideExisting, final boolean clean, final Action<? super PatternFilterable> filter, final Function<String, String> renamer, final GradleInternalUtils.ProgressLoggerWrapper loggerWrapper) throws IOException {
-        final FileTree tree = archiveOperations.zipTree(input);
-        final FileTree filtered = tree.matching(filter);
-
-        final Set<File> extracted = Sets.newHashSet();
-        final Set<File> current = Sets.newHashSet();
-        final Stream<Path> stream = Files.walk(output.toPath());
-        stream.forEach(path -> current.add(path.toFile()));
-        stream.close();
-
-        loggerWrapper.setSize(filtered.getFiles().size());
-        loggerWrapper.started();
-
-        filtered.visit(new FileVisitor() {
-            @Override
-            public void visitDir(FileVisitDetails dirDetails) {
-                final File dir = new File(output, dirDetails.getPath());
-                dir.mkdirs();
-            }
-
-            @Override
-            public void visitFile(FileVisitDetails fileDetails) {
-                loggerWrapper.incrementProcessedFileCount();
-                final File outputFile = new File(output, renamer.apply(fileDetails.getPath()));
-                extracted.add(outputFile);
-
-                if (!overrideExisting && outputFile.exists()) {
-                    return;
-                }
-
-                outputFile.getParentFile().mkdirs();
-                try {
-                    Files.copy(fileDetails.getFile().toPath(), outputFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
-                } catch (IOException e) {
-                    throw new RuntimeException("Failed to copy file: " + fileDetails.getPath(), e);
-                }
-            }
-        });
-
-        if (clean) {
-            final Set<File> toDelete = current.stream().filter(file -> !extracted.contains(file)).collect(Collectors.toSet());
-            toDelete.forEach(File::delete);
-        }
-
-        loggerWrapper.completed();
-    }
-
     /**
      * Creates a csv file with the given lines in a zip file via the given zip output stream.
      * If no lines are supplied, the csv file will not be created.
@@ -25,14 +25,11 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.math.BigInteger;
 import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.Locale;
 
-import org.apache.commons.io.IOUtils;
-
 import javax.annotation.Nullable;
 
 /**
@@ -100,7 +97,9 @@ public enum HashFunction {
      * @throws IOException If an I/O error occurs.
      */
     public String hash(Path file) throws IOException {
-        return hash(Files.readAllBytes(file));
+        final MessageDigest hash = get();
+        DigestUtils.update(hash, file);
+        return pad(new BigInteger(1, hash.digest()).toString(16));
     }
 
     /**
@@ -116,7 +115,7 @@ public enum HashFunction {
         for (File file : files) {
             if (!file.exists())
                 continue;
-            hash.update(Files.readAllBytes(file.toPath()));
+            DigestUtils.update(hash, file.toPath());
         }
         return pad(new BigInteger(1, hash.digest()).toString(16));
     }
@@ -139,7 +138,9 @@ public enum HashFunction {
      * @throws IOException If an I/O error occurs.
      */
     public String hash(InputStream stream) throws IOException {
-        return hash(IOUtils.toByteArray(stream));
+        final MessageDigest hash = get();
+        DigestUtils.update(hash, stream);
+        return pad(new BigInteger(1, hash.digest()).toString(16));
     }
 
     /**
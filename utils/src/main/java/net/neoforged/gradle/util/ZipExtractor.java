@@ -0,0 +1,429 @@
+package net.neoforged.gradle.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Extracts zip files directly from their central directory, without expanding them into a temporary directory first,
+ * like {@code ArchiveOperations#zipTree} does.
+ * <p>
+ * Entries are selected with Ant-style include and exclude patterns, and can be renamed. Files which already exist with
+ * the size and CRC of their entry are not written again, and the remaining files are written in parallel.
+ */
+public final class ZipExtractor {
+
+    /**
+     * The default number of threads which write the extracted files.
+     */
+    public static final int DEFAULT_PARALLELISM = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors()));
+
+    /**
+     * Archives with fewer files than this are extracted on the calling thread.
+     */
+    private static final int PARALLEL_THRESHOLD = 16;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final List<Pattern> includes = new ArrayList<>();
+    private final List<Pattern> excludes = new ArrayList<>();
+    private Function<String, String> renamer = Function.identity();
+    private boolean overrideExisting = true;
+    private boolean clean = false;
+    private int parallelism = DEFAULT_PARALLELISM;
+
+    /**
+     * Only extracts the entries which match at least one of the given patterns, all entries are extracted if no
+     * pattern is included.
+     *
+     * @param patterns The Ant-style patterns, like {@code **}{@code /*.so}.
+     * @return This extractor.
+     */
+    public ZipExtractor include(String... patterns) {
+        return include(Arrays.asList(patterns));
+    }
+
+    /**
+     * @see #include(String...)
+     */
+    public ZipExtractor include(Collection<String> patterns) {
+        patterns.forEach(pattern -> includes.add(compile(pattern)));
+        return this;
+    }
+
+    /**
+     * Does not extract the entries which match one of the given patterns, or which are in a directory that matches one.
+     *
+     * @param patterns The Ant-style patterns, like {@code META-INF/**}.
+     * @return This extractor.
+     */
+    public ZipExtractor exclude(String... patterns) {
+        return exclude(Arrays.asList(patterns));
+    }
+
+    /**
+     * @see #exclude(String...)
+     */
+    public ZipExtractor exclude(Collection<String> patterns) {
+        patterns.forEach(pattern -> excludes.add(compile(pattern)));
+        return this;
+    }
+
+    /**
+     * @param renamer Maps the path of an entry to the path of its file, relative to the output directory.
+     * @return This extractor.
+     */
+    public ZipExtractor rename(Function<String, String> renamer) {
+        this.renamer = renamer;
+        return this;
+    }
+
+    /**
+     * @param overrideExisting Whether existing files, which differ from their entry, are overwritten.
+     * @return This extractor.
+     */
+    public ZipExtractor overrideExisting(boolean overrideExisting) {
+        this.overrideExisting = overrideExisting;
+        return this;
+    }
+
+    /**
+     * @param clean Whether files in the output directory, which were not extracted, are deleted.
+     * @return This extractor.
+     */
+    public ZipExtractor clean(boolean clean) {
+        this.clean = clean;
+        return this;
+    }
+
+    /**
+     * @param parallelism The number of threads which write the extracted files.
+     * @return This extractor.
+     */
+    public ZipExtractor parallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("At least one thread is required, got: " + parallelism);
+        }
+
+        this.parallelism = parallelism;
+        return this;
+    }
+
+    /**
+     * @see #extract(File, File, Listener)
+     */
+    public Result extract(File input, File output) throws IOException {
+        return extract(input, output, Listener.NONE);
+    }
+
+    /**
+     * Extracts the selected entries of the input zip file into the output directory.
+     *
+     * @param input The zip file.
+     * @param output The output directory.
+     * @param listener The listener to report the progress to.
+     * @return The number of files which were written, which were already up-to-date, and which were deleted.
+     * @throws IOException If the zip file could not be read, or a file could not be written.
+     */
+    public Result extract(File input, File output, Listener listener) throws IOException {
+        final Path root = output.toPath().toAbsolutePath().normalize();
+        Files.createDirectories(root);
+
+        try (ZipFile zip = new ZipFile(input)) {
+            //Entries which are renamed to the same file are written once, the last one wins, like it would sequentially.
+            final Map<Path, ZipEntry> files = new LinkedHashMap<>();
+            final Set<Path> directories = new HashSet<>();
+            final Enumeration<? extends ZipEntry> entries = zip.entries();
+            while (entries.hasMoreElements()) {
+                final ZipEntry entry = entries.nextElement();
+                if (!isSelected(entry.getName())) {
+                    continue;
+                }
+
+                final Path target = resolve(root, entry);
+                if (entry.isDirectory()) {
+                    directories.add(target);
+                } else {
+                    files.put(target, entry);
+                }
+            }
+
+            for (Path directory : directories) {
+                Files.createDirectories(directory);
+            }
+
+            listener.started(files.size());
+            final AtomicInteger written = new AtomicInteger();
+            final AtomicInteger unchanged = new AtomicInteger();
+            final Listener synchronizedListener = new SynchronizedListener(listener);
+            final List<Map.Entry<Path, ZipEntry>> work = new ArrayList<>(files.entrySet());
+            run(work, parallelism, file -> {
+                if (write(zip, file.getValue(), file.getKey())) {
+                    written.incrementAndGet();
+                } else {
+                    unchanged.incrementAndGet();
+                }
+                synchronizedListener.extracted(file.getValue().getName());
+            });
+
+            final int deleted = clean ? clean(root, files.keySet(), directories) : 0;
+            return new Result(written.get(), unchanged.get(), deleted);
+        }
+    }
+
+    private boolean isSelected(String path) {
+        if (!includes.isEmpty() && includes.stream().noneMatch(pattern -> pattern.matcher(path).matches())) {
+            return false;
+        }
+
+        //Like in Gradle, excluding a directory also excludes its contents.
+        String current = path.endsWith("/") ? path.substring(0, path.length() - 1) : path;
+        while (!current.isEmpty()) {
+            final String candidate = current;
+            if (excludes.stream().anyMatch(pattern -> pattern.matcher(candidate).matches())) {
+                return false;
+            }
+
+            current = current.substring(0, Math.max(0, current.lastIndexOf('/')));
+        }
+
+        return true;
+    }
+
+    private Path resolve(Path root, ZipEntry entry) throws IOException {
+        String name = renamer.apply(entry.getName());
+        while (name.startsWith("/")) {
+            name = name.substring(1);
+        }
+
+        final Path target = root.resolve(name).normalize();
+        if (!target.startsWith(root)) {
+            throw new IOException("The entry %s of the zip file would be extracted outside of the output directory: %s".formatted(entry.getName(), target));
+        }
+
+        return target;
+    }
+
+    private boolean write(ZipFile zip, ZipEntry entry, Path target) throws IOException {
+        if (Files.isRegularFile(target)) {
+            if (!overrideExisting || isIdentical(entry, target)) {
+                return false;
+            }
+        }
+
+        Files.createDirectories(target.getParent());
+        try (InputStream input = zip.getInputStream(entry)) {
+            Files.copy(input, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+
+        return true;
+    }
+
+    private static boolean isIdentical(ZipEntry entry, Path target) throws IOException {
+        if (entry.getSize() < 0 || entry.getCrc() < 0 || Files.size(target) != entry.getSize()) {
+            return false;
+        }
+
+        final CRC32 crc = new CRC32();
+        try (InputStream input = Files.newInputStream(target)) {
+            final byte[] buffer = new byte[BUFFER_SIZE];
+            int read;
+            while ((read = input.read(buffer)) >= 0) {
+                crc.update(buffer, 0, read);
+            }
+        }
+
+        return crc.getValue() == entry.getCrc();
+    }
+
+    private static int clean(Path root, Set<Path> files, Set<Path> directories) throws IOException {
+        final List<Path> existing;
+        try (Stream<Path> stream = Files.walk(root)) {
+            //Deepest paths first, so directories are only checked once their contents were cleaned.
+            existing = stream.sorted(Comparator.reverseOrder()).toList();
+        }
+
+        int deleted = 0;
+        for (Path path : existing) {
+            if (path.equals(root) || files.contains(path) || directories.contains(path)) {
+                continue;
+            }
+
+            if (Files.isDirectory(path)) {
+                try (Stream<Path> contents = Files.list(path)) {
+                    if (contents.findAny().isPresent()) {
+                        continue;
+                    }
+                }
+            }
+
+            Files.delete(path);
+            deleted++;
+        }
+
+        return deleted;
+    }
+
+    private static <T> void run(List<T> work, int parallelism, Task<T> task) throws IOException {
+        final int threads = Math.min(parallelism, work.size() / PARALLEL_THRESHOLD);
+        if (threads <= 1) {
+            for (T item : work) {
+                task.run(item);
+            }
+            return;
+        }
+
+        final ExecutorService executor = Executors.newFixedThreadPool(threads, runnable -> {
+            final Thread thread = new Thread(runnable, "NeoGradle zip extraction");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        try {
+            //Every thread takes the next file, so large and small files are balanced between them.
+            final AtomicInteger next = new AtomicInteger();
+            final List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                futures.add(executor.submit(() -> {
+                    int index;
+                    while ((index = next.getAndIncrement()) < work.size()) {
+                        task.run(work.get(index));
+                    }
+                    return null;
+                }));
+            }
+
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    //Stop the other threads from taking more work.
+                    next.set(work.size());
+                    if (e.getCause() instanceof IOException exception) {
+                        throw exception;
+                    }
+                    throw new IOException("Failed to extract a file", e.getCause());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while extracting files");
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Compiles an Ant-style pattern, in which {@code *} and {@code ?} match within a directory, and {@code **} matches
+     * any number of directories. A pattern ending with {@code /} matches everything in that directory.
+     */
+    static Pattern compile(String pattern) {
+        String normalized = pattern.replace('\\', '/');
+        if (normalized.endsWith("/")) {
+            normalized += "**";
+        }
+
+        final StringBuilder regex = new StringBuilder();
+        final StringBuilder literal = new StringBuilder();
+        for (int i = 0; i < normalized.length(); i++) {
+            final char c = normalized.charAt(i);
+            if (c != '*' && c != '?') {
+                literal.append(c);
+                continue;
+            }
+
+            if (!literal.isEmpty()) {
+                regex.append(Pattern.quote(literal.toString()));
+                literal.setLength(0);
+            }
+
+            if (c == '?') {
+                regex.append("[^/]");
+            } else if (i + 1 < normalized.length() && normalized.charAt(i + 1) == '*') {
+                if (i + 2 < normalized.length() && normalized.charAt(i + 2) == '/') {
+                    regex.append("(?:.*/)?");
+                    i += 2;
+                } else {
+                    regex.append(".*");
+                    i += 1;
+                }
+            } else {
+                regex.append("[^/]*");
+            }
+        }
+
+        if (!literal.isEmpty()) {
+            regex.append(Pattern.quote(literal.toString()));
+        }
+
+        return Pattern.compile(regex.toString());
+    }
+
+    /**
+     * @param written The number of files which were written.
+     * @param unchanged The number of files which already existed, and were not written again.
+     * @param deleted The number of files and directories which were deleted, because they were not extracted.
+     */
+    public record Result(int written, int unchanged, int deleted) {}
+
+    /**
+     * Receives the progress of an extraction.
+     */
+    public interface Listener {
+
+        Listener NONE = path -> {};
+
+        /**
+         * @param files The number of files which will be extracted.
+         */
+        default void started(int files) {
+        }
+
+        /**
+         * @param path The path of the entry, which was extracted.
+         */
+        void extracted(String path);
+    }
+
+    private record SynchronizedListener(Listener delegate) implements Listener {
+
+        @Override
+        public synchronized void started(int files) {
+            delegate.started(files);
+        }
+
+        @Override
+        public synchronized void extracted(String path) {
+            delegate.extracted(path);
+        }
+    }
+
+    @FunctionalInterface
+    private interface Task<T> {
+        void run(T item) throws IOException;
+    }
+}
@@ -0,0 +1,85 @@
+package net.neoforged.gradle.util;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+/**
+ * Compares the heap usage and throughput of the different ways of hashing a file.
+ * Run through the benchmark task: {@code ./gradlew :utils:benchmark}
+ */
+@Tag("benchmark")
+public class DigestUtilsBenchmark {
+
+    private static final long[] SIZES = { 1L << 20, 16L << 20, 128L << 20, 1L << 30 };
+    private static final int ITERATIONS = 3;
+
+    @TempDir
+    public Path temp;
+
+    @Test
+    public void hashingStrategies() throws IOException {
+        System.out.printf(Locale.ROOT, "%-12s %-14s %14s %16s%n", "Size", "Strategy", "MB/s", "Heap allocated");
+        for (long size : SIZES) {
+            final Path file = createFile(size);
+
+            final byte[] expected = run(size, "readAllBytes", digest -> digest.update(Files.readAllBytes(file)));
+            assertArrayEquals(expected, run(size, "streaming", digest -> DigestUtils.updateStreaming(digest, file)));
+            assertArrayEquals(expected, run(size, "mapped", digest -> DigestUtils.updateMapped(digest, file)));
+            assertArrayEquals(expected, run(size, "automatic", digest -> DigestUtils.update(digest, file)));
+
+            Files.delete(file);
+        }
+    }
+
+    private static byte[] run(long size, String name, Strategy strategy) throws IOException {
+        final com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        final long threadId = Thread.currentThread().getId();
+
+        byte[] result = null;
+        long bestNanos = Long.MAX_VALUE;
+        long allocated = 0;
+        for (int i = 0; i < ITERATIONS; i++) {
+            final MessageDigest digest = HashFunction.SHA1.get();
+            final long allocatedBefore = threads.getThreadAllocatedBytes(threadId);
+            final long start = System.nanoTime();
+            strategy.update(digest);
+            result = digest.digest();
+            bestNanos = Math.min(bestNanos, System.nanoTime() - start);
+            allocated = threads.getThreadAllocatedBytes(threadId) - allocatedBefore;
+        }
+
+        final double throughput = (size / (1024d * 1024d)) / (bestNanos / 1_000_000_000d);
+        System.out.printf(Locale.ROOT, "%-12s %-14s %14.1f %16s%n", (size >> 20) + " MB", name, throughput, (allocated >> 10) + " KB");
+        return result;
+    }
+
+    private Path createFile(long size) throws IOException {
+        final Path file = temp.resolve("benchmark-" + size + ".bin");
+        final byte[] chunk = new byte[1 << 20];
+        final Random random = new Random(size);
+        try (OutputStream output = Files.newOutputStream(file)) {
+            for (long written = 0; written < size; written += chunk.length) {
+                random.nextBytes(chunk);
+                output.write(chunk, 0, (int) Math.min(chunk.length, size - written));
+            }
+        }
+        return file;
+    }
+
+    @FunctionalInterface
+    private interface Strategy {
+        void update(MessageDigest digest) throws IOException;
+    }
+}
@@ -0,0 +1,96 @@
+package net.neoforged.gradle.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class DigestUtilsTest {
+
+    @TempDir
+    public Path temp;
+
+    @Test
+    public void emptyFilesAreHashedLikeEmptyArrays() throws IOException {
+        assertAllStrategiesMatch(0);
+    }
+
+    @Test
+    public void filesSmallerThanTheBufferAreHashedCorrectly() throws IOException {
+        assertAllStrategiesMatch(1_000);
+    }
+
+    @Test
+    public void filesSpanningMultipleBuffersAreHashedCorrectly() throws IOException {
+        assertAllStrategiesMatch(DigestUtils.BUFFER_SIZE * 3 + 17);
+    }
+
+    @Test
+    public void filesAboveTheMappingThresholdAreHashedCorrectly() throws IOException {
+        assertAllStrategiesMatch((int) DigestUtils.MAPPING_THRESHOLD + 123);
+    }
+
+    @Test
+    public void streamsAreHashedCorrectly() throws IOException {
+        final byte[] data = randomBytes(DigestUtils.BUFFER_SIZE * 2 + 5);
+        final MessageDigest digest = HashFunction.SHA1.get();
+
+        DigestUtils.update(digest, new ByteArrayInputStream(data));
+
+        assertArrayEquals(HashFunction.SHA1.get().digest(data), digest.digest());
+    }
+
+    @Test
+    public void hashFunctionsProduceTheSameHashForFilesStreamsAndBytes() throws IOException {
+        final byte[] data = randomBytes(100_000);
+        final Path file = temp.resolve("file.bin");
+        Files.write(file, data);
+
+        for (HashFunction function : HashFunction.values()) {
+            final String expected = function.hash(data);
+            assertEquals(expected, function.hash(file));
+            assertEquals(expected, function.hash(file.toFile()));
+            assertEquals(expected, function.hash(new ByteArrayInputStream(data)));
+        }
+    }
+
+    @Test
+    public void fileSizeIsReadFromMetadata() throws IOException {
+        final Path file = temp.resolve("file.bin");
+        Files.write(file, new byte[12_345]);
+
+        assertEquals(12_345, FileUtils.getFileSize(file.toFile()));
+    }
+
+    private void assertAllStrategiesMatch(int size) throws IOException {
+        final byte[] data = randomBytes(size);
+        final Path file = temp.resolve("file.bin");
+        Files.write(file, data);
+        final byte[] expected = HashFunction.SHA256.get().digest(data);
+
+        final MessageDigest automatic = HashFunction.SHA256.get();
+        DigestUtils.update(automatic, file);
+        final MessageDigest streaming = HashFunction.SHA256.get();
+        DigestUtils.updateStreaming(streaming, file);
+        final MessageDigest mapped = HashFunction.SHA256.get();
+        DigestUtils.updateMapped(mapped, file);
+
+        assertArrayEquals(expected, automatic.digest());
+        assertArrayEquals(expected, streaming.digest());
+        assertArrayEquals(expected, mapped.digest());
+    }
+
+    private static byte[] randomBytes(int size) {
+        final byte[] data = new byte[size];
+        new Random(size).nextBytes(data);
+        return data;
+    }
+}
@@ -0,0 +1,139 @@
+package net.neoforged.gradle.util;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Enumeration;
+import java.util.Locale;
+import java.util.Random;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Compares extracting a jar with 200 MB of content through the zipTree path, which expands every entry into a temporary directory
+ * before copying it to the output, with the {@link ZipExtractor}.
+ * Run through the benchmark task: {@code ./gradlew :utils:benchmark}
+ */
+@Tag("benchmark")
+public class ZipExtractorBenchmark {
+
+    private static final long SIZE = 200L << 20;
+    private static final int ENTRY_SIZE = 16 * 1024;
+
+    @TempDir
+    public Path temp;
+
+    @Test
+    public void extractLargeJar() throws IOException {
+        final Path jar = createJar();
+        final int entries = countEntries(jar);
+        System.out.printf(Locale.ROOT, "Jar of %d MB with %d entries%n", Files.size(jar) >> 20, entries);
+        System.out.printf(Locale.ROOT, "%-26s %10s %10s%n", "Strategy", "Millis", "Written");
+
+        run("zipTree path", () -> {
+            zipTreePath(jar, temp.resolve("expanded"), temp.resolve("zip-tree"));
+            return entries;
+        });
+        run("ZipExtractor, 1 thread", () -> new ZipExtractor().parallelism(1).extract(jar.toFile(), temp.resolve("single").toFile()).written());
+        run("ZipExtractor, 4 threads", () -> new ZipExtractor().parallelism(4).extract(jar.toFile(), temp.resolve("parallel").toFile()).written());
+        run("ZipExtractor, up-to-date", () -> new ZipExtractor().extract(jar.toFile(), temp.resolve("parallel").toFile()).written());
+
+        assertEquals(countFiles(temp.resolve("zip-tree")), countFiles(temp.resolve("parallel")));
+    }
+
+    private static void run(String name, Strategy strategy) throws IOException {
+        final long start = System.nanoTime();
+        final int written = strategy.run();
+        final long millis = (System.nanoTime() - start) / 1_000_000;
+        System.out.printf(Locale.ROOT, "%-26s %10d %10d%n", name, millis, written);
+    }
+
+    /**
+     * Mirrors the previous extraction: the output is walked, the filtered tree is fully expanded to count its files,
+     * and the expanded files are then copied to the output.
+     */
+    private static void zipTreePath(Path jar, Path expanded, Path output) throws IOException {
+        Files.createDirectories(output);
+        try (Stream<Path> existing = Files.walk(output)) {
+            existing.count();
+        }
+
+        try (ZipFile zip = new ZipFile(jar.toFile())) {
+            final Enumeration<? extends ZipEntry> entries = zip.entries();
+            while (entries.hasMoreElements()) {
+                final ZipEntry entry = entries.nextElement();
+                if (entry.isDirectory()) {
+                    continue;
+                }
+
+                final Path target = expanded.resolve(entry.getName());
+                Files.createDirectories(target.getParent());
+                try (InputStream input = zip.getInputStream(entry)) {
+                    Files.copy(input, target, StandardCopyOption.REPLACE_EXISTING);
+                }
+            }
+        }
+
+        try (Stream<Path> files = Files.walk(expanded)) {
+            for (Path file : (Iterable<Path>) files.filter(Files::isRegularFile)::iterator) {
+                final Path target = output.resolve(expanded.relativize(file).toString());
+                Files.createDirectories(target.getParent());
+                Files.copy(file, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+    }
+
+    /**
+     * Creates a jar with entries that compress like class files, which are spread over a few hundred packages.
+     */
+    private Path createJar() throws IOException {
+        final Path jar = temp.resolve("large.jar");
+        final Random random = new Random(SIZE);
+        final byte[] alphabet = new byte[64];
+        random.nextBytes(alphabet);
+
+        try (OutputStream output = Files.newOutputStream(jar);
+             ZipOutputStream stream = new ZipOutputStream(output)) {
+            final byte[] content = new byte[ENTRY_SIZE];
+            for (int i = 0; (long) i * ENTRY_SIZE < SIZE; i++) {
+                for (int j = 0; j < content.length; j++) {
+                    content[j] = alphabet[random.nextInt(alphabet.length)];
+                }
+
+                stream.putNextEntry(new ZipEntry("net/minecraft/package%d/Class%d.class".formatted(i % 300, i)));
+                stream.write(content);
+                stream.closeEntry();
+            }
+        }
+
+        return jar;
+    }
+
+    private static int countEntries(Path jar) throws IOException {
+        try (ZipFile zip = new ZipFile(jar.toFile())) {
+            return zip.size();
+        }
+    }
+
+    private static long countFiles(Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            return files.filter(Files::isRegularFile).count();
+        }
+    }
+
+    @FunctionalInterface
+    private interface Strategy {
+        int run() throws IOException;
+    }
+}
@@ -0,0 +1,204 @@
+package net.neoforged.gradle.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ZipExtractorTest {
+
+    @TempDir
+    public Path temp;
+
+    @Test
+    public void allEntriesAreExtracted() throws IOException {
+        final Path zip = zip(Map.of(
+                "a.txt", "a",
+                "nested/b.txt", "b",
+                "nested/deeper/c.txt", "c"
+        ));
+
+        final ZipExtractor.Result result = new ZipExtractor().extract(zip.toFile(), output().toFile());
+
+        assertEquals(3, result.written());
+        assertEquals(Set.of("a.txt", "nested/b.txt", "nested/deeper/c.txt"), files(output()));
+        assertEquals("c", Files.readString(output().resolve("nested/deeper/c.txt")));
+    }
+
+    @Test
+    public void entriesAreSelectedByPatterns() throws IOException {
+        final Path zip = zip(Map.of(
+                "META-INF/MANIFEST.MF", "manifest",
+                "META-INF/versions/9/module-info.class", "module",
+                "linux/x64/org/lwjgl/liblwjgl.so", "lwjgl",
+                "linux/x64/org/lwjgl/liblwjgl.so.sha1", "hash",
+                "windows/lwjgl.dll", "dll"
+        ));
+
+        new ZipExtractor()
+                .include("**/*.so", "**/*.dll")
+                .exclude("windows")
+                .extract(zip.toFile(), output().toFile());
+
+        assertEquals(Set.of("linux/x64/org/lwjgl/liblwjgl.so"), files(output()));
+    }
+
+    @Test
+    public void excludedDirectoriesExcludeTheirContents() throws IOException {
+        final Path zip = zip(Map.of(
+                "META-INF/MANIFEST.MF", "manifest",
+                "META-INF/versions/9/module-info.class", "module",
+                "liblwjgl.so", "lwjgl"
+        ));
+
+        new ZipExtractor().exclude("META-INF").extract(zip.toFile(), output().toFile());
+
+        assertEquals(Set.of("liblwjgl.so"), files(output()));
+    }
+
+    @Test
+    public void entriesAreRenamed() throws IOException {
+        final Path zip = zip(Map.of(
+                "linux/x64/org/lwjgl/liblwjgl.so", "lwjgl",
+                "linux/x64/org/lwjgl/opengl/liblwjgl_opengl.so", "opengl"
+        ));
+
+        //Flattens the natives, like the natives extraction does, which keeps the leading separator.
+        new ZipExtractor()
+                .rename(path -> path.substring(path.lastIndexOf('/')))
+                .extract(zip.toFile(), output().toFile());
+
+        assertEquals(Set.of("liblwjgl.so", "liblwjgl_opengl.so"), files(output()));
+    }
+
+    @Test
+    public void identicalFilesAreNotWrittenAgain() throws IOException {
+        final Path zip = zip(Map.of("a.txt", "content-a", "b.txt", "content-b"));
+        new ZipExtractor().extract(zip.toFile(), output().toFile());
+        final FileTime old = FileTime.fromMillis(1000);
+        Files.setLastModifiedTime(output().resolve("a.txt"), old);
+        Files.setLastModifiedTime(output().resolve("b.txt"), old);
+        //Same size, different content, which only the CRC detects.
+        Files.writeString(output().resolve("b.txt"), "content-x");
+        Files.setLastModifiedTime(output().resolve("b.txt"), old);
+
+        final ZipExtractor.Result result = new ZipExtractor().extract(zip.toFile(), output().toFile());
+
+        assertEquals(1, result.written());
+        assertEquals(1, result.unchanged());
+        assertEquals(old, Files.getLastModifiedTime(output().resolve("a.txt")));
+        assertEquals("content-b", Files.readString(output().resolve("b.txt")));
+    }
+
+    @Test
+    public void existingFilesAreKeptWithoutOverride() throws IOException {
+        final Path zip = zip(Map.of("a.txt", "content-a"));
+        Files.createDirectories(output());
+        Files.writeString(output().resolve("a.txt"), "modified");
+
+        new ZipExtractor().overrideExisting(false).extract(zip.toFile(), output().toFile());
+
+        assertEquals("modified", Files.readString(output().resolve("a.txt")));
+    }
+
+    @Test
+    public void cleaningDeletesFilesWhichWereNotExtracted() throws IOException {
+        final Path zip = zip(Map.of("kept/a.txt", "a"));
+        Files.createDirectories(output().resolve("stale/deeper"));
+        Files.writeString(output().resolve("stale/deeper/old.txt"), "old");
+        Files.writeString(output().resolve("old.txt"), "old");
+
+        final ZipExtractor.Result result = new ZipExtractor().clean(true).extract(zip.toFile(), output().toFile());
+
+        assertEquals(Set.of("kept/a.txt"), files(output()));
+        assertFalse(Files.exists(output().resolve("stale")));
+        assertEquals(4, result.deleted());
+    }
+
+    @Test
+    public void entriesOutsideOfTheOutputAreRejected() throws IOException {
+        final Path zip = zip(Map.of("../escaped.txt", "escaped"));
+
+        assertThrows(IOException.class, () -> new ZipExtractor().extract(zip.toFile(), output().toFile()));
+        assertFalse(Files.exists(temp.resolve("escaped.txt")));
+    }
+
+    @Test
+    public void manyFilesAreWrittenInParallel() throws IOException {
+        final Map<String, String> entries = new LinkedHashMap<>();
+        for (int i = 0; i < 500; i++) {
+            entries.put("directory%d/file%d.txt".formatted(i % 10, i), "content of file " + i);
+        }
+        final Path zip = zip(entries);
+        final Set<String> threads = ConcurrentHashMap.newKeySet();
+        final Set<String> reported = ConcurrentHashMap.newKeySet();
+
+        final ZipExtractor.Result result = new ZipExtractor().parallelism(4).extract(zip.toFile(), output().toFile(), path -> {
+            threads.add(Thread.currentThread().getName());
+            reported.add(path);
+        });
+
+        assertEquals(500, result.written());
+        assertEquals(entries.keySet(), reported);
+        assertEquals(entries.keySet(), files(output()));
+        for (Map.Entry<String, String> entry : entries.entrySet()) {
+            assertArrayEquals(entry.getValue().getBytes(), Files.readAllBytes(output().resolve(entry.getKey())));
+        }
+        assertFalse(threads.contains(Thread.currentThread().getName()));
+    }
+
+    @Test
+    public void patternsFollowAntConventions() {
+        assertTrue(ZipExtractor.compile("**/*.so").matcher("a/b/c.so").matches());
+        assertTrue(ZipExtractor.compile("**/*.so").matcher("c.so").matches());
+        assertFalse(ZipExtractor.compile("*.so").matcher("a/c.so").matches());
+        assertTrue(ZipExtractor.compile("META-INF/**").matcher("META-INF/versions/9/a.class").matches());
+        assertTrue(ZipExtractor.compile("META-INF/").matcher("META-INF/MANIFEST.MF").matches());
+        assertTrue(ZipExtractor.compile("a?c.txt").matcher("abc.txt").matches());
+        assertFalse(ZipExtractor.compile("a?c.txt").matcher("a/c.txt").matches());
+        assertTrue(ZipExtractor.compile("lib(1).jar").matcher("lib(1).jar").matches());
+    }
+
+    private Path output() {
+        return temp.resolve("output");
+    }
+
+    private Path zip(Map<String, String> entries) throws IOException {
+        final Path zip = temp.resolve("archive.zip");
+        try (OutputStream output = Files.newOutputStream(zip);
+             ZipOutputStream stream = new ZipOutputStream(output)) {
+            for (Map.Entry<String, String> entry : entries.entrySet()) {
+                stream.putNextEntry(new ZipEntry(entry.getKey()));
+                stream.write(entry.getValue().getBytes());
+                stream.closeEntry();
+            }
+        }
+        return zip;
+    }
+
+    private static Set<String> files(Path root) throws IOException {
+        try (Stream<Path> files = Files.walk(root)) {
+            return files.filter(Files::isRegularFile)
+                    .map(path -> root.relativize(path).toString().replace('\\', '/'))
+                    .collect(Collectors.toSet());
+        }
+    }
+}
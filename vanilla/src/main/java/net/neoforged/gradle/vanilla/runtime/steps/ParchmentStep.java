@@ -1,12 +1,12 @@
 package net.neoforged.gradle.vanilla.runtime.steps;
 
 import com.google.common.collect.Maps;
-import net.neoforged.gradle.common.runtime.tasks.DefaultExecute;
 import net.neoforged.gradle.common.runtime.tasks.NoopRuntime;
+import net.neoforged.gradle.common.runtime.tasks.SourceTransformation;
+import net.neoforged.gradle.common.util.CommonRuntimeTaskUtils;
 import net.neoforged.gradle.common.util.ToolUtilities;
 import net.neoforged.gradle.dsl.common.extensions.subsystems.Parchment;
 import net.neoforged.gradle.dsl.common.extensions.subsystems.Subsystems;
-import net.neoforged.gradle.dsl.common.extensions.subsystems.Tools;
 import net.neoforged.gradle.dsl.common.runtime.tasks.Runtime;
 import net.neoforged.gradle.dsl.common.tasks.WithOutput;
 import net.neoforged.gradle.dsl.common.util.CommonRuntimeUtils;
@@ -44,7 +44,6 @@ public class ParchmentStep implements IStep {
                                                                        Provider<RegularFile> listLibrariesOutput) {
         Project project = definition.getSpecification().getProject();
         Parchment parchment = project.getExtensions().getByType(Subsystems.class).getParchment();
-        Tools tools = project.getExtensions().getByType(Subsystems.class).getTools();
 
         if (!parchment.getIsEnabled().get()) {
             return project.getTasks().register(CommonRuntimeUtils.buildTaskName(definition, "applyParchmentNoop"), NoopRuntime.class, task -> {
@@ -52,40 +51,12 @@ public class ParchmentStep implements IStep {
             });
         }
 
-        return project.getTasks().register(CommonRuntimeUtils.buildTaskName(definition, "applyParchment"), DefaultExecute.class, task -> {
-            // Provide the mappings via artifact
-            File mappingFile = ToolUtilities.resolveTool(project, parchment.getParchmentArtifact().get());
-            File toolExecutable = ToolUtilities.resolveTool(project, tools.getJST().get());
+        // Provide the mappings via artifact
+        final Provider<File> mappingFile = project.provider(() -> ToolUtilities.resolveTool(project, parchment.getParchmentArtifact().get()));
 
-            task.getArguments().putFile("mappings", project.provider(() -> mappingFile));
-            task.getArguments().putRegularFile("libraries", listLibrariesOutput);
-            task.getArguments().putRegularFile("input", inputProvidingTask.flatMap(WithOutput::getOutput));
-
-            task.getExecutingJar().set(toolExecutable);
-            task.getProgramArguments().add("--libraries-list");
-            task.getProgramArguments().add("{libraries}");
-            task.getProgramArguments().add("--enable-parchment");
-            task.getProgramArguments().add("--parchment-mappings");
-            task.getProgramArguments().add("{mappings}");
-            task.getProgramArguments().add("--in-format=archive");
-            task.getProgramArguments().add("--out-format=archive");
-            task.getProgramArguments().add("{input}");
-            task.getProgramArguments().add("{output}");
-
-            final StringBuilder builder = new StringBuilder();
-            definition.getAllDependencies().forEach(f -> {
-                if (!builder.isEmpty()) {
-                    builder.append(File.pathSeparator);
-                }
-                builder.append(f.getAbsolutePath());
-            });
-            task.getProgramArguments().add("--classpath=" + builder);
-
-            task.dependsOn(inputProvidingTask);
-            task.dependsOn(listLibrariesOutput);
-
-            configureCommonRuntimeTaskParameters(task, Maps.newHashMap(), "applyParchment", definition.getSpecification(), vanillaDirectory);
-        });
+        final TaskProvider<? extends SourceTransformation> parchmentTask = CommonRuntimeTaskUtils.createSourceParchment(definition, inputProvidingTask, listLibrariesOutput, definition.getAllDependencies(), mappingFile, null);
+        parchmentTask.configure(task -> configureCommonRuntimeTaskParameters(task, Maps.newHashMap(), "applyParchment", definition.getSpecification(), vanillaDirectory));
+        return parchmentTask;
     }
 
     @Override